@@ -16,6 +16,7 @@
 
 package com.google.copybara;
 
+import static com.google.common.base.Throwables.throwIfUnchecked;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 
 import com.google.common.base.CharMatcher;
@@ -24,11 +25,16 @@ import com.google.common.base.Predicate;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.Lists;
 import com.google.copybara.doc.annotations.DocSignaturePrefix;
 import com.google.copybara.exception.ValidationException;
 import com.google.errorprone.annotations.CheckReturnValue;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import net.starlark.java.annot.Param;
 import net.starlark.java.annot.StarlarkBuiltin;
@@ -53,6 +59,8 @@ public final class ChangeMessage implements StarlarkValue {
   private static final String DOUBLE_NEWLINE = "\n\n";
   private static final String DASH_DASH_SEPARATOR = "\n--\n";
   private static final CharMatcher TRIM = CharMatcher.is('\n');
+  // Minimum number of messages parsed by each thread in labelsOfAll
+  private static final int MESSAGES_PER_THREAD = 1000;
 
   private final String text;
   private final String groupSeparator;
@@ -97,6 +105,49 @@ public final class ChangeMessage implements StarlarkValue {
     return new ChangeMessage("", DOUBLE_NEWLINE, linesAsLabels(message));
   }
 
+  /**
+   * Returns the labels of each of the {@code messages}, treating all the lines as possible labels
+   * like {@link #parseAllAsLabels(String)}. Long lists of messages are parsed in parallel.
+   */
+  public static ImmutableList<ImmutableListMultimap<String, String>> labelsOfAll(
+      List<String> messages) {
+    int threads =
+        Math.min(Runtime.getRuntime().availableProcessors(), messages.size() / MESSAGES_PER_THREAD);
+    if (threads <= 1) {
+      return labelsOf(messages);
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<ImmutableList<ImmutableListMultimap<String, String>>>> batches =
+          new ArrayList<>();
+      for (List<String> batch :
+          Lists.partition(messages, (messages.size() + threads - 1) / threads)) {
+        batches.add(executor.submit(() -> labelsOf(batch)));
+      }
+      ImmutableList.Builder<ImmutableListMultimap<String, String>> result =
+          ImmutableList.builderWithExpectedSize(messages.size());
+      for (Future<ImmutableList<ImmutableListMultimap<String, String>>> batch : batches) {
+        result.addAll(batch.get());
+      }
+      return result.build();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while parsing change messages", e);
+    } catch (ExecutionException e) {
+      throwIfUnchecked(e.getCause());
+      throw new RuntimeException(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static ImmutableList<ImmutableListMultimap<String, String>> labelsOf(
+      List<String> messages) {
+    return messages.stream()
+        .map(m -> parseAllAsLabels(m).labelsAsMultimap())
+        .collect(toImmutableList());
+  }
+
   private static List<LabelFinder> linesAsLabels(String message) {
     Preconditions.checkNotNull(message);
     return Splitter.on('\n').splitToList(TRIM.trimTrailingFrom(message)).stream()
@@ -20,14 +20,17 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Verify;
+import com.google.common.collect.ImmutableList;
 import com.google.common.flogger.FluentLogger;
+import com.google.copybara.treestate.TreeState;
+import com.google.copybara.treestate.TreeState.FileState;
 import com.google.copybara.util.Glob;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import javax.annotation.Nullable;
 import net.starlark.java.annot.Param;
 import net.starlark.java.annot.StarlarkBuiltin;
 import net.starlark.java.annot.StarlarkMethod;
@@ -42,10 +45,18 @@ import net.starlark.java.eval.StarlarkValue;
 public class CheckoutFileSystem implements StarlarkValue {
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
   private final Path checkoutDir;
+  // When present, listings are served from it and writes are reported to it.
+  @Nullable private final TreeState treeState;
 
   public CheckoutFileSystem(Path checkoutDir) {
+    this(checkoutDir, /* treeState= */ null);
+  }
+
+  protected CheckoutFileSystem(Path checkoutDir, @Nullable TreeState treeState) {
     this.checkoutDir = Preconditions.checkNotNull(checkoutDir);
+    this.treeState = treeState;
   }
+
   @StarlarkMethod(
       name = "new_path",
       doc = "Create a new path",
@@ -56,7 +67,7 @@ public class CheckoutFileSystem implements StarlarkValue {
       })
   public CheckoutPath newPath(String path) throws EvalException {
     return CheckoutPath.createWithCheckoutDir(
-        checkoutDir.getFileSystem().getPath(path), checkoutDir);
+        checkoutDir.getFileSystem().getPath(path), checkoutDir, treeState);
   }
 
   @StarlarkMethod(
@@ -96,6 +107,7 @@ public class CheckoutFileSystem implements StarlarkValue {
           linkFullPath.getParent().resolve(relativized).normalize().startsWith(checkoutDir),
           "%s path escapes the checkout dir", relativized);
       Files.createSymbolicLink(linkFullPath, relativized);
+      trackWrite(linkFullPath);
     } catch (IOException e) {
       String msg = "Cannot create symlink: " + e.getMessage();
       logger.atSevere().withCause(e).log("%s", msg);
@@ -116,6 +128,7 @@ public class CheckoutFileSystem implements StarlarkValue {
       Files.createDirectories(fullPath.getParent());
     }
     Files.write(fullPath, content.getBytes(UTF_8));
+    trackWrite(fullPath);
   }
 
   @StarlarkMethod(
@@ -153,15 +166,38 @@ public class CheckoutFileSystem implements StarlarkValue {
           @Param(name = "paths", doc = "A glob representing the paths to list"),
       })
   public StarlarkList<CheckoutPath> list(Glob glob) throws IOException {
-    PathMatcher pathMatcher = glob.relativeTo(checkoutDir);
+    ImmutableList<Path> candidates = findFiles(glob.relativeTo(checkoutDir));
+    // Materialized on first access, so that callers that only pass the list around (or never
+    // look at it) don't pay for the file checks.
+    return StarlarkList.lazyImmutable(
+        () ->
+            candidates.stream()
+                .filter(Files::isRegularFile)
+                .sorted()
+                .map(p -> new CheckoutPath(checkoutDir.relativize(p), checkoutDir, treeState))
+                .collect(ImmutableList.toImmutableList()));
+  }
 
+  /**
+   * Returns the files in the checkout dir matching {@code pathMatcher}. Might include non-regular
+   * files like symlinks to directories.
+   */
+  private ImmutableList<Path> findFiles(PathMatcher pathMatcher) throws IOException {
+    if (treeState != null) {
+      ImmutableList.Builder<Path> result = ImmutableList.builder();
+      for (FileState file : treeState.find(pathMatcher)) {
+        result.add(file.getPath());
+      }
+      return result.build();
+    }
     try (Stream<Path> stream = Files.walk(checkoutDir)) {
-      return StarlarkList.immutableCopyOf(
-          stream
-              .filter(Files::isRegularFile)
-              .filter(pathMatcher::matches)
-              .map(p -> new CheckoutPath(checkoutDir.relativize(p), checkoutDir))
-              .collect(Collectors.toList()));
+      return stream.filter(pathMatcher::matches).collect(ImmutableList.toImmutableList());
+    }
+  }
+
+  private void trackWrite(Path fullPath) {
+    if (treeState != null) {
+      treeState.trackWrite(fullPath);
     }
   }
 
@@ -21,6 +21,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.flogger.FluentLogger;
 import com.google.copybara.doc.annotations.DocSignaturePrefix;
 import com.google.copybara.exception.ValidationException;
+import com.google.copybara.treestate.TreeState;
 import com.google.copybara.util.FileUtil;
 import com.google.copybara.util.FileUtil.ResolvedSymlink;
 import com.google.copybara.util.Glob;
@@ -31,6 +32,7 @@ import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Objects;
+import javax.annotation.Nullable;
 import net.starlark.java.annot.Param;
 import net.starlark.java.annot.ParamType;
 import net.starlark.java.annot.StarlarkBuiltin;
@@ -57,19 +59,31 @@ public class CheckoutPath implements Comparable<CheckoutPath>, StarlarkValue {
 
   private final Path path;
   private final Path checkoutDir;
+  // Notified of deletions so that cached listings of the checkout dir stay coherent.
+  @Nullable private final TreeState treeState;
 
   CheckoutPath(Path path, Path checkoutDir) {
+    this(path, checkoutDir, /* treeState= */ null);
+  }
+
+  CheckoutPath(Path path, Path checkoutDir, @Nullable TreeState treeState) {
     this.path = Preconditions.checkNotNull(path);
     this.checkoutDir = Preconditions.checkNotNull(checkoutDir);
+    this.treeState = treeState;
   }
 
   private CheckoutPath create(Path path) throws EvalException {
-    return createWithCheckoutDir(path, checkoutDir);
+    return createWithCheckoutDir(path, checkoutDir, treeState);
   }
 
   @VisibleForTesting
   public static CheckoutPath createWithCheckoutDir(Path relative, Path checkoutDir)
       throws EvalException {
+    return createWithCheckoutDir(relative, checkoutDir, /* treeState= */ null);
+  }
+
+  static CheckoutPath createWithCheckoutDir(
+      Path relative, Path checkoutDir, @Nullable TreeState treeState) throws EvalException {
     if (relative.isAbsolute()) {
       throw Starlark.errorf("Absolute paths are not allowed: %s", relative);
     }
@@ -78,7 +92,7 @@ public class CheckoutPath implements Comparable<CheckoutPath>, StarlarkValue {
       throw Starlark.errorf("Escaping the checkout dir is not allowed: %s", relative);
     }
 
-    return new CheckoutPath(relative.normalize(), checkoutDir);
+    return new CheckoutPath(relative.normalize(), checkoutDir, treeState);
   }
 
   @StarlarkMethod(
@@ -221,6 +235,7 @@ public class CheckoutPath implements Comparable<CheckoutPath>, StarlarkValue {
   public void remove() throws ValidationException, EvalException {
     try {
       Files.delete(checkoutDir.resolve(path));
+      trackDelete();
     } catch (IOException e) {
       if (e.getCause() instanceof NoSuchFileException) {
         throw Starlark.errorf("Could not find file %s, received error %s", path, e.toString());
@@ -251,6 +266,7 @@ public class CheckoutPath implements Comparable<CheckoutPath>, StarlarkValue {
       } else {
         Files.delete(checkoutDir.resolve(path));
       }
+      trackDelete();
     } catch (IOException e) {
       if (e.getCause() instanceof NoSuchFileException) {
         throw Starlark.errorf("Could not find file %s, received error %s", path, e.toString());
@@ -270,6 +286,22 @@ public class CheckoutPath implements Comparable<CheckoutPath>, StarlarkValue {
     return path;
   }
 
+  /**
+   * Notify that files at or below this path were created or deleted by means that are not tracked
+   * by {@link TreeState}, so that any cached listing of the checkout dir is discarded.
+   */
+  public void notifyUntrackedChange() {
+    if (treeState != null) {
+      treeState.clearCache();
+    }
+  }
+
+  private void trackDelete() {
+    if (treeState != null) {
+      treeState.trackDelete(checkoutDir.resolve(path).normalize());
+    }
+  }
+
   public Path getCheckoutDir() {
     return checkoutDir;
   }
@@ -45,11 +45,13 @@ import com.google.copybara.util.CommandRunner;
 import com.google.copybara.util.DirFactory;
 import com.google.copybara.util.console.Console;
 import com.google.copybara.util.console.StarlarkMode;
+import com.google.copybara.version.VersionListCache;
 import com.google.copybara.shell.Command;
 import java.io.IOException;
 import java.nio.file.FileSystem;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Clock;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -355,6 +357,37 @@ public final class GeneralOptions implements Option {
       converter = DurationConverter.class)
   public Duration commandsTimeout = CommandRunner.DEFAULT_TIMEOUT;
 
+  @Parameter(
+      names = {"--version-list-cache-ttl"},
+      description =
+          "How long the versions listed from package registries and remote git repositories are"
+              + " reused, in this and later runs, instead of listing them again. Disabled by"
+              + " default.",
+      converter = DurationConverter.class)
+  public Duration versionListCacheTtl = Duration.ZERO;
+
+  private VersionListCache versionListCache;
+
+  /**
+   * Returns the cache for the versions listed from remote sources, stored in the cache directory.
+   */
+  public synchronized VersionListCache getVersionListCache() {
+    if (versionListCache == null) {
+      if (versionListCacheTtl.isZero()) {
+        versionListCache = VersionListCache.DISABLED;
+      } else {
+        Path dir = null;
+        try {
+          dir = getDirFactory().getCacheDir("version_lists");
+        } catch (IOException e) {
+          logger.atWarning().withCause(e).log("Version lists won't be stored on disk");
+        }
+        versionListCache = new VersionListCache(dir, versionListCacheTtl, Clock.systemUTC());
+      }
+    }
+    return versionListCache;
+  }
+
   public CommandRunner newCommandRunner(Command cmd) {
     return new CommandRunner(cmd, commandsTimeout);
   }
@@ -560,6 +593,18 @@ public final class GeneralOptions implements Option {
               + " table or list output. In table, leaves out origin, destination and mode.")
   public boolean infoIncludeDefinition = false;
 
+  @Parameter(
+      names = "--info-all-migrations",
+      description =
+          "When set and no migration is passed, the INFO command reads and prints the state of"
+              + " every migration in the config, instead of only listing them.")
+  public boolean infoAllMigrations = false;
+
+  @Parameter(
+      names = "--info-threads",
+      description = "Number of migrations whose state is read in parallel by the INFO command.")
+  public int infoThreads = 8;
+
   @Parameter(
       names = {"--event-monitor"},
       description = "Eventmonitors to enable. These must be in the list of available monitors.")
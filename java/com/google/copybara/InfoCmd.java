@@ -21,11 +21,13 @@ import com.google.common.base.Ascii;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.SettableFuture;
 import com.google.copybara.Info.MigrationReference;
 import com.google.copybara.config.Config;
 import com.google.copybara.config.Migration;
@@ -43,7 +45,13 @@ import java.io.IOException;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import net.starlark.java.eval.StarlarkThread.CallStackEntry;
 
 /**
@@ -92,6 +100,12 @@ public class InfoCmd implements CopybaraCmd {
               context);
 
       return hasAvailableChanges ? ExitCode.SUCCESS : ExitCode.NO_OP;
+    } else if (commandEnv.getOptions().get(GeneralOptions.class).infoAllMigrations) {
+      ImmutableMap<String, String> context = contextProvider.getContext(
+          config, configFileArgs, configLoaderProvider, commandEnv.getOptions(), console);
+      return infoAllMigrations(commandEnv.getOptions(), config.getConfig(), context)
+          ? ExitCode.SUCCESS
+          : ExitCode.NO_OP;
     } else {
       showAllMigrations(commandEnv, config.getConfig(), includeDefinitions);
       return ExitCode.SUCCESS;
@@ -207,11 +221,101 @@ public class InfoCmd implements CopybaraCmd {
     }
   }
 
+  /**
+   * Retrieves the {@link Info} of all the migrations, in parallel for different origins, and prints
+   * them to the console.
+   *
+   * <p>The output is in migration name order, and the info of a migration is printed as soon as it
+   * and the ones before it are available. A migration that fails doesn't stop the rest, but its
+   * error is thrown at the end.
+   */
+  private static boolean infoAllMigrations(
+      Options options, Config config, ImmutableMap<String, String> context)
+      throws ValidationException, RepoException {
+    GeneralOptions generalOptions = options.get(GeneralOptions.class);
+    Console console = generalOptions.console();
+    ImmutableList<Migration> migrations =
+        ImmutableList.sortedCopyOf(
+            Comparator.comparing(Migration::getName), config.getMigrations().values());
+    // Migrations that read the same origin share its cached repository, so they are read one
+    // after the other in the same task. Different origins are read in parallel.
+    Map<String, List<Migration>> byOrigin = new LinkedHashMap<>();
+    for (Migration migration : migrations) {
+      String url = Iterables.getFirst(migration.getOriginDescription().get("url"), null);
+      byOrigin
+          .computeIfAbsent(
+              url == null ? "migration " + migration.getName() : "url " + url,
+              k -> new ArrayList<>())
+          .add(migration);
+    }
+    ExecutorService executor =
+        Executors.newFixedThreadPool(Math.max(1, generalOptions.infoThreads));
+    try {
+      Map<String, SettableFuture<Info<? extends Revision>>> infos = new HashMap<>();
+      for (Migration migration : migrations) {
+        infos.put(migration.getName(), SettableFuture.create());
+      }
+      for (List<Migration> group : byOrigin.values()) {
+        executor.execute(
+            () -> {
+              // Migrations of the same origin resolve, and fetch, its reference only once.
+              Map<Object, Revision> resolvedOrigins = new HashMap<>();
+              for (Migration migration : group) {
+                SettableFuture<Info<? extends Revision>> info = infos.get(migration.getName());
+                try {
+                  info.set(migration.getInfo(resolvedOrigins));
+                } catch (Throwable e) {
+                  // Any failure, so that the console output never waits for it forever.
+                  info.setException(e);
+                }
+              }
+            });
+      }
+      boolean hasAvailableChanges = false;
+      Exception firstError = null;
+      for (Migration migration : migrations) {
+        console.infoFmt("Migration '%s':", migration.getName());
+        Info<? extends Revision> info;
+        try {
+          info = infos.get(migration.getName()).get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new RepoException("Interrupted while reading the state of the migrations", e);
+        } catch (ExecutionException e) {
+          Throwables.throwIfUnchecked(e.getCause());
+          Exception cause = (Exception) e.getCause();
+          console.errorFmt(
+              "Cannot read the state of '%s': %s", migration.getName(), cause.getMessage());
+          generalOptions.eventMonitors()
+              .dispatchEvent(d -> d.onInfoFailed(new InfoFailedEvent(cause.getMessage(), context)));
+          if (firstError == null) {
+            firstError = cause;
+          }
+          continue;
+        }
+        hasAvailableChanges |= printInfo(options, info, context);
+      }
+      Throwables.throwIfInstanceOf(firstError, ValidationException.class);
+      Throwables.throwIfInstanceOf(firstError, RepoException.class);
+      if (firstError != null) {
+        throw new RepoException("Error reading the state of the migrations", firstError);
+      }
+      return hasAvailableChanges;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   /** Retrieves the {@link Info} of the {@code migrationName} and prints it to the console. */
   private static boolean info(
       Options options, Config config, String migrationName, ImmutableMap<String, String> context)
       throws ValidationException, RepoException {
-    Info<? extends Revision> info = getInfo(migrationName, config);
+    return printInfo(options, getInfo(migrationName, config), context);
+  }
+
+  /** Prints {@code info} to the console and returns whether there are changes to migrate. */
+  private static boolean printInfo(
+      Options options, Info<? extends Revision> info, ImmutableMap<String, String> context) {
     Console console = options.get(GeneralOptions.class).console();
     int outputSize = 0;
     boolean hasAvailableChanges = false;
@@ -0,0 +1,289 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.flogger.FluentLogger;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Journal of an ITERATIVE migration, stored on disk so that the next run can resume a migration
+ * that died in the middle.
+ *
+ * <p>The journal contains the changes to migrate and the outcome of each change, including the
+ * destination references created for it. It is written when the migration starts and the outcome
+ * of every change is appended to it, so recording an outcome doesn't depend on the number of
+ * changes. It is deleted when the migration finishes. A journal can only be resumed if the last
+ * revision migrated according to the destination is the last one migrated in the journal, and the
+ * pending changes are still the next ones in the origin.
+ *
+ * <p>Writing is best effort: failures are logged and the migration continues without a journal on
+ * disk.
+ */
+final class IterativeJournal {
+
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  /** What happened to a change of the migration. */
+  enum Outcome {
+    PENDING,
+    MIGRATED,
+    EMPTY,
+    SKIPPED
+  }
+
+  /** A change to migrate and its outcome. */
+  record Entry(String revision, Outcome outcome, ImmutableList<String> destinationRefs) {}
+
+  private final Path file;
+  private final String key;
+  private final String start;
+  private final List<Entry> entries;
+  // Position of each revision in entries.
+  private final Map<String, Integer> positions = new HashMap<>();
+  // Set once the journal was deleted because it couldn't be written. Nothing is appended then.
+  private boolean disabled;
+
+  private IterativeJournal(Path file, String key, String start, List<Entry> entries) {
+    this.file = Preconditions.checkNotNull(file);
+    this.key = Preconditions.checkNotNull(key);
+    this.start = Preconditions.checkNotNull(start);
+    this.entries = entries;
+    for (int i = 0; i < entries.size(); i++) {
+      positions.putIfAbsent(entries.get(i).revision(), i);
+    }
+  }
+
+  /**
+   * Starts a journal for migrating {@code revisions}, in order, on top of {@code start}, the last
+   * revision migrated. {@code key} identifies the config of the migration.
+   */
+  static IterativeJournal create(
+      Path file, String key, @Nullable String start, List<String> revisions) {
+    List<Entry> entries = new ArrayList<>();
+    for (String revision : revisions) {
+      entries.add(new Entry(revision, Outcome.PENDING, ImmutableList.of()));
+    }
+    IterativeJournal journal = new IterativeJournal(file, key, nullToEmpty(start), entries);
+    journal.write();
+    return journal;
+  }
+
+  /**
+   * Reads the journal stored in {@code file}. Returns null if there is none, it cannot be read or
+   * it was written for a different {@code key}.
+   */
+  @Nullable
+  static IterativeJournal read(Path file, String key) {
+    try {
+      List<String> lines = Splitter.on('\n').splitToList(Files.readString(file, UTF_8));
+      // The last element is empty, or a line that was being appended when the process died.
+      lines = lines.subList(0, lines.size() - 1);
+      if (lines.size() < 2 || !lines.get(0).equals(key)) {
+        return null;
+      }
+      // Lines of changes that were recorded replace the previous ones for the same revision.
+      Map<String, Entry> entries = new LinkedHashMap<>();
+      for (String line : lines.subList(2, lines.size())) {
+        List<String> fields = Splitter.on('\t').splitToList(line);
+        if (fields.size() < 2) {
+          return null;
+        }
+        entries.put(
+            fields.get(0),
+            new Entry(
+                fields.get(0),
+                Outcome.valueOf(fields.get(1)),
+                ImmutableList.copyOf(fields.subList(2, fields.size()))));
+      }
+      return new IterativeJournal(file, key, lines.get(1), new ArrayList<>(entries.values()));
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException | IllegalArgumentException e) {
+      logger.atWarning().withCause(e).log("Cannot read iterative journal %s", file);
+      return null;
+    }
+  }
+
+  /**
+   * Returns a journal that continues this one with the {@code revisions} left to migrate after
+   * {@code lastRev}, the last revision migrated according to the destination. Outcomes of pending
+   * changes that were already recorded, for example empty changes, are kept.
+   *
+   * <p>Returns null if the journal cannot be resumed: {@code lastRev} is not the last revision
+   * migrated in the journal, or the changes that are pending in the journal are not the first of
+   * {@code revisions}.
+   */
+  @Nullable
+  IterativeJournal resume(@Nullable String lastRev, List<String> revisions) {
+    int next = 0;
+    for (int i = 0; i < entries.size(); i++) {
+      if (entries.get(i).outcome() == Outcome.MIGRATED) {
+        next = i + 1;
+      }
+    }
+    String expected = next == 0 ? start : entries.get(next - 1).revision();
+    List<Entry> pending = entries.subList(next, entries.size());
+    if (!expected.equals(nullToEmpty(lastRev)) || revisions.size() < pending.size()) {
+      return null;
+    }
+    List<Entry> resumed = new ArrayList<>(entries.subList(0, next));
+    for (int i = 0; i < revisions.size(); i++) {
+      if (i < pending.size()) {
+        if (!pending.get(i).revision().equals(revisions.get(i))) {
+          return null;
+        }
+        resumed.add(pending.get(i));
+      } else {
+        resumed.add(new Entry(revisions.get(i), Outcome.PENDING, ImmutableList.of()));
+      }
+    }
+    IterativeJournal journal = new IterativeJournal(file, key, start, resumed);
+    journal.write();
+    return journal;
+  }
+
+  /** Returns the outcome recorded for {@code revision}, or pending if there is none. */
+  Outcome outcome(String revision) {
+    Integer position = positions.get(revision);
+    return position == null ? Outcome.PENDING : entries.get(position).outcome();
+  }
+
+  /** Returns the number of changes migrated to the destination. */
+  int migrated() {
+    return (int) entries.stream().filter(e -> e.outcome() == Outcome.MIGRATED).count();
+  }
+
+  /** Records the outcome of {@code revision} and the destination references created for it. */
+  void record(String revision, Outcome outcome, List<String> destinationRefs) {
+    Integer position = positions.get(revision);
+    if (position == null) {
+      logger.atWarning().log("Revision %s is not in the iterative journal %s", revision, file);
+      return;
+    }
+    Entry entry = new Entry(revision, outcome, ImmutableList.copyOf(destinationRefs));
+    entries.set(position, entry);
+    append(entry);
+  }
+
+  @VisibleForTesting
+  ImmutableList<Entry> getEntries() {
+    return ImmutableList.copyOf(entries);
+  }
+
+  /** Deletes the journal once the migration finished. */
+  void delete() {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      logger.atWarning().withCause(e).log("Cannot delete iterative journal %s", file);
+    }
+  }
+
+  private static String nullToEmpty(@Nullable String revision) {
+    return revision == null ? "" : revision;
+  }
+
+  private static boolean fitsInField(String s) {
+    return s.indexOf('\n') == -1 && s.indexOf('\r') == -1 && s.indexOf('\t') == -1;
+  }
+
+  private static boolean fitsInFields(Entry entry) {
+    return fitsInField(entry.revision())
+        && entry.destinationRefs().stream().allMatch(IterativeJournal::fitsInField);
+  }
+
+  private static String line(Entry entry) {
+    ImmutableList<Object> fields =
+        ImmutableList.builder()
+            .add(entry.revision(), entry.outcome())
+            .addAll(entry.destinationRefs())
+            .build();
+    return Joiner.on('\t').join(fields) + '\n';
+  }
+
+  /**
+   * Writes the journal. The file contains the key, the start revision and a line per change with
+   * the revision, the outcome and the destination references, separated by tabs. Recorded outcomes
+   * are appended later as more lines for the same revisions.
+   */
+  private void write() {
+    if (!fitsInField(key)
+        || !fitsInField(start)
+        || !entries.stream().allMatch(IterativeJournal::fitsInFields)) {
+      // Doesn't fit in the file format. Don't leave an outdated journal behind.
+      disable();
+      return;
+    }
+    StringBuilder content = new StringBuilder();
+    content.append(key).append('\n').append(start).append('\n');
+    for (Entry entry : entries) {
+      content.append(line(entry));
+    }
+    try {
+      Files.createDirectories(file.getParent());
+      // Written to a temporary file first, so that a crash never leaves a partial journal.
+      Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+      Files.writeString(tmp, content, UTF_8);
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      logger.atWarning().withCause(e).log("Cannot write iterative journal %s", file);
+      disable();
+    }
+  }
+
+  /** Appends the line of {@code entry}, that replaces the previous one when the file is read. */
+  private void append(Entry entry) {
+    if (disabled) {
+      return;
+    }
+    if (!fitsInFields(entry)) {
+      disable();
+      return;
+    }
+    try {
+      // A partial line left by a crash is ignored when reading.
+      Files.writeString(file, line(entry), UTF_8, StandardOpenOption.APPEND);
+    } catch (IOException e) {
+      logger.atWarning().withCause(e).log("Cannot append to iterative journal %s", file);
+      disable();
+    }
+  }
+
+  /** Deletes the journal and stops writing to it, since it would be outdated or incomplete. */
+  private void disable() {
+    disabled = true;
+    delete();
+  }
+}
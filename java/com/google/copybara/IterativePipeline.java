@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.copybara.WorkflowRunHelper.ChangeMigrator;
+import com.google.copybara.WorkflowRunHelper.PreparedMigration;
+import com.google.copybara.effect.DestinationEffect;
+import com.google.copybara.exception.EmptyChangeException;
+import com.google.copybara.exception.RepoException;
+import com.google.copybara.exception.ValidationException;
+import com.google.copybara.profiler.Profiler.ProfilerTask;
+import com.google.copybara.revision.Change;
+import com.google.copybara.revision.Changes;
+import com.google.copybara.revision.Revision;
+import com.google.copybara.util.console.Console;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.Nullable;
+
+/**
+ * Checks out and transforms the next change of an ITERATIVE migration in a separate workdir while
+ * the current one is being written to the destination.
+ *
+ * <p>Changes are still written one at a time and in order from the caller thread, and only one
+ * change is checked out and transformed at a time. Transformations that read the destination or
+ * use the origin or destination APIs wait until the previous change has been written, so they see
+ * the same state as in a sequential migration. If the write fails, the preparation is cancelled
+ * before they can continue, so their side effects don't happen.
+ *
+ * <p>Preparations run in a single thread. Cancelling a preparation, or closing the pipeline, waits
+ * until the preparation stops, so that it never outlives the migration.
+ */
+final class IterativePipeline<O extends Revision, D extends Revision> implements AutoCloseable {
+
+  private final WorkflowRunHelper<O, D> runHelper;
+  private final ImmutableList<Path> workdirs;
+  private int nextWorkdir = 0;
+
+  @Nullable private Change<O> lastChange;
+  @Nullable private ChangeMigrator<O, D> lastMigrator;
+  @Nullable private Step<O, D> pendingStep;
+  @Nullable private Future<PreparedMigration> pending;
+  @Nullable private ExecutorService executor;
+
+  IterativePipeline(WorkflowRunHelper<O, D> runHelper) {
+    checkState(!runHelper.isMergeImport(), "Merge import cannot be pipelined");
+    this.runHelper = checkNotNull(runHelper);
+    Path workdir = runHelper.getWorkdir();
+    this.workdirs =
+        ImmutableList.of(workdir, workdir.resolveSibling(workdir.getFileName() + "_next"));
+  }
+
+  /** A change to migrate, together with the arguments needed to migrate it. */
+  record Step<O extends Revision, D extends Revision>(
+      Change<O> change,
+      ChangeMigrator<O, D> migrator,
+      Console console,
+      Metadata metadata,
+      Changes changes) {}
+
+  /**
+   * Returns the migrator for {@code change}. Consecutive changes use different workdirs, so that
+   * one can be transformed while the other one is being written.
+   */
+  ChangeMigrator<O, D> getMigrator(Change<O> change) throws RepoException, ValidationException {
+    if (change != lastChange) {
+      lastMigrator = runHelper.getMigratorForChange(change, workdirs.get(nextWorkdir));
+      lastChange = change;
+      nextWorkdir = (nextWorkdir + 1) % workdirs.size();
+    }
+    return lastMigrator;
+  }
+
+  /**
+   * Migrates {@code step} and, while it is being written, starts preparing {@code next}.
+   *
+   * <p>{@code step} is prepared first if it wasn't the {@code next} step of the previous call.
+   * Failures other than empty changes cancel the preparation of {@code next}, since the migration
+   * is aborted.
+   */
+  ImmutableList<DestinationEffect> migrate(
+      Step<O, D> step, @Nullable Step<O, D> next, @Nullable O lastRev, @Nullable O originBaseline)
+      throws IOException, RepoException, ValidationException {
+    Future<PreparedMigration> prepared;
+    if (pendingStep != null && pendingStep.change() == step.change()) {
+      prepared = pending;
+    } else {
+      cancel();
+      prepared = start(step, lastRev, originBaseline, /* previousWriteDone= */ null);
+    }
+    pendingStep = null;
+    pending = null;
+    CountDownLatch written = new CountDownLatch(1);
+    try {
+      if (next != null) {
+        pendingStep = next;
+        pending = start(next, lastRev, originBaseline, written);
+      }
+      return step.migrator().migratePrepared(step.changes(), step.console(), prepared);
+    } catch (ValidationException | RepoException | IOException | RuntimeException e) {
+      if (!(e instanceof EmptyChangeException)) {
+        cancel();
+      }
+      throw e;
+    } finally {
+      written.countDown();
+    }
+  }
+
+  /** Cancels the preparation of the next change, if any, and waits until it stops. */
+  void cancel() {
+    pendingStep = null;
+    pending = null;
+    if (executor != null) {
+      // Interrupts the running preparation. The next one uses a new executor.
+      executor.shutdownNow();
+      Uninterruptibles.awaitTerminationUninterruptibly(executor);
+      executor = null;
+    }
+  }
+
+  @Override
+  public void close() {
+    cancel();
+  }
+
+  private Future<PreparedMigration> start(
+      Step<O, D> step,
+      @Nullable O lastRev,
+      @Nullable O originBaseline,
+      @Nullable CountDownLatch previousWriteDone) {
+    if (executor == null) {
+      // Checkouts share the origin repository, so changes are prepared one at a time.
+      executor =
+          Executors.newSingleThreadExecutor(
+              new ThreadFactoryBuilder()
+                  .setNameFormat("iterative-prepare-%d")
+                  .setDaemon(true)
+                  .build());
+    }
+    return executor.submit(
+        () -> {
+          try (ProfilerTask ignored =
+              runHelper.profiler().start("prepare " + step.change().getRef())) {
+            return step.migrator()
+                .prepare(
+                    step.change().getRevision(),
+                    lastRev,
+                    step.console(),
+                    step.metadata(),
+                    step.changes(),
+                    /* destinationBaseline= */ null,
+                    step.change().getRevision(),
+                    originBaseline,
+                    previousWriteDone);
+          }
+        });
+  }
+}
@@ -19,6 +19,8 @@ package com.google.copybara;
 import static com.google.common.base.Preconditions.checkState;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.common.collect.Iterables;
 import com.google.copybara.exception.ValidationException;
 import com.google.copybara.templatetoken.LabelTemplate;
@@ -29,6 +31,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
 import java.util.function.Function;
+import javax.annotation.Nullable;
 
 /**
  * A simple line finder/parser for labels like:
@@ -42,6 +45,9 @@ import java.util.function.Function;
  * never to find labels. Use {@link TransformWork#getLabel(String)} instead, since it looks
  * in more places for labels.
  *
+ * <p>The line is parsed once, when the object is created, so instances are immutable and can be
+ * shared between threads.
+ *
  * TODO(malcon): Rename to MaybeLabel
  */
 public class LabelFinder {
@@ -57,12 +63,30 @@ public class LabelFinder {
 
   private static final Pattern LABEL_PATTERN = Pattern.compile(
       "^" + VALID_LABEL_EXPR + "( *[:=] ?)(.*)");
-  private final Matcher matcher;
+
+  // The same few label names are found in most of the messages of a repository.
+  private static final Interner<String> NAMES = Interners.newWeakInterner();
+
   private final String line;
+  @Nullable private final String name;
+  @Nullable private final String separator;
+  @Nullable private final String value;
 
   public LabelFinder(String line) {
-    matcher = LABEL_PATTERN.matcher(line);
     this.line = line;
+    // Most lines of a message are not labels. Skip the regex for the ones that cannot be.
+    Matcher matcher =
+        line.indexOf(':') == -1 && line.indexOf('=') == -1 ? null : LABEL_PATTERN.matcher(line);
+    // It is a label if it looks like a label but it doesn't look like a url (foo://bar)
+    if (matcher != null && matcher.matches() && !URL.matcher(line).matches()) {
+      this.name = NAMES.intern(matcher.group(1));
+      this.separator = matcher.group(2);
+      this.value = matcher.group(3);
+    } else {
+      this.name = null;
+      this.separator = null;
+      this.value = null;
+    }
   }
 
   /**
@@ -106,12 +130,11 @@ public class LabelFinder {
   }
 
   public boolean isLabel() {
-    // It is a line if it looks like a line but it doesn't look like a url (foo://bar)
-    return matcher.matches() && !URL.matcher(line).matches();
+    return name != null;
   }
 
   public boolean isLabel(String labelName) {
-    return isLabel() && getName().equals(labelName);
+    return name != null && name.equals(labelName);
   }
 
   /**
@@ -121,7 +144,7 @@ public class LabelFinder {
    */
   public String getName() {
     checkIsLabel();
-    return matcher.group(1);
+    return name;
   }
 
   /**
@@ -131,7 +154,7 @@ public class LabelFinder {
    */
   public String getSeparator() {
     checkIsLabel();
-    return matcher.group(2);
+    return separator;
   }
 
   /**
@@ -141,7 +164,7 @@ public class LabelFinder {
    */
   public String getValue() {
     checkIsLabel();
-    return matcher.group(3);
+    return value;
   }
 
   private void checkIsLabel() {
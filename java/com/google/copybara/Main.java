@@ -60,6 +60,7 @@ import com.google.copybara.util.console.Consoles;
 import com.google.copybara.util.console.FileConsole;
 import com.google.copybara.util.console.LogConsole;
 import com.google.copybara.util.console.NoPromptConsole;
+import com.google.copybara.watch.WatchCmd;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -95,7 +96,8 @@ public class Main {
               "migrate", true,
               "info", false,
               "validate", false,
-              "regenerate", true);
+              "regenerate", true,
+              "watch", true);
 
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
   private static final String BUILD_DATA_PROPERTIES = "/build-data.properties";
@@ -339,7 +341,8 @@ public class Main {
         new OnboardCmd(),
         new GeneratorCmd(moduleSet),
         new VersionCmd(),
-        new RegenerateCmd(configLoaderProvider));
+        new RegenerateCmd(configLoaderProvider),
+        new WatchCmd(configLoaderProvider));
   }
 
   protected void initMonitoringEnvironment(CommandEnv commandEnv, ImmutableList<String> args) {
@@ -20,6 +20,7 @@ import static com.google.copybara.exception.ValidationException.checkCondition;
 
 import com.beust.jcommander.Parameters;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.copybara.config.Config;
@@ -27,6 +28,7 @@ import com.google.copybara.config.ConfigValidator;
 import com.google.copybara.config.LabelsAwareModule;
 import com.google.copybara.config.Migration;
 import com.google.copybara.config.ValidationResult;
+import com.google.copybara.exception.EmptyChangeException;
 import com.google.copybara.exception.RepoException;
 import com.google.copybara.exception.ValidationException;
 import com.google.copybara.revision.Revision;
@@ -34,6 +36,12 @@ import com.google.copybara.util.ExitCode;
 import com.google.copybara.util.console.Console;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 
 /**
@@ -84,6 +92,17 @@ public class MigrateCmd implements CopybaraCmd {
       throws RepoException, ValidationException, IOException {
     Config config = loadConfig(options, configLoader, migrationName);
 
+    WorkflowOptions workflowOptions = options.get(WorkflowOptions.class);
+    if (!workflowOptions.parallelMigrations.isEmpty()) {
+      ImmutableList<String> names =
+          ImmutableList.<String>builder()
+              .add(migrationName)
+              .addAll(workflowOptions.parallelMigrations)
+              .build();
+      runInParallel(options, config, names, workdir, sourceRefs);
+      return;
+    }
+
     Migration migration = config.getMigration(migrationName);
 
     if (!options.get(WorkflowOptions.class).isReadConfigFromChange()) {
@@ -108,15 +127,92 @@ public class MigrateCmd implements CopybaraCmd {
         .run(workdir, sourceRefs);
   }
 
+  /**
+   * Runs the migrations in {@code names} concurrently. Fails if any of them fails, after all of
+   * them finished, and it is a no-op if all of them are.
+   */
+  private void runInParallel(Options options, Config config, ImmutableList<String> names,
+      Path workdir, ImmutableList<String> sourceRefs)
+      throws RepoException, ValidationException, IOException {
+    Console console = options.get(GeneralOptions.class).console();
+    List<Migration> migrations = new ArrayList<>();
+    for (String name : names) {
+      if (!name.equals(names.get(0))) {
+        validate(config, name, console);
+      }
+      Migration migration = config.getMigration(name);
+      checkCondition(!(migration instanceof Workflow),
+          "%s only supports migrations that are not workflows, like git.mirror: '%s' is a"
+              + " workflow", WorkflowOptions.PARALLEL_MIGRATIONS_FLAG, name);
+      migrations.add(migration);
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(
+        Math.max(1, Math.min(
+            options.get(WorkflowOptions.class).parallelMigrationsThreads, migrations.size())));
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (Migration migration : migrations) {
+        migrationRanConsumer.accept(migration);
+        futures.add(executor.submit(() -> {
+          migration.run(workdir, sourceRefs);
+          return null;
+        }));
+      }
+      boolean noop = true;
+      Throwable firstError = null;
+      for (int i = 0; i < futures.size(); i++) {
+        try {
+          futures.get(i).get();
+          noop = false;
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof EmptyChangeException) {
+            console.infoFmt("Migration '%s' was a no-op: %s", names.get(i),
+                e.getCause().getMessage());
+            continue;
+          }
+          console.errorFmt("Migration '%s' failed: %s", names.get(i), e.getCause().getMessage());
+          if (firstError == null) {
+            firstError = e.getCause();
+          } else {
+            firstError.addSuppressed(e.getCause());
+          }
+        }
+      }
+      if (firstError != null) {
+        Throwables.throwIfInstanceOf(firstError, RepoException.class);
+        Throwables.throwIfInstanceOf(firstError, ValidationException.class);
+        Throwables.throwIfInstanceOf(firstError, IOException.class);
+        Throwables.throwIfUnchecked(firstError);
+        throw new RepoException("Migration failed", firstError);
+      }
+      if (noop) {
+        throw new EmptyChangeException(
+            String.format("All the migrations were no-op: %s", names));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RepoException("Interrupted while running migrations", e);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   private Config loadConfig(Options options, ConfigLoader configLoader, String migrationName)
       throws IOException, ValidationException {
     GeneralOptions generalOptions = options.get(GeneralOptions.class);
     Console console = generalOptions.console();
     Config config = configLoader.load(console);
     console.progress("Validating configuration");
+    validate(config, migrationName, console);
+    return config;
+  }
+
+  private void validate(Config config, String migrationName, Console console)
+      throws ValidationException {
     ValidationResult result = configValidator.validate(config, migrationName);
     if (!result.hasErrors()) {
-      return config;
+      return;
     }
     result.getErrors().forEach(console::error);
     console.error("Configuration is invalid.");
@@ -63,6 +63,7 @@ import com.google.copybara.transform.patch.PatchModule;
 import com.google.copybara.transform.patch.PatchingOptions;
 import com.google.copybara.tsjs.npm.NpmModule;
 import com.google.copybara.util.console.Console;
+import com.google.copybara.watch.WatchOptions;
 import com.google.copybara.xml.XmlModule;
 import java.nio.file.FileSystem;
 import java.util.Map;
@@ -169,11 +170,12 @@ public class ModuleSupplier {
             new HgOriginOptions(),
             new PatchingOptions(generalOptions),
             workflowOptions,
-            new RemoteFileOptions(),
+            new RemoteFileOptions(generalOptions),
             new DebugOptions(generalOptions),
             new GeneratorOptions(),
             new HttpOptions(),
             new RegenerateOptions(),
+            new WatchOptions(),
             new CredentialOptions()));
   }
 
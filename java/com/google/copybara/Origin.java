@@ -30,15 +30,18 @@ import com.google.copybara.authoring.Authoring;
 import com.google.copybara.exception.RepoException;
 import com.google.copybara.exception.ValidationException;
 import com.google.copybara.revision.Change;
+import com.google.copybara.revision.MessageStore;
 import com.google.copybara.revision.Revision;
 import com.google.copybara.util.Glob;
 import com.google.copybara.util.console.Console;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -75,6 +78,16 @@ public interface Origin<R extends Revision> extends ConfigItemDescription, Starl
     return resolve(reference);
   }
 
+  /**
+   * Returns a key that is equal for origins that resolve a reference to the same revision, read
+   * from the same repository, so that the migrations of the same origin can resolve it once.
+   * Returns null if the revisions resolved by this origin cannot be shared.
+   */
+  @Nullable
+  default Object resolveKey() {
+    return null;
+  }
+
   /**
    * Resolves a reference into a revision, but only if the provided descendantRev is an ancestor of
    * ancestorRef.
@@ -148,6 +161,20 @@ public interface Origin<R extends Revision> extends ConfigItemDescription, Starl
     ChangesResponse<R> changes(@Nullable R fromRef, R toRef)
         throws RepoException, ValidationException;
 
+    /**
+     * Like {@link #changes(Revision, Revision)}, but if there are more than {@code
+     * compactThreshold} changes only the first line of their messages is kept in memory. The full
+     * messages are written to {@code store}. See {@link Change#compact(MessageStore)}.
+     *
+     * <p>By default the changes are compacted once they are all listed. Readers of long histories
+     * should override this to compact them while they are read.
+     */
+    default ChangesResponse<R> changes(
+        @Nullable R fromRef, R toRef, MessageStore store, int compactThreshold)
+        throws RepoException, ValidationException {
+      return changes(fromRef, toRef).compact(store, compactThreshold);
+    }
+
     class ChangesResponse<R extends Revision> {
 
       private final ImmutableList<Change<R>> changes;
@@ -281,6 +308,30 @@ public interface Origin<R extends Revision> extends ConfigItemDescription, Starl
         return changes;
       }
 
+      /**
+       * Returns the response with the changes compacted if there are more than {@code threshold}.
+       */
+      ChangesResponse<R> compact(MessageStore store, int threshold) throws RepoException {
+        if (changes.size() <= threshold || changes.stream().allMatch(Change::isCompact)) {
+          return this;
+        }
+        Map<Change<R>, Change<R>> compacted = new IdentityHashMap<>();
+        try {
+          for (Change<R> change : changes) {
+            compacted.put(change, change.compact(store));
+          }
+        } catch (IOException e) {
+          throw new RepoException("Error writing the change messages", e);
+        }
+        // Conditional changes are always part of the changes.
+        ImmutableMap.Builder<Change<R>, Change<R>> conditional = ImmutableMap.builder();
+        conditionalChanges.forEach((k, v) -> conditional.put(compacted.get(k), compacted.get(v)));
+        return new ChangesResponse<>(
+            ImmutableList.copyOf(Lists.transform(changes, compacted::get)),
+            conditional.buildOrThrow(),
+            /*emptyReason=*/ null);
+      }
+
       /**
        * Changes that should only be included if the change in the value is also included.
        */
@@ -397,6 +448,19 @@ public interface Origin<R extends Revision> extends ConfigItemDescription, Starl
    */
   Reader<R> newReader(Glob originFiles, Authoring authoring) throws ValidationException;
 
+  /**
+   * Creates a new reader of this origin that can skip the changes that don't modify any of the
+   * files in {@code changeFiles} when listing changes.
+   *
+   * @param changeFiles the files whose changes are relevant to the caller. A superset of {@code
+   *     originFiles}, since for example changes to the config files are migrated even if they are
+   *     not in {@code originFiles}.
+   */
+  default Reader<R> newReader(Glob originFiles, Glob changeFiles, Authoring authoring)
+      throws ValidationException {
+    return newReader(originFiles, authoring);
+  }
+
   /**
    * Label name to be used in when creating a commit message in the destination to refer to a
    * revision. For example "Git-RevId".
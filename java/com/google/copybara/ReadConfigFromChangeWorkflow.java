@@ -153,7 +153,8 @@ public class ReadConfigFromChangeWorkflow<O extends Revision, D extends Revision
     }
 
     @Override
-    ChangeMigrator<O, D> getMigratorForChangeAndWriter(Change<?> change, Writer<D> writer)
+    ChangeMigrator<O, D> getMigratorForChangeAndWriter(
+        Change<?> change, Writer<D> writer, Path workdir)
         throws ValidationException, RepoException {
       checkNotNull(change);
 
@@ -183,7 +184,7 @@ public class ReadConfigFromChangeWorkflow<O extends Revision, D extends Revision
       return new ReloadingChangeMigrator<>(
           workflow,
           workflowForChange,
-          getWorkdir(),
+          workdir,
           newReader,
           writer,
           getResolvedRef(),
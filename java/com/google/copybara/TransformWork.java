@@ -114,6 +114,13 @@ public final class TransformWork extends CheckoutFileSystem
   @Nullable private final DestinationInfo destinationInfo;
   private final String mode;
 
+  // The last message parsed, for looking up and modifying labels, in each of the parsing modes.
+  // Transformations look up labels in the same message many times.
+  @Nullable private ParsedMessage lastParsedMessage;
+  @Nullable private ParsedMessage lastParsedWholeMessage;
+
+  private record ParsedMessage(String source, ChangeMessage message) {}
+
   public TransformWork(
       Path checkoutDir,
       Metadata metadata,
@@ -161,7 +168,7 @@ public final class TransformWork extends CheckoutFileSystem
       ResourceSupplier<DestinationReader> destinationReader,
       @Nullable DestinationInfo destinationInfo,
       String mode) {
-    super(checkoutDir);
+    super(checkoutDir, treeState);
     this.metadata = Preconditions.checkNotNull(metadata);
     this.changes = changes;
     this.console = console;
@@ -308,7 +315,7 @@ public final class TransformWork extends CheckoutFileSystem
     if (hidden) {
       addHiddenLabels(ImmutableListMultimap.of(label, value));
     } else {
-      setMessage(ChangeMessage.parseMessage(getMessage())
+      setMessage(parseMessage(/* wholeMessage= */ false)
           .withLabel(label, separator, value)
           .toString());
     }
@@ -327,7 +334,7 @@ public final class TransformWork extends CheckoutFileSystem
       })
   public void addOrReplaceLabel(String label, String value, String separator)
       throws ValidationException {
-    setMessage(ChangeMessage.parseMessage(getMessage())
+    setMessage(parseMessage(/* wholeMessage= */ false)
         .withNewOrReplacedLabel(label, separator, value)
         .toString());
   }
@@ -337,7 +344,7 @@ public final class TransformWork extends CheckoutFileSystem
       doc = "Add a text to the description before the labels paragraph",
       parameters = {@Param(name = "text")})
   public void addTextBeforeLabels(String text) {
-    ChangeMessage message = ChangeMessage.parseMessage(getMessage());
+    ChangeMessage message = parseMessage(/* wholeMessage= */ false);
     message = message.withText(message.getText() + '\n' + text);
     setMessage(message.toString());
   }
@@ -411,9 +418,23 @@ public final class TransformWork extends CheckoutFileSystem
   }
 
   private ChangeMessage parseMessage(boolean wholeMessage) {
-    return wholeMessage
-        ? ChangeMessage.parseAllAsLabels(getMessage())
-        : ChangeMessage.parseMessage(getMessage());
+    String message = getMessage();
+    ParsedMessage last = wholeMessage ? lastParsedWholeMessage : lastParsedMessage;
+    if (last != null && last.source().equals(message)) {
+      return last.message();
+    }
+    last =
+        new ParsedMessage(
+            message,
+            wholeMessage
+                ? ChangeMessage.parseAllAsLabels(message)
+                : ChangeMessage.parseMessage(message));
+    if (wholeMessage) {
+      lastParsedWholeMessage = last;
+    } else {
+      lastParsedMessage = last;
+    }
+    return last.message();
   }
 
   private static final String FIND_LABEL_DETAILS =
@@ -470,7 +491,7 @@ public final class TransformWork extends CheckoutFileSystem
       doc =
           "Returns a handle to read files from the destination, if supported by the destination.")
   public DestinationReader getDestinationReader() throws ValidationException, RepoException {
-    return destinationReader.get();
+    return new TreeStateDestinationReader(destinationReader.get(), treeState);
   }
 
   @StarlarkMethod(
@@ -870,4 +891,65 @@ public final class TransformWork extends CheckoutFileSystem
 
     T get() throws ValidationException, RepoException;
   }
+
+  /**
+   * A {@link DestinationReader} that discards the cached {@link TreeState} when it copies files,
+   * since the delegate doesn't report which files it writes.
+   */
+  private static final class TreeStateDestinationReader extends DestinationReader {
+
+    private final DestinationReader delegate;
+    private final TreeState treeState;
+
+    private TreeStateDestinationReader(DestinationReader delegate, TreeState treeState) {
+      this.delegate = delegate;
+      this.treeState = treeState;
+    }
+
+    @Override
+    public String readFile(String path) throws RepoException {
+      return delegate.readFile(path);
+    }
+
+    @Override
+    public void copyDestinationFiles(Object glob, Object path)
+        throws RepoException, ValidationException, EvalException {
+      try {
+        delegate.copyDestinationFiles(glob, path);
+      } finally {
+        treeState.clearCache();
+      }
+    }
+
+    @Override
+    public void copyDestinationFilesToDirectory(Glob glob, Path directory)
+        throws RepoException, ValidationException {
+      try {
+        delegate.copyDestinationFilesToDirectory(glob, directory);
+      } finally {
+        treeState.clearCache();
+      }
+    }
+
+    @Override
+    public boolean exists(String path) {
+      return delegate.exists(path);
+    }
+
+    @Nullable
+    @Override
+    public String lastModified(String path) throws IOException, RepoException {
+      return delegate.lastModified(path);
+    }
+
+    @Override
+    public boolean supportsGetHash() {
+      return delegate.supportsGetHash();
+    }
+
+    @Override
+    public String getHash(String path) throws RepoException, IOException {
+      return delegate.getHash(path);
+    }
+  }
 }
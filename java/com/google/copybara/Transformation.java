@@ -69,6 +69,22 @@ public interface Transformation extends StarlarkValue {
     return false;
   }
 
+  /**
+   * Returns true if {@code between}, which runs after this transformation and cannot be joined to
+   * it, can run after a later transformation that is joined to this one instead.
+   */
+  default boolean canJoinAcross(Transformation between) {
+    return false;
+  }
+
+  /**
+   * Returns true if the transformation only reads and modifies the metadata of the change, like
+   * the message or the author, and never accesses the files of the checkout dir.
+   */
+  default boolean isMetadataOnly() {
+    return false;
+  }
+
   default Transformation join(Transformation next) {
     throw new IllegalStateException(String.format(
         "Unexpected join call for %s and %s", this, next));
@@ -22,6 +22,7 @@ import static com.google.copybara.WorkflowMode.CHANGE_REQUEST_FROM_SOT;
 import static com.google.copybara.exception.ValidationException.checkCondition;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.CharMatcher;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
@@ -59,6 +60,7 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -80,6 +82,7 @@ import net.starlark.java.eval.StarlarkThread;
 public class Workflow<O extends Revision, D extends Revision> implements Migration {
 
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  private static final CharMatcher GLOB_META = CharMatcher.anyOf("*?[{\\");
 
   static final String COPYBARA_CONFIG_PATH_IDENTITY_VAR = "copybara_config_path";
   static final String COPYBARA_WORKFLOW_NAME_IDENTITY_VAR = "copybara_workflow_name";
@@ -409,12 +412,35 @@ public class Workflow<O extends Revision, D extends Revision> implements Migrati
       throws ValidationException {
 
     Reader<O> reader = getOrigin()
-        .newReader(getOriginFiles(), getAuthoring());
+        .newReader(getOriginFiles(), changeFiles(), getAuthoring());
     return new WorkflowRunHelper<>(
         this, workdir, resolvedRef, reader, createWriter(resolvedRef), rawSourceRef,
         migrationFinishedMonitor);
   }
 
+  /**
+   * The files whose changes are migrated: origin_files and the config files, since the changes to
+   * them are migrated even if excluded. See {@code ChangeMigrator.shouldSkipChange}.
+   */
+  private Glob changeFiles() {
+    if (isMigrateNoopChanges()) {
+      return Glob.ALL_FILES;
+    }
+    ImmutableList.Builder<String> configFiles = ImmutableList.builder();
+    for (String configPath : configPaths()) {
+      if (configPath.startsWith("/") || GLOB_META.matchesAnyOf(configPath)) {
+        // Cannot match the config file with a glob. Don't skip any change.
+        return Glob.ALL_FILES;
+      }
+      configFiles.add(configPath, "**/" + configPath);
+    }
+    try {
+      return Glob.union(getOriginFiles(), Glob.createGlob(configFiles.build()));
+    } catch (IllegalArgumentException e) {
+      return Glob.ALL_FILES;
+    }
+  }
+
   /**
    * Return the config files relative to their roots. For example a config file like 'admin/foo/bar'
    * with a root 'admin' would return 'foo/bar'.
@@ -427,13 +453,19 @@ public class Workflow<O extends Revision, D extends Revision> implements Migrati
 
   @Override
   public Info<? extends Revision> getInfo() throws RepoException, ValidationException {
+    return getInfo(new HashMap<>());
+  }
+
+  @Override
+  public Info<? extends Revision> getInfo(Map<Object, Revision> resolvedOrigins)
+      throws RepoException, ValidationException {
     return generalOptions.repoTask(
         "info",
         (Callable<Info<? extends Revision>>)
             () -> {
               O lastResolved =
                   generalOptions.repoTask(
-                      "origin.last_resolved", () -> origin.resolve(/* reference= */ null));
+                      "origin.last_resolved", () -> resolveOrigin(resolvedOrigins));
 
               Reader<O> oReader = origin.newReader(originFiles, authoring);
               Change<O> lastResolvedChange = null;
@@ -515,6 +547,23 @@ public class Workflow<O extends Revision, D extends Revision> implements Migrati
             });
   }
 
+  /** Resolves the default reference of the origin, unless it is in {@code resolvedOrigins}. */
+  @SuppressWarnings("unchecked")
+  private O resolveOrigin(Map<Object, Revision> resolvedOrigins)
+      throws RepoException, ValidationException {
+    Object key = origin.resolveKey();
+    if (key == null) {
+      return origin.resolve(/* reference= */ null);
+    }
+    // Only origins of the same type return equal keys.
+    O resolved = (O) resolvedOrigins.get(key);
+    if (resolved == null) {
+      resolved = origin.resolve(/* reference= */ null);
+      resolvedOrigins.put(key, resolved);
+    }
+    return resolved;
+  }
+
   @Nullable
   private DestinationStatus getDestinationStatus(O revision)
       throws RepoException, ValidationException {
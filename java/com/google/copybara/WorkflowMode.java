@@ -32,8 +32,11 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
 import com.google.common.flogger.FluentLogger;
 import com.google.copybara.ChangeVisitable.VisitResult;
+import com.google.copybara.IterativeJournal.Outcome;
 import com.google.copybara.Origin.Baseline;
 import com.google.copybara.Origin.Reader.ChangesResponse;
 import com.google.copybara.Origin.Reader.ChangesResponse.EmptyReason;
@@ -49,12 +52,13 @@ import com.google.copybara.exception.ValidationException;
 import com.google.copybara.profiler.Profiler.ProfilerTask;
 import com.google.copybara.revision.Change;
 import com.google.copybara.revision.Changes;
+import com.google.copybara.revision.MessageStore;
 import com.google.copybara.revision.Revision;
 import com.google.copybara.util.console.PrefixConsole;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayDeque;
 import java.util.Deque;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
@@ -82,13 +86,27 @@ public enum WorkflowMode {
         if (runHelper.workflowOptions().importSameVersion) {
           current = lastRev; // Import the last imported version.
         } else {
-          ChangesResponse<O> response = runHelper.getChanges(lastRev, current);
+          int compactThreshold = runHelper.workflowOptions().squashCompactChangesThreshold;
+          ChangesResponse<O> response;
+          if (compactThreshold > 0) {
+            // Messages are only added to the store while the changes are listed.
+            try (MessageStore store = newMessageStore(runHelper)) {
+              response = runHelper.getChanges(lastRev, current, store, compactThreshold);
+            }
+          } else {
+            response = runHelper.getChanges(lastRev, current);
+          }
           if (response.isEmpty()) {
             manageNoChangesDetectedForSquash(
                 runHelper, current, lastRev, response.getEmptyReason());
           } else {
             detectedChanges = response.getChanges();
             conditionalChanges = response.getConditionalChanges();
+            if (detectedChanges.get(0).isCompact()) {
+              runHelper.getConsole().verboseFmt(
+                  "Keeping only the first line of the messages of %d changes in memory",
+                  detectedChanges.size());
+            }
           }
         }
       }
@@ -110,6 +128,9 @@ public enum WorkflowMode {
       // Remove changes that don't affect origin_files
       ImmutableList<Change<O>> changes = filterChanges(
           detectedChanges, conditionalChanges, helperForChanges);
+      // Only the filtered changes are used from here. Don't keep the rest during the migration.
+      detectedChanges = ImmutableList.of();
+      conditionalChanges = ImmutableMap.of();
       if (changes.isEmpty()
           && isHistorySupported(runHelper)
           && !runHelper.workflowOptions().importSameVersion) {
@@ -163,7 +184,10 @@ public enum WorkflowMode {
       int changeNumber = 1;
 
       ImmutableList<Change<O>> changes = ImmutableList.copyOf(changesResponse.getChanges());
-      Iterator<Change<O>> changesIterator = changes.iterator();
+      IterativeJournal journal =
+          runHelper.workflowOptions().iterativeJournal
+              ? openIterativeJournal(runHelper, lastRev, changes)
+              : null;
       int limit = changes.size();
       if (runHelper.workflowOptions().iterativeLimitChanges < changes.size()) {
         limit = runHelper.workflowOptions().iterativeLimitChanges;
@@ -189,66 +213,118 @@ public enum WorkflowMode {
 
       Deque<Change<O>> migrated = new ArrayDeque<>();
       int migratedChanges = 0;
-      while (changesIterator.hasNext() && migratedChanges < limit) {
-        Change<O> change = changesIterator.next();
-        String prefix = String.format(
-            "Change %d of %d (%s): ",
-            changeNumber, Math.min(changes.size(), limit), change.getRevision().asString());
-        ImmutableList<DestinationEffect> result;
-
-        boolean errors = false;
-        try (ProfilerTask ignored = runHelper.profiler().start(change.getRef())) {
-          ImmutableList<Change<O>> current = ImmutableList.of(change);
-          ChangeMigrator<O, D> migrator = runHelper.getMigratorForChange(change);
-          if (migrator.skipChange(change)) {
-            continue;
+      // Closing the pipeline stops the preparation of a change that won't be migrated.
+      try (IterativePipeline<O, D> pipeline =
+          runHelper.isPipelinedIterative() ? new IterativePipeline<>(runHelper) : null) {
+        PeekingIterator<Change<O>> changesIterator = Iterators.peekingIterator(changes.iterator());
+        while (changesIterator.hasNext() && migratedChanges < limit) {
+          Change<O> change = changesIterator.next();
+          String prefix = iterativePrefix(change, changeNumber, Math.min(changes.size(), limit));
+          ImmutableList<DestinationEffect> result;
+
+          boolean errors = false;
+          try (ProfilerTask ignored = runHelper.profiler().start(change.getRef())) {
+            // With a pipeline, the change might have been prepared already
+            if (journal != null
+                && pipeline == null
+                && journal.outcome(change.getRevision().asString()) == Outcome.EMPTY) {
+              throw new EmptyChangeException("The change was empty in a previous run");
+            }
+            ChangeMigrator<O, D> migrator =
+                pipeline != null
+                    ? pipeline.getMigrator(change)
+                    : runHelper.getMigratorForChange(change);
+            if (migrator.skipChange(change)) {
+              if (journal != null) {
+                journal.record(
+                    change.getRevision().asString(), Outcome.SKIPPED, ImmutableList.of());
+              }
+              continue;
+            }
+            IterativePipeline.Step<O, D> step =
+                iterativeStep(runHelper, change, migrator, prefix, migrated);
+            if (pipeline != null) {
+              // No need to prepare the next change if this is the last one to migrate. If this
+              // one ends up being empty, the next one is just prepared without any overlap.
+              IterativePipeline.Step<O, D> next =
+                  changesIterator.hasNext() && migratedChanges + 1 < limit
+                      ? nextIterativeStep(
+                          runHelper,
+                          pipeline,
+                          changesIterator.peek(),
+                          iterativePrefix(
+                              changesIterator.peek(),
+                              changeNumber + 1,
+                              Math.min(changes.size(), limit)),
+                          // The current change is added to the migrated ones unless its migration
+                          // fails, and in that case the next one is cancelled.
+                          ImmutableList.<Change<O>>builder().add(change).addAll(migrated).build())
+                      : null;
+              result = pipeline.migrate(step, next, lastRev, originBaseline);
+            } else {
+              result =
+                  migrator.migrate(
+                      change.getRevision(),
+                      lastRev,
+                      step.console(),
+                      step.metadata(),
+                      step.changes(),
+                      /* destinationBaseline= */ null,
+                      // Use the current change since we might want to create different
+                      // reviews in the destination. Will not work if we want to group
+                      // all the changes in the same Github PR
+                      change.getRevision(),
+                      originBaseline);
+            }
+            migratedChanges++;
+            if (journal != null) {
+              journal.record(
+                  change.getRevision().asString(),
+                  Outcome.MIGRATED,
+                  result.stream()
+                      .filter(e -> e.getDestinationRef() != null)
+                      .map(e -> e.getDestinationRef().getId())
+                      .collect(ImmutableList.toImmutableList()));
+            }
+            for (DestinationEffect effect : result) {
+              if (effect.getType() != Type.NOOP) {
+                errors |= !effect.getErrors().isEmpty();
+              }
+            }
+          } catch (EmptyChangeException e) {
+            runHelper.getConsole().warnFmt("Migration of origin revision '%s' resulted in an empty"
+                    + " change in the destination: %s",
+                change.getRevision().asString(), e.getMessage());
+            if (journal != null) {
+              journal.record(change.getRevision().asString(), Outcome.EMPTY, ImmutableList.of());
+            }
+          } catch (ValidationException | RepoException e) {
+            runHelper.getConsole().errorFmt(
+                "Migration of origin revision '%s' failed with error: %s",
+                change.getRevision().asString(), e.getMessage());
+            throw e;
           }
-          result =
-              migrator.migrate(
-                  change.getRevision(),
-                  lastRev,
-                  new PrefixConsole(prefix, runHelper.getConsole()),
-                  new Metadata(
-                      runHelper.getChangeMessage(change.getMessage()),
-                      runHelper.getFinalAuthor(change.getAuthor()),
-                      ImmutableSetMultimap.of()),
-                  new Changes(current, migrated),
-                  /* destinationBaseline= */ null,
-                  // Use the current change since we might want to create different
-                  // reviews in the destination. Will not work if we want to group
-                  // all the changes in the same Github PR
-                  change.getRevision(),
-                  originBaseline);
-          migratedChanges++;
-          for (DestinationEffect effect : result) {
-            if (effect.getType() != Type.NOOP) {
-              errors |= !effect.getErrors().isEmpty();
+          migrated.addFirst(change);
+
+          if (errors && changesIterator.hasNext()) {
+            // Use the regular console to log prompt and final message, it will be easier to spot
+            if (!runHelper.getConsole()
+                .promptConfirmation("Continue importing next change?")) {
+              String message =
+                  String.format("Iterative workflow aborted by user after: %s", prefix);
+              runHelper.getConsole().warn(message);
+              throw new ChangeRejectedException(message);
             }
           }
-        } catch (EmptyChangeException e) {
-          runHelper.getConsole().warnFmt("Migration of origin revision '%s' resulted in an empty"
-              + " change in the destination: %s", change.getRevision().asString(), e.getMessage());
-        } catch (ValidationException | RepoException e) {
-          runHelper.getConsole().errorFmt("Migration of origin revision '%s' failed with error: %s",
-              change.getRevision().asString(), e.getMessage());
-          throw e;
-        }
-        migrated.addFirst(change);
-
-        if (errors && changesIterator.hasNext()) {
-          // Use the regular console to log prompt and final message, it will be easier to spot
-          if (!runHelper.getConsole()
-              .promptConfirmation("Continue importing next change?")) {
-            String message = String.format("Iterative workflow aborted by user after: %s", prefix);
-            runHelper.getConsole().warn(message);
-            throw new ChangeRejectedException(message);
+          if (runHelper.isMergeImport()) {
+            lastRev = change.getRevision();
+            originBaseline = change.getRevision();
           }
+          changeNumber++;
         }
-        if (runHelper.isMergeImport()) {
-          lastRev = change.getRevision();
-          originBaseline = change.getRevision();
-        }
-        changeNumber++;
+      }
+      if (journal != null) {
+        journal.delete();
       }
       if (migratedChanges == 0) {
         throw new EmptyChangeException(
@@ -389,6 +465,57 @@ public enum WorkflowMode {
     }
   };
 
+  /** Returns the console prefix of the {@code changeNumber}-th change of an ITERATIVE migration. */
+  private static String iterativePrefix(Change<?> change, int changeNumber, int total) {
+    return String.format(
+        "Change %d of %d (%s): ", changeNumber, total, change.getRevision().asString());
+  }
+
+  /** Arguments for migrating {@code change} in ITERATIVE mode. */
+  private static <O extends Revision, D extends Revision> IterativePipeline.Step<O, D>
+      iterativeStep(
+          WorkflowRunHelper<O, D> runHelper,
+          Change<O> change,
+          ChangeMigrator<O, D> migrator,
+          String prefix,
+          Iterable<Change<O>> migrated) {
+    return new IterativePipeline.Step<>(
+        change,
+        migrator,
+        new PrefixConsole(prefix, runHelper.getConsole()),
+        new Metadata(
+            runHelper.getChangeMessage(change.getMessage()),
+            runHelper.getFinalAuthor(change.getAuthor()),
+            ImmutableSetMultimap.of()),
+        new Changes(ImmutableList.of(change), migrated));
+  }
+
+  /**
+   * Returns the arguments for migrating {@code nextChange} so that it can be prepared while the
+   * current change is written, or null if it is going to be skipped.
+   */
+  @Nullable
+  private static <O extends Revision, D extends Revision>
+      IterativePipeline.Step<O, D> nextIterativeStep(
+          WorkflowRunHelper<O, D> runHelper,
+          IterativePipeline<O, D> pipeline,
+          Change<O> nextChange,
+          String prefix,
+          Iterable<Change<O>> migrated) {
+    ChangeMigrator<O, D> migrator;
+    try {
+      migrator = pipeline.getMigrator(nextChange);
+    } catch (ValidationException | RepoException e) {
+      // Don't fail the current change. The error is reported when the next change is migrated.
+      logger.atWarning().withCause(e).log(
+          "Cannot prepare %s in advance", nextChange.getRevision().asString());
+      return null;
+    }
+    return migrator.shouldSkipChange(nextChange)
+        ? null
+        : iterativeStep(runHelper, nextChange, migrator, prefix, migrated);
+  }
+
   /**
    * Technically revisions can contain additional metadata in the String. For example:
    * 'aaaabbbbccccddddeeeeffff1111222233334444 PatchSet-1'. This method return the identification
@@ -535,6 +662,55 @@ public enum WorkflowMode {
     }
   }
 
+  /**
+   * Resumes the journal of a previous ITERATIVE run that didn't finish, if {@code lastRev} and
+   * {@code changes} show that it stopped right before them. Otherwise, starts a new journal.
+   * Returns null if the journal cannot be stored.
+   */
+  @Nullable
+  private static <O extends Revision, D extends Revision> IterativeJournal openIterativeJournal(
+      WorkflowRunHelper<O, D> runHelper, @Nullable O lastRev, ImmutableList<Change<O>> changes)
+      throws ValidationException {
+    String start = lastRev == null ? null : lastRev.asString();
+    ImmutableList<String> revisions =
+        changes.stream()
+            .map(c -> c.getRevision().asString())
+            .collect(ImmutableList.toImmutableList());
+    Path file;
+    String key;
+    try {
+      file = runHelper.iterativeJournalFile();
+      key = runHelper.iterativeJournalKey();
+    } catch (IOException e) {
+      runHelper.getConsole().warnFmt("Cannot use the iterative journal: %s", e.getMessage());
+      logger.atWarning().withCause(e).log("Cannot use the iterative journal");
+      return null;
+    }
+    IterativeJournal previous = IterativeJournal.read(file, key);
+    if (previous != null) {
+      IterativeJournal resumed = previous.resume(start, revisions);
+      if (resumed != null) {
+        runHelper.getConsole().infoFmt(
+            "Resuming the iterative migration of a previous run. %d change(s) were already"
+                + " migrated", resumed.migrated());
+        return resumed;
+      }
+      runHelper.getConsole().warn(
+          "Ignoring the iterative journal of a previous run: it doesn't match the last revision"
+              + " migrated or the pending changes");
+    }
+    return IterativeJournal.create(file, key, start, revisions);
+  }
+
+  /**
+   * Returns a store for the full messages of compacted changes, in a temporary directory of the
+   * migration.
+   */
+  private static MessageStore newMessageStore(WorkflowRunHelper<?, ?> runHelper)
+      throws IOException {
+    return new MessageStore(runHelper.getGeneralOptions().getDirFactory().newTempDir("messages"));
+  }
+
   public static boolean isHistorySupported(WorkflowRunHelper<?, ?> helper) {
     return helper.destinationSupportsPreviousRef() && helper.getOriginReader().supportsHistory();
   }
@@ -137,6 +137,52 @@ public class WorkflowOptions implements Option {
 
   public static final String CHECK_LAST_REV_STATE = "--check-last-rev-state";
 
+  @Parameter(
+      names = "--pipelined-iterative",
+      description =
+          "For 'ITERATIVE' workflows, check out and transform the next change in a separate"
+              + " workdir while the current one is being written to the destination. Changes are"
+              + " still written in order, and reads of the destination from transformations wait"
+              + " for the previous change to be written.")
+  public boolean pipelinedIterative = false;
+
+  @Parameter(
+      names = "--iterative-journal",
+      description =
+          "For 'ITERATIVE' workflows, record the changes to migrate and the outcome of each one in"
+              + " a journal in the cache directory. If the migration dies in the middle, the next"
+              + " run resumes it after validating that the destination is at the last change"
+              + " migrated, and doesn't migrate again the changes that were empty.")
+  public boolean iterativeJournal = false;
+
+  @Parameter(
+      names = "--transform-provenance",
+      description =
+          "Record which transformation created, modified or deleted each file and print the"
+              + " result for every migrated change in verbose mode. The changes of transformations"
+              + " that don't notify them are found by comparing the checkout with a snapshot of"
+              + " the file attributes, and hashing the files whose attributes changed.")
+  public boolean transformProvenance = false;
+
+  @Parameter(
+      names = "--replace-streaming-threshold",
+      description =
+          "Size in bytes above which core.replace processes a file line by line, instead of"
+              + " loading it in memory. Multiline replaces always load the whole file.",
+      hidden = true)
+  public long replaceStreamingThreshold = 64L * 1024 * 1024;
+
+  @Parameter(
+      names = "--experimental-reversible-check-hash-diff",
+      description =
+          "Do the reversible check without copying the checkout twice and diffing the copies:"
+              + " hash the checkout before the transformations, run the reverse transformations"
+              + " in a copy of the transformed checkout and hash again only the files changed by"
+              + " either of them. On failure, the list of different files is printed instead of a"
+              + " diff.",
+      arity = 1)
+  public boolean reversibleCheckHashDiff = false;
+
   @Parameter(names = CHECK_LAST_REV_STATE,
       description = "If enabled, Copybara will validate that the destination didn't change"
           + " since last-rev import for destination_files. Note that this"
@@ -159,6 +205,17 @@ public class WorkflowOptions implements Option {
       description = "Minimum size of the lists to process to run them in parallel")
   public int threadsMinSize = 100;
 
+  @Parameter(
+      names = "--squash-compact-changes-threshold",
+      description =
+          "SQUASH migrations that include more changes than this only keep the first line of the"
+              + " change messages in memory. The full messages are written to files in a"
+              + " temporary directory while the changes are read from the origin, and read from"
+              + " there through memory mappings when they are used, for example by"
+              + " metadata.squash_notes. This reduces the heap needed for imports of many changes."
+              + " 0 disables it.")
+  public int squashCompactChangesThreshold = 0;
+
   @Parameter(names = "--notransformation-join",
       description = "By default Copybara tries to join certain transformations in one so that it"
           + " is more efficient. This disables the feature.")
@@ -210,6 +267,12 @@ public class WorkflowOptions implements Option {
     this.lastRevision = other.lastRevision;
     this.initHistory = other.initHistory;
     this.iterativeLimitChanges = other.iterativeLimitChanges;
+    this.pipelinedIterative = other.pipelinedIterative;
+    this.iterativeJournal = other.iterativeJournal;
+    this.transformProvenance = other.transformProvenance;
+    this.replaceStreamingThreshold = other.replaceStreamingThreshold;
+    this.reversibleCheckHashDiff = other.reversibleCheckHashDiff;
+    this.squashCompactChangesThreshold = other.squashCompactChangesThreshold;
     this.ignoreNoop = other.ignoreNoop;
     this.squashSkipHistory = other.squashSkipHistory;
     this.migrateNoopChanges = other.migrateNoopChanges;
@@ -304,6 +367,22 @@ public class WorkflowOptions implements Option {
       description = "List of transform names that should be skipped.")
   public List<String> skipTransforms = ImmutableList.of();
 
+  static final String PARALLEL_MIGRATIONS_FLAG = "--parallel-migrations";
+
+  @Parameter(
+      names = PARALLEL_MIGRATIONS_FLAG,
+      description =
+          "List of other migrations of the config file to run together with the one passed as"
+              + " argument, concurrently. Only migrations that are not workflows, like"
+              + " git.mirror, are supported. Mirrors with the same origin run one at a time.")
+  public List<String> parallelMigrations = ImmutableList.of();
+
+  @Parameter(
+      names = "--parallel-migrations-threads",
+      description = "Maximum number of migrations to run at the same time with "
+          + PARALLEL_MIGRATIONS_FLAG)
+  public int parallelMigrationsThreads = 8;
+
   @Nullable
   public Author getDefaultAuthorFlag() throws EvalException {
     if (defaultAuthor == null) {
@@ -17,6 +17,8 @@
 package com.google.copybara;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Throwables.throwIfInstanceOf;
+import static com.google.common.base.Throwables.throwIfUnchecked;
 import static com.google.common.collect.ImmutableListMultimap.toImmutableListMultimap;
 import static com.google.copybara.GeneralOptions.OUTPUT_ROOT_FLAG;
 import static com.google.copybara.TransformWork.COPYBARA_CONFIG_PATH_LABEL;
@@ -31,6 +33,10 @@ import com.google.common.base.Splitter;
 import com.google.common.base.Verify;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.flogger.FluentLogger;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.google.common.io.MoreFiles;
 import com.google.copybara.Destination.DestinationStatus;
 import com.google.copybara.Destination.Writer;
@@ -40,6 +46,7 @@ import com.google.copybara.Origin.Reader.ChangesResponse;
 import com.google.copybara.TransformWork.ResourceSupplier;
 import com.google.copybara.authoring.Author;
 import com.google.copybara.authoring.Authoring;
+import com.google.copybara.config.ConfigFile;
 import com.google.copybara.effect.DestinationEffect;
 import com.google.copybara.effect.DestinationEffect.DestinationRef;
 import com.google.copybara.effect.DestinationEffect.Type;
@@ -57,7 +64,9 @@ import com.google.copybara.profiler.Profiler;
 import com.google.copybara.profiler.Profiler.ProfilerTask;
 import com.google.copybara.revision.Change;
 import com.google.copybara.revision.Changes;
+import com.google.copybara.revision.MessageStore;
 import com.google.copybara.revision.Revision;
+import com.google.copybara.treestate.ProvenanceTracer;
 import com.google.copybara.util.ApplyDestinationPatch;
 import com.google.copybara.util.AutoPatchUtil;
 import com.google.copybara.util.CommandLineDiffUtil;
@@ -67,6 +76,7 @@ import com.google.copybara.util.DiffUtil.DiffFile;
 import com.google.copybara.util.FileUtil;
 import com.google.copybara.util.FileUtil.CopySymlinkStrategy;
 import com.google.copybara.util.Glob;
+import com.google.copybara.util.HashedTree;
 import com.google.copybara.util.InsideGitDirException;
 import com.google.copybara.util.MergeImportTool;
 import com.google.copybara.util.MergeImportTool.MergeRunner;
@@ -83,6 +93,10 @@ import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 import javax.annotation.Nullable;
 
@@ -91,6 +105,8 @@ import javax.annotation.Nullable;
  */
 public class WorkflowRunHelper<O extends Revision, D extends Revision> {
 
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
   private final Workflow<O, D> workflow;
   private final Path workdir;
   private final O resolvedRef;
@@ -133,8 +149,20 @@ public class WorkflowRunHelper<O extends Revision, D extends Revision> {
     return getMigratorForChangeAndWriter(change, writer);
   }
 
+  /** Same as {@link #getMigratorForChange(Change)} but using a different workdir. */
+  ChangeMigrator<O, D> getMigratorForChange(Change<?> change, Path workdir)
+      throws RepoException, ValidationException {
+    return getMigratorForChangeAndWriter(change, writer, workdir);
+  }
+
   ChangeMigrator<O, D> getMigratorForChangeAndWriter(Change<?> change, Writer<D> writer)
       throws ValidationException, RepoException {
+    return getMigratorForChangeAndWriter(change, writer, workdir);
+  }
+
+  ChangeMigrator<O, D> getMigratorForChangeAndWriter(
+      Change<?> change, Writer<D> writer, Path workdir)
+      throws ValidationException, RepoException {
     return new ChangeMigrator<>(workflow, workdir, originReader, writer, resolvedRef, rawSourceRef,
         migrationFinishedMonitor);
   }
@@ -209,6 +237,45 @@ public class WorkflowRunHelper<O extends Revision, D extends Revision> {
     return workflow.isMergeImport();
   }
 
+  /**
+   * Whether ITERATIVE migrations can prepare the next change while the current one is written.
+   * Merge import depends on the previous change being migrated and diff_in_origin prompts the user
+   * before transforming, so both run sequentially.
+   */
+  boolean isPipelinedIterative() {
+    return workflowOptions().pipelinedIterative
+        && !isMergeImport()
+        && !workflowOptions().diffInOrigin;
+  }
+
+  /** Returns the file of the journal of the ITERATIVE migrations of the workflow. */
+  Path iterativeJournalFile() throws IOException {
+    return getGeneralOptions()
+        .getDirFactory()
+        .getCacheDir("iterative_journals")
+        .resolve(
+            Hashing.sha256()
+                .hashString(
+                    workflow.getMainConfigFile().path() + "\n" + workflow.getName(), UTF_8)
+                .toString());
+  }
+
+  /**
+   * Returns a key that identifies the config, origin and destination of the workflow, so that a
+   * journal written by a different configuration is not resumed.
+   */
+  String iterativeJournalKey() throws IOException, ValidationException {
+    Hasher hasher = Hashing.sha256().newHasher();
+    hasher.putString(workflow.getOrigin().describe(workflow.getOriginFiles()).toString(), UTF_8);
+    hasher.putString(
+        workflow.getDestination().describe(workflow.getDestinationFiles()).toString(), UTF_8);
+    for (ConfigFile configFile :
+        ImmutableSortedMap.copyOf(workflow.getAllConfigFiles().get()).values()) {
+      hasher.putString(configFile.path(), UTF_8).putBytes(configFile.readContentBytes());
+    }
+    return hasher.hash().toString();
+  }
+
   private boolean isInitHistory() {
     return workflow.isInitHistory();
   }
@@ -304,6 +371,30 @@ public class WorkflowRunHelper<O extends Revision, D extends Revision> {
     }
   }
 
+  /**
+   * Like {@link #getChanges(Revision, Revision)}, but keeps only the first line of the messages in
+   * memory if there are more than {@code compactThreshold} changes.
+   */
+  ChangesResponse<O> getChanges(
+      @Nullable O from, O to, MessageStore store, int compactThreshold)
+      throws RepoException, ValidationException {
+    try (ProfilerTask ignore = workflow.profiler().start("get_changes")) {
+      return originReader.changes(from, to, store, compactThreshold);
+    }
+  }
+
+  /** A change that was checked out and transformed, ready to be written to the destination. */
+  static final class PreparedMigration {
+    private final TransformResult transformResult;
+    private final ImmutableList<String> mergeErrorPaths;
+
+    private PreparedMigration(
+        TransformResult transformResult, ImmutableList<String> mergeErrorPaths) {
+      this.transformResult = checkNotNull(transformResult);
+      this.mergeErrorPaths = checkNotNull(mergeErrorPaths);
+    }
+  }
+
   /**
    * Migrate a change for a workflow. Can overwrite the reader, writer, transformations, etc.
    */
@@ -445,7 +536,6 @@ public class WorkflowRunHelper<O extends Revision, D extends Revision> {
      * @param originBaselineForMergeImport the revision to populate baseline for merge_import mode
      */
     @CanIgnoreReturnValue
-    @SuppressWarnings("Finally")
     public final ImmutableList<DestinationEffect> migrate(
         O rev,
         @Nullable O lastRev,
@@ -456,22 +546,73 @@ public class WorkflowRunHelper<O extends Revision, D extends Revision> {
         @Nullable O changeIdentityRevision,
         @Nullable O originBaselineForMergeImport)
         throws IOException, RepoException, ValidationException {
+      return runMigration(
+          changes,
+          () ->
+              doMigrate(
+                  rev,
+                  lastRev,
+                  processConsole,
+                  metadata,
+                  changes,
+                  destinationBaseline,
+                  changeIdentityRevision,
+                  originBaselineForMergeImport));
+    }
+
+    /**
+     * Same as {@link #migrate} for a change that was already checked out and transformed by {@link
+     * #prepare}, possibly in a different thread. This only waits for {@code prepared} and writes
+     * the result to the destination, so failures in the preparation are reported the same way.
+     *
+     * @param changes changes included in this migration
+     * @param processConsole console to use to print progress messages
+     * @param prepared the pending result of {@link #prepare} for the same {@code changes}
+     */
+    @CanIgnoreReturnValue
+    final ImmutableList<DestinationEffect> migratePrepared(
+        Changes changes, Console processConsole, Future<PreparedMigration> prepared)
+        throws IOException, RepoException, ValidationException {
+      return runMigration(changes, () -> write(awaitPrepared(prepared), processConsole));
+    }
+
+    private static PreparedMigration awaitPrepared(Future<PreparedMigration> prepared)
+        throws IOException, RepoException, ValidationException {
+      try {
+        return prepared.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RepoException("Interrupted while preparing the change", e);
+      } catch (CancellationException e) {
+        throw new RepoException("Preparation of the change was cancelled", e);
+      } catch (ExecutionException e) {
+        throwIfInstanceOf(e.getCause(), IOException.class);
+        throwIfInstanceOf(e.getCause(), RepoException.class);
+        throwIfInstanceOf(e.getCause(), ValidationException.class);
+        throwIfUnchecked(e.getCause());
+        throw new RuntimeException("Unhandled error", e.getCause());
+      }
+    }
+
+    /** A step of the migration that produces the destination effects. */
+    private interface MigrationAction {
+      ImmutableList<DestinationEffect> run() throws IOException, RepoException, ValidationException;
+    }
+
+    /**
+     * Runs {@code action} notifying the event monitors and running the 'after_migration' actions
+     * with its outcome.
+     */
+    @SuppressWarnings("Finally")
+    private ImmutableList<DestinationEffect> runMigration(Changes changes, MigrationAction action)
+        throws IOException, RepoException, ValidationException {
       ImmutableList<DestinationEffect> effects = ImmutableList.of();
       Exception lastException = null;
       try {
         getWorkflow()
             .eventMonitors()
             .dispatchEvent(m -> m.onChangeMigrationStarted(new ChangeMigrationStartedEvent()));
-        effects =
-            doMigrate(
-                rev,
-                lastRev,
-                processConsole,
-                metadata,
-                changes,
-                destinationBaseline,
-                changeIdentityRevision,
-                originBaselineForMergeImport);
+        effects = action.run();
       } catch (RedundantChangeException e) {
         effects =
             ImmutableList.of(
@@ -626,6 +767,39 @@ public class WorkflowRunHelper<O extends Revision, D extends Revision> {
         @Nullable O changeIdentityRevision,
         @Nullable O originBaselineForPrune)
         throws IOException, RepoException, ValidationException {
+      return write(
+          prepare(
+              rev,
+              lastRev,
+              processConsole,
+              metadata,
+              changes,
+              destinationBaseline,
+              changeIdentityRevision,
+              originBaselineForPrune,
+              /* previousWriteDone= */ null),
+          processConsole);
+    }
+
+    /**
+     * Checks out and transforms {@code rev} in this migrator workdir, leaving it ready to be
+     * written to the destination. See {@link #migrate} for the parameters.
+     *
+     * @param previousWriteDone if not null, reads of the destination and uses of the origin and
+     *     destination APIs during the transformations wait for this latch, so that they see the
+     *     result of a write that is still in progress and don't act before it succeeds
+     */
+    final PreparedMigration prepare(
+        O rev,
+        @Nullable O lastRev,
+        Console processConsole,
+        Metadata metadata,
+        Changes changes,
+        @Nullable Baseline<O> destinationBaseline,
+        @Nullable O changeIdentityRevision,
+        @Nullable O originBaselineForPrune,
+        @Nullable CountDownLatch previousWriteDone)
+        throws IOException, RepoException, ValidationException {
       Path checkoutDir = workdir.resolve(ConsistencyFile.CHECKOUT_DIR_NAME);
       try (ProfilerTask ignored = profiler().start("prepare_workdir")) {
         processConsole.progress("Cleaning working directory");
@@ -640,8 +814,15 @@ public class WorkflowRunHelper<O extends Revision, D extends Revision> {
       checkout(rev, processConsole, checkoutDir, "origin.checkout");
 
       Path originCopy = null;
+      HashedTree originTree = null;
       Console console = getWorkflow().getConsole();
-      if (getReverseTransformForCheck() != null) {
+      if (getReverseTransformForCheck() != null
+          && getWorkflow().getWorkflowOptions().reversibleCheckHashDiff) {
+        try (ProfilerTask ignored = profiler().start("reverse_hash")) {
+          console.progress("Hashing the workdir for reverse checking");
+          originTree = hashForReverseCheck(checkoutDir);
+        }
+      } else if (getReverseTransformForCheck() != null) {
         try (ProfilerTask ignored = profiler().start("reverse_copy")) {
           console.progress("Making a copy or the workdir for reverse checking");
           originCopy = Files.createDirectories(workdir.resolve("origin"));
@@ -649,10 +830,20 @@ public class WorkflowRunHelper<O extends Revision, D extends Revision> {
         }
       }
       // Lazy loading to avoid running afoul of checks unless the instance is actually used.
-      LazyResourceLoader<Endpoint> originApi = c -> reader.getFeedbackEndPoint(c);
-      LazyResourceLoader<Endpoint> destinationApi = c -> writer.getFeedbackEndPoint(c);
-      ResourceSupplier<DestinationReader> destinationReader = () ->
-          writer.getDestinationReader(console, destinationBaseline, checkoutDir);
+      // Endpoints can have side effects, like posting to a review, that shouldn't happen if the
+      // previous change fails to be written.
+      LazyResourceLoader<Endpoint> originApi = c -> {
+        awaitPreviousWrite(previousWriteDone);
+        return reader.getFeedbackEndPoint(c);
+      };
+      LazyResourceLoader<Endpoint> destinationApi = c -> {
+        awaitPreviousWrite(previousWriteDone);
+        return writer.getFeedbackEndPoint(c);
+      };
+      ResourceSupplier<DestinationReader> destinationReader = () -> {
+        awaitPreviousWrite(previousWriteDone);
+        return writer.getDestinationReader(console, destinationBaseline, checkoutDir);
+      };
       metadata =
           metadata.withHiddenLabels(
               getWorkflow().getGeneralOptions().cliLabels().entrySet().stream()
@@ -666,7 +857,15 @@ public class WorkflowRunHelper<O extends Revision, D extends Revision> {
                   metadata,
                   changes,
                   console,
-                  new MigrationInfo(getWorkflow().getRevIdLabel(), writer),
+                  new MigrationInfo(
+                      getWorkflow().getRevIdLabel(),
+                      previousWriteDone == null
+                          ? writer
+                          : (ChangeVisitable<D>)
+                              (start, visitor) -> {
+                                awaitPreviousWrite(previousWriteDone);
+                                writer.visitChanges(start, visitor);
+                              }),
                   getResolvedRefForTransform(rev),
                   originApi,
                   destinationApi,
@@ -678,6 +877,11 @@ public class WorkflowRunHelper<O extends Revision, D extends Revision> {
       transformWork.addLabel(
           COPYBARA_CONFIG_PATH_LABEL, getWorkflow().getMainConfigFile().getIdentifier(), "=", true);
       transformWork.addLabel(COPYBARA_WORKFLOW_NAME_LABEL, getWorkflow().getName(), "=", true);
+      ProvenanceTracer provenanceTracer = null;
+      if (getWorkflow().getWorkflowOptions().transformProvenance) {
+        provenanceTracer = new ProvenanceTracer(checkoutDir);
+        transformWork.getTreeState().setProvenanceTracer(provenanceTracer);
+      }
 
       try (ProfilerTask ignored = profiler().start("transforms")) {
         TransformationStatus status = getTransformation().transform(transformWork);
@@ -690,13 +894,24 @@ public class WorkflowRunHelper<O extends Revision, D extends Revision> {
         showInfoAboutNoop(console);
         throw e;
       }
+      String report = provenanceTracer == null ? "" : provenanceTracer.report();
+      if (!report.isEmpty()) {
+        logger.atFine().log(
+            "Files changed by the transformations for %s:\n%s", rev.asString(), report);
+        console.verboseFmt("Files changed by the transformations:\n%s", report);
+      }
 
       if (getReverseTransformForCheck() != null) {
         console.progress("Checking that the transformations can be reverted");
         Path reverse;
+        HashedTree.Workspace reverseWorkspace = null;
         try (ProfilerTask ignored = profiler().start("reverse_copy")) {
           reverse = Files.createDirectories(workdir.resolve("reverse"));
-          copyForReverseCheck(checkoutDir, reverse);
+          if (originTree != null) {
+            reverseWorkspace = createReverseWorkspace(originTree, checkoutDir, reverse);
+          } else {
+            copyForReverseCheck(checkoutDir, reverse);
+          }
         }
 
         try (ProfilerTask ignored = profiler().start("reverse_transform")) {
@@ -722,29 +937,13 @@ public class WorkflowRunHelper<O extends Revision, D extends Revision> {
           }
         }
         String diff;
-        try {
-          byte[] byteDiff =
-              DiffUtil.diff(
-                  originCopy,
-                  reverse,
-                  getWorkflow().isVerbose(),
-                  getWorkflow().getGeneralOptions().getEnvironment());
-
-          // This should be more optimal than parsing a potential huge diff file.
-          if (getReversibleCheckIgnoreFiles() != null) {
-            PathMatcher pathMatcher =
-                getReversibleCheckIgnoreFiles().relativeTo(Paths.get("origin"));
-            diff =
-                new String(
-                    DiffUtil.filterDiff(byteDiff, s -> !pathMatcher.matches(Path.of(s))), UTF_8);
-          } else {
-            diff = new String(byteDiff, UTF_8);
+        if (reverseWorkspace != null) {
+          // Only the list of files that are different, since the original tree was not copied.
+          try (ProfilerTask ignored = profiler().start("reverse_diff")) {
+            diff = String.join("\n", reverseWorkspace.diff(ignoreForReverseCheck(reverse)));
           }
-        } catch (InsideGitDirException e) {
-          throw new ValidationException(String.format(
-              "Cannot use 'reversible_check = True' because Copybara temporary directory (%s) is"
-                  + " inside a git directory (%s). Please remove the git repository or use %s"
-                  + " flag.", e.getPath(), e.getGitDirPath(), OUTPUT_ROOT_FLAG));
+        } else {
+          diff = diffForReverseCheck(originCopy, reverse);
         }
         if (!diff.trim().isEmpty()) {
           console.errorFmt("Copybara detected non-reversible transformations. This is detected"
@@ -862,7 +1061,15 @@ public class WorkflowRunHelper<O extends Revision, D extends Revision> {
               .withIdentity(
                   getWorkflow().getMigrationIdentity(changeIdentityRevision, transformWork))
               .withApprovalsProvider(getWorkflow().getOrigin().getApprovalsProvider());
+      return new PreparedMigration(transformResult, mergeErrorPaths);
+    }
 
+    /** Writes a change prepared by {@link #prepare} to the destination. */
+    private ImmutableList<DestinationEffect> write(
+        PreparedMigration prepared, Console processConsole)
+        throws IOException, RepoException, ValidationException {
+      TransformResult transformResult = prepared.transformResult;
+      ImmutableList<String> mergeErrorPaths = prepared.mergeErrorPaths;
       ImmutableList<DestinationEffect> result;
       try (ProfilerTask ignored =
           profiler()
@@ -891,6 +1098,20 @@ public class WorkflowRunHelper<O extends Revision, D extends Revision> {
       return result;
     }
 
+    private static void awaitPreviousWrite(@Nullable CountDownLatch previousWriteDone)
+        throws RepoException {
+      if (previousWriteDone == null) {
+        return;
+      }
+      try {
+        previousWriteDone.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RepoException(
+            "Interrupted while waiting for the previous change to be written", e);
+      }
+    }
+
     /**
      * @return a list of paths that resulted in merge errors, or null if a baseline could not be
      *     determined
@@ -1233,19 +1454,74 @@ public class WorkflowRunHelper<O extends Revision, D extends Revision> {
       }
     }
 
+    private String diffForReverseCheck(Path originCopy, Path reverse)
+        throws IOException, ValidationException {
+      try {
+        byte[] byteDiff =
+            DiffUtil.diff(
+                originCopy,
+                reverse,
+                getWorkflow().isVerbose(),
+                getWorkflow().getGeneralOptions().getEnvironment());
+
+        // This should be more optimal than parsing a potential huge diff file.
+        if (getReversibleCheckIgnoreFiles() != null) {
+          PathMatcher pathMatcher =
+              getReversibleCheckIgnoreFiles().relativeTo(Paths.get("origin"));
+          return new String(
+              DiffUtil.filterDiff(byteDiff, s -> !pathMatcher.matches(Path.of(s))), UTF_8);
+        }
+        return new String(byteDiff, UTF_8);
+      } catch (InsideGitDirException e) {
+        throw new ValidationException(String.format(
+            "Cannot use 'reversible_check = True' because Copybara temporary directory (%s) is"
+                + " inside a git directory (%s). Please remove the git repository or use %s"
+                + " flag.", e.getPath(), e.getGitDirPath(), OUTPUT_ROOT_FLAG));
+      }
+    }
+
+    private PathMatcher ignoreForReverseCheck(Path root) {
+      return getReversibleCheckIgnoreFiles() == null
+          ? path -> false
+          : getReversibleCheckIgnoreFiles().relativeTo(root);
+    }
+
+    private HashedTree hashForReverseCheck(Path checkoutDir)
+        throws IOException, ValidationException {
+      try {
+        return HashedTree.create(checkoutDir);
+      } catch (SymlinkException e) {
+        throw symlinkOutsideForReverseCheck(e);
+      }
+    }
+
+    private HashedTree.Workspace createReverseWorkspace(
+        HashedTree originTree, Path checkoutDir, Path reverse)
+        throws IOException, ValidationException {
+      try {
+        return originTree.createWorkspace(checkoutDir, reverse);
+      } catch (SymlinkException e) {
+        throw symlinkOutsideForReverseCheck(e);
+      }
+    }
+
     private void copyForReverseCheck(Path from, Path to) throws IOException, ValidationException {
       try {
         FileUtil.copyFilesRecursively(from, to, FAIL_OUTSIDE_SYMLINKS);
       } catch (SymlinkException e) {
-        throw new ValidationException(
-            ""
-                + "Failed to perform reversible check of transformations due to a symlink that "
-                + "points outside the checkout dir. Consider removing this symlink from your "
-                + "origin_files or, alternatively, set reversible_check = False in your "
-                + "workflow.",
-            e);
+        throw symlinkOutsideForReverseCheck(e);
       }
     }
+
+    private ValidationException symlinkOutsideForReverseCheck(SymlinkException e) {
+      return new ValidationException(
+          ""
+              + "Failed to perform reversible check of transformations due to a symlink that "
+              + "points outside the checkout dir. Consider removing this symlink from your "
+              + "origin_files or, alternatively, set reversible_check = False in your "
+              + "workflow.",
+          e);
+    }
   }
 
   public Path importAndTransformRevision(
@@ -77,6 +77,7 @@ public class ArchiveModule implements StarlarkValue {
     try (OutputStream os = Files.newOutputStream(archivePath.fullPath())) {
       ArchiveUtil.createArchive(
           os, type, archivePath, SkylarkUtil.convertFromNoneable(files, null));
+      archivePath.notifyUntrackedChange();
     } catch (IOException | ValidationException e) {
       throw Starlark.errorf("There was an error creating the archive: %s", e.toString());
     }
@@ -137,6 +138,7 @@ public class ArchiveModule implements StarlarkValue {
           destination.fullPath(),
           type,
           SkylarkUtil.convertFromNoneable(paths, null));
+      destination.notifyUntrackedChange();
     } catch (IOException | ValidationException e) {
       throw Starlark.errorf("There was an error extracting the archive: %s", e.toString());
     }
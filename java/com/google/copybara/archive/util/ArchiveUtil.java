@@ -16,7 +16,6 @@
 
 package com.google.copybara.archive.util;
 
-import com.google.common.base.VerifyException;
 import com.google.common.collect.ImmutableList;
 import com.google.copybara.CheckoutPath;
 import com.google.copybara.exception.ValidationException;
@@ -24,14 +23,21 @@ import com.google.copybara.remotefile.extractutil.ExtractType;
 import com.google.copybara.util.Glob;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
 import javax.annotation.Nullable;
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveOutputStream;
 import org.apache.commons.compress.archivers.jar.JarArchiveOutputStream;
 import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ParallelScatterZipCreator;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
 import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
@@ -39,13 +45,19 @@ import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
 /**
  * A utility class to generate a (compressed) archive at a target directory path. Accepts a Glob to
  * filter out which files need to be archived.
+ *
+ * <p>File contents are streamed into the archive, never fully loaded in memory. ZIP entries are
+ * deflated in parallel and written in walk order. TAR_GZ archives are a single gzip stream unless
+ * multi-member output is requested, in which case they are compressed in parallel blocks (see
+ * {@link ParallelGzipOutputStream}).
  */
 public final class ArchiveUtil {
 
   private ArchiveUtil() {}
 
   /**
-   * Internal utility to create an archive.
+   * Internal utility to create an archive, using as many compression threads as available
+   * processors.
    *
    * @param os generic OutputStream configured to write to the target archive file
    * @param type category of archive to generate based on target file extension
@@ -55,13 +67,64 @@ public final class ArchiveUtil {
   public static void createArchive(
       OutputStream os, ExtractType type, CheckoutPath archivePath, @Nullable Glob fileFilter)
       throws IOException, ValidationException {
-    try (ArchiveOutputStream<? extends ArchiveEntry> aos = createArchiveOutputStream(os, type)) {
-      writeFiles(aos, archivePath, fileFilter);
+    createArchive(os, type, archivePath, fileFilter, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Internal utility to create an archive.
+   *
+   * @param os generic OutputStream configured to write to the target archive file
+   * @param type category of archive to generate based on target file extension
+   * @param archivePath copybara checkout path to the archive file
+   * @param fileFilter glob to filter the set of files to be included in the archive
+   * @param threads number of threads to use for compression. 1 means serial compression
+   */
+  public static void createArchive(
+      OutputStream os,
+      ExtractType type,
+      CheckoutPath archivePath,
+      @Nullable Glob fileFilter,
+      int threads)
+      throws IOException, ValidationException {
+    createArchive(os, type, archivePath, fileFilter, threads, /* multiMemberGzip= */ false);
+  }
+
+  /**
+   * Internal utility to create an archive.
+   *
+   * @param os generic OutputStream configured to write to the target archive file
+   * @param type category of archive to generate based on target file extension
+   * @param archivePath copybara checkout path to the archive file
+   * @param fileFilter glob to filter the set of files to be included in the archive
+   * @param threads number of threads to use for compression. 1 means serial compression
+   * @param multiMemberGzip whether TAR_GZ archives can be compressed in parallel as several gzip
+   *     members. Readers need to support concatenated members (e.g. {@code
+   *     GzipCompressorInputStream} with {@code decompressConcatenated}), otherwise they only see
+   *     the first block. Ignored if {@code threads} is 1
+   */
+  public static void createArchive(
+      OutputStream os,
+      ExtractType type,
+      CheckoutPath archivePath,
+      @Nullable Glob fileFilter,
+      int threads,
+      boolean multiMemberGzip)
+      throws IOException, ValidationException {
+    ImmutableList<Path> files = listFiles(archivePath, fileFilter);
+    Path workdir = archivePath.getCheckoutDir();
+    if (type == ExtractType.ZIP && threads > 1) {
+      try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(os)) {
+        writeZipFilesInParallel(zos, workdir, files, threads);
+      }
+      return;
+    }
+    try (ArchiveOutputStream<? extends ArchiveEntry> aos =
+        createArchiveOutputStream(os, type, multiMemberGzip && threads > 1 ? threads : 1)) {
+      writeFiles(aos, workdir, files);
     }
   }
 
-  private static <T extends ArchiveEntry> void writeFiles(
-      ArchiveOutputStream<T> os, CheckoutPath archivePath, @Nullable Glob fileFilter)
+  private static ImmutableList<Path> listFiles(CheckoutPath archivePath, @Nullable Glob fileFilter)
       throws IOException {
     // Get the current working directory
     Path workdir = archivePath.getCheckoutDir();
@@ -75,26 +138,65 @@ public final class ArchiveUtil {
             fileFilter, Glob.createGlob(ImmutableList.of(archivePath.getPath().toString())));
 
     try (Stream<Path> stream = Files.walk(workdir)) {
-      stream
+      return stream
           .filter(Files::isRegularFile)
           .filter(fileFilter.relativeTo(workdir)::matches)
-          .forEach(
-              filePath -> {
-                try {
-                  Path relativePath = workdir.relativize(filePath);
-                  T entry = os.createArchiveEntry(filePath, relativePath.toString());
-                  os.putArchiveEntry(entry);
-                  os.write(Files.readAllBytes(filePath));
-                  os.closeArchiveEntry();
-                } catch (IOException e) {
-                  throw new VerifyException(e);
-                }
-              });
+          .collect(ImmutableList.toImmutableList());
+    }
+  }
+
+  private static <T extends ArchiveEntry> void writeFiles(
+      ArchiveOutputStream<T> os, Path workdir, ImmutableList<Path> files) throws IOException {
+    for (Path filePath : files) {
+      T entry = os.createArchiveEntry(filePath, workdir.relativize(filePath).toString());
+      os.putArchiveEntry(entry);
+      Files.copy(filePath, os);
+      os.closeArchiveEntry();
+    }
+  }
+
+  /**
+   * Deflates every file in a separate task and writes the entries in the original order. The
+   * compressed entries are buffered in temporary files, not in memory.
+   */
+  private static void writeZipFilesInParallel(
+      ZipArchiveOutputStream zos, Path workdir, ImmutableList<Path> files, int threads)
+      throws IOException {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      ParallelScatterZipCreator creator = new ParallelScatterZipCreator(executor);
+      for (Path filePath : files) {
+        ZipArchiveEntry entry =
+            new ZipArchiveEntry(filePath, workdir.relativize(filePath).toString());
+        entry.setMethod(ZipEntry.DEFLATED);
+        creator.addArchiveEntry(
+            entry,
+            () -> {
+              try {
+                return Files.newInputStream(filePath);
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+            });
+      }
+      creator.writeTo(zos);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while creating zip archive", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) e.getCause()).getCause();
+      }
+      throw new IOException("Error creating zip archive", e.getCause());
+    } finally {
+      // writeTo shuts the executor down, but not if we fail before getting there.
+      executor.shutdownNow();
     }
   }
 
   private static ArchiveOutputStream<? extends ArchiveEntry> createArchiveOutputStream(
-      OutputStream outputStream, ExtractType type) throws IOException, ValidationException {
+      OutputStream outputStream, ExtractType type, int gzipThreads)
+      throws IOException, ValidationException {
     switch (type) {
       case JAR:
         return new JarArchiveOutputStream(outputStream);
@@ -103,7 +205,10 @@ public final class ArchiveUtil {
       case TAR:
         return new TarArchiveOutputStream(outputStream);
       case TAR_GZ:
-        return new TarArchiveOutputStream(new GzipCompressorOutputStream(outputStream));
+        return new TarArchiveOutputStream(
+            gzipThreads > 1
+                ? new ParallelGzipOutputStream(outputStream, gzipThreads)
+                : new GzipCompressorOutputStream(outputStream));
       case TAR_XZ:
         return new TarArchiveOutputStream(new XZCompressorOutputStream(outputStream));
     }
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.archive.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A gzip {@link OutputStream} that splits its input in fixed size blocks and compresses them in
+ * parallel, pigz style.
+ *
+ * <p>Every block is written as an independent gzip member, in input order. Any reader that
+ * supports concatenated members (gzip, zcat, {@link java.util.zip.GZIPInputStream}, or {@code
+ * GzipCompressorInputStream} with {@code decompressConcatenated}) sees the original stream.
+ *
+ * <p>At most {@code 2 * threads} blocks are kept in memory at any time, so memory usage does not
+ * depend on the size of the input.
+ */
+public final class ParallelGzipOutputStream extends OutputStream {
+
+  static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+  private final OutputStream out;
+  private final ExecutorService executor;
+  private final int maxInFlight;
+  private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+  private byte[] block;
+  private int blockPos;
+  private boolean wroteMember;
+  private boolean closed;
+
+  public ParallelGzipOutputStream(OutputStream out, int threads) {
+    this(out, DEFAULT_BLOCK_SIZE, threads);
+  }
+
+  public ParallelGzipOutputStream(OutputStream out, int blockSize, int threads) {
+    checkArgument(blockSize > 0, "Block size needs to be positive: %s", blockSize);
+    checkArgument(threads >= 1, "Threads need to be positive: %s", threads);
+    this.out = out;
+    this.block = new byte[blockSize];
+    this.maxInFlight = threads * 2;
+    this.executor = Executors.newFixedThreadPool(threads);
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    write(new byte[] {(byte) b}, 0, 1);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    checkOpen();
+    while (len > 0) {
+      int toCopy = Math.min(len, block.length - blockPos);
+      System.arraycopy(b, off, block, blockPos, toCopy);
+      blockPos += toCopy;
+      off += toCopy;
+      len -= toCopy;
+      if (blockPos == block.length) {
+        submitBlock();
+      }
+    }
+  }
+
+  /**
+   * Flushes the completed members to the underlying stream. The current partial block is not
+   * compressed until it is full or the stream is closed.
+   */
+  @Override
+  public void flush() throws IOException {
+    checkOpen();
+    drain(0);
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      // An empty input still needs one member to be a valid gzip file.
+      if (blockPos > 0 || !wroteMember) {
+        submitBlock();
+      }
+      drain(0);
+    } finally {
+      executor.shutdownNow();
+      out.close();
+    }
+  }
+
+  private void submitBlock() throws IOException {
+    byte[] data = Arrays.copyOf(block, blockPos);
+    blockPos = 0;
+    pending.add(executor.submit(() -> compress(data)));
+    wroteMember = true;
+    drain(maxInFlight);
+  }
+
+  /** Writes finished members, in order, until there are at most {@code max} pending. */
+  private void drain(int max) throws IOException {
+    while (pending.size() > max) {
+      Future<byte[]> next = pending.poll();
+      try {
+        out.write(next.get());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while compressing", e);
+      } catch (ExecutionException e) {
+        throw new IOException("Error compressing block", e.getCause());
+      }
+    }
+  }
+
+  private void checkOpen() throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+  }
+
+  private static byte[] compress(byte[] data) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length / 2 + 64);
+    try (GZIPOutputStream gzip = new GZIPOutputStream(bos, 64 * 1024)) {
+      gzip.write(data);
+    }
+    return bos.toByteArray();
+  }
+}
@@ -16,10 +16,12 @@
 
 package com.google.copybara.buildozer;
 
+import static com.google.common.base.Throwables.throwIfUnchecked;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Splitter;
@@ -39,7 +41,15 @@ import com.google.copybara.util.console.Consoles;
 import com.google.copybara.shell.Command;
 import com.google.copybara.shell.CommandException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -67,6 +77,14 @@ public final class BuildozerOptions implements Option {
       hidden = true)
   public String buildozerBin = "/usr/bin/buildozer";
 
+  @Parameter(
+      names = "--buildozer-shards",
+      description =
+          "Maximum number of buildozer processes run in parallel for a buildozer transformation."
+              + " The commands are split by package, so each process edits different BUILD"
+              + " files.")
+  public int shards = 1;
+
   private void logError(Console console, CommandOutput output) {
     Consoles.errorLogLines(console, "buildozer stdout: ", output.getStdout());
     Consoles.errorLogLines(console, "buildozer stderr: ", output.getStderr());
@@ -93,9 +111,114 @@ public final class BuildozerOptions implements Option {
     }
   }
 
+  /**
+   * Thrown when buildozer exits with code 3: no BUILD file was modified. When running in shards
+   * this is only an error if no shard modified a file.
+   */
+  private static class NoChangesException extends TargetNotFoundException {
+    NoChangesException(String msg) {
+      super(msg);
+    }
+  }
+
   void run(Console console, Path checkoutDir, Iterable<BuildozerCommand> commands)
       throws ValidationException, TargetNotFoundException {
-    String unused = runCaptureOutput(console, checkoutDir, commands);
+    ImmutableList<ImmutableList<BuildozerCommand>> shardedCommands = shard(commands);
+    if (shardedCommands.size() == 1) {
+      String unused = runCaptureOutput(console, checkoutDir, commands);
+      return;
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(shardedCommands.size());
+    try {
+      List<Future<String>> results = new ArrayList<>();
+      for (ImmutableList<BuildozerCommand> shard : shardedCommands) {
+        results.add(executor.submit(() -> runCaptureOutput(console, checkoutDir, shard)));
+      }
+      ValidationException error = null;
+      List<String> notFound = new ArrayList<>();
+      boolean changed = false;
+      for (Future<String> result : results) {
+        try {
+          result.get();
+          changed = true;
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof NoChangesException) {
+            continue;
+          }
+          if (e.getCause() instanceof TargetNotFoundException) {
+            notFound.add(e.getCause().getMessage());
+            continue;
+          }
+          throwIfUnchecked(e.getCause());
+          if (!(e.getCause() instanceof ValidationException validationException)) {
+            throw new RuntimeException("Unhandled error", e.getCause());
+          }
+          if (error == null) {
+            error = validationException;
+          } else {
+            error.addSuppressed(validationException);
+          }
+        }
+      }
+      // Same result as a single buildozer run: errors first, then targets not found, and then no
+      // changes if none of the shards modified a file.
+      if (error != null) {
+        throw error;
+      }
+      if (!notFound.isEmpty()) {
+        throw new TargetNotFoundException(Joiner.on("\n").join(notFound));
+      }
+      if (!changed) {
+        throw new NoChangesException(
+            commandsMessage("Buildozer could not find a target for", commands));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted", e);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Splits the commands in up to {@link #shards} lists that edit disjoint sets of packages, keeping
+   * the order of the commands of each package. Returns a single list with all the commands if they
+   * cannot be split, for example if a target is a recursive pattern.
+   */
+  @VisibleForTesting
+  ImmutableList<ImmutableList<BuildozerCommand>> shard(Iterable<BuildozerCommand> commands) {
+    ImmutableList<ImmutableList<BuildozerCommand>> unsharded =
+        ImmutableList.of(ImmutableList.copyOf(commands));
+    if (shards <= 1) {
+      return unsharded;
+    }
+    Map<String, List<BuildozerCommand>> byPackage = new LinkedHashMap<>();
+    for (BuildozerCommand command : commands) {
+      for (String target : command.targets) {
+        int colon = target.indexOf(':');
+        if (colon == -1 || target.contains("...")) {
+          return unsharded;
+        }
+        String pkg = target.substring(target.startsWith("//") ? 2 : 0, colon);
+        byPackage
+            .computeIfAbsent(pkg, k -> new ArrayList<>())
+            .add(new BuildozerCommand(target, command.cmd));
+      }
+    }
+    int count = Math.min(shards, byPackage.size());
+    if (count <= 1) {
+      return unsharded;
+    }
+    List<List<BuildozerCommand>> result = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      result.add(new ArrayList<>());
+    }
+    // Biggest packages first, each one to the shard with fewer commands
+    byPackage.values().stream()
+        .sorted(Comparator.comparingInt(List<BuildozerCommand>::size).reversed())
+        .forEachOrdered(
+            pkg -> result.stream().min(Comparator.comparingInt(List::size)).get().addAll(pkg));
+    return result.stream().map(ImmutableList::copyOf).collect(ImmutableList.toImmutableList());
   }
 
   /**
@@ -136,7 +259,7 @@ public final class BuildozerOptions implements Option {
         // Buildozer exits with code == 3 when the build file was not modified and no output
         // was generated. This happens with expressions that match multiple targets, like
         // :%java_library
-        throw new TargetNotFoundException(
+        throw new NoChangesException(
             commandsMessage("Buildozer could not find a target for", commands));
       }
       if (e.getResult().getTerminationStatus().getExitCode() == 2) {
@@ -38,4 +38,10 @@ public interface BuildozerTransformation extends Transformation {
    * List of commands to execute
    */
   Iterable<BuildozerCommand> getCommands();
+
+  /** Buildozer only edits BUILD files, so it can be joined across metadata transformations. */
+  @Override
+  default boolean canJoinAcross(Transformation between) {
+    return between.isMetadataOnly();
+  }
 }
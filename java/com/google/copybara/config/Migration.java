@@ -24,6 +24,7 @@ import com.google.copybara.exception.ValidationException;
 import com.google.copybara.revision.Revision;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Map;
 import javax.annotation.Nullable;
 import net.starlark.java.eval.StarlarkThread;
 
@@ -58,6 +59,16 @@ public interface Migration {
     return Info.EMPTY;
   }
 
+  /**
+   * Like {@link #getInfo()}, but the revisions resolved by the origin are looked up in and added
+   * to {@code resolvedOrigins}, keyed by {@link com.google.copybara.Origin#resolveKey()}, so that
+   * migrations of the same origin resolve it only once.
+   */
+  default Info<? extends Revision> getInfo(Map<Object, Revision> resolvedOrigins)
+      throws RepoException, ValidationException {
+    return getInfo();
+  }
+
   /**
    * @return The migration's name.
    */
@@ -19,19 +19,26 @@ package com.google.copybara.format;
 
 
 import static com.google.copybara.exception.ValidationException.checkCondition;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Streams;
 import com.google.common.flogger.FluentLogger;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
 import com.google.copybara.GeneralOptions;
 import com.google.copybara.TransformWork;
 import com.google.copybara.Transformation;
 import com.google.copybara.TransformationStatus;
+import com.google.copybara.WorkflowOptions;
 import com.google.copybara.exception.NonReversibleValidationException;
 import com.google.copybara.exception.ValidationException;
+import com.google.copybara.treestate.TreeState.FileState;
 import com.google.copybara.util.BadExitStatusWithOutputException;
 import com.google.copybara.util.CommandOutput;
 import com.google.copybara.util.CommandOutputWithStatus;
@@ -41,13 +48,15 @@ import com.google.copybara.util.console.Consoles;
 import com.google.copybara.shell.Command;
 import com.google.copybara.shell.CommandException;
 import java.io.IOException;
-import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.PathMatcher;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import javax.annotation.Nullable;
 
 /** Format using buildifier */
@@ -56,6 +65,7 @@ public class BuildifierFormat implements Transformation {
 
   private final BuildifierOptions buildifierOptions;
   private final GeneralOptions generalOptions;
+  private final WorkflowOptions workflowOptions;
 
   private final Glob glob;
   private final LintMode lintMode;
@@ -65,12 +75,14 @@ public class BuildifierFormat implements Transformation {
   BuildifierFormat(
       BuildifierOptions buildifierOptions,
       GeneralOptions generalOptions,
+      WorkflowOptions workflowOptions,
       Glob glob,
       LintMode lintMode,
       ImmutableList<String> warnings,
       @Nullable String type) {
     this.buildifierOptions = Preconditions.checkNotNull(buildifierOptions);
     this.generalOptions = Preconditions.checkNotNull(generalOptions);
+    this.workflowOptions = Preconditions.checkNotNull(workflowOptions);
     this.glob = Preconditions.checkNotNull(glob);
     this.lintMode = Preconditions.checkNotNull(lintMode);
     this.warnings = warnings;
@@ -80,33 +92,111 @@ public class BuildifierFormat implements Transformation {
   @Override
   public TransformationStatus transform(TransformWork work)
       throws IOException, ValidationException {
-    PathMatcher pathMatcher = glob.relativeTo(work.getCheckoutDir());
-    ImmutableList.Builder<String> paths = ImmutableList.builder();
-    Files.walkFileTree(
-        work.getCheckoutDir(),
-        new SimpleFileVisitor<>() {
-          @Override
-          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
-              throws IOException {
-            if (pathMatcher.matches(file)) {
-              paths.add(file.toAbsolutePath().toString());
-            }
-            return FileVisitResult.CONTINUE;
-          }
-        });
-    ImmutableList<String> builtPaths = paths.build();
-    if (builtPaths.isEmpty()) {
+    Path checkoutDir = work.getCheckoutDir();
+    ImmutableList<FileState> files =
+        Streams.stream(work.getTreeState().find(glob.relativeTo(checkoutDir)))
+            .sorted(Comparator.comparing(FileState::getPath))
+            .collect(ImmutableList.toImmutableList());
+    if (files.isEmpty()) {
       return TransformationStatus.noop(glob + " didn't match any build file to format");
     }
-    for (List<String> sublist : Iterables.partition(builtPaths, buildifierOptions.batchSize)) {
-      run(work.getConsole(), work.getCheckoutDir(), sublist);
+    if (!buildifierOptions.incremental) {
+      workflowOptions
+          .parallelizer()
+          .run(
+              files,
+              batch -> {
+                format(work.getConsole(), checkoutDir, batch);
+                return ImmutableList.of();
+              });
+      return TransformationStatus.success();
     }
+    Path cacheDir = generalOptions.getDirFactory().getCacheDir("buildifier");
+    String flags = Joiner.on(' ').join(flags()) + " " + binaryVersion();
+    List<ImmutableList<FileState>> changed =
+        workflowOptions.parallelizer()
+            .run(files, batch -> formatIncremental(work, cacheDir, flags, batch));
+    ImmutableList<FileState> changedFiles =
+        changed.stream().flatMap(List::stream).collect(ImmutableList.toImmutableList());
+    logger.atInfo().log("Buildifier changed %d of %d files", changedFiles.size(), files.size());
+    // All the files changed are notified, so the cache of the tree state can be kept
+    work.getTreeState().notifyModify(changedFiles);
     return TransformationStatus.success();
   }
 
-  /** Runs buildifier with the given arguments. */
-  private void run(Console console, Path checkoutDir, Iterable<String> args)
+  private void format(Console console, Path checkoutDir, Iterable<FileState> files)
       throws IOException, ValidationException {
+    for (List<FileState> sublist : Iterables.partition(files, buildifierOptions.batchSize)) {
+      run(
+          console,
+          checkoutDir,
+          Lists.transform(sublist, f -> f.getPath().toAbsolutePath().toString()));
+    }
+  }
+
+  /**
+   * Formats the files whose content was not formatted before with the same flags, and copies the
+   * formatted content of the rest from {@code cacheDir}. Returns the files changed.
+   */
+  private ImmutableList<FileState> formatIncremental(
+      TransformWork work, Path cacheDir, String flags, Iterable<FileState> files)
+      throws IOException, ValidationException {
+    ImmutableList.Builder<FileState> changed = ImmutableList.builder();
+    Map<FileState, Path> misses = new LinkedHashMap<>();
+    Map<FileState, byte[]> originals = new HashMap<>();
+    for (FileState file : files) {
+      byte[] content = Files.readAllBytes(file.getPath());
+      HashCode key =
+          Hashing.sha256()
+              .newHasher()
+              .putString(flags, UTF_8)
+              .putByte((byte) 0)
+              .putString(work.getCheckoutDir().relativize(file.getPath()).toString(), UTF_8)
+              .putByte((byte) 0)
+              .putBytes(content)
+              .hash();
+      String name = key.toString();
+      Path cached = cacheDir.resolve(name.substring(0, 2)).resolve(name);
+      if (!Files.exists(cached)) {
+        misses.put(file, cached);
+        originals.put(file, content);
+        continue;
+      }
+      byte[] formatted = Files.readAllBytes(cached);
+      if (!Arrays.equals(content, formatted)) {
+        Files.write(file.getPath(), formatted);
+        changed.add(file);
+      }
+    }
+    if (misses.isEmpty()) {
+      return changed.build();
+    }
+    format(work.getConsole(), work.getCheckoutDir(), misses.keySet());
+    for (Map.Entry<FileState, Path> miss : misses.entrySet()) {
+      byte[] formatted = Files.readAllBytes(miss.getKey().getPath());
+      if (!Arrays.equals(originals.get(miss.getKey()), formatted)) {
+        changed.add(miss.getKey());
+      }
+      Path cached = miss.getValue();
+      Files.createDirectories(cached.getParent());
+      // Written to a temporary file first, so that concurrent readers never see partial content.
+      Path tmp = Files.createTempFile(cached.getParent(), cached.getFileName().toString(), ".tmp");
+      Files.write(tmp, formatted);
+      Files.move(tmp, cached, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    return changed.build();
+  }
+
+  /** Identifies the buildifier binary, so that a new version doesn't reuse cached results. */
+  private String binaryVersion() {
+    try {
+      return Files.getLastModifiedTime(Path.of(buildifierOptions.buildifierBin)).toString();
+    } catch (IOException e) {
+      return "";
+    }
+  }
+
+  private ImmutableList<String> flags() {
     ImmutableList.Builder<String> argBuilder = new Builder<String>()
         .add(buildifierOptions.buildifierBin);
     if (type != null) {
@@ -118,7 +208,14 @@ public class BuildifierFormat implements Transformation {
         argBuilder.add("-warnings=" + Joiner.on(",").join(warnings));
       }
     }
-    String[] argv = argBuilder.addAll(args).build().toArray(new String[0]);
+    return argBuilder.build();
+  }
+
+  /** Runs buildifier with the given arguments. */
+  private void run(Console console, Path checkoutDir, Iterable<String> args)
+      throws IOException, ValidationException {
+    String[] argv =
+        new Builder<String>().addAll(flags()).addAll(args).build().toArray(new String[0]);
 
     try {
       Command cmd = new Command(argv, /*environmentVariables*/ null, checkoutDir.toFile());
@@ -33,4 +33,11 @@ public class BuildifierOptions implements Option {
   @Parameter(names = "--buildifier-batch-size",
       description = "Process files in batches this size")
   public int batchSize = 200;
+
+  @Parameter(
+      names = "--buildifier-incremental",
+      description =
+          "Only run buildifier for files whose content wasn't formatted before with the same"
+              + " flags. The formatted content of the rest is reused from the cache dir.")
+  public boolean incremental = false;
 }
@@ -153,6 +153,7 @@ public class FormatModule implements StarlarkValue {
     return new BuildifierFormat(
         buildifierOptions,
         generalOptions,
+        workflowOptions,
         Glob.wrapGlob(paths, DEFAULT_BUILDIFIER_PATHS),
         lintMode,
         ImmutableList.copyOf(Sequence.cast(warnings, String.class, "lint_warnings")),
@@ -22,6 +22,8 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.copybara.ChangeMessage;
 import com.google.copybara.authoring.Author;
 import com.google.copybara.authoring.Authoring;
@@ -30,9 +32,12 @@ import com.google.copybara.exception.ValidationException;
 import com.google.copybara.git.GitRepository.GitLogEntry;
 import com.google.copybara.git.GitRepository.LogCmd;
 import com.google.copybara.revision.Change;
+import com.google.copybara.revision.MessageStore;
 import com.google.copybara.util.Glob;
 import com.google.copybara.util.console.Console;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import javax.annotation.Nullable;
 import net.starlark.java.eval.EvalException;
@@ -42,6 +47,9 @@ import net.starlark.java.eval.EvalException;
  */
 class ChangeReader {
 
+  // Batch size of the log command when compacting changes if no batch size is set.
+  private static final int COMPACT_BATCH_SIZE = 1000;
+
   @Nullable private final Authoring authoring;
   private final GitRepository repository;
   private final int limit;
@@ -53,13 +61,17 @@ class ChangeReader {
   private final boolean topoOrder;
   private final int skip;
   private final int batchSize;
+  private final ImmutableList<String> pathspecs;
+  @Nullable private final MessageStore messageStore;
+  private final int compactThreshold;
 
   @Nullable private final String grepString;
 
   private ChangeReader(@Nullable Authoring authoring, GitRepository repository, int limit,
       Iterable<String> roots, boolean includeBranchCommitLogs, @Nullable String url,
       boolean firstParent, boolean partialFetch, boolean topoOrder, int skip, int batchSize,
-      @Nullable String grepString) {
+      Iterable<String> pathspecs, @Nullable String grepString,
+      @Nullable MessageStore messageStore, int compactThreshold) {
     this.authoring = authoring;
     this.repository = checkNotNull(repository, "repository");
     this.limit = limit;
@@ -71,7 +83,10 @@ class ChangeReader {
     this.topoOrder = topoOrder;
     this.skip = skip;
     this.batchSize = batchSize;
+    this.pathspecs = ImmutableList.copyOf(pathspecs);
     this.grepString = grepString;
+    this.messageStore = messageStore;
+    this.compactThreshold = compactThreshold;
   }
 
   ImmutableList<Change<GitRevision>> run(GitRevision rev)
@@ -110,6 +125,8 @@ class ChangeReader {
     }
     if (batchSize > 0) {
       logCmd = logCmd.withBatchSize(batchSize);
+    } else if (messageStore != null) {
+      logCmd = logCmd.withBatchSize(COMPACT_BATCH_SIZE);
     }
     if (grepString != null) {
       logCmd = logCmd.grep(grepString);
@@ -119,14 +136,25 @@ class ChangeReader {
           "Config error: partial_fetch feature is not compatible "
               + "with fetching the whole repo.");
     }
-    if (partialFetch) {
+    if (!pathspecs.isEmpty()) {
+      // --full-history lists every commit that modifies the paths, including the ones in side
+      // branches that were merged back with the same content. Commits that match the pathspecs
+      // but not the glob are filtered later on their files, like the rest of the changes.
+      logCmd = logCmd.withPaths(pathspecs).fullHistory(true);
+    } else if (partialFetch) {
       logCmd = logCmd.withPaths(roots);
     }
 
-    // Log command does not filter by roots here because of how git log works. Some commits (e.g.
-    // fake merges) might not include the files in the log, and filtering here would return
-    // incorrect results. We do filter later on the changes to match the actual glob.
-    return parseChanges(logCmd.includeFiles(true).includeMergeDiff(true).run(), labels, toRev);
+    // Unless pathspecs are set, log command does not filter by roots here because of how git log
+    // works. Some commits (e.g. fake merges) might not include the files in the log, and filtering
+    // here would return incorrect results. We do filter later on the changes to match the actual
+    // glob.
+    List<Change<GitRevision>> changes = new ArrayList<>();
+    logCmd
+        .includeFiles(true)
+        .includeMergeDiff(true)
+        .run(entries -> parseChanges(changes, entries, labels, toRev));
+    return ImmutableList.copyOf(Lists.reverse(changes));
   }
 
   static final String BRANCH_COMMIT_LOG_HEADING = "-- Branch commit log --";
@@ -180,19 +208,28 @@ class ChangeReader {
     return sb.toString();
   }
 
-  private ImmutableList<Change<GitRevision>> parseChanges(
+  /**
+   * Parses a batch of log entries, adding the changes to {@code result} in log order. If a message
+   * store is set, the changes are compacted once there are more than the threshold.
+   */
+  private void parseChanges(
+      List<Change<GitRevision>> result,
       ImmutableList<GitLogEntry> logEntries,
       ImmutableMap<String, ImmutableListMultimap<String, String>> labels,
       GitRevision toRev)
       throws RepoException {
-    ImmutableList.Builder<Change<GitRevision>> result = ImmutableList.builder();
-    GitRevision last = null;
+    List<GitLogEntry> entries = new ArrayList<>(logEntries.size());
     for (GitLogEntry e : logEntries) {
       // Keep the first commit if repeated (merge commits).
-      if (last != null && last.equals(e.commit())) {
-        continue;
+      if (entries.isEmpty() || !Iterables.getLast(entries).commit().equals(e.commit())) {
+        entries.add(e);
       }
-      last = e.commit();
+    }
+    ImmutableList<ImmutableListMultimap<String, String>> messageLabels =
+        ChangeMessage.labelsOfAll(Lists.transform(entries, GitLogEntry::body));
+    for (int i = 0; i < entries.size(); i++) {
+      GitLogEntry e = entries.get(i);
+      GitRevision last = e.commit();
       ImmutableListMultimap<String, String> labelsToCopy =
           labels.getOrDefault(e.commit().getHash(), ImmutableListMultimap.of());
       // Carry over the context reference to the corresponding change in the list.
@@ -205,12 +242,22 @@ class ChangeReader {
               filterAuthor(e.author()),
               e.body() + branchCommitLog(last, e.parents()),
               e.authorDate(),
-              ChangeMessage.parseAllAsLabels(e.body()).labelsAsMultimap(),
+              messageLabels.get(i),
               e.files(),
               e.parents().size() > 1,
               e.parents()));
     }
-    return result.build().reverse();
+    if (messageStore != null && result.size() > compactThreshold) {
+      // Changes are compacted as soon as the threshold is reached, so only the last ones can be
+      // pending.
+      try {
+        for (int i = result.size() - 1; i >= 0 && !result.get(i).isCompact(); i--) {
+          result.set(i, result.get(i).compact(messageStore));
+        }
+      } catch (IOException e) {
+        throw new RepoException("Error writing the change messages", e);
+      }
+    }
   }
 
   private Author filterAuthor(Author author) throws RepoException {
@@ -239,7 +286,10 @@ class ChangeReader {
     private boolean partialFetch;
     private int skip;
     private int batchSize;
+    private ImmutableList<String> pathspecs = ImmutableList.of();
     private String grepString;
+    @Nullable private MessageStore messageStore;
+    private int compactThreshold;
 
     // TODO(matvore): Consider adding destinationFiles.
     // For ALL_FILES and where roots is [""], This will skip merges that don't affect the tree
@@ -315,6 +365,29 @@ class ChangeReader {
       return this;
     }
 
+    /**
+     * Only list the commits that modify files matched by the given git pathspecs. Unlike {@link
+     * #setRoots}, commits of merged side branches are listed too. An empty list disables it.
+     */
+    @CanIgnoreReturnValue
+    Builder setPathspecs(Iterable<String> pathspecs) {
+      this.pathspecs = ImmutableList.copyOf(pathspecs);
+      return this;
+    }
+
+    /**
+     * Keep only the first line of the messages in memory, writing them to {@code store}, if more
+     * than {@code threshold} changes are read. The log is read in batches so that the full
+     * messages of all the changes are never in memory at the same time.
+     */
+    @CanIgnoreReturnValue
+    Builder setCompaction(MessageStore store, int threshold) {
+      Preconditions.checkArgument(threshold >= 0);
+      this.messageStore = checkNotNull(store, "store");
+      this.compactThreshold = threshold;
+      return this;
+    }
+
     /**
      * Grep for the given pattern in the Git log command.
      */
@@ -326,7 +399,8 @@ class ChangeReader {
     ChangeReader build() {
       return new ChangeReader(
           authoring, repository, limit, roots, includeBranchCommitLogs, url,
-          firstParent, partialFetch, topoOrder, skip, batchSize, grepString);
+          firstParent, partialFetch, topoOrder, skip, batchSize, pathspecs, grepString,
+          messageStore, compactThreshold);
     }
   }
 
@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.git;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.flogger.FluentLogger;
+import com.google.copybara.exception.RepoException;
+import com.google.copybara.exception.ValidationException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.Nullable;
+
+/**
+ * Coordinates the fetches done in the local git repositories created by a {@link GitOptions}.
+ *
+ * <p>Fetches to the same repository are serialized, both between threads and between processes,
+ * using a lock file in the git directory. Concurrent requests for the same remote and fetch
+ * options that arrive while a fetch is in progress are coalesced into a single fetch with all the
+ * refspecs, so the negotiation with the remote happens once.
+ */
+final class FetchCoordinator {
+
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  @VisibleForTesting static final String LOCK_FILE = "copybara_fetch.lock";
+
+  /**
+   * The locks of the git directories being fetched. File locks are held on behalf of the whole JVM,
+   * so they need to be shared by all the coordinators. Weak, so that locks of directories that are
+   * not being fetched can be collected.
+   */
+  private static final Interner<Path> REPO_LOCKS = Interners.newWeakInterner();
+
+  /** Runs a fetch for a set of refspecs. */
+  interface Fetcher {
+    FetchResult fetch(ImmutableList<String> refspecs) throws RepoException, ValidationException;
+  }
+
+  /** Fetches that can be done together: same repository, remote and options. */
+  record Key(
+      Path gitDir,
+      String url,
+      boolean prune,
+      boolean force,
+      boolean partialFetch,
+      Optional<Integer> depth,
+      boolean tags) {}
+
+  // Only contains the keys with requests waiting or running.
+  private final ConcurrentMap<Key, Batches> batches = new ConcurrentHashMap<>();
+
+  /**
+   * Fetches {@code refspecs}, possibly together with other concurrent requests for the same {@code
+   * key}. In that case the {@link FetchResult} includes the references updated by the other
+   * requests too.
+   */
+  FetchResult fetch(Key key, ImmutableList<String> refspecs, Fetcher fetcher)
+      throws RepoException, ValidationException {
+    // An empty refspec list fetches the remote HEAD, and pruning depends on the exact refspecs, so
+    // those cannot be merged with other requests.
+    if (refspecs.isEmpty() || key.prune()) {
+      return locked(key.gitDir(), () -> fetcher.fetch(refspecs));
+    }
+    Request request = new Request(refspecs);
+    Batches state = enqueue(key, request);
+    List<Request> batch;
+    synchronized (state) {
+      while (!request.done && state.running) {
+        try {
+          state.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          state.queued.remove(request);
+          removeIfIdle(key, state);
+          throw new RepoException("Interrupted while waiting for a fetch of " + key.url(), e);
+        }
+      }
+      if (request.done) {
+        return request.get();
+      }
+      // Nobody is fetching. Fetch everything that is queued, including our request.
+      state.running = true;
+      batch = new ArrayList<>(state.queued);
+      state.queued.clear();
+    }
+    try {
+      runBatch(key, batch, fetcher);
+    } finally {
+      synchronized (state) {
+        state.running = false;
+        removeIfIdle(key, state);
+        state.notifyAll();
+      }
+    }
+    return request.get();
+  }
+
+  /** Adds {@code request} to the requests of {@code key} and returns them. */
+  private Batches enqueue(Key key, Request request) {
+    while (true) {
+      Batches state = batches.computeIfAbsent(key, k -> new Batches());
+      synchronized (state) {
+        // Retry if it was removed after we got it. It cannot be removed while we are queued.
+        if (!state.removed) {
+          state.queued.add(request);
+          return state;
+        }
+      }
+    }
+  }
+
+  /** Removes the requests of {@code key} from the map if there are none. Needs its monitor. */
+  private void removeIfIdle(Key key, Batches state) {
+    if (!state.running && state.queued.isEmpty()) {
+      state.removed = true;
+      batches.remove(key, state);
+    }
+  }
+
+  /** Whether there are requests for {@code key} waiting or running. */
+  @VisibleForTesting
+  boolean hasRequests(Key key) {
+    return batches.containsKey(key);
+  }
+
+  /** Number of requests for {@code key} waiting for the running fetch to finish. */
+  @VisibleForTesting
+  int queuedRequests(Key key) {
+    Batches state = batches.get(key);
+    if (state == null) {
+      return 0;
+    }
+    synchronized (state) {
+      return state.queued.size();
+    }
+  }
+
+  private void runBatch(Key key, List<Request> batch, Fetcher fetcher) {
+    if (batch.size() > 1) {
+      ImmutableList<String> all =
+          batch.stream()
+              .flatMap(r -> r.refspecs.stream())
+              .collect(ImmutableSet.toImmutableSet())
+              .asList();
+      logger.atInfo().log(
+          "Coalescing %d fetches of %s into one: %s", batch.size(), key.url(), all);
+      try {
+        FetchResult result = locked(key.gitDir(), () -> fetcher.fetch(all));
+        for (Request request : batch) {
+          request.complete(result, /* error= */ null);
+        }
+        return;
+      } catch (RepoException | ValidationException | RuntimeException e) {
+        // One of the refspecs might be the culprit. Fetch them separately, so that each request
+        // gets its own error.
+        logger.atInfo().withCause(e).log(
+            "Coalesced fetch of %s failed. Fetching each request separately", key.url());
+      }
+    }
+    for (Request request : batch) {
+      try {
+        request.complete(locked(key.gitDir(), () -> fetcher.fetch(request.refspecs)), null);
+      } catch (RepoException | ValidationException | RuntimeException e) {
+        request.complete(null, e);
+      }
+    }
+  }
+
+  /**
+   * Runs {@code action} holding the lock of the repository, shared by the threads of this process
+   * and other processes using the same repository.
+   */
+  private FetchResult locked(Path gitDir, FetchAction action)
+      throws RepoException, ValidationException {
+    Path repoLock = REPO_LOCKS.intern(gitDir.toAbsolutePath().normalize());
+    synchronized (repoLock) {
+      FileChannel channel;
+      try {
+        channel =
+            FileChannel.open(
+                gitDir.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+      } catch (IOException e) {
+        // Not fatal, git has its own locking for the references.
+        logger.atWarning().withCause(e).log("Cannot create fetch lock file in %s", gitDir);
+        return action.run();
+      }
+      try (channel;
+          FileLock ignored = channel.lock()) {
+        return action.run();
+      } catch (IOException e) {
+        throw new RepoException("Cannot lock " + gitDir + " for fetching", e);
+      }
+    }
+  }
+
+  private interface FetchAction {
+    FetchResult run() throws RepoException, ValidationException;
+  }
+
+  /** Fetch requests for the same {@link Key}. Guarded by its own monitor. */
+  private static final class Batches {
+    private final List<Request> queued = new ArrayList<>();
+    private boolean running;
+    // Removed from the batches map. New requests need a new instance.
+    private boolean removed;
+  }
+
+  private static final class Request {
+    private final ImmutableList<String> refspecs;
+    private volatile boolean done;
+    @Nullable private FetchResult result;
+    @Nullable private Exception error;
+
+    private Request(ImmutableList<String> refspecs) {
+      this.refspecs = checkNotNull(refspecs);
+    }
+
+    private void complete(@Nullable FetchResult result, @Nullable Exception error) {
+      this.result = result;
+      this.error = error;
+      this.done = true;
+    }
+
+    private FetchResult get() throws RepoException, ValidationException {
+      if (error instanceof RepoException repoException) {
+        throw repoException;
+      }
+      if (error instanceof ValidationException validationException) {
+        throw validationException;
+      }
+      if (error instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      return checkNotNull(result);
+    }
+  }
+}
@@ -40,6 +40,8 @@ import com.google.copybara.git.gerritapi.ReviewResult;
 import com.google.copybara.git.gerritapi.SetReviewInput;
 import com.google.copybara.git.gerritapi.SubmitInput;
 import com.google.copybara.util.console.Console;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import net.starlark.java.annot.Param;
 import net.starlark.java.annot.ParamType;
@@ -47,7 +49,9 @@ import net.starlark.java.annot.StarlarkBuiltin;
 import net.starlark.java.annot.StarlarkMethod;
 import net.starlark.java.eval.EvalException;
 import net.starlark.java.eval.Sequence;
+import net.starlark.java.eval.Starlark;
 import net.starlark.java.eval.StarlarkList;
+import net.starlark.java.eval.StarlarkSemantics;
 import net.starlark.java.eval.StarlarkValue;
 
 /** Gerrit endpoint implementation for feedback migrations. */
@@ -291,6 +295,156 @@ public class GerritEndpoint implements Endpoint, StarlarkValue {
                 .withInclude(getIncludeResults(includeResults))));
   }
 
+  @StarlarkMethod(
+      name = "get_changes",
+      doc =
+          "Retrieve many Gerrit changes. Instead of a request per change, the changes are looked"
+              + " up with a few queries. Changes that are not found are not included in the"
+              + " result.",
+      parameters = {
+        @Param(
+            name = "ids",
+            named = true,
+            allowedTypes = {@ParamType(type = Sequence.class, generic1 = String.class)},
+            doc = "The change ids or change numbers."),
+        @Param(
+            name = "include_results",
+            named = true,
+            allowedTypes = {@ParamType(type = Sequence.class, generic1 = String.class)},
+            doc =
+                ""
+                    + "What to include in the response. See "
+                    + "https://gerrit-review.googlesource.com/Documentation/rest-api-changes.html"
+                    + "#query-options",
+            positional = false,
+            defaultValue = "['LABELS']"),
+      })
+  public Sequence<ChangeInfo> getChanges(Sequence<?> ids, Sequence<?> includeResults)
+      throws EvalException, ValidationException {
+    List<String> changeIds = Sequence.cast(ids, String.class, "ids");
+    if (changeIds.isEmpty()) {
+      return StarlarkList.empty();
+    }
+    try {
+      GerritApi gerritApi = apiSupplier.load(console);
+      return StarlarkList.immutableCopyOf(
+          gerritApi.getChangesById(
+              changeIds, /* filter= */ null, getIncludeResults(includeResults)));
+    } catch (GerritApiException re) {
+      throw handleGerritApiException(re, "get_changes");
+    } catch (RepoException | ValidationException | RuntimeException e) {
+      throw new EvalException("Error getting changes: " + e.getMessage(), e);
+    }
+  }
+
+  @StarlarkMethod(
+      name = "post_reviews",
+      doc =
+          "Post reviews to many Gerrit changes. The reviews are independent of each other and are"
+              + " posted concurrently. If any of them fails, the rest are still posted and the"
+              + " first error is reported at the end.",
+      parameters = {
+        @Param(
+            name = "reviews",
+            named = true,
+            allowedTypes = {@ParamType(type = Sequence.class)},
+            doc =
+                "A list of (change_id, revision_id, review_input) tuples, with the same meaning"
+                    + " as the parameters of post_review."),
+      })
+  public Sequence<ReviewResult> postReviews(Sequence<?> reviews)
+      throws EvalException, ValidationException {
+    List<GerritApi.Request<ReviewResult>> requests = new ArrayList<>();
+    GerritApi gerritApi;
+    try {
+      gerritApi = apiSupplier.load(console);
+    } catch (RepoException | RuntimeException e) {
+      throw new EvalException("Error calling post_reviews: " + e.getMessage(), e);
+    }
+    for (Object review : reviews) {
+      Sequence<?> tuple = tuple(review, "reviews", 3);
+      String changeId = tupleElement(tuple, 0, String.class, "change_id");
+      String revisionId = tupleElement(tuple, 1, String.class, "revision_id");
+      SetReviewInput reviewInput =
+          maybeTruncateMessage(tupleElement(tuple, 2, SetReviewInput.class, "review_input"));
+      requests.add(() -> gerritApi.setReview(changeId, revisionId, reviewInput));
+    }
+    try {
+      return StarlarkList.immutableCopyOf(gerritApi.runConcurrently(requests));
+    } catch (GerritApiException re) {
+      throw handleGerritApiException(re, "post_reviews");
+    } catch (RepoException | ValidationException | RuntimeException e) {
+      throw new EvalException("Error calling post_reviews: " + e.getMessage(), e);
+    }
+  }
+
+  @StarlarkMethod(
+      name = "delete_votes",
+      doc =
+          "Delete label votes from Gerrit changes. The deletions are independent of each other and"
+              + " are done concurrently. If any of them fails, the rest are still done and the"
+              + " first error is reported at the end.",
+      parameters = {
+        @Param(
+            name = "votes",
+            named = true,
+            allowedTypes = {@ParamType(type = Sequence.class)},
+            doc =
+                "A list of (change_id, account_id, label_id) tuples, with the same meaning as the"
+                    + " parameters of delete_vote."),
+      })
+  public void deleteVotes(Sequence<?> votes) throws EvalException, ValidationException {
+    List<GerritApi.Request<Void>> requests = new ArrayList<>();
+    GerritApi gerritApi;
+    try {
+      gerritApi = apiSupplier.load(console);
+    } catch (RepoException | RuntimeException e) {
+      throw new EvalException("Error calling delete_votes: " + e.getMessage(), e);
+    }
+    for (Object vote : votes) {
+      Sequence<?> tuple = tuple(vote, "votes", 3);
+      String changeId = tupleElement(tuple, 0, String.class, "change_id");
+      String accountId = tupleElement(tuple, 1, String.class, "account_id");
+      String labelId = tupleElement(tuple, 2, String.class, "label_id");
+      requests.add(
+          () -> {
+            gerritApi.deleteVote(
+                changeId, accountId, labelId, new DeleteVoteInput(NotifyType.NONE));
+            return null;
+          });
+    }
+    try {
+      gerritApi.runConcurrently(requests);
+    } catch (GerritApiException re) {
+      throw handleGerritApiException(re, "delete_votes");
+    } catch (RepoException | ValidationException | RuntimeException e) {
+      throw new EvalException("Error calling delete_votes: " + e.getMessage(), e);
+    }
+  }
+
+  private static Sequence<?> tuple(Object value, String param, int size) throws EvalException {
+    if (!(value instanceof Sequence<?> tuple) || tuple.size() != size) {
+      throw Starlark.errorf(
+          "Elements of '%s' should be tuples of %d elements, but got: %s",
+          param, size, Starlark.repr(value, StarlarkSemantics.DEFAULT));
+    }
+    return tuple;
+  }
+
+  private static <T> T tupleElement(Sequence<?> tuple, int index, Class<T> type, String name)
+      throws EvalException {
+    Object value = tuple.get(index);
+    if (!type.isInstance(value)) {
+      throw Starlark.errorf(
+          "Expected %s for '%s' in %s, but got %s",
+          Starlark.classType(type),
+          name,
+          Starlark.repr(tuple, StarlarkSemantics.DEFAULT),
+          Starlark.type(value));
+    }
+    return type.cast(value);
+  }
+
   @Override
   public String getUrl() {
     return url;
@@ -100,6 +100,13 @@ public class GerritOptions implements Option {
       arity = 1)
   protected Boolean forceGerritSubmit = null;
 
+  @Parameter(
+      names = "--gerrit-api-max-concurrent-requests",
+      description =
+          "Maximum number of requests that batched Gerrit API operations, like looking up many"
+              + " changes or posting many reviews, send at the same time.")
+  int gerritApiMaxConcurrentRequests = 8;
+
   @Parameter(names = "--nogerrit-rev-id-label", description = "DEPRECATED. Use workflow set_rev_id"
       + " field instead.", hidden = true)
   @Deprecated
@@ -122,9 +129,15 @@ public class GerritOptions implements Option {
   protected GerritApi newGerritApi(String url, @Nullable ApiChecker checker)
       throws ValidationException, RepoException {
     if (checker == null) {
-      return new GerritApi(newGerritApiTransport(hostUrl(url)), generalOptions.profiler());
+      return new GerritApi(
+          newGerritApiTransport(hostUrl(url)),
+          generalOptions.profiler(),
+          Math.max(1, gerritApiMaxConcurrentRequests));
     }
-    return new GerritApi(newGerritApiTransport(hostUrl(url), checker), generalOptions.profiler());
+    return new GerritApi(
+        newGerritApiTransport(hostUrl(url), checker),
+        generalOptions.profiler(),
+        Math.max(1, gerritApiMaxConcurrentRequests));
   }
 
   /**
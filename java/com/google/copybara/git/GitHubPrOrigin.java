@@ -64,6 +64,8 @@ import com.google.copybara.git.github.api.Issue;
 import com.google.copybara.git.github.api.IssuesAndPullRequestsSearchResults;
 import com.google.copybara.git.github.api.Label;
 import com.google.copybara.git.github.api.PullRequest;
+import com.google.copybara.git.github.api.PullRequestGates;
+import com.google.copybara.git.github.api.PullRequestGates.Gate;
 import com.google.copybara.git.github.api.Review;
 import com.google.copybara.git.github.api.Status;
 import com.google.copybara.git.github.api.Status.State;
@@ -78,7 +80,9 @@ import com.google.copybara.util.Glob;
 import com.google.copybara.util.console.Console;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
@@ -331,16 +335,24 @@ public class GitHubPrOrigin implements Origin<GitRevision> {
 
     checkPrState(prData);
     checkPrBranch(project, prData);
-    checkRequiredLabels(api, project, prData);
-    checkRequiredStatusContextNames(api, project, prData);
-    if (generalOptions.isTemporaryFeature("use_graphql_api_for_check_runs", false)) {
+    PullRequestGates gates =
+        generalOptions.isTemporaryFeature("use_graphql_api_for_pr_gates", false)
+            ? getPullRequestGates(project, prData)
+            : null;
+    checkRequiredLabels(api, project, prData, gates == null ? null : gates.getLabels());
+    checkRequiredStatusContextNames(
+        api, project, prData, gates == null ? null : gates.getSuccessfulStatusContexts());
+    if (gates != null && gates.getCheckRuns() != null) {
+      checkRequiredCheckRuns(gates.getCheckRuns(), project, prData);
+    } else if (generalOptions.isTemporaryFeature("use_graphql_api_for_check_runs", false)) {
       GitHubGraphQLApi graphqlApi =
           gitHubOptions.newGitHubGraphQLApi(ghHost.getHost(), project, null, credentials, console);
       checkRequiredCheckRuns(graphqlApi, project, prData);
     } else {
       checkRequiredCheckRuns(api, project, prData);
     }
-    checkReviewApprovers(api, project, prData, labels);
+    checkReviewApprovers(
+        api, project, prData, labels, gates == null ? null : gates.getReviews());
 
     // Fetch also the baseline branch. It is almost free and doing a roundtrip later would hurt
     // latency.
@@ -486,8 +498,60 @@ public class GitHubPrOrigin implements Origin<GitRevision> {
     }
   }
 
-  /** Check that the PR has all the labels provided in the `required_labels` param */
-  private void checkRequiredLabels(GitHubApi api, String project, PullRequest prData)
+  /**
+   * Reads with a single GraphQL query the information needed to check the labels, statuses, check
+   * runs and reviews of the PR. Returns null if there is nothing to check or it cannot be read,
+   * and the checks that don't get their information from it read it with the REST API.
+   */
+  @Nullable
+  private PullRequestGates getPullRequestGates(String project, PullRequest prData)
+      throws ValidationException, RepoException {
+    Set<Gate> gates = EnumSet.noneOf(Gate.class);
+    if (!forceImport()) {
+      if (!getRequiredLabels().isEmpty()) {
+        gates.add(Gate.LABELS);
+      }
+      if (!getRequiredStatusContextNames().isEmpty()) {
+        gates.add(Gate.STATUSES);
+      }
+      if (!getRequiredCheckRuns().isEmpty()) {
+        gates.add(Gate.CHECK_RUNS);
+      }
+    }
+    if (reviewState != null) {
+      gates.add(Gate.REVIEWS);
+    }
+    if (gates.isEmpty()) {
+      return null;
+    }
+    GitHubGraphQLApi graphqlApi =
+        gitHubOptions.newGitHubGraphQLApi(ghHost.getHost(), project, null, credentials, console);
+    PullRequestGates result =
+        graphqlApi.getPullRequestGates(
+            project.substring(0, project.indexOf('/')),
+            project.substring(project.indexOf('/') + 1),
+            (int) prData.getNumber(),
+            gates);
+    if (result != null && !result.getHeadSha().equals(prData.getHead().getSha())) {
+      // The PR was updated after reading it. Statuses and check runs have to be the ones of the
+      // head that is going to be migrated.
+      return new PullRequestGates(
+          prData.getHead().getSha(),
+          result.getLabels(),
+          /* successfulStatusContexts= */ null,
+          /* checkRuns= */ null,
+          result.getReviews());
+    }
+    return result;
+  }
+
+  /**
+   * Check that the PR has all the labels provided in the `required_labels` param
+   *
+   * @param currentLabels the labels of the PR if they were already read, or null
+   */
+  private void checkRequiredLabels(
+      GitHubApi api, String project, PullRequest prData, @Nullable List<String> currentLabels)
       throws ValidationException, RepoException {
     Set<String> requiredLabels = getRequiredLabels();
     Set<String> retryableLabels = getRetryableLabels();
@@ -497,13 +561,19 @@ public class GitHubPrOrigin implements Origin<GitRevision> {
     int retryCount = 0;
     Set<String> requiredButNotPresent;
     do {
-      Issue issue;
-      try (ProfilerTask ignore = generalOptions.profiler().start("github_api_get_issue")) {
-        issue = api.getIssue(project, prData.getNumber());
+      Collection<String> labelNames;
+      if (retryCount == 0 && currentLabels != null) {
+        labelNames = currentLabels;
+      } else {
+        Issue issue;
+        try (ProfilerTask ignore = generalOptions.profiler().start("github_api_get_issue")) {
+          issue = api.getIssue(project, prData.getNumber());
+        }
+        labelNames = Collections2.transform(issue.getLabels(), Label::getName);
       }
 
       requiredButNotPresent = Sets.newHashSet(requiredLabels);
-      requiredButNotPresent.removeAll(Collections2.transform(issue.getLabels(), Label::getName));
+      requiredButNotPresent.removeAll(labelNames);
       // If we got all the labels we want or none of the ones we didn't get are retryable, return.
       if (requiredButNotPresent.isEmpty()
           || Collections.disjoint(requiredButNotPresent, retryableLabels)) {
@@ -524,32 +594,43 @@ public class GitHubPrOrigin implements Origin<GitRevision> {
   /**
    * Check that the PR has a state of "success" for each status whose context is in the list
    * provided in the `required_status_context_names` param
+   *
+   * @param successfulContexts the contexts of the successful statuses of the PR head if they were
+   *     already read, or null
    */
-  private void checkRequiredStatusContextNames(GitHubApi api, String project, PullRequest prData)
+  private void checkRequiredStatusContextNames(
+      GitHubApi api,
+      String project,
+      PullRequest prData,
+      @Nullable Set<String> successfulContexts)
       throws ValidationException, RepoException {
     Set<String> requiredStatusContextNames = getRequiredStatusContextNames();
     if (forceImport() || requiredStatusContextNames.isEmpty()) {
       return;
     }
-    try (ProfilerTask ignore = generalOptions.profiler()
-        .start("github_api_get_combined_status")) {
-      CombinedStatus combinedStatus = api.getCombinedStatus(project, prData.getHead().getSha());
-      Set<String> requiredButNotPresent = Sets.newHashSet(requiredStatusContextNames);
-      ImmutableList.Builder<Status> successStatuses = ImmutableList.builder();
-      for (Status status : combinedStatus.getStatuses()) {
-        if (status.getState() == State.SUCCESS) {
-          successStatuses.add(status);
+    if (successfulContexts == null) {
+      try (ProfilerTask ignore = generalOptions.profiler()
+          .start("github_api_get_combined_status")) {
+        CombinedStatus combinedStatus = api.getCombinedStatus(project, prData.getHead().getSha());
+        ImmutableList.Builder<Status> successStatuses = ImmutableList.builder();
+        for (Status status : combinedStatus.getStatuses()) {
+          if (status.getState() == State.SUCCESS) {
+            successStatuses.add(status);
+          }
         }
+        successfulContexts =
+            ImmutableSet.copyOf(
+                Collections2.transform(successStatuses.build(), Status::getContext));
       }
-      requiredButNotPresent.removeAll(
-          Collections2.transform(successStatuses.build(), Status::getContext));
-      if (!requiredButNotPresent.isEmpty()) {
-        throw new EmptyChangeException(
-            String.format(
-                "Cannot migrate http://github.com/%s/pull/%d because the following ci labels "
-                    + "have not been passed: %s",
-                project, prData.getNumber(), requiredButNotPresent));
-      }
+    }
+    Set<String> requiredButNotPresent = Sets.newHashSet(requiredStatusContextNames);
+    requiredButNotPresent.removeAll(successfulContexts);
+    if (!requiredButNotPresent.isEmpty()) {
+      throw new EmptyChangeException(
+          String.format(
+              "Cannot migrate http://github.com/%s/pull/%d because the following ci labels "
+                  + "have not been passed: %s",
+              project, prData.getNumber(), requiredButNotPresent));
     }
   }
 
@@ -563,9 +644,20 @@ public class GitHubPrOrigin implements Origin<GitRevision> {
     String owner = project.substring(0, project.indexOf('/'));
     String repo = project.substring(project.indexOf('/') + 1);
 
-    ImmutableList<CheckRun> checkRuns =
-        api.getCheckRunsByNameFilter(owner, repo, prData.getHead().getSha(), requiredCheckRuns);
+    checkRequiredCheckRuns(
+        api.getCheckRunsByNameFilter(owner, repo, prData.getHead().getSha(), requiredCheckRuns),
+        project,
+        prData);
+  }
 
+  /** Check the required check runs with the already read check runs of the PR head. */
+  private void checkRequiredCheckRuns(
+      ImmutableList<CheckRun> checkRuns, String project, PullRequest prData)
+      throws ValidationException {
+    Set<String> requiredCheckRuns = getRequiredCheckRuns();
+    if (forceImport() || requiredCheckRuns.isEmpty()) {
+      return;
+    }
     ImmutableListMultimap.Builder<String, CheckRun> checkRunsByName =
         ImmutableListMultimap.builder();
     for (CheckRun run : checkRuns) {
@@ -669,12 +761,15 @@ public class GitHubPrOrigin implements Origin<GitRevision> {
       GitHubApi api,
       String project,
       PullRequest prData,
-      ImmutableListMultimap.Builder<String, String> labelsBuilder)
+      ImmutableListMultimap.Builder<String, String> labelsBuilder,
+      @Nullable ImmutableList<Review> reviews)
       throws ValidationException, RepoException {
     if (reviewState == null) {
       return;
     }
-    ImmutableList<Review> reviews = api.getReviews(project, prData.getNumber());
+    if (reviews == null) {
+      reviews = api.getReviews(project, prData.getNumber());
+    }
     ApproverState approverState =
         reviewState.shouldMigrate(reviews, reviewApprovers, prData.getHead().getSha());
     if (!forceImport() && !approverState.shouldMigrate()) {
@@ -939,7 +1034,8 @@ public class GitHubPrOrigin implements Origin<GitRevision> {
       @Override
       boolean shouldMigrate(ImmutableList<Review> reviews, String sha) {
         return reviews.stream()
-            .filter(e -> e.getCommitId().equals(sha))
+            // Reviews of commits no longer in the repository don't have a commit id.
+            .filter(e -> sha.equals(e.getCommitId()))
             .anyMatch(Review::isApproved);
       }
     },
@@ -252,7 +252,7 @@ public class GitHubPreSubmitApprovalsProvider implements ApprovalsProvider {
   private ImmutableList<String> extractHeadApprovers(
       ImmutableList<Review> reviews, String headSha) {
     return reviews.stream()
-        .filter(review -> review.isApproved() && review.getCommitId().equals(headSha))
+        .filter(review -> review.isApproved() && headSha.equals(review.getCommitId()))
         .map(review -> review.getUser().getLogin())
         .collect(toImmutableList());
   }
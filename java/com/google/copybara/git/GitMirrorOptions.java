@@ -16,6 +16,7 @@
 
 package com.google.copybara.git;
 
+import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
 import com.google.copybara.Option;
 
@@ -25,5 +26,13 @@ import com.google.copybara.Option;
 @Parameters(separators = "=")
 public class GitMirrorOptions implements Option {
 
+  @Parameter(
+      names = "--git-mirror-incremental",
+      description =
+          "For git.mirror migrations without actions, compare the references of origin and"
+              + " destination with ls-remote and only fetch and push the ones that differ. The"
+              + " migration is a no-op if none differ.")
+  boolean incremental = false;
+
   public GitMirrorOptions() {}
 }
@@ -689,6 +689,7 @@ public class GitModule implements LabelsAwareModule, StarlarkValue {
             new Mirror(
                 generalOptions,
                 gitOptions,
+                options.get(GitMirrorOptions.class),
                 name,
                 fixedOriginHttp,
                 fixedDestinationHttp,
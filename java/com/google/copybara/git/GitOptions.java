@@ -22,6 +22,7 @@ import com.beust.jcommander.DynamicParameter;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ascii;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
@@ -38,6 +39,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import javax.annotation.Nullable;
 
 /**
@@ -47,7 +50,13 @@ import javax.annotation.Nullable;
 public class GitOptions implements Option {
 
   public static final String USE_CREDENTIALS_FROM_CONFIG = "--use-credentials-from-config";
+  private static final String OBJECT_POOLS_DIR = "_object_pools";
+  // Host of 'scheme://[user@]host[:port]/path' and 'user@host:path' urls.
+  private static final Pattern URL_HOST =
+      Pattern.compile("^(?:[a-zA-Z][a-zA-Z0-9+.-]*://(?:[^@/]*@)?|[^@/:]+@)([^/:?#@]+)");
   private final GeneralOptions generalOptions;
+  // Shared by the repositories created by these options.
+  private final FetchCoordinator fetchCoordinator;
   private String partialCacheFilePrefix;
 
   @Nullable
@@ -146,6 +155,22 @@ public class GitOptions implements Option {
       hidden = true)
   public Path workflowCredentialHelperPath = null;
 
+  @Parameter(
+      names = "--experimental-git-object-pool",
+      description =
+          "If set, cached git repositories for the same host store the fetched objects in a"
+              + " shared pool, using git alternates, instead of keeping a copy each.")
+  boolean experimentalGitObjectPool = false;
+
+  @Parameter(
+      names = "--git-revision-metadata-cache",
+      description =
+          "Whether to cache, next to the cached git repositories, the metadata of commits that is"
+              + " expensive to compute, like 'git describe' or the number of commits reachable"
+              + " from a commit, so that it is not computed again in later runs.",
+      arity = 1)
+  boolean revisionMetadataCache = true;
+
   @Nullable
   @Parameter(names = "--git-origin-fetch-depth",
       description = "Use a shallow clone of the specified depth for git.origin. If set, only the n"
@@ -173,10 +198,15 @@ public class GitOptions implements Option {
 
   public GitOptions(GeneralOptions generalOptions) {
     this.generalOptions = Preconditions.checkNotNull(generalOptions);
+    this.fetchCoordinator = new FetchCoordinator();
   }
 
-  private GitOptions(GeneralOptions generalOptions, @Nullable String partialCacheFilePrefix) {
+  private GitOptions(
+      GeneralOptions generalOptions,
+      FetchCoordinator fetchCoordinator,
+      @Nullable String partialCacheFilePrefix) {
     this.generalOptions = Preconditions.checkNotNull(generalOptions);
+    this.fetchCoordinator = Preconditions.checkNotNull(fetchCoordinator);
     this.partialCacheFilePrefix = partialCacheFilePrefix;
   }
 
@@ -200,8 +230,11 @@ public class GitOptions implements Option {
       throws RepoException {
     Preconditions.checkNotNull(cacheUrl);
     try {
-      return createBareRepo(
-          generalOptions, resolveDirInCache(cacheUrl, getRepoStorage()), fetchUrl);
+      return maybeEnableRevisionMetadataCache(
+          maybeUseObjectPool(
+              createBareRepo(
+                  generalOptions, resolveDirInCache(cacheUrl, getRepoStorage()), fetchUrl),
+              fetchUrl == null ? cacheUrl : fetchUrl));
     } catch (IOException e) {
       throw new RepoException("Cannot create a cached repo for " + cacheUrl, e);
     }
@@ -234,16 +267,58 @@ public class GitOptions implements Option {
       throws RepoException {
     Preconditions.checkNotNull(cacheUrl);
     try {
-      return createBareRepo(
-          generalOptions,
-          resolveDirInCache(cacheUrl, getRepoStorage()),
-          gitRepositoryHook,
-          fetchUrl);
+      return maybeEnableRevisionMetadataCache(
+          maybeUseObjectPool(
+              createBareRepo(
+                  generalOptions,
+                  resolveDirInCache(cacheUrl, getRepoStorage()),
+                  gitRepositoryHook,
+                  fetchUrl),
+              fetchUrl == null ? cacheUrl : fetchUrl));
     } catch (IOException e) {
       throw new RepoException("Cannot create a cached repo for " + cacheUrl, e);
     }
   }
 
+  private GitRepository maybeEnableRevisionMetadataCache(GitRepository repo)
+      throws RepoException {
+    return revisionMetadataCache ? repo.enableRevisionMetadataCache() : repo;
+  }
+
+  /**
+   * Makes {@code repo} store its fetched objects in a pool shared by all the cached repositories
+   * of the same host, if enabled by flag. URLs without a host (local paths or fake urls) don't use
+   * a pool.
+   */
+  private GitRepository maybeUseObjectPool(GitRepository repo, String url)
+      throws RepoException, IOException {
+    if (!experimentalGitObjectPool) {
+      return repo;
+    }
+    String host = hostForObjectPool(url);
+    if (host == null) {
+      return repo;
+    }
+    GitRepository pool =
+        GitRepository.newBareRepo(
+            getRepoStorage().resolve(OBJECT_POOLS_DIR).resolve(host),
+            getGitEnvironment(generalOptions.getEnvironment()),
+            generalOptions.isVerbose(),
+            generalOptions.repoTimeout,
+            gitNoVerify);
+    return repo.useObjectPool(pool);
+  }
+
+  @VisibleForTesting
+  @Nullable
+  static String hostForObjectPool(String url) {
+    Matcher matcher = URL_HOST.matcher(url);
+    if (!matcher.find()) {
+      return null;
+    }
+    return Ascii.toLowerCase(matcher.group(1));
+  }
+
   /**
    * Rewrite url for subodule fetch
    */
@@ -333,6 +408,7 @@ public class GitOptions implements Option {
   protected GitRepository initRepo(GitRepository repo, @Nullable String fetchUrl)
       throws RepoException {
     repo.init(fetchUrl);
+    repo.useFetchCoordinator(fetchCoordinator);
 
     if (noCredentialHelperStore) {
       return repo;
@@ -360,7 +436,7 @@ public class GitOptions implements Option {
   }
 
   public GitOptions setPartialCacheFilePrefix(String partialCacheFilePrefix) {
-    return new GitOptions(generalOptions, partialCacheFilePrefix);
+    return new GitOptions(generalOptions, fetchCoordinator, partialCacheFilePrefix);
   }
 
   public GitRepository.PushOptionsValidator getPushOptionsValidator() {
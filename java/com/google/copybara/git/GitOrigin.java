@@ -29,6 +29,7 @@ import com.google.common.base.MoreObjects;
 import com.google.common.base.MoreObjects.ToStringHelper;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
@@ -49,6 +50,7 @@ import com.google.copybara.git.GitRepository.Submodule;
 import com.google.copybara.git.GitRepository.TreeElement;
 import com.google.copybara.git.version.RefspecVersionList;
 import com.google.copybara.revision.Change;
+import com.google.copybara.revision.MessageStore;
 import com.google.copybara.templatetoken.Token;
 import com.google.copybara.templatetoken.Token.TokenType;
 import com.google.copybara.transform.patch.PatchTransformation;
@@ -60,8 +62,16 @@ import com.google.copybara.version.VersionSelector.SearchPattern;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.annotation.Nullable;
 
 /**
@@ -199,6 +209,12 @@ public class GitOrigin implements Origin<GitRevision> {
 
   @Override
   public Reader<GitRevision> newReader(Glob originFiles, Authoring authoring) {
+    return newReader(originFiles, /* changeFiles= */ null, authoring);
+  }
+
+  @Override
+  public Reader<GitRevision> newReader(
+      Glob originFiles, @Nullable Glob changeFiles, Authoring authoring) {
     return new ReaderImpl(
         repoUrl,
         originFiles,
@@ -215,7 +231,8 @@ public class GitOrigin implements Origin<GitRevision> {
         configPath,
         workflowName,
         credentials,
-        gitRepositoryHook);
+        gitRepositoryHook,
+        changeFiles);
   }
 
   @Override
@@ -236,9 +253,12 @@ public class GitOrigin implements Origin<GitRevision> {
       } else {
         GitRepository repository = getRepository();
         ImmutableList<Refspec> specs = getVersionSelectorRefspec(repository);
-        RefspecVersionList list = new RefspecVersionList(repository, specs, repoUrl);
+        RefspecVersionList list =
+            new RefspecVersionList(
+                repository, specs, repoUrl, generalOptions.getVersionListCache());
+        ImmutableSet<String> refs = list.list();
         for (String prefix : REF_PREFIXES) {
-          if (list.list().contains(prefix + reference)) {
+          if (refs.contains(prefix + reference)) {
             reference = prefix + reference;
           }
         }
@@ -373,6 +393,10 @@ public class GitOrigin implements Origin<GitRevision> {
     private final String workflowName;
     @Nullable private final CredentialFileHandler credentials;
     @Nullable protected final GitRepositoryHook gitRepositoryHook;
+    @Nullable private final Glob changeFiles;
+    // Set while the changes are listed with compaction.
+    @Nullable private MessageStore messageStore;
+    private int compactThreshold;
 
     ReaderImpl(
         String repoUrl,
@@ -391,6 +415,48 @@ public class GitOrigin implements Origin<GitRevision> {
         String workflowName,
         @Nullable CredentialFileHandler credentials,
         @Nullable GitRepositoryHook gitRepositoryHook) {
+      this(
+          repoUrl,
+          originFiles,
+          authoring,
+          gitOptions,
+          gitOriginOptions,
+          generalOptions,
+          includeBranchCommitLogs,
+          submoduleStrategy,
+          excludedSubmodules,
+          firstParent,
+          partialFetch,
+          patchTransformation,
+          configPath,
+          workflowName,
+          credentials,
+          gitRepositoryHook,
+          /* changeFiles= */ null);
+    }
+
+    /**
+     * @param changeFiles if not null, the files whose changes are relevant. Used to list only the
+     *     changes that modify them when {@code --git-origin-log-pathspecs} is set.
+     */
+    ReaderImpl(
+        String repoUrl,
+        Glob originFiles,
+        Authoring authoring,
+        GitOptions gitOptions,
+        GitOriginOptions gitOriginOptions,
+        GeneralOptions generalOptions,
+        boolean includeBranchCommitLogs,
+        SubmoduleStrategy submoduleStrategy,
+        List<String> excludedSubmodules,
+        boolean firstParent,
+        boolean partialFetch,
+        @Nullable PatchTransformation patchTransformation,
+        String configPath,
+        String workflowName,
+        @Nullable CredentialFileHandler credentials,
+        @Nullable GitRepositoryHook gitRepositoryHook,
+        @Nullable Glob changeFiles) {
       this.repoUrl = checkNotNull(repoUrl);
       this.originFiles = checkNotNull(originFiles, "originFiles");
       this.authoring = checkNotNull(authoring, "authoring");
@@ -407,6 +473,7 @@ public class GitOrigin implements Origin<GitRevision> {
       this.workflowName = workflowName;
       this.credentials = credentials;
       this.gitRepositoryHook = gitRepositoryHook;
+      this.changeFiles = changeFiles;
     }
 
     ChangeReader.Builder changeReaderBuilder(String repoUrl) throws RepoException {
@@ -502,6 +569,46 @@ public class GitOrigin implements Origin<GitRevision> {
       if (submoduleStrategy == SubmoduleStrategy.NO) {
         return;
       }
+      List<SubmoduleCheckout> pending =
+          listSubmodules(repo, currentRemoteUrl, workdir, ref, submoduleStrategy);
+      if (pending.isEmpty()) {
+        return;
+      }
+      int threads = gitOriginOptions.submoduleCheckoutThreads;
+      ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+      try {
+        // A level of the submodule tree at a time, so that a cached repository is never used by
+        // two submodules at the same time, even if they are in different levels.
+        while (!pending.isEmpty()) {
+          pending = checkoutSubmodules(pending, executor);
+        }
+      } finally {
+        if (executor != null) {
+          executor.shutdownNow();
+        }
+      }
+    }
+
+    /** A submodule found in the checkout of its parent repository. */
+    private record SubmoduleCheckout(
+        Submodule submodule,
+        String url,
+        String ref,
+        Path workdir,
+        SubmoduleStrategy submoduleStrategy) {}
+
+    /** A submodule checked out at a revision. */
+    private record CheckedOutSubmodule(GitRepository repo, GitRevision ref) {}
+
+    /** Returns the submodules of {@code repo} that need to be checked out, in order. */
+    private ImmutableList<SubmoduleCheckout> listSubmodules(
+        GitRepository repo,
+        String currentRemoteUrl,
+        Path workdir,
+        GitRevision ref,
+        SubmoduleStrategy submoduleStrategy)
+        throws RepoException, ValidationException {
+      ImmutableList.Builder<SubmoduleCheckout> result = ImmutableList.builder();
       for (Submodule submodule : repo.listSubmodules(currentRemoteUrl, ref)) {
         if (excludedSubmodules.contains(submodule.name())) {
           generalOptions
@@ -519,19 +626,81 @@ public class GitOrigin implements Origin<GitRevision> {
         TreeElement element = Iterables.getOnlyElement(elements);
         Preconditions.checkArgument(element.path().equals(submodule.path()));
 
+        result.add(
+            new SubmoduleCheckout(
+                submodule,
+                gitOptions.rewriteSubmoduleUrl(submodule.url()),
+                element.ref(),
+                workdir.resolve(submodule.path()),
+                submoduleStrategy == SubmoduleStrategy.RECURSIVE
+                    ? SubmoduleStrategy.RECURSIVE
+                    : SubmoduleStrategy.NO));
+      }
+      return result.build();
+    }
+
+    /**
+     * Fetches and checks out {@code submodules}, in parallel if {@code executor} is not null, and
+     * returns their own submodules.
+     */
+    private ImmutableList<SubmoduleCheckout> checkoutSubmodules(
+        List<SubmoduleCheckout> submodules, @Nullable ExecutorService executor)
+        throws RepoException, ValidationException {
+      // The checkout uses the index of the cached repository, so the submodules that use the same
+      // repository are checked out sequentially, by the same task.
+      Map<String, List<SubmoduleCheckout>> byUrl = new LinkedHashMap<>();
+      for (SubmoduleCheckout submodule : submodules) {
         generalOptions.console()
             .verboseFmt(
-                "Checking out submodule '%s' with reference '%s'", submodule, element.ref());
-        String submoduleUrl = gitOptions.rewriteSubmoduleUrl(submodule.url());
-        GitRepository subRepo = gitOptions.cachedBareRepoForUrl(submoduleUrl);
-
+                "Checking out submodule '%s' with reference '%s'",
+                submodule.submodule(), submodule.ref());
+        byUrl.computeIfAbsent(submodule.url(), k -> new ArrayList<>()).add(submodule);
+      }
+      Map<SubmoduleCheckout, CheckedOutSubmodule> checkedOut = new HashMap<>();
+      if (executor == null || byUrl.size() == 1) {
+        for (List<SubmoduleCheckout> sameRepo : byUrl.values()) {
+          checkedOut.putAll(checkoutSubmodules(sameRepo));
+        }
+      } else {
+        List<Future<Map<SubmoduleCheckout, CheckedOutSubmodule>>> futures = new ArrayList<>();
+        for (List<SubmoduleCheckout> sameRepo : byUrl.values()) {
+          futures.add(executor.submit(() -> checkoutSubmodules(sameRepo)));
+        }
+        // In order, so that the error reported is always the same.
+        for (Future<Map<SubmoduleCheckout, CheckedOutSubmodule>> future : futures) {
+          checkedOut.putAll(getSubmoduleCheckout(future));
+        }
+      }
+      ImmutableList.Builder<SubmoduleCheckout> next = ImmutableList.builder();
+      for (SubmoduleCheckout submodule : submodules) {
+        if (submodule.submoduleStrategy() == SubmoduleStrategy.NO) {
+          continue;
+        }
+        CheckedOutSubmodule subRepo = checkedOut.get(submodule);
+        next.addAll(
+            listSubmodules(
+                subRepo.repo(),
+                submodule.url(),
+                submodule.workdir(),
+                subRepo.ref(),
+                submodule.submoduleStrategy()));
+      }
+      return next.build();
+    }
 
+    /** Checks out submodules that use the same cached repository, sequentially. */
+    private Map<SubmoduleCheckout, CheckedOutSubmodule> checkoutSubmodules(
+        List<SubmoduleCheckout> sameRepo) throws RepoException, ValidationException {
+      Map<SubmoduleCheckout, CheckedOutSubmodule> result = new HashMap<>();
+      GitRepository subRepo = gitOptions.cachedBareRepoForUrl(sameRepo.get(0).url());
+      for (SubmoduleCheckout checkout : sameRepo) {
+        Submodule submodule = checkout.submodule();
         if (submodule.branch() != null) {
           subRepo.fetchSingleRef(
-              submoduleUrl, submodule.branch(), partialFetch, Optional.empty());
+              checkout.url(), submodule.branch(), partialFetch, Optional.empty());
         } else {
           subRepo.fetch(
-              submoduleUrl, /*prune*/
+              checkout.url(), /*prune*/
               true, /*force*/
               true,
               ImmutableList.of("refs/heads/*:refs/heads/*", "refs/tags/*:refs/tags/*"),
@@ -540,21 +709,35 @@ public class GitOrigin implements Origin<GitRevision> {
               false);
         }
         GitRevision submoduleRef =
-            subRepo.resolveReferenceWithContext(
-                element.ref(), submodule.name(), submoduleUrl);
+            subRepo.resolveReferenceWithContext(checkout.ref(), submodule.name(), checkout.url());
 
-        Path subdir = workdir.resolve(submodule.path());
+        Path subdir = checkout.workdir();
         try {
-          Files.createDirectories(workdir.resolve(submodule.path()));
+          Files.createDirectories(subdir);
         } catch (IOException e) {
           throw new RepoException(String.format(
               "Cannot create subdirectory %s for submodule: %s", subdir, submodule));
         }
+        result.put(
+            checkout,
+            new CheckedOutSubmodule(checkout(subRepo, subdir, submoduleRef), submoduleRef));
+      }
+      return result;
+    }
 
-        checkoutRepo(subRepo, submoduleUrl, subdir,
-            submoduleStrategy == SubmoduleStrategy.RECURSIVE
-                ? SubmoduleStrategy.RECURSIVE
-                : SubmoduleStrategy.NO, submoduleRef, /*topLevelCheckout*/ false);
+    private static Map<SubmoduleCheckout, CheckedOutSubmodule> getSubmoduleCheckout(
+        Future<Map<SubmoduleCheckout, CheckedOutSubmodule>> future)
+        throws RepoException, ValidationException {
+      try {
+        return future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RepoException("Interrupted while checking out submodules", e);
+      } catch (ExecutionException e) {
+        Throwables.throwIfInstanceOf(e.getCause(), RepoException.class);
+        Throwables.throwIfInstanceOf(e.getCause(), ValidationException.class);
+        Throwables.throwIfUnchecked(e.getCause());
+        throw new RepoException("Error checking out submodules", e.getCause());
       }
     }
 
@@ -574,13 +757,40 @@ public class GitOrigin implements Origin<GitRevision> {
           .run();
     }
 
+    /**
+     * Compacts the changes while the log is read, so that the full messages of a long history are
+     * never in memory at the same time. Subclasses that override {@link #changes(GitRevision,
+     * GitRevision)} get it too, as long as they list the changes with this reader.
+     */
+    @Override
+    public ChangesResponse<GitRevision> changes(
+        @Nullable GitRevision fromRef, GitRevision toRef, MessageStore store, int compactThreshold)
+        throws RepoException, ValidationException {
+      this.messageStore = store;
+      this.compactThreshold = compactThreshold;
+      try {
+        return Reader.super.changes(fromRef, toRef, store, compactThreshold);
+      } finally {
+        this.messageStore = null;
+      }
+    }
+
     @Override
     public ChangesResponse<GitRevision> changes(@Nullable GitRevision fromRef, GitRevision toRef)
         throws RepoException, ValidationException {
-      ChangeReader changeReader = changeReaderBuilder(repoUrl)
+      ChangeReader.Builder changeReaderBuilder = changeReaderBuilder(repoUrl)
           .setFirstParent(firstParent)
-          .setTopoOrder(gitOriginOptions.historyIsNonLinear)
-          .build();
+          .setTopoOrder(gitOriginOptions.historyIsNonLinear);
+      if (messageStore != null) {
+        changeReaderBuilder.setCompaction(messageStore, compactThreshold);
+      }
+      // Non-linear history needs to find fromRef in the log, even if it doesn't modify the files.
+      if (gitOriginOptions.logPathspecs
+          && changeFiles != null
+          && !gitOriginOptions.historyIsNonLinear) {
+        changeReaderBuilder.setPathspecs(changeFiles.pathspecs());
+      }
+      ChangeReader changeReader = changeReaderBuilder.build();
       // toRef might already have labels that we want to maintain in the toRef copy when we return
       // (fromRef, toRef] (that includes toRef).
       ImmutableMap<String, ImmutableListMultimap<String, String>> labelsToPropagate =
@@ -794,6 +1004,17 @@ public class GitOrigin implements Origin<GitRevision> {
     return builder.build();
   }
 
+  @Nullable
+  @Override
+  public Object resolveKey() {
+    // Partial fetches use a repository per workflow, and version selectors choose the version
+    // with more than the refspecs in the description.
+    if (partialFetch || versionSelector != null) {
+      return null;
+    }
+    return ImmutableList.of(describe(Glob.ALL_FILES), describeVersion);
+  }
+
   private ImmutableSet<String> toRefspec() {
     ImmutableSet<SearchPattern> searchPatterns = versionSelector.searchPatterns();
     if (searchPatterns.stream().anyMatch(SearchPattern::isAll)) {
@@ -60,6 +60,18 @@ public class GitOriginOptions implements Option {
           + "a log path.")
   boolean historyIsNonLinear = false;
 
+  @Parameter(names = "--git-origin-log-pathspecs", arity = 1,
+      description = "List only the origin changes that modify origin_files or the config files,"
+          + " by passing pathspecs computed from origin_files to git log. Useful for workflows"
+          + " that export a small part of a big repository. Ignored with"
+          + " --git-origin-non-linear-history.")
+  boolean logPathspecs = false;
+
+  @Parameter(names = "--git-origin-submodule-threads",
+      description = "Number of submodules that are fetched and checked out in parallel. Submodules"
+          + " that use the same repository are always checked out one after the other.")
+  int submoduleCheckoutThreads = 8;
+
   public boolean useGitVersionSelector() {
     return !noGitVersionSelector;
   }
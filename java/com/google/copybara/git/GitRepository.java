@@ -60,6 +60,7 @@ import com.google.copybara.util.FileUtil;
 import com.google.copybara.util.Glob;
 import com.google.copybara.util.RepositoryUtil;
 import com.google.copybara.util.ScpUtil;
+import com.google.copybara.util.StreamingCommandOutput;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import com.google.errorprone.annotations.CheckReturnValue;
 import com.google.copybara.shell.Command;
@@ -67,6 +68,7 @@ import com.google.copybara.shell.CommandException;
 import com.google.re2j.Matcher;
 import com.google.re2j.Pattern;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
@@ -82,6 +84,7 @@ import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
@@ -177,6 +180,7 @@ public class GitRepository {
   public static final String HTTP_PERMISSION_DENIED = "The requested URL returned error: 403";
   public static final String FULL_REF_NAMESPACE = "_copybara_full_ref";
   public static final String COPYBARA_FETCH_NAMESPACE = "refs/copybara_fetch";
+  private static final String OBJECT_POOL_FILE = "copybara_object_pool";
 
   /**
    * The location of the {@code .git} directory. The is also the value of the {@code --git-dir}
@@ -193,6 +197,8 @@ public class GitRepository {
   protected final PushOptionsValidator pushOptionsValidator;
   protected final boolean noVerify;
   @Nullable protected final GitRepositoryHook gitRepositoryHook;
+  // Null if the repository was not created by GitOptions. Fetches are then run directly.
+  @Nullable private volatile FetchCoordinator fetchCoordinator;
 
   private static final Map<Character, StatusCode> CHAR_TO_STATUS_CODE =
       Arrays.stream(StatusCode.values())
@@ -509,6 +515,20 @@ public class GitRepository {
 
   @Nullable
   String describe(GitRevision rev, boolean fallback, String... arg) throws RepoException {
+    RevisionMetadataCache cache = RevisionMetadataCache.forGitDir(gitDir);
+    if (cache == null) {
+      return describeUncached(rev, fallback, arg);
+    }
+    return cache.getForTags(
+        "describe" + (fallback ? " --always " : " ") + String.join(" ", arg),
+        rev.getHash(),
+        this::tagsForFingerprint,
+        () -> describeUncached(rev, fallback, arg));
+  }
+
+  @Nullable
+  private String describeUncached(GitRevision rev, boolean fallback, String... arg)
+      throws RepoException {
     try {
       ImmutableList.Builder<String> args = ImmutableList.builder();
       args.add("describe");
@@ -564,8 +584,85 @@ public class GitRepository {
   }
 
   public ImmutableList<String> tagPointsAt(GitRevision rev) throws RepoException {
-    return ImmutableList.copyOf(
-        simpleCommand("tag", "--points-at", rev.getHash()).getStdout().trim().split("\n"));
+    RevisionMetadataCache cache = RevisionMetadataCache.forGitDir(gitDir);
+    if (cache == null) {
+      return ImmutableList.copyOf(
+          simpleCommand("tag", "--points-at", rev.getHash()).getStdout().trim().split("\n"));
+    }
+    // Tag names cannot contain spaces
+    String tags =
+        cache.getForTags(
+            "tag --points-at",
+            rev.getHash(),
+            this::tagsForFingerprint,
+            () ->
+                String.join(
+                    " ",
+                    simpleCommand("tag", "--points-at", rev.getHash())
+                        .getStdout()
+                        .trim()
+                        .split("\n")));
+    return ImmutableList.copyOf(tags.split(" "));
+  }
+
+  /** Returns the number of commits reachable from {@code rev}, including itself. */
+  public String revisionCount(GitRevision rev) throws RepoException {
+    RevisionMetadataCache cache = RevisionMetadataCache.forGitDir(gitDir);
+    // In shallow repositories the count depends on how much history was fetched.
+    if (cache == null || Files.exists(gitDir.resolve("shallow"))) {
+      return simpleCommand("rev-list", "--count", rev.getHash()).getStdout().trim();
+    }
+    return cache.get(
+        "rev-list --count",
+        rev.getHash(),
+        () -> simpleCommand("rev-list", "--count", rev.getHash()).getStdout().trim());
+  }
+
+  /** Returns the author date of {@code rev}. */
+  public ZonedDateTime authorDate(GitRevision rev) throws RepoException {
+    RevisionMetadataCache cache = RevisionMetadataCache.forGitDir(gitDir);
+    if (cache == null) {
+      return readAuthorDate(rev);
+    }
+    return ZonedDateTime.parse(
+        cache.get("author-date", rev.getHash(), () -> readAuthorDate(rev).toString()));
+  }
+
+  private ZonedDateTime readAuthorDate(GitRevision rev) throws RepoException {
+    ImmutableList<GitLogEntry> entry = log(rev.getHash()).withLimit(1).run();
+    if (entry.isEmpty()) {
+      throw new RepoException(
+          String.format("Cannot find '%s' in the git repository", rev.getHash()));
+    }
+    return Iterables.getOnlyElement(entry).authorDate();
+  }
+
+  /** Tags of the repository, used to detect when cached values that depend on them are stale. */
+  private String tagsForFingerprint() throws RepoException {
+    return simpleCommand("for-each-ref", "--format=%(objectname) %(refname)", "refs/tags")
+        .getStdout();
+  }
+
+  /**
+   * Caches in the git directory the metadata of commits that doesn't change, or only changes when
+   * tags do, like the number of commits reachable from a commit. See {@link
+   * RevisionMetadataCache}.
+   */
+  @CanIgnoreReturnValue
+  public GitRepository enableRevisionMetadataCache() throws RepoException {
+    try {
+      RevisionMetadataCache.enable(gitDir);
+    } catch (IOException e) {
+      throw new RepoException("Cannot enable the revision metadata cache in " + gitDir, e);
+    }
+    return this;
+  }
+
+  private void tagsMightHaveChanged() {
+    RevisionMetadataCache cache = RevisionMetadataCache.forGitDir(gitDir);
+    if (cache != null) {
+      cache.tagsChanged();
+    }
   }
 
   public String showDiff(String referenceFrom, String referenceTo) throws RepoException {
@@ -583,7 +680,8 @@ public class GitRepository {
    * @param refspecs a set refspecs in the form of 'foo' for branches, 'refs/some/ref' or
    *     'refs/foo/bar:refs/bar/foo'.
    * @return the set of fetched references and what action was done ( rejected, new reference,
-   *     updated, etc.)
+   *     updated, etc.). Concurrent fetches of the same url might be done together, and in that case
+   *     this includes the references fetched for the other requests.
    */
   @CanIgnoreReturnValue
   public FetchResult fetch(
@@ -595,8 +693,50 @@ public class GitRepository {
       Optional<Integer> depth,
       boolean tags)
       throws RepoException, ValidationException {
+    FetchCoordinator coordinator = fetchCoordinator;
+    if (coordinator == null) {
+      return runFetch(
+          url, prune, force, ImmutableList.copyOf(refspecs), partialFetch, depth, tags);
+    }
+    return coordinator.fetch(
+        new FetchCoordinator.Key(gitDir, url, prune, force, partialFetch, depth, tags),
+        ImmutableList.copyOf(refspecs),
+        batch -> runFetch(url, prune, force, batch, partialFetch, depth, tags));
+  }
+
+  /**
+   * Serializes the fetches of this repository with the ones of the other repositories using
+   * {@code coordinator}, and coalesces concurrent fetches of the same remote. See {@link
+   * FetchCoordinator}.
+   */
+  @CanIgnoreReturnValue
+  GitRepository useFetchCoordinator(FetchCoordinator coordinator) {
+    this.fetchCoordinator = checkNotNull(coordinator);
+    return this;
+  }
 
-    List<String> args = Lists.newArrayList("fetch", validateUrl(url));
+  private FetchResult runFetch(
+      String url,
+      boolean prune,
+      boolean force,
+      ImmutableList<String> refspecs,
+      boolean partialFetch,
+      Optional<Integer> depth,
+      boolean tags)
+      throws RepoException, ValidationException {
+    Path objectPool = partialFetch ? null : getObjectPool();
+    List<String> args = Lists.newArrayList();
+    if (objectPool != null) {
+      // Fetching into the pool, the automatic gc would repack and prune the pool keeping only the
+      // objects reachable from this repository, but other repositories use the pool too. The
+      // config of the pool that disables gc is not read, so disable it here.
+      args.addAll(ImmutableList.of("-c", "gc.auto=0", "-c", "maintenance.auto=false"));
+    }
+    args.add("fetch");
+    args.add(validateUrl(url));
+    if (objectPool != null) {
+      args.add("--no-auto-gc");
+    }
     if (tags) {
       args.add("--tags");
     }
@@ -625,7 +765,22 @@ public class GitRepository {
     }
 
     ImmutableMap<String, GitRevision> before = showRef();
-    CommandOutputWithStatus output = gitAllowNonZeroExit(NO_INPUT, args, repoTimeout);
+    CommandOutputWithStatus output =
+        gitAllowNonZeroExit(
+            NO_INPUT,
+            args,
+            repoTimeout,
+            /* maxLogLines= */ -1,
+            objectPool == null
+                ? gitEnv
+                : gitEnv.withVars(
+                    ImmutableMap.of(
+                        // New objects go to the shared pool. The ones in this repository can
+                        // still be read as alternates.
+                        "GIT_OBJECT_DIRECTORY", objectPool.toString(),
+                        "GIT_ALTERNATE_OBJECT_DIRECTORIES",
+                            gitDir.resolve("objects").toAbsolutePath().toString())));
+    tagsMightHaveChanged();
     if (output.getTerminationStatus().success()) {
       ImmutableMap<String, GitRevision> after = showRef();
       return new FetchResult(before, after);
@@ -977,15 +1132,18 @@ public class GitRepository {
    * initialize or alter the given work tree.
    */
   public GitRepository withWorkTree(Path newWorkTree) {
-    return new GitRepository(
-        this.gitDir,
-        newWorkTree,
-        this.verbose,
-        this.gitEnv,
-        repoTimeout,
-        this.noVerify,
-        this.pushOptionsValidator,
-        this.gitRepositoryHook);
+    GitRepository repo =
+        new GitRepository(
+            this.gitDir,
+            newWorkTree,
+            this.verbose,
+            this.gitEnv,
+            repoTimeout,
+            this.noVerify,
+            this.pushOptionsValidator,
+            this.gitRepositoryHook);
+    repo.fetchCoordinator = this.fetchCoordinator;
+    return repo;
   }
 
   /**
@@ -1672,22 +1830,24 @@ public class GitRepository {
       args.add(treeish);
     }
 
-    String stdout = simpleCommand(args).getStdout();
-    for (String line : Splitter.on('\0').split(stdout)) {
-      if (line.isEmpty()) {
-        continue;
-      }
-      Matcher matcher = LS_TREE_ELEMENT.matcher(line);
-      if (!matcher.matches()) {
-        throw new RepoException("Unexpected format for ls-tree output: " + line);
-      }
-      String mode = matcher.group(1);
-      GitObjectType objectType =
-          GitObjectType.valueOf(matcher.group(2).toUpperCase(Locale.getDefault()));
-      String sha = matcher.group(3);
-      String path = matcher.group(4);
+    // Recursive ls-tree of big repositories can be very large, so we don't keep it in memory.
+    try (StreamingCommandOutput output = simpleCommandStreaming(args, DEFAULT_MAX_LOG_LINES)) {
+      for (Iterator<String> it = output.split("\0"); it.hasNext(); ) {
+        String line = it.next();
+        Matcher matcher = LS_TREE_ELEMENT.matcher(line);
+        if (!matcher.matches()) {
+          throw new RepoException("Unexpected format for ls-tree output: " + line);
+        }
+        String mode = matcher.group(1);
+        GitObjectType objectType =
+            GitObjectType.valueOf(matcher.group(2).toUpperCase(Locale.getDefault()));
+        String sha = matcher.group(3);
+        String path = matcher.group(4);
 
-      result.add(new TreeElement(objectType, sha, path, mode));
+        result.add(new TreeElement(objectType, sha, path, mode));
+      }
+    } catch (IOException | UncheckedIOException e) {
+      throw new RepoException("Error reading ls-tree output", e);
     }
     return result.build();
   }
@@ -1861,16 +2021,7 @@ public class GitRepository {
     }
 
     if (isInitialized()) {
-      GitHashAlgorithm localFormat = GitHashAlgorithm.SHA1;
-      try {
-        String stdout = simpleCommand("config", "extensions.objectFormat").getStdout().trim();
-        if (stdout.contains("sha256")) {
-          localFormat = GitHashAlgorithm.SHA256;
-        }
-      } catch (RepoException e) {
-        // Unconfigured, default is sha1
-        logger.atInfo().withCause(e).log("Failed to get local object format, using SHA1");
-      }
+      GitHashAlgorithm localFormat = getLocalObjectFormat();
       if (remoteFormat != null && localFormat != remoteFormat) {
         try {
           FileUtil.deleteRecursively(gitDir);
@@ -1886,6 +2037,20 @@ public class GitRepository {
     return this;
   }
 
+  /** Returns the object format of this (initialized) repository. */
+  private GitHashAlgorithm getLocalObjectFormat() {
+    try {
+      String stdout = simpleCommand("config", "extensions.objectFormat").getStdout().trim();
+      if (stdout.contains("sha256")) {
+        return GitHashAlgorithm.SHA256;
+      }
+    } catch (RepoException e) {
+      // Unconfigured, default is sha1
+      logger.atInfo().withCause(e).log("Failed to get local object format, using SHA1");
+    }
+    return GitHashAlgorithm.SHA1;
+  }
+
   /** Returns whether the repository is initialized. */
   public boolean isInitialized() {
     return Files.exists(gitDir.resolve("HEAD")) || Files.exists(gitDir.resolve(".git/HEAD"));
@@ -1947,6 +2112,63 @@ public class GitRepository {
     return this;
   }
 
+  /**
+   * Stores the objects fetched from now on in {@code pool}, a bare repository shared with other
+   * repositories, instead of in this one. Objects in the pool are read through git alternates, so
+   * repositories that fetch the same objects keep a single copy of them.
+   *
+   * <p>Objects are never removed from the pool, since it doesn't know which repositories use them.
+   */
+  @CanIgnoreReturnValue
+  public GitRepository useObjectPool(GitRepository pool) throws RepoException {
+    checkArgument(!pool.gitDir.equals(gitDir), "A repository cannot be its own pool");
+    GitHashAlgorithm format = getLocalObjectFormat();
+    if (!pool.isInitialized()) {
+      pool.init(format);
+      // The pool doesn't have references, so gc would remove everything.
+      pool.replaceLocalConfigField("gc", "auto", "0");
+      pool.replaceLocalConfigField("gc", "pruneExpire", "never");
+    } else if (pool.getLocalObjectFormat() != format) {
+      logger.atInfo().log(
+          "Not using object pool %s for %s: different object format", pool.gitDir, gitDir);
+      return this;
+    }
+    Path poolObjects = pool.gitDir.resolve("objects").toAbsolutePath();
+    Path alternates = gitDir.resolve("objects/info/alternates");
+    try {
+      List<String> current =
+          Files.exists(alternates)
+              ? Files.readAllLines(alternates, StandardCharsets.UTF_8)
+              : ImmutableList.of();
+      if (!current.contains(poolObjects.toString())) {
+        Files.createDirectories(alternates.getParent());
+        Files.write(
+            alternates,
+            ImmutableList.<String>builder().addAll(current).add(poolObjects.toString()).build(),
+            StandardCharsets.UTF_8);
+      }
+      Files.writeString(
+          gitDir.resolve(OBJECT_POOL_FILE), poolObjects.toString(), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new RepoException("Cannot configure object pool " + pool.gitDir + " for " + gitDir, e);
+    }
+    return this;
+  }
+
+  /** Returns the objects directory of the shared pool used for fetching, if any. */
+  @Nullable
+  private Path getObjectPool() throws RepoException {
+    Path file = gitDir.resolve(OBJECT_POOL_FILE);
+    if (!Files.exists(file)) {
+      return null;
+    }
+    try {
+      return Path.of(Files.readString(file, StandardCharsets.UTF_8).trim());
+    } catch (IOException e) {
+      throw new RepoException("Cannot read " + file, e);
+    }
+  }
+
   public void setRemoteOriginUrl(String url) {
     try {
       this.simpleCommand("config", "remote.origin.url", url);
@@ -2023,6 +2245,55 @@ public class GitRepository {
     }
   }
 
+  /**
+   * Executes a git command without keeping the whole stdout in memory. See {@link
+   * CommandRunner#executeStreaming(int)}. The returned output needs to be closed.
+   *
+   * @param maxLogLines max number of lines of the output tail to log. 0 disables logging
+   */
+  StreamingCommandOutput simpleCommandStreaming(List<String> argv, int maxLogLines)
+      throws RepoException {
+    Iterable<String> params = addGitDirAndWorkTreeParams(argv);
+    List<String> allParams = new ArrayList<>();
+    allParams.add(gitEnv.resolveGitBinary());
+    Iterables.addAll(allParams, params);
+    Command cmd =
+        new Command(
+            Iterables.toArray(allParams, String.class),
+            gitEnv.getEnvironment(),
+            getCwd().toFile());
+    StreamingCommandOutput output;
+    try {
+      output =
+          new CommandRunner(cmd)
+              // Avoid redirecting to the console output that we don't log
+              .withVerbose(verbose && maxLogLines != 0)
+              .withMaxStdOutLogLines(maxLogLines)
+              .executeStreaming(CommandRunner.DEFAULT_STREAMING_MEMORY_THRESHOLD);
+    } catch (CommandException e) {
+      throw new RepoException("Error executing 'git': " + e.getMessage(), e);
+    }
+    if (output.getTerminationStatus().success()) {
+      return output;
+    }
+    try (StreamingCommandOutput ignored = output) {
+      for (Pattern error : REF_NOT_FOUND_ERRORS) {
+        Matcher matcher = error.matcher(output.getStderr());
+        if (matcher.find()) {
+          throw new RepoException("Cannot find reference '" + matcher.group(1) + "'");
+        }
+      }
+      throw new RepoException(
+          String.format(
+              "Error executing 'git %s'(exit code %d). Stderr: %s\n",
+              Joiner.on(' ').join(params),
+              output.getTerminationStatus().getExitCode(),
+              output.getStderr()));
+    } catch (IOException e) {
+      throw new RepoException("Cannot delete temporary git output", e);
+    }
+  }
+
   void forceClean() throws RepoException {
     Preconditions.checkNotNull(workTree, "Clean only acts on the worktree. A worktree is needed");
     // Force clean and also untracked directories.
@@ -2127,6 +2398,12 @@ public class GitRepository {
   protected CommandOutputWithStatus gitAllowNonZeroExit(byte[] stdin, Iterable<String> params,
       Duration defaultTimeout, int maxLogLines)
       throws RepoException {
+    return gitAllowNonZeroExit(stdin, params, defaultTimeout, maxLogLines, gitEnv);
+  }
+
+  private CommandOutputWithStatus gitAllowNonZeroExit(byte[] stdin, Iterable<String> params,
+      Duration defaultTimeout, int maxLogLines, GitEnvironment gitEnv)
+      throws RepoException {
     try {
       List<String> allParams = new ArrayList<>();
       allParams.add(gitEnv.resolveGitBinary());
@@ -2630,7 +2907,8 @@ public class GitRepository {
       int batchSize,
       boolean includeTags,
       boolean noWalk,
-      boolean topoOrder) {
+      boolean topoOrder,
+      boolean fullHistory) {
 
     private static final String COMMIT_FIELD = "commit";
     private static final String PARENTS_FIELD = "parents";
@@ -2646,6 +2924,11 @@ public class GitRepository {
     private static final Pattern UNINDENT = Pattern.compile("\n    ");
     private static final String GROUP = "--\n";
 
+    /** Receives the entries of a git log command, one batch at a time. */
+    public interface BatchConsumer {
+      void accept(ImmutableList<GitLogEntry> entries) throws RepoException;
+    }
+
     static LogCmd create(GitRepository repository, String refExpr) {
       return new LogCmd(
           checkNotNull(repository),
@@ -2661,7 +2944,8 @@ public class GitRepository {
           /* batchSize= */ 0,
           /* includeTags= */ false,
           /* noWalk= */ false,
-          /* topoOrder= */ false);
+          /* topoOrder= */ false,
+          /* fullHistory= */ false);
     }
 
     /**
@@ -2684,7 +2968,8 @@ public class GitRepository {
           batchSize,
           includeTags,
           noWalk,
-          topoOrder);
+          topoOrder,
+          fullHistory);
     }
 
     /**
@@ -2707,7 +2992,8 @@ public class GitRepository {
           batchSize,
           includeTags,
           noWalk,
-          topoOrder);
+          topoOrder,
+          fullHistory);
     }
 
     /** Read in batches of siz {@code batchSize} commits. Should be >= 0. */
@@ -2728,7 +3014,8 @@ public class GitRepository {
           batchSize,
           includeTags,
           noWalk,
-          topoOrder);
+          topoOrder,
+          fullHistory);
     }
 
     /**
@@ -2751,7 +3038,8 @@ public class GitRepository {
           batchSize,
           includeTags,
           noWalk,
-          topoOrder);
+          topoOrder,
+          fullHistory);
     }
 
     /**
@@ -2773,7 +3061,8 @@ public class GitRepository {
           batchSize,
           includeTags,
           noWalk,
-          topoOrder);
+          topoOrder,
+          fullHistory);
     }
 
     /** Set if --topo-order should be used in 'git log'. */
@@ -2793,7 +3082,32 @@ public class GitRepository {
           batchSize,
           includeTags,
           noWalk,
-          topoOrder);
+          topoOrder,
+          fullHistory);
+    }
+
+    /**
+     * Set if --full-history should be used in 'git log', so that commits that modify the paths are
+     * listed even if they are in a side branch that was merged without changes to them.
+     */
+    @CheckReturnValue
+    LogCmd fullHistory(boolean fullHistory) {
+      return new LogCmd(
+          repo,
+          refExpr,
+          limit,
+          paths,
+          firstParent,
+          includeStat,
+          includeBody,
+          grepString,
+          includeMergeDiff,
+          skip,
+          batchSize,
+          includeTags,
+          noWalk,
+          topoOrder,
+          fullHistory);
     }
 
     /** If files affected by the commit should be included in the response. */
@@ -2813,7 +3127,8 @@ public class GitRepository {
           batchSize,
           includeTags,
           noWalk,
-          topoOrder);
+          topoOrder,
+          fullHistory);
     }
 
     /**
@@ -2835,7 +3150,8 @@ public class GitRepository {
           batchSize,
           includeTags,
           noWalk,
-          topoOrder);
+          topoOrder,
+          fullHistory);
     }
 
     /**
@@ -2857,7 +3173,8 @@ public class GitRepository {
           batchSize,
           includeTags,
           noWalk,
-          topoOrder);
+          topoOrder,
+          fullHistory);
     }
 
     /**
@@ -2879,7 +3196,8 @@ public class GitRepository {
           batchSize,
           includeTags,
           noWalk,
-          topoOrder);
+          topoOrder,
+          fullHistory);
     }
 
     /** Include tags in the response. */
@@ -2899,7 +3217,8 @@ public class GitRepository {
           batchSize,
           includeTags,
           noWalk,
-          topoOrder);
+          topoOrder,
+          fullHistory);
     }
 
     /** If the ancestors of commits should be included in the output. */
@@ -2919,13 +3238,25 @@ public class GitRepository {
           batchSize,
           includeTags,
           noWalk,
-          topoOrder);
+          topoOrder,
+          fullHistory);
     }
 
     /**
      * Run 'git log' and returns zero or more {@link GitLogEntry}.
      */
     public ImmutableList<GitLogEntry> run() throws RepoException {
+      ImmutableList.Builder<GitLogEntry> res = ImmutableList.builder();
+      run(res::addAll);
+      return res.build();
+    }
+
+    /**
+     * Runs the log command passing the entries of each batch to {@code consumer} as they are read,
+     * so that callers can process long logs without keeping all the entries in memory. The
+     * entries of a merge commit are always in the same batch.
+     */
+    public void run(BatchConsumer consumer) throws RepoException {
       List<String> cmd =
           Lists.newArrayList("log", "--no-color", createFormat(includeBody, includeTags));
 
@@ -2958,6 +3289,10 @@ public class GitRepository {
         cmd.add("--topo-order");
       }
 
+      if (fullHistory) {
+        cmd.add("--full-history");
+      }
+
       if (!Strings.isNullOrEmpty(grepString)) {
         cmd.add("--grep");
         cmd.add(grepString);
@@ -2970,11 +3305,10 @@ public class GitRepository {
         cmd.addAll(paths);
       }
 
-      return runGitLog(cmd);
+      runGitLog(cmd, consumer);
     }
 
-    private ImmutableList<GitLogEntry> runGitLog(List<String> cmd) throws RepoException {
-      ImmutableList.Builder<GitLogEntry> res = ImmutableList.builder();
+    private void runGitLog(List<String> cmd, BatchConsumer consumer) throws RepoException {
       ImmutableList<GitLogEntry> batchRes;
       int batchSkip = skip;
       int overallLimit = limit;
@@ -2996,11 +3330,13 @@ public class GitRepository {
         ImmutableList<String> batchCmd = batchCmdBuilder.build();
         logger.atInfo().log("Executing: %s", batchCmd);
         // Avoid logging since git log can return LOT of entries.
-        CommandOutput output =
-            limit > 0 && limit < 10
-                ? repo.simpleCommand(batchCmd)
-                : repo.simpleCommandNoRedirectOutput(batchCmd.toArray(new String[0]));
-        batchRes = parseLog(output.getStdout(), includeBody);
+        try (StreamingCommandOutput output =
+            repo.simpleCommandStreaming(
+                batchCmd, limit > 0 && limit < 10 ? DEFAULT_MAX_LOG_LINES : 0)) {
+          batchRes = parseLog(output.split(COMMIT_SEPARATOR, "\0" + COMMIT_SEPARATOR));
+        } catch (IOException | UncheckedIOException e) {
+          throw new RepoException("Error reading git log output", e);
+        }
         logger.atInfo().log("Log command returned %s entries", batchRes.size());
         if (!batchRes.isEmpty()) {
           logger.atInfo().log("First commit: %s", batchRes.get(0));
@@ -3014,77 +3350,73 @@ public class GitRepository {
                   (batchSkip + batchRes.stream().map(e -> e.commit().getHash()).distinct().count());
           overallLimit -= batchSkip;
         }
-        res.addAll(batchRes);
+        if (!batchRes.isEmpty()) {
+          consumer.accept(batchRes);
+        }
       } while (batchSize > 0 && (limit == 0 || overallLimit > 0) && !batchRes.isEmpty());
-      return res.build();
     }
 
-    private ImmutableList<GitLogEntry> parseLog(String log, boolean includeBody)
-        throws RepoException {
-      // No changes. We cannot know until we run git log since fromRef can be null (HEAD)
-      if (log.isEmpty()) {
-        return ImmutableList.of();
-      }
-
+    private ImmutableList<GitLogEntry> parseLog(Iterator<String> entries) throws RepoException {
       ImmutableList.Builder<GitLogEntry> commits = ImmutableList.builder();
-      for (String msg : Splitter.on("\0" + COMMIT_SEPARATOR).
-          split(log.substring(COMMIT_SEPARATOR.length()))) {
+      while (entries.hasNext()) {
+        commits.add(parseLogEntry(entries.next()));
+      }
+      return commits.build();
+    }
 
-        List<String> groups = Splitter.on("\n" + GROUP).splitToList(msg);
+    private GitLogEntry parseLogEntry(String msg) throws RepoException {
+      List<String> groups = Splitter.on("\n" + GROUP).splitToList(msg);
 
-        Map<String, String> fields = Splitter.on("\n")
-            .withKeyValueSeparator(Splitter.on("=").limit(2))
-            .split(groups.get(0));
+      Map<String, String> fields = Splitter.on("\n")
+          .withKeyValueSeparator(Splitter.on("=").limit(2))
+          .split(groups.get(0));
 
-        String body = null;
-        if (includeBody) {
-          body = UNINDENT.matcher(groups.get(1)).replaceAll("\n");
-          body = body.substring(BEGIN_BODY.length() + 1, body.length() - END_BODY.length() - 1);
-          // Copybara assumes \n as a separator in many places.
-          body = body.replace("\r\n", "\n");
-        }
+      String body = null;
+      if (includeBody) {
+        body = UNINDENT.matcher(groups.get(1)).replaceAll("\n");
+        body = body.substring(BEGIN_BODY.length() + 1, body.length() - END_BODY.length() - 1);
+        // Copybara assumes \n as a separator in many places.
+        body = body.replace("\r\n", "\n");
+      }
 
-        ImmutableSet<String> files = null;
-        if (includeStat) {
-          String fileString = groups.get(2);
-          if (fileString.startsWith("\0\n")) {
-            fileString = fileString.substring(2);
-          }
-          files = ImmutableSet.copyOf(Splitter.on("\0").omitEmptyStrings().split(fileString));
-        }
-        ImmutableList.Builder<GitRevision> parents = ImmutableList.builder();
-        for (String parent : Splitter.on(" ").omitEmptyStrings()
-            .split(getField(fields, PARENTS_FIELD))) {
-          parents.add(repo.createReferenceFromCompleteHash(parent));
+      ImmutableSet<String> files = null;
+      if (includeStat) {
+        String fileString = groups.get(2);
+        if (fileString.startsWith("\0\n")) {
+          fileString = fileString.substring(2);
         }
+        files = ImmutableSet.copyOf(Splitter.on("\0").omitEmptyStrings().split(fileString));
+      }
+      ImmutableList.Builder<GitRevision> parents = ImmutableList.builder();
+      for (String parent : Splitter.on(" ").omitEmptyStrings()
+          .split(getField(fields, PARENTS_FIELD))) {
+        parents.add(repo.createReferenceFromCompleteHash(parent));
+      }
 
-        String tree = getField(fields, TREE_FIELD);
-        String commit = getField(fields, COMMIT_FIELD);
+      String tree = getField(fields, TREE_FIELD);
+      String commit = getField(fields, COMMIT_FIELD);
 
-        String tagString = includeTags ? getField(fields, TAG_FIELD) : null;
-        GitRevision tag =
-            tagString != null
-                ? repo.createReferenceFromCompleteHash(commit).withContextReference(tagString)
-                : null;
+      String tagString = includeTags ? getField(fields, TAG_FIELD) : null;
+      GitRevision tag =
+          tagString != null
+              ? repo.createReferenceFromCompleteHash(commit).withContextReference(tagString)
+              : null;
 
-        try {
-          commits.add(
-              new GitLogEntry(
-                  repo.createReferenceFromCompleteHash(commit),
-                  parents.build(),
-                  tree,
-                  AuthorParser.parse(getField(fields, AUTHOR_FIELD)),
-                  AuthorParser.parse(getField(fields, COMMITTER_FIELD)),
-                  tryParseDate(fields, AUTHOR_DATE_FIELD, commit),
-                  tryParseDate(fields, COMMITTER_DATE, commit),
-                  body,
-                  files,
-                  tag));
-        } catch (InvalidAuthorException e) {
-          throw new RepoException("Error in commit '" + commit + "'. Invalid author.", e);
-        }
+      try {
+        return new GitLogEntry(
+            repo.createReferenceFromCompleteHash(commit),
+            parents.build(),
+            tree,
+            AuthorParser.parse(getField(fields, AUTHOR_FIELD)),
+            AuthorParser.parse(getField(fields, COMMITTER_FIELD)),
+            tryParseDate(fields, AUTHOR_DATE_FIELD, commit),
+            tryParseDate(fields, COMMITTER_DATE, commit),
+            body,
+            files,
+            tag);
+      } catch (InvalidAuthorException e) {
+        throw new RepoException("Error in commit '" + commit + "'. Invalid author.", e);
       }
-      return commits.build();
     }
 
     // Do not change this method since we could have old git commits that have incorrect date
@@ -3190,6 +3522,7 @@ public class GitRepository {
         cmd.add("--force");
       }
       repo.simpleCommand(cmd.toArray(new String[0]));
+      repo.tagsMightHaveChanged();
     }
   }
 
@@ -27,13 +27,10 @@ import com.google.common.base.Strings;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.ListMultimap;
 import com.google.common.flogger.FluentLogger;
 import com.google.copybara.exception.RepoException;
-import com.google.copybara.git.GitRepository.GitLogEntry;
 import com.google.copybara.revision.Revision;
-import com.google.copybara.util.CommandOutput;
 import java.time.ZonedDateTime;
 import java.util.Map.Entry;
 import java.util.Objects;
@@ -211,11 +208,7 @@ public final class GitRevision implements Revision {
   @Override
   public ZonedDateTime readTimestamp() throws RepoException {
     // TODO(malcon): We should be able to skip this for revisions coming from 'git log'.
-    ImmutableList<GitLogEntry> entry = repository.log(hash).withLimit(1).run();
-    if (entry.isEmpty()) {
-      throw new RepoException(String.format("Cannot find '%s' in the git repository", hash));
-    }
-    return Iterables.getOnlyElement(entry).authorDate();
+    return repository.authorDate(this);
   }
 
   @Override
@@ -358,8 +351,7 @@ public final class GitRevision implements Revision {
   private synchronized ImmutableList<String> populateRevisionNumber() {
     if (revisionNumber == null) {
       try {
-        CommandOutput cmdout = repository.simpleCommand("rev-list", "--count", hash);
-        revisionNumber = cmdout.getStdout().trim();
+        revisionNumber = repository.revisionCount(this);
       } catch (RepoException e) {
         logger.atWarning().withCause(e).log(
             "Cannot get revision number for %s. Using shortened hash", hash);
@@ -43,8 +43,14 @@ import com.google.copybara.profiler.Profiler.ProfilerTask;
 import com.google.copybara.transform.SkylarkConsole;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import net.starlark.java.eval.Dict;
@@ -57,8 +63,16 @@ public class Mirror implements Migration {
 
   private static final String MODE_STRING = "MIRROR";
 
+  // Above this number of references to update, a full fetch is cheaper than fetching each one.
+  private static final int MAX_INCREMENTAL_REFS = 500;
+
+  // Mirrors from the same origin, that can run concurrently, share the local repository. Only one
+  // of them runs at a time.
+  private static final ConcurrentMap<String, Object> REPO_LOCKS = new ConcurrentHashMap<>();
+
   private final GeneralOptions generalOptions;
   private final GitOptions gitOptions;
+  private final GitMirrorOptions gitMirrorOptions;
   private final String name;
   private final String origin;
   private final String destination;
@@ -77,6 +91,7 @@ public class Mirror implements Migration {
   Mirror(
       GeneralOptions generalOptions,
       GitOptions gitOptions,
+      GitMirrorOptions gitMirrorOptions,
       String name,
       String origin,
       String destination,
@@ -93,6 +108,7 @@ public class Mirror implements Migration {
       ImmutableList<StarlarkThread.CallStackEntry> definitionStack) {
     this.generalOptions = Preconditions.checkNotNull(generalOptions);
     this.gitOptions = Preconditions.checkNotNull(gitOptions);
+    this.gitMirrorOptions = Preconditions.checkNotNull(gitMirrorOptions);
     this.name = Preconditions.checkNotNull(name);
     this.origin = Preconditions.checkNotNull(origin);
     this.destination = Preconditions.checkNotNull(destination);
@@ -113,33 +129,41 @@ public class Mirror implements Migration {
   public void run(Path workdir, ImmutableList<String> sourceRefs)
       throws RepoException, IOException, ValidationException {
     try (ProfilerTask ignore = generalOptions.profiler().start("run/" + name)) {
-      GitRepository repo = getLocalRepo();
-      maybeConfigureGitNameAndEmail(repo);
-      if (action == null) {
-        defaultMirror(repo);
-      } else {
-        customMirror(repo, sourceRefs);
+      // Fetches and pushes, including the pruning ones, also use the local repository, so the
+      // lock is held for the whole mirror.
+      synchronized (REPO_LOCKS.computeIfAbsent(origin, k -> new Object())) {
+        GitRepository repo = getLocalRepo();
+        maybeConfigureGitNameAndEmail(repo);
+        if (action == null) {
+          defaultMirror(repo);
+        } else {
+          customMirror(repo, sourceRefs);
+        }
       }
     }
 
     // More fine grain events based on the references created/updated/deleted:
-    ChangeMigrationFinishedEvent event =
+    dispatchMirrorFinishedEvent(
+        generalOptions.dryRunMode ? DestinationEffect.Type.NOOP : DestinationEffect.Type.UPDATED,
+        generalOptions.dryRunMode
+            ? "Refspecs " + refspec + " can be mirrored"
+            : "Refspecs " + refspec + " mirrored successfully");
+  }
+
+  private void dispatchMirrorFinishedEvent(DestinationEffect.Type type, String summary)
+      throws ValidationException {
+    dispatchMigrationFinishedEvent(
         new ChangeMigrationFinishedEvent(
             ImmutableList.of(
                 new DestinationEffect(
-                    generalOptions.dryRunMode
-                        ? DestinationEffect.Type.NOOP
-                        : DestinationEffect.Type.UPDATED,
-                    generalOptions.dryRunMode
-                        ? "Refspecs " + refspec + " can be mirrored"
-                        : "Refspecs " + refspec + " mirrored successfully",
+                    type,
+                    summary,
                     // TODO(danielromero): Populate OriginRef here
                     ImmutableList.of(),
                     new DestinationRef(
                         getOriginDestinationRef(destination), "mirror", /* url= */ null))),
             getOriginDescription(),
-            getDestinationDescription());
-    dispatchMigrationFinishedEvent(event);
+            getDestinationDescription()));
   }
 
   private void dispatchMigrationFinishedEvent(ChangeMigrationFinishedEvent event) {
@@ -197,6 +221,9 @@ public class Mirror implements Migration {
   }
 
   private void defaultMirror(GitRepository repo) throws RepoException, ValidationException {
+    if (gitMirrorOptions.incremental && incrementalMirror(repo)) {
+      return;
+    }
     List<String> fetchRefspecs = refspec.stream()
         .map(r -> r.originToOrigin().toString())
         .collect(Collectors.toList());
@@ -215,15 +242,96 @@ public class Mirror implements Migration {
           false);
     }
 
+    push(repo, refspec, prune);
+  }
+
+  /**
+   * Mirrors only the references that point to a different commit in origin and destination,
+   * as listed by ls-remote. Returns false if a full mirror is needed instead, because some
+   * references have to be deleted or there are too many to update.
+   *
+   * @throws EmptyChangeException if all the references are up to date
+   */
+  private boolean incrementalMirror(GitRepository repo) throws RepoException, ValidationException {
+    Map<String, String> originRefs;
+    Map<String, String> destinationRefs;
+    try (ProfilerTask ignore = generalOptions.profiler().start("ls_remote")) {
+      originRefs =
+          repo.lsRemote(origin, refspec.stream().map(Refspec::getOrigin).distinct().toList());
+      destinationRefs =
+          repo.lsRemote(
+              destination, refspec.stream().map(Refspec::getDestination).distinct().toList());
+    }
+    Map<String, Refspec> outdated = new LinkedHashMap<>();
+    Set<String> expected = new HashSet<>();
+    for (Map.Entry<String, String> ref : originRefs.entrySet()) {
+      if (ref.getKey().endsWith("^{}")) {
+        // Peeled tag, the tag itself is also listed
+        continue;
+      }
+      // ls-remote patterns also match refs that only end like the pattern
+      Optional<Refspec> matching =
+          refspec.stream().filter(r -> r.matchesOrigin(ref.getKey())).findFirst();
+      if (matching.isEmpty()) {
+        continue;
+      }
+      Refspec single = matching.get().forOriginRef(ref.getKey());
+      expected.add(single.getDestination());
+      if (!ref.getValue().equals(destinationRefs.get(single.getDestination()))) {
+        outdated.put(ref.getKey(), single);
+      }
+    }
+    if (prune
+        && destinationRefs.keySet().stream()
+            .anyMatch(
+                ref ->
+                    !ref.endsWith("^{}")
+                        && !expected.contains(ref)
+                        && refspec.stream().anyMatch(r -> r.invert().matchesOrigin(ref)))) {
+      generalOptions.console().verboseFmt("Some references need to be deleted in %s", destination);
+      return false;
+    }
+    if (outdated.size() > MAX_INCREMENTAL_REFS) {
+      generalOptions.console().verboseFmt(
+          "%d references are outdated in %s", outdated.size(), destination);
+      return false;
+    }
+    if (outdated.isEmpty()) {
+      dispatchMirrorFinishedEvent(
+          DestinationEffect.Type.NOOP, "Refspecs " + refspec + " are up to date");
+      throw new EmptyChangeException(
+          String.format(
+              "git.mirror migration '%s' was noop. All the references are up to date in %s",
+              name, destination));
+    }
+
+    generalOptions.console().progressFmt(
+        "Fetching %d references from %s", outdated.size(), origin);
+    try (ProfilerTask ignore = generalOptions.profiler().start("fetch")) {
+      repo.fetch(
+          origin,
+          /* prune= */ false,
+          /* force= */ true,
+          outdated.values().stream().map(r -> r.originToOrigin().toString()).toList(),
+          partialFetch,
+          Optional.empty(),
+          false);
+    }
+    push(repo, ImmutableList.copyOf(outdated.values()), /* prune= */ false);
+    return true;
+  }
+
+  private void push(GitRepository repo, List<Refspec> refspecs, boolean prune)
+      throws RepoException, ValidationException {
     if (generalOptions.dryRunMode) {
       generalOptions.console().progressFmt("Skipping push to %s. You can check the"
           + " commits to push in: %s", destination, repo.getGitDir());
     } else {
       generalOptions.console().progressFmt("Pushing to %s", destination);
       List<Refspec> pushRefspecs = generalOptions.isForced()
-          ? refspec.stream().map(Refspec::withAllowNoFastForward).collect(Collectors.toList())
-          : refspec;
-      try (ProfilerTask ignore1 = profiler.start("push")) {
+          ? refspecs.stream().map(Refspec::withAllowNoFastForward).collect(Collectors.toList())
+          : refspecs;
+      try (ProfilerTask ignore1 = generalOptions.profiler().start("push")) {
         repo.push()
             .prune(prune)
             .withRefspecs(destination, pushRefspecs)
@@ -95,6 +95,11 @@ public class Refspec {
     }
   }
 
+  /** Returns a refspec for {@code originRef}, that should match the origin pattern. */
+  Refspec forOriginRef(String originRef) {
+    return new Refspec(originRef, convert(originRef), allowNoFastForward);
+  }
+
   public Refspec withAllowNoFastForward() {
     return new Refspec(origin, destination, /*allowNoFastForward*/true);
   }
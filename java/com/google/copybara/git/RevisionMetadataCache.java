@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.git;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.flogger.FluentLogger;
+import com.google.common.hash.Hashing;
+import com.google.copybara.exception.RepoException;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.Nullable;
+
+/**
+ * Persistent cache, stored in the git directory, of commit metadata that is expensive to compute,
+ * like the number of commits reachable from a commit or the output of {@code git describe}.
+ *
+ * <p>Entries are keyed by the commit hash and the kind of query. Queries whose result depends on
+ * the tags of the repository, like {@code git describe}, are also keyed by a fingerprint of the
+ * tags, that is recomputed after every fetch or tag creation done by this process.
+ *
+ * <p>The file is append only. Entries written by other processes are only seen after a restart,
+ * and lines that cannot be parsed (for example, partially written by a process that crashed) are
+ * ignored.
+ */
+final class RevisionMetadataCache {
+
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  @VisibleForTesting static final String FILE_NAME = "copybara_revision_metadata";
+
+  // Keys that depend on tags accumulate as tags are added. Start over if the file gets too big.
+  private static final int MAX_ENTRIES = 1_000_000;
+
+  private static final ConcurrentMap<Path, RevisionMetadataCache> CACHES =
+      new ConcurrentHashMap<>();
+
+  /** Computes a value that is not in the cache. Returns null if it cannot be cached. */
+  interface Loader {
+    @Nullable
+    String load() throws RepoException;
+  }
+
+  /** Reads the tags of the repository, in a stable order. */
+  interface TagsReader {
+    String read() throws RepoException;
+  }
+
+  private final Path file;
+  private final ConcurrentMap<String, String> entries = new ConcurrentHashMap<>();
+  private boolean loaded;
+  @Nullable private volatile String tagsFingerprint;
+
+  private RevisionMetadataCache(Path gitDir) {
+    this.file = gitDir.resolve(FILE_NAME);
+  }
+
+  /** Enables the cache for the repository in {@code gitDir}. */
+  static void enable(Path gitDir) throws IOException {
+    Path file = gitDir.resolve(FILE_NAME);
+    if (!Files.exists(file)) {
+      try {
+        Files.createFile(file);
+      } catch (FileAlreadyExistsException e) {
+        // Another process enabled it.
+      }
+    }
+  }
+
+  /** Returns the cache of the repository in {@code gitDir}, or null if it is not enabled. */
+  @Nullable
+  static RevisionMetadataCache forGitDir(Path gitDir) {
+    Path key = gitDir.toAbsolutePath().normalize();
+    RevisionMetadataCache cache = CACHES.get(key);
+    if (cache != null) {
+      return cache;
+    }
+    if (!Files.exists(key.resolve(FILE_NAME))) {
+      return null;
+    }
+    return CACHES.computeIfAbsent(key, RevisionMetadataCache::new);
+  }
+
+  /**
+   * Returns the cached value for {@code kind} and {@code hash}, computing and storing it with
+   * {@code loader} if it is not cached.
+   */
+  @Nullable
+  String get(String kind, String hash, Loader loader) throws RepoException {
+    return get(kind + " " + hash, loader);
+  }
+
+  /**
+   * Like {@link #get(String, String, Loader)}, for values that also depend on the tags of the
+   * repository.
+   */
+  @Nullable
+  String getForTags(String kind, String hash, TagsReader tags, Loader loader)
+      throws RepoException {
+    String fingerprint = tagsFingerprint;
+    if (fingerprint == null) {
+      fingerprint = Hashing.murmur3_128().hashString(tags.read(), UTF_8).toString();
+      tagsFingerprint = fingerprint;
+    }
+    return get(kind + " " + hash + " " + fingerprint, loader);
+  }
+
+  /** The tags of the repository might have changed. */
+  void tagsChanged() {
+    tagsFingerprint = null;
+  }
+
+  @Nullable
+  private String get(String key, Loader loader) throws RepoException {
+    load();
+    String value = entries.get(key);
+    if (value != null) {
+      return value;
+    }
+    value = loader.load();
+    if (value == null) {
+      return null;
+    }
+    if (value.indexOf('\n') != -1 || value.indexOf('\r') != -1 || value.indexOf('\t') != -1) {
+      // Doesn't fit in the file format
+      return value;
+    }
+    if (entries.putIfAbsent(key, value) == null) {
+      append(key, value);
+    }
+    return value;
+  }
+
+  private synchronized void load() {
+    if (loaded) {
+      return;
+    }
+    loaded = true;
+    int lines = 0;
+    try (BufferedReader reader = Files.newBufferedReader(file, UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lines++;
+        // Lines end with a tab, so that truncated lines are detected.
+        int tab = line.indexOf('\t');
+        int end = line.length() - 1;
+        if (tab > 0
+            && end > tab
+            && line.charAt(end) == '\t'
+            && line.indexOf('\t', tab + 1) == end) {
+          entries.put(line.substring(0, tab), line.substring(tab + 1, end));
+        }
+      }
+    } catch (NoSuchFileException e) {
+      return;
+    } catch (IOException e) {
+      logger.atWarning().withCause(e).log("Cannot read revision metadata cache %s", file);
+      return;
+    }
+    if (lines > MAX_ENTRIES) {
+      logger.atInfo().log("Revision metadata cache %s is too big. Starting over", file);
+      entries.clear();
+      try {
+        Files.write(file, new byte[0], StandardOpenOption.TRUNCATE_EXISTING);
+      } catch (IOException e) {
+        logger.atWarning().withCause(e).log("Cannot truncate revision metadata cache %s", file);
+      }
+    }
+  }
+
+  private void append(String key, String value) {
+    try {
+      // A single small write, so concurrent writers don't interleave lines.
+      Files.write(
+          file, (key + "\t" + value + "\t\n").getBytes(UTF_8), StandardOpenOption.APPEND);
+    } catch (IOException e) {
+      logger.atWarning().withCause(e).log("Cannot write to revision metadata cache %s", file);
+    }
+  }
+}
@@ -60,6 +60,28 @@ public class ChangesQuery implements StarlarkValue {
     this.start = start;
   }
 
+  /**
+   * Returns a query for the changes with any of {@code changeIds} (Change-Ids, change numbers or
+   * triplet ids), further restricted by {@code filter} if it is not null.
+   */
+  public static ChangesQuery forChanges(Iterable<String> changeIds, @Nullable String filter) {
+    StringBuilder query = new StringBuilder("(");
+    for (String changeId : changeIds) {
+      Preconditions.checkArgument(
+          !changeId.isEmpty() && !changeId.contains(" "), "Invalid change id: '%s'", changeId);
+      if (query.length() > 1) {
+        query.append(" OR ");
+      }
+      query.append("change:").append(changeId);
+    }
+    Preconditions.checkArgument(query.length() > 1, "No change ids");
+    query.append(")");
+    if (filter != null) {
+      query.append(" AND ").append(filter);
+    }
+    return new ChangesQuery(query.toString());
+  }
+
   public ChangesQuery withStart(int start) {
     return new ChangesQuery(query, include, limit, start);
   }
@@ -72,6 +94,10 @@ public class ChangesQuery implements StarlarkValue {
     return new ChangesQuery(query, ImmutableSet.copyOf(include), limit, start);
   }
 
+  int getStart() {
+    return start == null ? 0 : start;
+  }
+
   @VisibleForTesting
   public String asUrlParams() {
     StringBuilder sb = new StringBuilder("q=").append(escape(query));
@@ -19,28 +19,56 @@ package com.google.copybara.git.gerritapi;
 import static com.google.copybara.exception.ValidationException.checkCondition;
 
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.reflect.TypeToken;
 import com.google.copybara.exception.RepoException;
 import com.google.copybara.exception.ValidationException;
 import com.google.copybara.git.gerritapi.GerritApiException.ResponseCode;
 import com.google.copybara.profiler.Profiler;
 import com.google.copybara.profiler.Profiler.ProfilerTask;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.Nullable;
 
 /**
  * A mini API for getting and updating Gerrit projects through the Gerrit REST API.
  */
 public class GerritApi {
 
+  // Keeps the query URLs well below the usual request line limits of servers and proxies.
+  private static final int MAX_CHANGES_PER_QUERY = 50;
+
   protected final GerritApiTransport transport;
   protected final Profiler profiler;
+  private final int maxConcurrentRequests;
 
   public GerritApi(GerritApiTransport transport, Profiler profiler) {
+    this(transport, profiler, /* maxConcurrentRequests= */ 1);
+  }
+
+  public GerritApi(GerritApiTransport transport, Profiler profiler, int maxConcurrentRequests) {
     this.transport = Preconditions.checkNotNull(transport);
     this.profiler = Preconditions.checkNotNull(profiler);
+    Preconditions.checkArgument(maxConcurrentRequests > 0, "Invalid maxConcurrentRequests");
+    this.maxConcurrentRequests = maxConcurrentRequests;
+  }
+
+  /** A call to the API, to be run with {@link #runConcurrently}. */
+  public interface Request<T> {
+    @Nullable
+    T run() throws RepoException, ValidationException;
   }
 
   public List<ChangeInfo> getChanges(ChangesQuery query)
@@ -52,6 +80,96 @@ public class GerritApi {
     }
   }
 
+  /** Like {@link #getChanges}, but follows the pagination until all the changes are read. */
+  public ImmutableList<ChangeInfo> getAllChanges(ChangesQuery query)
+      throws RepoException, ValidationException {
+    ImmutableList.Builder<ChangeInfo> result = ImmutableList.builder();
+    int start = query.getStart();
+    while (true) {
+      List<ChangeInfo> page = getChanges(query.withStart(start));
+      result.addAll(page);
+      if (page.isEmpty() || !Iterables.getLast(page).isMoreChanges()) {
+        return result.build();
+      }
+      start += page.size();
+    }
+  }
+
+  /**
+   * Returns the changes with any of {@code changeIds} (Change-Ids, change numbers or triplet ids)
+   * that match {@code filter}, if not null.
+   *
+   * <p>Instead of a request per change, the ids are looked up with queries that OR many of them,
+   * run concurrently. Changes that are not found are not included in the result.
+   */
+  public ImmutableList<ChangeInfo> getChangesById(
+      Collection<String> changeIds, @Nullable String filter, Iterable<IncludeResult> include)
+      throws RepoException, ValidationException {
+    List<Request<ImmutableList<ChangeInfo>>> queries = new ArrayList<>();
+    for (List<String> batch :
+        Iterables.partition(ImmutableSet.copyOf(changeIds), MAX_CHANGES_PER_QUERY)) {
+      ChangesQuery query = ChangesQuery.forChanges(batch, filter).withInclude(include);
+      queries.add(() -> getAllChanges(query));
+    }
+    // The same change might have been requested with different ids
+    Map<String, ChangeInfo> result = new LinkedHashMap<>();
+    for (ImmutableList<ChangeInfo> changes : runConcurrently(queries)) {
+      for (ChangeInfo change : changes) {
+        result.putIfAbsent(change.getId(), change);
+      }
+    }
+    return ImmutableList.copyOf(result.values());
+  }
+
+  /**
+   * Runs independent {@code requests}, with up to the configured number of them in flight at the
+   * same time, and returns their results in the same order.
+   *
+   * <p>A failed request doesn't cancel the rest. Once all of them finish, the error of the first
+   * failed one is thrown.
+   */
+  public <T> List<T> runConcurrently(List<? extends Request<? extends T>> requests)
+      throws RepoException, ValidationException {
+    if (maxConcurrentRequests == 1 || requests.size() <= 1) {
+      List<T> result = new ArrayList<>(requests.size());
+      for (Request<? extends T> request : requests) {
+        result.add(request.run());
+      }
+      return Collections.unmodifiableList(result);
+    }
+    ExecutorService executor =
+        Executors.newFixedThreadPool(Math.min(maxConcurrentRequests, requests.size()));
+    try {
+      List<Future<? extends T>> futures = new ArrayList<>(requests.size());
+      for (Request<? extends T> request : requests) {
+        futures.add(executor.submit(request::run));
+      }
+      List<T> result = new ArrayList<>(requests.size());
+      Throwable firstError = null;
+      for (Future<? extends T> future : futures) {
+        try {
+          result.add(future.get());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new RepoException("Interrupted while waiting for Gerrit requests", e);
+        } catch (ExecutionException e) {
+          if (firstError == null) {
+            firstError = e.getCause();
+          }
+        }
+      }
+      if (firstError != null) {
+        Throwables.throwIfInstanceOf(firstError, RepoException.class);
+        Throwables.throwIfInstanceOf(firstError, ValidationException.class);
+        Throwables.throwIfUnchecked(firstError);
+        throw new RepoException("Gerrit request failed", firstError);
+      }
+      return Collections.unmodifiableList(result);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   public ChangeInfo getChange(String changeId, GetChangeInput input)
       throws RepoException, ValidationException {
     try (ProfilerTask ignore = profiler.start("gerrit_get_change")) {
@@ -23,14 +23,18 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.flogger.FluentLogger;
 import com.google.copybara.exception.RepoException;
 import com.google.copybara.exception.ValidationException;
+import com.google.copybara.git.github.api.PullRequestGates.Gate;
 import com.google.copybara.profiler.Profiler;
 import com.google.copybara.profiler.Profiler.ProfilerTask;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import javax.annotation.Nullable;
 
 /** GraphQL implementation for GitHub client */
 public class GitHubGraphQLApi {
@@ -39,6 +43,90 @@ public class GitHubGraphQLApi {
 
   private static final int CHECK_RUNS_MAX_PAGE_SIZE = 10;
 
+  // Login that GitHub shows for the content of deleted accounts.
+  private static final String GHOST_LOGIN = "ghost";
+
+  private static final String PULL_REQUEST_GATES_QUERY =
+      """
+      query ($owner: String!, $repo: String!, $number: Int!, $labels: Boolean!,
+          $commits: Boolean!, $statuses: Boolean!, $checkRuns: Boolean!, $reviews: Boolean!,
+          $reviewCursor: String) {
+        repository(owner: $owner, name: $repo) {
+          pullRequest(number: $number) {
+            headRefOid
+            labels(first: 100) @include(if: $labels) {
+              pageInfo {
+                hasNextPage
+              }
+              nodes {
+                name
+              }
+            }
+            commits(last: 1) @include(if: $commits) {
+              nodes {
+                commit {
+                  oid
+                  status @include(if: $statuses) {
+                    contexts {
+                      context
+                      state
+                    }
+                  }
+                  checkSuites(first: 100) @include(if: $checkRuns) {
+                    pageInfo {
+                      hasNextPage
+                    }
+                    nodes {
+                      checkRuns(first: 100) {
+                        pageInfo {
+                          hasNextPage
+                        }
+                        nodes {
+                          id
+                          name
+                          status
+                          conclusion
+                          detailsUrl
+                          checkSuite {
+                            commit {
+                              oid
+                            }
+                            app {
+                              databaseId
+                              name
+                              slug
+                            }
+                          }
+                        }
+                      }
+                    }
+                  }
+                }
+              }
+            }
+            reviews(first: 100, after: $reviewCursor) @include(if: $reviews) {
+              pageInfo {
+                hasNextPage
+                endCursor
+              }
+              nodes {
+                databaseId
+                author {
+                  login
+                }
+                authorAssociation
+                state
+                body
+                commit {
+                  oid
+                }
+              }
+            }
+          }
+        }
+      }
+      """;
+
   /** GraphQL request body */
   public static class GraphQLRequest {
     @Key("query")
@@ -312,6 +400,172 @@ public class GitHubGraphQLApi {
     return checkRuns.build();
   }
 
+  /**
+   * Reads the information of a pull request needed to check the given {@code gates} in a single
+   * query. Only the reviews are paginated. The rest of the information is not returned if it
+   * doesn't fit in a page.
+   *
+   * <p>Returns null if the pull request cannot be found.
+   */
+  @Nullable
+  public PullRequestGates getPullRequestGates(
+      String owner, String repo, int number, Set<Gate> gates)
+      throws RepoException, ValidationException {
+    PullRequestGatesResponse.PullRequestNode pr =
+        queryPullRequestGates(owner, repo, number, gates, /* reviewCursor= */ null);
+    if (pr == null || pr.getHeadRefOid() == null) {
+      logger.atInfo().log(
+          "Cannot find pull request %d in %s/%s with GraphQL", number, owner, repo);
+      return null;
+    }
+    String headSha = pr.getHeadRefOid();
+
+    ImmutableList<String> labels = null;
+    if (gates.contains(Gate.LABELS)
+        && pr.getLabels() != null
+        && !hasNextPage(pr.getLabels().getPageInfo())) {
+      ImmutableList.Builder<String> names = ImmutableList.builder();
+      for (PullRequestGatesResponse.LabelNode label : nullToEmpty(pr.getLabels().getNodes())) {
+        names.add(label.getName());
+      }
+      labels = names.build();
+    }
+
+    // The last commit is the head of the pull request. Both are read in the same query, but don't
+    // use statuses or check runs of a different commit.
+    PullRequestGatesResponse.CommitDetails head = null;
+    if (pr.getCommits() != null && !nullToEmpty(pr.getCommits().getNodes()).isEmpty()) {
+      head = pr.getCommits().getNodes().get(pr.getCommits().getNodes().size() - 1).getCommit();
+      if (head != null && !headSha.equals(head.getOid())) {
+        head = null;
+      }
+    }
+
+    ImmutableSet<String> successfulStatusContexts = null;
+    if (gates.contains(Gate.STATUSES) && head != null) {
+      ImmutableSet.Builder<String> contexts = ImmutableSet.builder();
+      if (head.getStatus() != null) {
+        for (PullRequestGatesResponse.StatusContext status :
+            nullToEmpty(head.getStatus().getContexts())) {
+          if ("SUCCESS".equals(status.getState())) {
+            contexts.add(status.getContext());
+          }
+        }
+      }
+      successfulStatusContexts = contexts.build();
+    }
+
+    ImmutableList<CheckRun> checkRuns = null;
+    if (gates.contains(Gate.CHECK_RUNS)
+        && head != null
+        && head.getCheckSuites() != null
+        && !hasNextPage(head.getCheckSuites().getPageInfo())) {
+      ImmutableList<CheckRun.PullRequest> pullRequests =
+          ImmutableList.of(new CheckRun.PullRequest(number));
+      ImmutableList.Builder<CheckRun> runs = ImmutableList.builder();
+      boolean complete = true;
+      for (PullRequestGatesResponse.CheckSuiteNode suite :
+          nullToEmpty(head.getCheckSuites().getNodes())) {
+        if (suite.getCheckRuns() == null) {
+          continue;
+        }
+        if (hasNextPage(suite.getCheckRuns().getPageInfo())) {
+          complete = false;
+          break;
+        }
+        for (Map<String, Object> run : nullToEmpty(suite.getCheckRuns().getNodes())) {
+          runs.add(
+              convertToCheckRun(
+                  new GetFilteredCheckRunsResponse.CheckRunNode(run), headSha, pullRequests));
+        }
+      }
+      checkRuns = complete ? runs.build() : null;
+    }
+
+    ImmutableList<Review> reviews = null;
+    if (gates.contains(Gate.REVIEWS) && pr.getReviews() != null) {
+      ImmutableList.Builder<Review> allReviews = ImmutableList.builder();
+      PullRequestGatesResponse.Reviews page = pr.getReviews();
+      while (true) {
+        for (PullRequestGatesResponse.ReviewNode review : nullToEmpty(page.getNodes())) {
+          allReviews.add(toReview(review));
+        }
+        if (!hasNextPage(page.getPageInfo())) {
+          reviews = allReviews.build();
+          break;
+        }
+        if (page.getPageInfo().getEndCursor() == null) {
+          break;
+        }
+        PullRequestGatesResponse.PullRequestNode next =
+            queryPullRequestGates(
+                owner,
+                repo,
+                number,
+                ImmutableSet.of(Gate.REVIEWS),
+                page.getPageInfo().getEndCursor());
+        if (next == null || next.getReviews() == null) {
+          break;
+        }
+        page = next.getReviews();
+      }
+    }
+
+    return new PullRequestGates(headSha, labels, successfulStatusContexts, checkRuns, reviews);
+  }
+
+  @Nullable
+  private PullRequestGatesResponse.PullRequestNode queryPullRequestGates(
+      String owner, String repo, int number, Set<Gate> gates, @Nullable String reviewCursor)
+      throws RepoException, ValidationException {
+    ImmutableMap.Builder<String, Object> variables =
+        ImmutableMap.<String, Object>builder()
+            .put("owner", owner)
+            .put("repo", repo)
+            .put("number", number)
+            .put("labels", gates.contains(Gate.LABELS))
+            .put("commits", gates.contains(Gate.STATUSES) || gates.contains(Gate.CHECK_RUNS))
+            .put("statuses", gates.contains(Gate.STATUSES))
+            .put("checkRuns", gates.contains(Gate.CHECK_RUNS))
+            .put("reviews", gates.contains(Gate.REVIEWS));
+    if (reviewCursor != null) {
+      variables.put("reviewCursor", reviewCursor);
+    }
+    try (ProfilerTask ignore = profiler.start("github_api_get_pull_request_gates")) {
+      PullRequestGatesResponse response =
+          transport.post(
+              "/graphql",
+              new GraphQLRequest(PULL_REQUEST_GATES_QUERY, variables.buildOrThrow()),
+              PullRequestGatesResponse.class,
+              "POST GraphQL");
+      if (response == null
+          || response.getData() == null
+          || response.getData().getRepository() == null) {
+        return null;
+      }
+      return response.getData().getRepository().getPullRequest();
+    }
+  }
+
+  private static Review toReview(PullRequestGatesResponse.ReviewNode review) {
+    return new Review(
+        review.getDatabaseId() == null ? 0 : review.getDatabaseId(),
+        // GraphQL returns a null author for deleted accounts, the REST API returns the ghost user.
+        review.getAuthor() == null ? new User(GHOST_LOGIN) : review.getAuthor(),
+        review.getBody(),
+        review.getCommit() == null ? null : review.getCommit().getOid(),
+        review.getState(),
+        review.getAuthorAssociation());
+  }
+
+  private static boolean hasNextPage(@Nullable PullRequestGatesResponse.PageInfo pageInfo) {
+    return pageInfo != null && pageInfo.hasNextPage();
+  }
+
+  private static <T> List<T> nullToEmpty(@Nullable List<T> list) {
+    return list == null ? ImmutableList.of() : list;
+  }
+
   private ImmutableList<CheckRun> getCheckRunsFromResponse(
       GetFilteredCheckRunsResponse response, String sha) {
     if (response == null
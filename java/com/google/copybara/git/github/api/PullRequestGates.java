@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.git.github.api;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import javax.annotation.Nullable;
+
+/**
+ * The information used to decide if a pull request can be imported (labels, statuses, check runs
+ * and reviews), as read by {@link GitHubGraphQLApi#getPullRequestGates}.
+ *
+ * <p>The getters return null for the information that was not requested, or that was too big to be
+ * read in a single query. In that case callers should use the REST API instead.
+ */
+public final class PullRequestGates {
+
+  /** The information that can be requested. */
+  public enum Gate {
+    LABELS,
+    STATUSES,
+    CHECK_RUNS,
+    REVIEWS
+  }
+
+  private final String headSha;
+  @Nullable private final ImmutableList<String> labels;
+  @Nullable private final ImmutableSet<String> successfulStatusContexts;
+  @Nullable private final ImmutableList<CheckRun> checkRuns;
+  @Nullable private final ImmutableList<Review> reviews;
+
+  public PullRequestGates(
+      String headSha,
+      @Nullable ImmutableList<String> labels,
+      @Nullable ImmutableSet<String> successfulStatusContexts,
+      @Nullable ImmutableList<CheckRun> checkRuns,
+      @Nullable ImmutableList<Review> reviews) {
+    this.headSha = Preconditions.checkNotNull(headSha);
+    this.labels = labels;
+    this.successfulStatusContexts = successfulStatusContexts;
+    this.checkRuns = checkRuns;
+    this.reviews = reviews;
+  }
+
+  /** The SHA of the head of the pull request when the information was read. */
+  public String getHeadSha() {
+    return headSha;
+  }
+
+  /** The names of the labels of the pull request. */
+  @Nullable
+  public ImmutableList<String> getLabels() {
+    return labels;
+  }
+
+  /** The contexts of the statuses of the head commit whose state is success. */
+  @Nullable
+  public ImmutableSet<String> getSuccessfulStatusContexts() {
+    return successfulStatusContexts;
+  }
+
+  /** The check runs of the head commit. */
+  @Nullable
+  public ImmutableList<CheckRun> getCheckRuns() {
+    return checkRuns;
+  }
+
+  /** All the reviews of the pull request. */
+  @Nullable
+  public ImmutableList<Review> getReviews() {
+    return reviews;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("headSha", headSha)
+        .add("labels", labels)
+        .add("successfulStatusContexts", successfulStatusContexts)
+        .add("checkRuns", checkRuns)
+        .add("reviews", reviews)
+        .toString();
+  }
+}
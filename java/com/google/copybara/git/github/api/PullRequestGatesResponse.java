@@ -0,0 +1,266 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.git.github.api;
+
+import com.google.api.client.util.Key;
+import java.util.List;
+import java.util.Map;
+
+/** POJO representing the response from GitHubGraphQLApi getPullRequestGates query. */
+public class PullRequestGatesResponse {
+  @Key private Data data;
+
+  public Data getData() {
+    return data;
+  }
+
+  /** Holds the data objects */
+  public static class Data {
+    @Key private RepositoryNode repository;
+
+    public RepositoryNode getRepository() {
+      return repository;
+    }
+  }
+
+  /** Holds repository data */
+  public static class RepositoryNode {
+    @Key private PullRequestNode pullRequest;
+
+    public PullRequestNode getPullRequest() {
+      return pullRequest;
+    }
+  }
+
+  /** Holds the pull request fields. Only the requested connections are present. */
+  public static class PullRequestNode {
+    @Key private String headRefOid;
+    @Key private Labels labels;
+    @Key private Commits commits;
+    @Key private Reviews reviews;
+
+    public String getHeadRefOid() {
+      return headRefOid;
+    }
+
+    public Labels getLabels() {
+      return labels;
+    }
+
+    public Commits getCommits() {
+      return commits;
+    }
+
+    public Reviews getReviews() {
+      return reviews;
+    }
+  }
+
+  /** Holds pagination information */
+  public static class PageInfo {
+    @Key private boolean hasNextPage;
+    @Key private String endCursor;
+
+    public boolean hasNextPage() {
+      return hasNextPage;
+    }
+
+    public String getEndCursor() {
+      return endCursor;
+    }
+  }
+
+  /** Holds the labels of the pull request */
+  public static class Labels {
+    @Key private List<LabelNode> nodes;
+    @Key private PageInfo pageInfo;
+
+    public List<LabelNode> getNodes() {
+      return nodes;
+    }
+
+    public PageInfo getPageInfo() {
+      return pageInfo;
+    }
+  }
+
+  /** A label of the pull request */
+  public static class LabelNode {
+    @Key private String name;
+
+    public String getName() {
+      return name;
+    }
+  }
+
+  /** Holds the last commit of the pull request */
+  public static class Commits {
+    @Key private List<CommitNode> nodes;
+
+    public List<CommitNode> getNodes() {
+      return nodes;
+    }
+  }
+
+  /** Wrapper of a commit in the commits of the pull request */
+  public static class CommitNode {
+    @Key private CommitDetails commit;
+
+    public CommitDetails getCommit() {
+      return commit;
+    }
+  }
+
+  /** Holds the statuses and check suites of a commit */
+  public static class CommitDetails {
+    @Key private String oid;
+    @Key private StatusDetails status;
+    @Key private CheckSuites checkSuites;
+
+    public String getOid() {
+      return oid;
+    }
+
+    public StatusDetails getStatus() {
+      return status;
+    }
+
+    public CheckSuites getCheckSuites() {
+      return checkSuites;
+    }
+  }
+
+  /** Holds the combined status of a commit */
+  public static class StatusDetails {
+    @Key private List<StatusContext> contexts;
+
+    public List<StatusContext> getContexts() {
+      return contexts;
+    }
+  }
+
+  /** A status of a commit */
+  public static class StatusContext {
+    @Key private String context;
+    @Key private String state;
+
+    public String getContext() {
+      return context;
+    }
+
+    public String getState() {
+      return state;
+    }
+  }
+
+  /** Holds list of check suites */
+  public static class CheckSuites {
+    @Key private List<CheckSuiteNode> nodes;
+    @Key private PageInfo pageInfo;
+
+    public List<CheckSuiteNode> getNodes() {
+      return nodes;
+    }
+
+    public PageInfo getPageInfo() {
+      return pageInfo;
+    }
+  }
+
+  /** Holds the check runs of a check suite */
+  public static class CheckSuiteNode {
+    @Key private CheckRunNodes checkRuns;
+
+    public CheckRunNodes getCheckRuns() {
+      return checkRuns;
+    }
+  }
+
+  /**
+   * Holds the check runs of a check suite, in the format read by {@link
+   * GetFilteredCheckRunsResponse.CheckRunNode}.
+   */
+  public static class CheckRunNodes {
+    @Key private List<Map<String, Object>> nodes;
+    @Key private PageInfo pageInfo;
+
+    public List<Map<String, Object>> getNodes() {
+      return nodes;
+    }
+
+    public PageInfo getPageInfo() {
+      return pageInfo;
+    }
+  }
+
+  /** Holds a page of reviews of the pull request */
+  public static class Reviews {
+    @Key private List<ReviewNode> nodes;
+    @Key private PageInfo pageInfo;
+
+    public List<ReviewNode> getNodes() {
+      return nodes;
+    }
+
+    public PageInfo getPageInfo() {
+      return pageInfo;
+    }
+  }
+
+  /** A review of the pull request */
+  public static class ReviewNode {
+    @Key private Long databaseId;
+    @Key private User author;
+    @Key private String authorAssociation;
+    @Key private String state;
+    @Key private String body;
+    @Key private CommitOid commit;
+
+    public Long getDatabaseId() {
+      return databaseId;
+    }
+
+    public User getAuthor() {
+      return author;
+    }
+
+    public String getAuthorAssociation() {
+      return authorAssociation;
+    }
+
+    public String getState() {
+      return state;
+    }
+
+    public String getBody() {
+      return body;
+    }
+
+    public CommitOid getCommit() {
+      return commit;
+    }
+  }
+
+  /** Commit SHA wrapper. */
+  public static class CommitOid {
+    @Key private String oid;
+
+    public String getOid() {
+      return oid;
+    }
+  }
+}
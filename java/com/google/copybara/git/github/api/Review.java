@@ -45,6 +45,23 @@ public class Review {
   @Key("author_association")
   private String authorAssociation;
 
+  public Review() {}
+
+  public Review(
+      long id,
+      User user,
+      String body,
+      String commitId,
+      String state,
+      String authorAssociation) {
+    this.id = id;
+    this.user = user;
+    this.body = body;
+    this.commitId = commitId;
+    this.state = state;
+    this.authorAssociation = authorAssociation;
+  }
+
   public long getId() {
     return id;
   }
@@ -37,6 +37,12 @@ public class User implements StarlarkValue {
   @Key("site_admin")
   private boolean siteAdmin;
 
+  public User() {}
+
+  User(String login) {
+    this.login = login;
+  }
+
   @StarlarkMethod(name = "login", doc = "Login of the user", structField = true)
   public String getLogin() {
     return login;
@@ -24,6 +24,8 @@ import com.google.common.base.Ticker;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.copybara.git.github.api.AuthorAssociation;
 import com.google.copybara.git.github.api.CheckRun;
 import com.google.copybara.git.github.api.CheckRun.Conclusion;
 import com.google.copybara.git.github.api.CheckRun.Status;
@@ -34,9 +36,12 @@ import com.google.copybara.git.github.api.GitHubApiTransport;
 import com.google.copybara.git.github.api.GitHubApp;
 import com.google.copybara.git.github.api.GitHubGraphQLApi;
 import com.google.copybara.git.github.api.GitHubGraphQLApi.GraphQLRequest;
+import com.google.copybara.git.github.api.PullRequestGates;
+import com.google.copybara.git.github.api.PullRequestGates.Gate;
 import com.google.copybara.profiler.LogProfilerListener;
 import com.google.copybara.profiler.Profiler;
 import com.google.copybara.testing.git.GitTestUtil.JsonValidator;
+import java.util.EnumSet;
 import java.util.Objects;
 import java.util.function.Predicate;
 import org.junit.Before;
@@ -180,4 +185,92 @@ public abstract class AbstractGitHubGraphQLApiTest {
                 null,
                 ImmutableList.of(new CheckRun.PullRequest(1234))));
   }
+
+  @Test
+  public void testGetPullRequestGates() throws Exception {
+    JsonValidator<GraphQLRequest> initialValidator =
+        createValidator(
+            GraphQLRequest.class,
+            (r) -> {
+              if (r.getVariables().get("reviewCursor") != null) {
+                return false;
+              }
+              assertThat(r.getVariables().get("owner")).isEqualTo("google");
+              assertThat(r.getVariables().get("repo")).isEqualTo("copybara");
+              assertThat(((Number) r.getVariables().get("number")).intValue()).isEqualTo(1234);
+              assertThat(r.getVariables().get("labels")).isEqualTo(true);
+              assertThat(r.getVariables().get("checkRuns")).isEqualTo(true);
+              return true;
+            });
+    JsonValidator<GraphQLRequest> reviewsValidator =
+        createValidator(
+            GraphQLRequest.class,
+            (r) -> {
+              if (!Objects.equals(r.getVariables().get("reviewCursor"), "cursor_1")) {
+                return false;
+              }
+              assertThat(r.getVariables().get("reviews")).isEqualTo(true);
+              assertThat(r.getVariables().get("labels")).isEqualTo(false);
+              assertThat(r.getVariables().get("commits")).isEqualTo(false);
+              return true;
+            });
+    trainMockPost(initialValidator, getResource("get_pull_request_gates_testdata.json"));
+    trainMockPost(
+        reviewsValidator, getResource("get_pull_request_gates_reviews_page_two_testdata.json"));
+
+    PullRequestGates gates =
+        api.getPullRequestGates("google", "copybara", 1234, EnumSet.allOf(Gate.class));
+
+    assertThat(gates.getHeadSha()).isEqualTo("123456");
+    assertThat(gates.getLabels()).containsExactly("ready");
+    assertThat(gates.getSuccessfulStatusContexts()).containsExactly("ci/build");
+    assertThat(gates.getCheckRuns())
+        .containsExactly(
+            new CheckRun(
+                "https://ci.example.com/cla",
+                Status.COMPLETED,
+                Conclusion.SUCCESS,
+                "123456",
+                "cla/google",
+                new GitHubApp(1, "github-actions", "GitHub Actions"),
+                null,
+                ImmutableList.of(new CheckRun.PullRequest(1234))));
+    assertThat(Lists.transform(gates.getReviews(), r -> r.getUser().getLogin()))
+        .containsExactly("reviewer1", "reviewer2")
+        .inOrder();
+    assertThat(gates.getReviews().get(0).isApproved()).isTrue();
+    assertThat(gates.getReviews().get(0).getAuthorAssociation())
+        .isEqualTo(AuthorAssociation.MEMBER);
+    assertThat(gates.getReviews().get(1).getCommitId()).isEqualTo("654321");
+  }
+
+  @Test
+  public void testGetPullRequestGatesReviewOfDeletedUserAndCommit() throws Exception {
+    trainMockPost(
+        createValidator(GraphQLRequest.class, r -> true),
+        getResource("get_pull_request_gates_ghost_review_testdata.json"));
+
+    PullRequestGates gates =
+        api.getPullRequestGates("google", "copybara", 1234, EnumSet.of(Gate.REVIEWS));
+
+    assertThat(gates.getReviews()).hasSize(1);
+    assertThat(gates.getReviews().get(0).getUser().getLogin()).isEqualTo("ghost");
+    assertThat(gates.getReviews().get(0).getCommitId()).isNull();
+    assertThat(gates.getReviews().get(0).isApproved()).isTrue();
+  }
+
+  @Test
+  public void testGetPullRequestGatesOnlyRequested() throws Exception {
+    trainMockPost(
+        createValidator(GraphQLRequest.class, r -> true),
+        getResource("get_pull_request_gates_testdata.json"));
+
+    PullRequestGates gates =
+        api.getPullRequestGates("google", "copybara", 1234, EnumSet.of(Gate.LABELS));
+
+    assertThat(gates.getLabels()).containsExactly("ready");
+    assertThat(gates.getSuccessfulStatusContexts()).isNull();
+    assertThat(gates.getCheckRuns()).isNull();
+    assertThat(gates.getReviews()).isNull();
+  }
 }
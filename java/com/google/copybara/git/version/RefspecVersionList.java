@@ -26,6 +26,7 @@ import com.google.copybara.exception.ValidationException;
 import com.google.copybara.git.GitRepository;
 import com.google.copybara.git.Refspec;
 import com.google.copybara.version.VersionList;
+import com.google.copybara.version.VersionListCache;
 
 /**
  *  A {@link VersionList} that uses a git ls-remote to list versions from a remote Git repository.
@@ -35,20 +36,31 @@ public class RefspecVersionList implements VersionList {
   private final GitRepository repo;
   private final ImmutableCollection<Refspec> refspecs;
   private final String url;
+  private final VersionListCache cache;
 
   public RefspecVersionList(GitRepository repo, ImmutableCollection<Refspec> refspecs, String url) {
+    this(repo, refspecs, url, VersionListCache.DISABLED);
+  }
+
+  public RefspecVersionList(
+      GitRepository repo,
+      ImmutableCollection<Refspec> refspecs,
+      String url,
+      VersionListCache cache) {
     this.repo = repo;
     this.refspecs = refspecs;
     this.url = url;
+    this.cache = cache;
   }
 
   @Override
   public ImmutableSet<String> list() throws ValidationException, RepoException {
-    return ImmutableSet.copyOf(
-        repo.lsRemote(
-            url,
-            ImmutableList.copyOf(
-                refspecs.stream().map(Refspec::getOrigin).collect(toImmutableSet()))).keySet());
+    ImmutableList<String> origins =
+        ImmutableList.copyOf(
+            refspecs.stream().map(Refspec::getOrigin).collect(toImmutableSet()));
+    return cache.get(
+        "git ls-remote " + url + " " + String.join(" ", origins),
+        () -> ImmutableSet.copyOf(repo.lsRemote(url, origins).keySet()));
   }
 
   /** A {@link RefspecVersionList} for listing git tags */
@@ -140,22 +140,31 @@ public class GoProxyVersionList implements VersionList, StarlarkValue, LabelsAwa
         // "Version":..., "Origin": ...}.
         // if in the future, we want to capture or read "Origin" info, consider created a new GSON
         // representation instead of the reuse of GoVersionObject we see here
-        GoVersionObject versionObject = getVersionObject(dotInfoURL);
-        return ImmutableSet.of(versionObject.getVersion());
+        return remoteFileOptions
+            .getVersionListCache()
+            .get(
+                dotInfoURL.get(),
+                () -> ImmutableSet.of(getVersionObject(dotInfoURL).getVersion()));
       }
 
-      String versionListResponseString = executeHTTPQuery(listVersionsURL.get());
-      if (!Strings.isNullOrEmpty(versionListResponseString)) {
-        return ImmutableSet.copyOf(versionListResponseString.split("\n"));
-      }
-      // try the back up endpoint.
-      GoVersionObject versionObject = getVersionObject(latestVersionURL);
-      return ImmutableSet.of(versionObject.getVersion());
+      return remoteFileOptions
+          .getVersionListCache()
+          .get(listVersionsURL.get(), this::listVersions);
     } catch (RepoException e) {
       throw new ValidationException("Failed to obtain go proxy version list", e);
     }
   }
 
+  private ImmutableSet<String> listVersions() throws RepoException {
+    String versionListResponseString = executeHTTPQuery(listVersionsURL.get());
+    if (!Strings.isNullOrEmpty(versionListResponseString)) {
+      return ImmutableSet.copyOf(versionListResponseString.split("\n"));
+    }
+    // try the back up endpoint.
+    GoVersionObject versionObject = getVersionObject(latestVersionURL);
+    return ImmutableSet.of(versionObject.getVersion());
+  }
+
   private GoVersionObject getVersionObject(Optional<String> dotInfoURL) throws RepoException {
     return executeHTTPQuery(dotInfoURL.get(), GoVersionObject.class);
   }
@@ -21,7 +21,9 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import com.google.copybara.ChangeMessage;
 import com.google.copybara.authoring.Author;
 import com.google.copybara.authoring.AuthorParser;
@@ -135,8 +137,11 @@ class ChangeReader {
   private ImmutableList<Change<HgRevision>> parseChanges(ImmutableList<HgLogEntry> logEntries)
       throws RepoException {
     ImmutableList.Builder<Change<HgRevision>> result = ImmutableList.builder();
+    ImmutableList<ImmutableListMultimap<String, String>> messageLabels =
+        ChangeMessage.labelsOfAll(Lists.transform(logEntries, HgLogEntry::getDescription));
 
-    for (HgLogEntry entry : logEntries) {
+    for (int i = 0; i < logEntries.size(); i++) {
+      HgLogEntry entry = logEntries.get(i);
       HgRevision rev = new HgRevision(entry.getGlobalId());
       if (NULL_GLOBAL_ID.equals(rev.getGlobalId())) {
         continue;
@@ -161,7 +166,7 @@ class ChangeReader {
           user,
           entry.getDescription(),
           entry.getZonedDate(),
-          ChangeMessage.parseAllAsLabels(entry.getDescription()).labelsAsMultimap(),
+          messageLabels.get(i),
           ImmutableSet.copyOf(entry.getFiles()),
           parents.size() > 1,
           parents));
@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.hg;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.flogger.FluentLogger;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.copybara.exception.RepoException;
+import com.google.copybara.util.CommandOutput;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
+
+/**
+ * A persistent {@code hg serve --cmdserver pipe} process for a repository, so that hg commands
+ * don't pay the startup cost of the Python interpreter.
+ *
+ * <p>The server is started on the first command and restarted on the next command if it dies or
+ * the protocol fails. If the server cannot be started at all, for example because the hg binary
+ * doesn't support the command server, it is disabled and {@link #run} always fails with an {@link
+ * IOException}, so that callers fall back to running a new hg process per command. Once a command
+ * has been sent, a failure is a {@link RepoException}: the command might have run, so it must not
+ * be retried.
+ *
+ * <p>Messages from the server are framed as a one byte channel, a four byte big-endian length and
+ * the data. See https://www.mercurial-scm.org/wiki/CommandServer.
+ */
+public class HgCommandServer implements Closeable {
+
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  private static final ScheduledExecutorService TIMEOUTS =
+      Executors.newSingleThreadScheduledExecutor(
+          new ThreadFactoryBuilder()
+              .setNameFormat("hg command server timeout")
+              .setDaemon(true)
+              .build());
+
+  /** Starts the server process for a repository. */
+  @VisibleForTesting
+  interface ProcessStarter {
+    Process start(Path repoDir) throws IOException;
+  }
+
+  /** The exit code and output of a command run by the server. */
+  public record Result(int exitCode, CommandOutput output) {}
+
+  private final Path repoDir;
+  private final boolean verbose;
+  private final ProcessStarter starter;
+
+  @Nullable private Process process;
+  @Nullable private DataInputStream in;
+  @Nullable private DataOutputStream out;
+  private boolean disabled;
+
+  public HgCommandServer(Path repoDir, boolean verbose) {
+    this(repoDir, verbose, HgCommandServer::startProcess);
+  }
+
+  @VisibleForTesting
+  HgCommandServer(Path repoDir, boolean verbose, ProcessStarter starter) {
+    this.repoDir = Preconditions.checkNotNull(repoDir);
+    this.verbose = verbose;
+    this.starter = Preconditions.checkNotNull(starter);
+  }
+
+  private static Process startProcess(Path repoDir) throws IOException {
+    ProcessBuilder builder =
+        new ProcessBuilder("hg", "serve", "--cmdserver", "pipe")
+            .directory(repoDir.toFile())
+            .redirectError(ProcessBuilder.Redirect.DISCARD);
+    builder.environment().put("HGENCODING", "UTF-8");
+    return builder.start();
+  }
+
+  /**
+   * Runs {@code hg <args>} in the server.
+   *
+   * @throws IOException if the server cannot be started. The command was not run.
+   * @throws RepoException if the server fails while running the command or the command doesn't
+   *     finish in {@code timeout}. The server is restarted on the next command.
+   */
+  public synchronized Result run(Iterable<String> args, Duration timeout)
+      throws IOException, RepoException {
+    if (disabled) {
+      throw new IOException("The hg command server is disabled for " + repoDir);
+    }
+    if (process == null || !process.isAlive()) {
+      stop();
+      connect();
+    }
+    if (verbose) {
+      logger.atInfo().log("Executing [hg %s] in the command server", Joiner.on(' ').join(args));
+    }
+    Process current = process;
+    AtomicBoolean timedOut = new AtomicBoolean();
+    ScheduledFuture<?> killer =
+        TIMEOUTS.schedule(
+            () -> {
+              timedOut.set(true);
+              current.destroyForcibly();
+            },
+            timeout.toMillis(),
+            TimeUnit.MILLISECONDS);
+    try {
+      return runCommand(args);
+    } catch (IOException e) {
+      stop();
+      if (timedOut.get()) {
+        throw new RepoException(
+            String.format("hg command timed out after %s: %s", timeout, args), e);
+      }
+      throw new RepoException(
+          String.format("The hg command server failed running %s: %s", args, e.getMessage()), e);
+    } finally {
+      killer.cancel(/* mayInterruptIfRunning= */ false);
+    }
+  }
+
+  private Result runCommand(Iterable<String> args) throws IOException {
+    byte[] request = Joiner.on('\0').join(args).getBytes(UTF_8);
+    out.write("runcommand\n".getBytes(UTF_8));
+    out.writeInt(request.length);
+    out.write(request);
+    out.flush();
+
+    ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+    ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+    while (true) {
+      int channel = in.read();
+      if (channel == -1) {
+        throw new EOFException("The hg command server exited");
+      }
+      int length = in.readInt();
+      switch (channel) {
+        case 'o' -> stdout.write(readData(length));
+        case 'e' -> stderr.write(readData(length));
+        case 'r' -> {
+          if (length != 4) {
+            throw new IOException("Unexpected result length: " + length);
+          }
+          return new Result(
+              in.readInt(), new CommandOutput(stdout.toByteArray(), stderr.toByteArray()));
+        }
+        case 'I', 'L' -> {
+          // The command requests input. We never provide any.
+          out.writeInt(0);
+          out.flush();
+        }
+        default -> {
+          // Lowercase channels are optional and can be ignored.
+          if (Character.isUpperCase(channel)) {
+            throw new IOException("Unsupported hg command server channel: " + (char) channel);
+          }
+          readData(length);
+        }
+      }
+    }
+  }
+
+  private byte[] readData(int length) throws IOException {
+    if (length < 0) {
+      throw new IOException("Invalid hg command server message length: " + length);
+    }
+    byte[] data = new byte[length];
+    in.readFully(data);
+    return data;
+  }
+
+  /** Starts the server and reads its hello message. */
+  private void connect() throws IOException {
+    try {
+      process = starter.start(repoDir);
+      in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+      out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+      if (in.read() != 'o') {
+        throw new IOException("Unexpected hello message from the hg command server");
+      }
+      String hello = new String(readData(in.readInt()), UTF_8);
+      boolean runCommand = false;
+      for (String line : Splitter.on('\n').split(hello)) {
+        if (line.startsWith("capabilities:")) {
+          runCommand = Splitter.on(' ').splitToList(line).contains("runcommand");
+        } else if (line.startsWith("encoding:") && !line.endsWith(" UTF-8")) {
+          throw new IOException("Unsupported hg command server encoding: " + line);
+        }
+      }
+      if (!runCommand) {
+        throw new IOException("The hg command server doesn't support runcommand: " + hello);
+      }
+    } catch (IOException e) {
+      stop();
+      disabled = true;
+      logger.atWarning().withCause(e).log(
+          "Cannot start the hg command server for %s. Falling back to an hg process per command",
+          repoDir);
+      throw e;
+    }
+  }
+
+  private void stop() {
+    if (process != null) {
+      process.destroy();
+    }
+    process = null;
+    in = null;
+    out = null;
+  }
+
+  @Override
+  public synchronized void close() {
+    stop();
+  }
+}
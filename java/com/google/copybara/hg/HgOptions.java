@@ -18,6 +18,7 @@ package com.google.copybara.hg;
 
 import static com.google.copybara.util.FileUtil.resolveDirInCache;
 
+import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
 import com.google.common.base.Preconditions;
 import com.google.copybara.GeneralOptions;
@@ -26,6 +27,8 @@ import com.google.copybara.exception.RepoException;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Common arguments for Hg components
@@ -43,6 +46,17 @@ public class HgOptions implements Option {
    */
   int visitChangeDepth = 200;
 
+  @Parameter(
+      names = "--hg-command-server",
+      description =
+          "Run the hg commands of each cached repository in a persistent 'hg serve --cmdserver'"
+              + " process instead of starting a new hg process for each command. Falls back to"
+              + " a process per command if the server cannot be used.")
+  public boolean useCommandServer = false;
+
+  // One server per repository, shared by all the HgRepository instances for it.
+  private final Map<Path, HgCommandServer> commandServers = new ConcurrentHashMap<>();
+
   public HgOptions(GeneralOptions generalOptions) {
     this.generalOptions = Preconditions.checkNotNull(generalOptions);
   }
@@ -67,7 +81,14 @@ public class HgOptions implements Option {
     Path hgDir = repoPath.resolve(HGDIR_PATH);
 
     HgRepository repo =
-        new HgRepository(hgDir, generalOptions.isVerbose(), generalOptions.repoTimeout);
+        new HgRepository(
+            hgDir,
+            generalOptions.isVerbose(),
+            generalOptions.repoTimeout,
+            useCommandServer
+                ? commandServers.computeIfAbsent(
+                    hgDir, dir -> new HgCommandServer(dir, generalOptions.isVerbose()))
+                : null);
     if (Files.notExists(hgDir)) {
       repo.init();
     }
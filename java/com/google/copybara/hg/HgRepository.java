@@ -25,6 +25,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import com.google.common.flogger.FluentLogger;
 import com.google.common.reflect.TypeToken;
 import com.google.copybara.exception.CannotResolveRevisionException;
 import com.google.copybara.exception.RepoException;
@@ -58,6 +59,8 @@ import javax.annotation.Nullable;
  */
 public class HgRepository {
 
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
   /**
    * Label to mark the original revision id (Hg SHA-1) for migrated commits.
    */
@@ -78,11 +81,22 @@ public class HgRepository {
   private final Path hgDir;
   private final boolean verbose;
   private final Duration repoTimeout;
+  @Nullable private final HgCommandServer commandServer;
 
   public HgRepository(Path hgDir, boolean verbose, Duration repoTimeout) {
+    this(hgDir, verbose, repoTimeout, /* commandServer= */ null);
+  }
+
+  /**
+   * Creates a repository that runs the commands in {@code hgDir} with {@code commandServer}, if
+   * not null, instead of starting a new hg process for each command.
+   */
+  public HgRepository(
+      Path hgDir, boolean verbose, Duration repoTimeout, @Nullable HgCommandServer commandServer) {
     this.hgDir = checkNotNull(hgDir);
     this.verbose = verbose;
     this.repoTimeout = checkNotNull(repoTimeout);
+    this.commandServer = commandServer;
   }
 
   /**
@@ -222,6 +236,22 @@ public class HgRepository {
 
   private CommandOutput hg(Path cwd, Iterable<String> params, Duration timeout)
       throws RepoException {
+    // The server runs in the repository, so commands that run elsewhere, or that create the
+    // repository, use a new process.
+    if (commandServer != null && cwd.equals(hgDir) && Files.isDirectory(hgDir.resolve(".hg"))) {
+      try {
+        HgCommandServer.Result result = commandServer.run(params, timeout);
+        if (result.exitCode() != 0) {
+          throw new RepoException(
+              String.format("Error executing hg: %s", result.output().getStderr()));
+        }
+        return result.output();
+      } catch (IOException e) {
+        // The server couldn't be started, so the command didn't run.
+        logger.atWarning().withCause(e).log(
+            "hg command server unavailable, running %s in a new process", params);
+      }
+    }
     try {
       return executeHg(cwd, params, -1, timeout);
     } catch (BadExitStatusWithOutputException e) {
@@ -73,5 +73,6 @@ public class HttpEndpointResponse implements StarlarkValue {
       })
   public void download(CheckoutPath path) throws IOException {
     response.download(Files.newOutputStream(path.fullPath()));
+    path.notifyUntrackedChange();
   }
 }
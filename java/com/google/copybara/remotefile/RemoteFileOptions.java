@@ -19,16 +19,29 @@ package com.google.copybara.remotefile;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
 import com.google.common.base.Suppliers;
+import com.google.copybara.GeneralOptions;
 import com.google.copybara.Option;
 import com.google.copybara.exception.ValidationException;
 import com.google.copybara.jcommander.DurationConverter;
+import com.google.copybara.version.VersionListCache;
 import java.time.Duration;
 import java.util.function.Supplier;
+import javax.annotation.Nullable;
 
 /** Options for loading files from a source other than the origin. Use with caution. */
 @Parameters(separators = "=")
 public class RemoteFileOptions implements Option {
 
+  @Nullable private final GeneralOptions generalOptions;
+
+  public RemoteFileOptions() {
+    this(/* generalOptions= */ null);
+  }
+
+  public RemoteFileOptions(@Nullable GeneralOptions generalOptions) {
+    this.generalOptions = generalOptions;
+  }
+
   @Parameter(
       names = "--remote-http-files-connection-timeout",
       description = "Timeout for the fetch operation, e.g. 30s.",
@@ -42,4 +55,11 @@ public class RemoteFileOptions implements Option {
     return transport.get();
   }
 
+  /** Returns the cache for the versions listed from package registries. */
+  public VersionListCache getVersionListCache() {
+    return generalOptions == null
+        ? VersionListCache.DISABLED
+        : generalOptions.getVersionListCache();
+  }
+
 }
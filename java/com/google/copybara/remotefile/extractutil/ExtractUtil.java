@@ -77,7 +77,9 @@ public final class ExtractUtil {
       case TAR:
         return new TarArchiveInputStream(inputStream);
       case TAR_GZ:
-        return new TarArchiveInputStream(new GzipCompressorInputStream(inputStream));
+        // Archives can be made of several gzip members (e.g. created by pigz or ArchiveUtil).
+        return new TarArchiveInputStream(
+            new GzipCompressorInputStream(inputStream, /* decompressConcatenated= */ true));
       case TAR_XZ:
         return new TarArchiveInputStream(new XZCompressorInputStream(inputStream));
       case TAR_BZ2:
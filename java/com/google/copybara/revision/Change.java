@@ -26,6 +26,8 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
 import com.google.copybara.authoring.Author;
+import com.google.copybara.revision.MessageStore.StoredMessage;
+import java.io.IOException;
 import java.time.ZonedDateTime;
 import java.util.Objects;
 import java.util.Set;
@@ -56,6 +58,13 @@ public final class Change<R extends Revision> extends OriginRef implements Starl
   @Nullable
   private final ImmutableSet<String> changeFiles;
 
+  // If not null, 'message' is only the first line and the full message is in a MessageStore
+  @Nullable private final StoredMessage storedMessage;
+
+  // Computed on first use. Transformations look up labels of the same changes many times.
+  @Nullable private Dict<String, String> labelsForSkylark;
+  @Nullable private Dict<String, Sequence<String>> labelsAllForSkylark;
+
   public Change(R revision, Author author, String message, ZonedDateTime dateTime,
       ImmutableListMultimap<String, String> labels) {
     this(revision, author, message, dateTime, labels, /*changeFiles=*/null);
@@ -70,6 +79,14 @@ public final class Change<R extends Revision> extends OriginRef implements Starl
   public Change(R revision, Author author, String message, ZonedDateTime dateTime,
       ImmutableListMultimap<String, String> labels, @Nullable Set<String> changeFiles,
       boolean merge, @Nullable ImmutableList<R> parents) {
+    this(revision, author, message, dateTime, labels, changeFiles, merge, parents,
+        /*storedMessage=*/ null);
+  }
+
+  private Change(R revision, Author author, String message, ZonedDateTime dateTime,
+      ImmutableListMultimap<String, String> labels, @Nullable Set<String> changeFiles,
+      boolean merge, @Nullable ImmutableList<R> parents,
+      @Nullable StoredMessage storedMessage) {
     super(revision.asString());
     this.revision = Preconditions.checkNotNull(revision);
     this.author = Preconditions.checkNotNull(author);
@@ -79,6 +96,7 @@ public final class Change<R extends Revision> extends OriginRef implements Starl
     this.changeFiles = changeFiles == null ? null : ImmutableSet.copyOf(changeFiles);
     this.merge = merge;
     this.parents = parents;
+    this.storedMessage = storedMessage;
   }
 
   /**
@@ -117,7 +135,7 @@ public final class Change<R extends Revision> extends OriginRef implements Starl
 
   @StarlarkMethod(name = "message", doc = "The message of the change", structField = true)
   public String getMessage() {
-    return message;
+    return storedMessage == null ? message : storedMessage.read();
   }
 
   @StarlarkMethod(
@@ -128,7 +146,11 @@ public final class Change<R extends Revision> extends OriginRef implements Starl
               + " include things that are not labels.",
       structField = true)
   public Dict<String, String> getLabelsForSkylark() {
-    return Dict.immutableCopyOf(Maps.transformValues(labels.asMap(), Iterables::getLast));
+    if (labelsForSkylark == null) {
+      labelsForSkylark =
+          Dict.immutableCopyOf(Maps.transformValues(labels.asMap(), Iterables::getLast));
+    }
+    return labelsForSkylark;
   }
 
   @StarlarkMethod(
@@ -140,8 +162,12 @@ public final class Change<R extends Revision> extends OriginRef implements Starl
               + " it could include things that are not labels.",
       structField = true)
   public Dict<String, Sequence<String>> getLabelsAllForSkylark() {
-    return Dict.immutableCopyOf(
-        Maps.transformValues(labels.asMap(), StarlarkList::immutableCopyOf));
+    if (labelsAllForSkylark == null) {
+      labelsAllForSkylark =
+          Dict.immutableCopyOf(
+              Maps.transformValues(labels.asMap(), StarlarkList::immutableCopyOf));
+    }
+    return labelsAllForSkylark;
   }
 
   /**
@@ -209,12 +235,33 @@ public final class Change<R extends Revision> extends OriginRef implements Starl
 
   public Change<R> withLabels(ImmutableListMultimap<String, String> newLabels) {
     return new Change<>(revision, author, message, dateTime,
-        Revision.addNewLabels(labels, newLabels), changeFiles, merge, parents);
+        Revision.addNewLabels(labels, newLabels), changeFiles, merge, parents, storedMessage);
   }
 
   public Change<R> withChangeFiles(ImmutableSet<String> newChangeFiles) {
     return new Change<>(
-        revision, author, message, dateTime, labels, newChangeFiles, merge, parents);
+        revision, author, message, dateTime, labels, newChangeFiles, merge, parents,
+        storedMessage);
+  }
+
+  /**
+   * Returns a copy of the change that only keeps the first line of the message in memory and
+   * writes the full message to {@code store}. Returns the change itself if it is already compact.
+   */
+  public Change<R> compact(MessageStore store) throws IOException {
+    if (isCompact()) {
+      return this;
+    }
+    Change<R> result =
+        new Change<>(revision, author, firstLineMessage(), dateTime, labels,
+            changeFiles, merge, parents, store.add(message));
+    result.mappedAuthor = mappedAuthor;
+    return result;
+  }
+
+  /** Returns true if the full message of the change is kept in a {@link MessageStore}. */
+  public boolean isCompact() {
+    return storedMessage != null;
   }
 
   @Override
@@ -228,13 +275,13 @@ public final class Change<R extends Revision> extends OriginRef implements Starl
     Change<?> change = (Change<?>) o;
     return Objects.equals(revision, change.revision)
         && Objects.equals(author, change.author)
-        && Objects.equals(message, change.message)
+        && Objects.equals(getMessage(), change.getMessage())
         && Objects.equals(dateTime, change.dateTime)
         && Objects.equals(labels, change.labels);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(revision, author, message, dateTime, labels);
+    return Objects.hash(revision, author, getMessage(), dateTime, labels);
   }
 }
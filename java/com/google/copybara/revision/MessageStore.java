@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.revision;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import javax.annotation.Nullable;
+
+/**
+ * Append-only store for change messages, backed by memory-mapped files, so that long lists of
+ * changes don't keep their messages in the heap.
+ *
+ * <p>Messages are written to segment files with regular file writes, so running out of disk space
+ * fails the write with an {@link IOException}. They are read through a read-only mapping of the
+ * segment, only from the part of it already written, so reading a stored message cannot fail with
+ * an I/O error and can be done from getters. The files live in a directory owned by the store,
+ * usually a temporary directory of the migration.
+ */
+public final class MessageStore implements Closeable {
+
+  private static final int DEFAULT_SEGMENT_SIZE = 256 * 1024 * 1024;
+
+  /** A message written to the store. */
+  public static final class StoredMessage {
+    private final ByteBuffer segment;
+    private final int offset;
+    private final int length;
+
+    private StoredMessage(ByteBuffer segment, int offset, int length) {
+      this.segment = segment;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    /** Reads the message from the store. */
+    public String read() {
+      byte[] bytes = new byte[length];
+      // Absolute reads don't modify the buffer, so concurrent reads are safe.
+      segment.get(offset, bytes);
+      return new String(bytes, UTF_8);
+    }
+  }
+
+  private final Path dir;
+  private final int segmentSize;
+  // The segment being written and its mapping.
+  @Nullable private FileChannel channel;
+  @Nullable private ByteBuffer segment;
+  private int position;
+  private int segments;
+
+  public MessageStore(Path dir) {
+    this(dir, DEFAULT_SEGMENT_SIZE);
+  }
+
+  @VisibleForTesting
+  MessageStore(Path dir, int segmentSize) {
+    Preconditions.checkArgument(segmentSize > 0);
+    this.dir = Preconditions.checkNotNull(dir);
+    this.segmentSize = segmentSize;
+  }
+
+  /** Writes {@code message} to the store. */
+  public synchronized StoredMessage add(String message) throws IOException {
+    byte[] bytes = message.getBytes(UTF_8);
+    if (channel == null || segment.capacity() - position < bytes.length) {
+      // Messages bigger than a segment get a segment of their own.
+      newSegment(Math.max(segmentSize, bytes.length));
+    }
+    int offset = position;
+    ByteBuffer src = ByteBuffer.wrap(bytes);
+    while (src.hasRemaining()) {
+      channel.write(src, offset + src.position());
+    }
+    position += bytes.length;
+    return new StoredMessage(segment, offset, bytes.length);
+  }
+
+  /**
+   * Closes the segment file being written. Stored messages can still be read, and messages added
+   * later are written to a new segment.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (channel != null) {
+      channel.close();
+      channel = null;
+    }
+  }
+
+  private void newSegment(int size) throws IOException {
+    close();
+    Files.createDirectories(dir);
+    Path file = dir.resolve("messages-" + segments++);
+    channel =
+        FileChannel.open(
+            file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    position = 0;
+    // Mapping extends the file without allocating disk space for it. The mapping stays valid
+    // after closing the channel and shows the data written later through the channel.
+    segment = channel.map(MapMode.READ_ONLY, 0, size);
+  }
+}
@@ -74,6 +74,16 @@ public final class RustCratesIoVersionList implements VersionList, StarlarkValue
 
   @Override
   public ImmutableSet<String> list() throws RepoException, ValidationException {
+    return remoteFileOptions
+        .getVersionListCache()
+        .get(
+            String.format(
+                "%s?pre_release=%s&ignore_yanked=%s",
+                getIndexUrl(), matchPreReleaseVersions, ignoreYankedVersions),
+            this::listVersions);
+  }
+
+  private ImmutableSet<String> listVersions() throws RepoException, ValidationException {
     try {
       return getVersionList().stream()
           .filter(this::maybeFilterYankedVersions)
@@ -107,7 +117,7 @@ public final class RustCratesIoVersionList implements VersionList, StarlarkValue
     return !ignoreYankedVersions || !versionObj.isYanked();
   }
 
-  ImmutableSet<RustRegistryVersionObject> getVersionList() throws RepoException {
+  private String getIndexUrl() {
     String url = CRATES_IO_INDEX_URL;
 
     int nameLength = crateName.length();
@@ -127,7 +137,11 @@ public final class RustCratesIoVersionList implements VersionList, StarlarkValue
               "/%s/%s/%s",
               indexCrateName.substring(0, 2), indexCrateName.substring(2, 4), indexCrateName);
     }
+    return url;
+  }
 
+  ImmutableSet<RustRegistryVersionObject> getVersionList() throws RepoException {
+    String url = getIndexUrl();
     BufferedReader reader = new BufferedReader(new StringReader(executeHTTPQuery(url)));
     ImmutableSet.Builder<RustRegistryVersionObject> versionList = ImmutableSet.builder();
     String jsonString;
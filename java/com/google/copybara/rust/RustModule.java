@@ -381,6 +381,7 @@ public class RustModule implements StarlarkValue {
     String fuzzersDirectory = gitCratePath.relativize(tmpDir.resolve(fullGitFuzzersDir)).toString();
     FileUtil.copyFilesRecursively(
         gitCratePath, checkoutCratePath, CopySymlinkStrategy.IGNORE_INVALID_SYMLINKS);
+    ctx.getTreeState().clearCache();
 
     // We return the location of the fuzzers
     return ctx.newPath(
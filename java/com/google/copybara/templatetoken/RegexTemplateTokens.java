@@ -31,6 +31,9 @@ import com.google.common.collect.Sets;
 import com.google.copybara.templatetoken.Token.TokenType;
 import com.google.re2j.Matcher;
 import com.google.re2j.Pattern;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
@@ -169,6 +172,44 @@ public final class RegexTemplateTokens {
       return Joiner.on('\n').join(newRanges);
     }
 
+    /**
+     * Like {@link #replace(String)}, but reads the content from {@code in} and writes the result to
+     * {@code out} one line at a time, so that only a line is kept in memory. Multiline replacers
+     * need the whole content and cannot be used.
+     *
+     * @return whether any line changed
+     */
+    public boolean replace(Reader in, Writer out) throws IOException {
+      Preconditions.checkState(!multiline, "Multiline replaces cannot be done line by line");
+      char[] buffer = new char[8192];
+      StringBuilder line = new StringBuilder();
+      boolean changed = false;
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        int start = 0;
+        for (int i = 0; i < read; i++) {
+          if (buffer[i] == '\n') {
+            line.append(buffer, start, i - start);
+            changed |= writeLine(line, out);
+            out.write('\n');
+            line.setLength(0);
+            start = i + 1;
+          }
+        }
+        line.append(buffer, start, read - start);
+      }
+      // Like Splitter, the text after the last new line is a line too, even if empty.
+      changed |= writeLine(line, out);
+      return changed;
+    }
+
+    private boolean writeLine(StringBuilder line, Writer out) throws IOException {
+      String original = line.toString();
+      String replaced = replaceLine(original);
+      out.write(replaced);
+      return !original.equals(replaced);
+    }
+
     private String replaceLine(String line) {
       if (patternsToIgnore != null) {
         for (Pattern patternToIgnore : patternsToIgnore) {
@@ -224,6 +265,10 @@ public final class RegexTemplateTokens {
     public boolean isFirstOnly() {
       return firstOnly;
     }
+
+    public boolean isMultiline() {
+      return multiline;
+    }
   }
 
   /**
@@ -55,6 +55,7 @@ import com.google.copybara.transform.debug.DebugOptions;
 import com.google.copybara.transform.patch.PatchingOptions;
 import com.google.copybara.util.console.Console;
 import com.google.copybara.util.console.testing.TestingConsole;
+import com.google.copybara.watch.WatchOptions;
 import java.io.IOException;
 import java.nio.file.FileSystems;
 import java.util.HashMap;
@@ -87,12 +88,13 @@ public class OptionsBuilder {
   public GitDestinationOptions gitDestination = new GitDestinationOptions(general, git);
   public PatchingOptions patch = new PatchingOptions(general);
   public DebugOptions debug = new DebugOptions(general);
-  public RemoteFileOptions remoteFile = new RemoteFileOptions();
+  public RemoteFileOptions remoteFile = new RemoteFileOptions(general);
   public BuildifierOptions buildifier = new BuildifierOptions();
   public GeneratorOptions generator = new GeneratorOptions();
   public CredentialOptions credentialOptions = new CredentialOptions();
 
   public String buildozerBin = null;
+  public int buildozerShards = 1;
 
   public GitHubOptions github =
       new GitHubOptions(general, git) {
@@ -129,6 +131,7 @@ public class OptionsBuilder {
   public TestingOptions testingOptions = new TestingOptions();
 
   public RegenerateOptions regenerateOptions = new RegenerateOptions();
+  public WatchOptions watchOptions = new WatchOptions();
 
   public final OptionsBuilder setWorkdirToRealTempDir() {
     return setWorkdirToRealTempDir(StandardSystemProperty.USER_DIR.value());
@@ -194,6 +197,7 @@ public class OptionsBuilder {
     if (buildozerBin != null) {
       buildozer.buildozerBin = buildozerBin;
     }
+    buildozer.shards = buildozerShards;
     return ImmutableList.of(
         general,
         folderDestination,
@@ -219,6 +223,7 @@ public class OptionsBuilder {
         generator,
         http,
         regenerateOptions,
+        watchOptions,
         credentialOptions);
   }
 
@@ -0,0 +1,391 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.transform;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.copybara.templatetoken.RegexTemplateTokens;
+import com.google.copybara.templatetoken.Token;
+import com.google.copybara.templatetoken.Token.TokenType;
+import com.google.re2j.Pattern;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Optional;
+import javax.annotation.Nullable;
+
+/**
+ * Cheap check, on the raw bytes of a file, of whether a pattern could match it. It looks for the
+ * literal strings that any match must contain, so that the files without them can be skipped
+ * without decoding them or running the regex.
+ *
+ * <p>All the literals are searched in a single pass with an Aho-Corasick automaton over the UTF-8
+ * bytes.
+ */
+final class LiteralPrefilter {
+
+  /** A prefilter that considers that every file might match. */
+  static final LiteralPrefilter NONE = new LiteralPrefilter(ImmutableList.of());
+
+  // A prefix of a required literal is required too. Searching for a prefix keeps the automaton
+  // small, at the cost of some false positives.
+  private static final int MAX_LITERAL_BYTES = 32;
+  private static final int MAX_LITERALS = 64;
+
+  private final ImmutableList<byte[]> literals;
+  // Lazily built, since most transformations are never run.
+  @Nullable private volatile Automaton automaton;
+
+  private LiteralPrefilter(ImmutableList<byte[]> literals) {
+    this.literals = literals;
+  }
+
+  /** Returns a prefilter for files that contain at least one of {@code literals}. */
+  static LiteralPrefilter anyOf(Collection<String> literals) {
+    if (literals.isEmpty() || literals.size() > MAX_LITERALS) {
+      return NONE;
+    }
+    ImmutableSet.Builder<String> needles = ImmutableSet.builder();
+    for (String literal : literals) {
+      // The empty string is always present. Literals that don't round-trip through UTF-8 could
+      // match the replacement characters of a malformed file.
+      if (literal.isEmpty()
+          || !new String(literal.getBytes(UTF_8), UTF_8).equals(literal)
+          || literal.indexOf('\uFFFD') != -1) {
+        return NONE;
+      }
+      needles.add(literal);
+    }
+    return new LiteralPrefilter(
+        needles.build().stream()
+            .map(s -> s.getBytes(UTF_8))
+            .map(b -> Arrays.copyOf(b, Math.min(b.length, MAX_LITERAL_BYTES)))
+            .collect(ImmutableList.toImmutableList()));
+  }
+
+  /** Returns a prefilter for the text that the "before" of a replace can match. */
+  static LiteralPrefilter forTemplate(RegexTemplateTokens template) {
+    return template.getTokens().stream()
+        .filter(t -> t.getType() == TokenType.LITERAL)
+        .map(Token::getValue)
+        .max(Comparator.comparingInt(String::length))
+        .map(literal -> anyOf(ImmutableList.of(literal)))
+        .orElse(NONE);
+  }
+
+  /** Returns a prefilter for the text that {@code pattern} can match. */
+  static LiteralPrefilter forRegex(Pattern pattern) {
+    if ((pattern.flags() & Pattern.CASE_INSENSITIVE) != 0) {
+      return NONE;
+    }
+    return requiredLiteral(pattern.pattern())
+        .map(literal -> anyOf(ImmutableList.of(literal)))
+        .orElse(NONE);
+  }
+
+  /** Returns false if no match is possible in {@code content}. */
+  boolean mightMatch(byte[] content) {
+    if (literals.isEmpty()) {
+      return true;
+    }
+    return automaton().matches(content);
+  }
+
+  /** Returns false if no match is possible in the bytes read from {@code in}. */
+  boolean mightMatch(InputStream in) throws IOException {
+    if (literals.isEmpty()) {
+      return true;
+    }
+    return automaton().matches(in);
+  }
+
+  /** Whether this prefilter can skip any file. */
+  boolean isEnabled() {
+    return !literals.isEmpty();
+  }
+
+  private Automaton automaton() {
+    Automaton result = automaton;
+    if (result == null) {
+      result = new Automaton(literals);
+      automaton = result;
+    }
+    return result;
+  }
+
+  /**
+   * Returns the longest literal that every match of {@code regex} contains, if one can be
+   * extracted.
+   *
+   * <p>This is conservative: only the top level sequence of the regex is inspected, and groups,
+   * character classes and escape sequences other than escaped punctuation end the current literal.
+   */
+  @VisibleForTesting
+  static Optional<String> requiredLiteral(String regex) {
+    String longest = "";
+    StringBuilder current = new StringBuilder();
+    int i = 0;
+    while (i < regex.length()) {
+      char c = regex.charAt(i);
+      // Length of the last atom if it was a literal character, 0 otherwise.
+      int literalAtom = 0;
+      switch (c) {
+        case '\\' -> {
+          if (i + 1 >= regex.length()) {
+            return Optional.empty();
+          }
+          char next = regex.charAt(i + 1);
+          if (next == 'Q' || Character.isDigit(next)) {
+            return Optional.empty();
+          }
+          if (!Character.isLetter(next)) {
+            // Escaped punctuation
+            current.append(next);
+            literalAtom = 1;
+            i += 2;
+          } else if (next == 'p' || next == 'P' || next == 'x') {
+            if (regex.startsWith("{", i + 2)) {
+              i = regex.indexOf('}', i) + 1;
+              if (i == 0) {
+                return Optional.empty();
+              }
+            } else {
+              i += next == 'x' ? 4 : 3;
+            }
+          } else {
+            // \d, \w, \b, \n...
+            i += 2;
+          }
+        }
+        case '[' -> {
+          int end = skipCharClass(regex, i);
+          if (end < 0) {
+            return Optional.empty();
+          }
+          i = end;
+        }
+        case '(' -> {
+          // Flags like (?i) change how the rest of the regex matches.
+          if (regex.startsWith("(?", i)
+              && !regex.startsWith("(?:", i)
+              && !regex.startsWith("(?P<", i)
+              && !regex.startsWith("(?<", i)) {
+            return Optional.empty();
+          }
+          int end = skipGroup(regex, i);
+          if (end < 0) {
+            return Optional.empty();
+          }
+          i = end;
+        }
+        case '|', ')' -> {
+          return Optional.empty();
+        }
+        case '*', '?', '+', '{' -> {
+          return Optional.empty();
+        }
+        case '.', '^', '$' -> i++;
+        default -> {
+          literalAtom = Character.charCount(regex.codePointAt(i));
+          current.append(regex, i, i + literalAtom);
+          i += literalAtom;
+        }
+      }
+      // Quantifiers apply to the last atom.
+      if (i < regex.length() && "*?+{".indexOf(regex.charAt(i)) != -1) {
+        char quantifier = regex.charAt(i);
+        boolean optional =
+            quantifier == '*'
+                || quantifier == '?'
+                || (quantifier == '{' && regex.startsWith("{0", i));
+        if (optional) {
+          current.setLength(current.length() - literalAtom);
+        }
+        int end = quantifier == '{' ? regex.indexOf('}', i) : i;
+        if (end < 0) {
+          return Optional.empty();
+        }
+        i = end + 1;
+        // Non-greedy suffix
+        if (i < regex.length() && regex.charAt(i) == '?') {
+          i++;
+        }
+        literalAtom = 0;
+      }
+      if (literalAtom == 0) {
+        if (current.length() > longest.length()) {
+          longest = current.toString();
+        }
+        current.setLength(0);
+      }
+    }
+    if (current.length() > longest.length()) {
+      longest = current.toString();
+    }
+    return longest.isEmpty() ? Optional.empty() : Optional.of(longest);
+  }
+
+  /** Returns the index after the character class starting at {@code start}, or -1. */
+  private static int skipCharClass(String regex, int start) {
+    int i = start + 1;
+    if (i < regex.length() && regex.charAt(i) == '^') {
+      i++;
+    }
+    // A ']' just after the opening is a literal.
+    if (i < regex.length() && regex.charAt(i) == ']') {
+      i++;
+    }
+    while (i < regex.length()) {
+      char c = regex.charAt(i);
+      if (c == '\\') {
+        i += 2;
+      } else if (c == '[' && regex.startsWith("[:", i)) {
+        int end = regex.indexOf(":]", i + 2);
+        if (end < 0) {
+          return -1;
+        }
+        i = end + 2;
+      } else if (c == ']') {
+        return i + 1;
+      } else {
+        i++;
+      }
+    }
+    return -1;
+  }
+
+  /** Returns the index after the group starting at {@code start}, or -1. */
+  private static int skipGroup(String regex, int start) {
+    int depth = 0;
+    int i = start;
+    while (i < regex.length()) {
+      char c = regex.charAt(i);
+      if (c == '\\') {
+        i += 2;
+        continue;
+      }
+      if (c == '[') {
+        i = skipCharClass(regex, i);
+        if (i < 0) {
+          return -1;
+        }
+        continue;
+      }
+      if (c == '(') {
+        depth++;
+      } else if (c == ')') {
+        depth--;
+        if (depth == 0) {
+          return i + 1;
+        }
+      }
+      i++;
+    }
+    return -1;
+  }
+
+  /** Aho-Corasick automaton over bytes, with the transitions of every state precomputed. */
+  private static final class Automaton {
+
+    private final int[] transitions;
+    private final boolean[] accepting;
+
+    private Automaton(ImmutableList<byte[]> literals) {
+      int maxStates = 1;
+      for (byte[] literal : literals) {
+        maxStates += literal.length;
+      }
+      int[] trie = new int[maxStates * 256];
+      Arrays.fill(trie, -1);
+      boolean[] accept = new boolean[maxStates];
+      int states = 1;
+      for (byte[] literal : literals) {
+        int state = 0;
+        for (byte b : literal) {
+          int index = state * 256 + (b & 0xff);
+          if (trie[index] == -1) {
+            trie[index] = states++;
+          }
+          state = trie[index];
+        }
+        accept[state] = true;
+      }
+      // Breadth first, so that the failure state of each state is complete when it is visited.
+      int[] failure = new int[states];
+      Deque<Integer> queue = new ArrayDeque<>();
+      for (int b = 0; b < 256; b++) {
+        if (trie[b] == -1) {
+          trie[b] = 0;
+        } else {
+          failure[trie[b]] = 0;
+          queue.add(trie[b]);
+        }
+      }
+      while (!queue.isEmpty()) {
+        int state = queue.poll();
+        accept[state] |= accept[failure[state]];
+        for (int b = 0; b < 256; b++) {
+          int index = state * 256 + b;
+          int next = trie[index];
+          if (next == -1) {
+            trie[index] = trie[failure[state] * 256 + b];
+          } else {
+            failure[next] = trie[failure[state] * 256 + b];
+            queue.add(next);
+          }
+        }
+      }
+      this.transitions = Arrays.copyOf(trie, states * 256);
+      this.accepting = Arrays.copyOf(accept, states);
+    }
+
+    private boolean matches(byte[] content) {
+      return advance(0, content, content.length) == -1;
+    }
+
+    private boolean matches(InputStream in) throws IOException {
+      byte[] buffer = new byte[64 * 1024];
+      int state = 0;
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        state = advance(state, buffer, read);
+        if (state == -1) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /** Returns the state after consuming {@code length} bytes, or -1 if a literal was found. */
+    private int advance(int state, byte[] content, int length) {
+      for (int i = 0; i < length; i++) {
+        state = transitions[(state << 8) | (content[i] & 0xff)];
+        if (accepting[state]) {
+          return -1;
+        }
+      }
+      return state;
+    }
+  }
+}
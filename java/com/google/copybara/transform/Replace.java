@@ -37,9 +37,17 @@ import com.google.copybara.treestate.TreeState.FileState;
 import com.google.copybara.util.Glob;
 import com.google.re2j.Pattern;
 import com.google.re2j.PatternSyntaxException;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -131,7 +139,8 @@ public final class Replace implements Transformation {
     Iterable<FileState> files = work.getTreeState().find(
         paths.relativeTo(checkoutDir));
     BatchReplace batchReplace = new BatchReplace(this::createReplacer,
-        before.getBefore().toString());
+        before.getBefore().toString(), LiteralPrefilter.forTemplate(before),
+        workflowOptions.replaceStreamingThreshold);
     workflowOptions.parallelizer().run(files, batchReplace);
     List<FileState> changed = batchReplace.getChanged();
     boolean matchedFile = batchReplace.isMatchedFile();
@@ -227,10 +236,15 @@ public final class Replace implements Transformation {
     private final List<FileState> changed = new ArrayList<>();
     private boolean matchedFile = false;
     private final boolean emptyBefore;
+    private final LiteralPrefilter prefilter;
+    private final long streamingThreshold;
 
-    BatchReplace(Supplier<Replacer> replacerSupplier, String before) {
+    BatchReplace(Supplier<Replacer> replacerSupplier, String before, LiteralPrefilter prefilter,
+        long streamingThreshold) {
       this.replacerSupplier = checkNotNull(replacerSupplier);
       emptyBefore = before.equals("");
+      this.prefilter = checkNotNull(prefilter);
+      this.streamingThreshold = streamingThreshold;
     }
 
     public List<FileState> getChanged() {
@@ -251,7 +265,16 @@ public final class Replace implements Transformation {
           continue;
         }
         matchedFile = true;
+        if (!replacer.isMultiline() && Files.size(file.getPath()) > streamingThreshold) {
+          if (replaceStreaming(replacer, file.getPath())) {
+            changed.add(file);
+          }
+          continue;
+        }
         byte[] bytes = Files.readAllBytes(file.getPath());
+        if (!prefilter.mightMatch(bytes)) {
+          continue;
+        }
         // This duplicates the check in StringUTF16#newBytesFor
         if (bytes.length < 0 || bytes.length > Integer.MAX_VALUE >> 1) {
           throw new ValidationException(
@@ -265,18 +288,7 @@ public final class Replace implements Transformation {
         String originalFileContent = new String(bytes, UTF_8);
 
         if (!replacer.isFirstOnly() && emptyBefore && originalFileContent.length() > 10_000) {
-          throw new ValidationException(
-              "Error trying to replace empty string with text on a big file, this usually"
-                  + " happens if you use the transform"
-                  + " core.replace(before = '', after = 'some text') or, more commonly, when"
-                  + " a you have a transform like core.replace(before = 'some text', after = '')"
-                  + " and is reversed in another workflow. The effect of this transform is not"
-                  + " what you want, as it will replace every single character with 'some text'."
-                  + " In the case of the reverse, the fix is to either wrap the core.replace in:"
-                  + " core.transform([core.replace(...)], reversal =[]) so that it doesn't do"
-                  + " anything on the reversal or, even better, to use a reversible scrubber like"
-                  + " core.replace(before = 'confidential text', after = 'some text that is safe"
-                  + " to be public'): " + replacer.getLocation());
+          throw emptyBeforeOnBigFile(replacer);
         }
         String transformed = replacer.replace(originalFileContent);
         if (!originalFileContent.equals(transformed)) {
@@ -294,6 +306,62 @@ public final class Replace implements Transformation {
       return true;
     }
 
+    /**
+     * Replaces {@code path} line by line, writing the result to a temporary file that is moved over
+     * the original if something changed. Memory use only depends on the length of the longest line.
+     *
+     * @return whether the file changed
+     */
+    private boolean replaceStreaming(Replacer replacer, Path path)
+        throws IOException, ValidationException {
+      try (InputStream in = Files.newInputStream(path)) {
+        if (!prefilter.mightMatch(in)) {
+          return false;
+        }
+      }
+      if (!replacer.isFirstOnly() && emptyBefore) {
+        throw emptyBeforeOnBigFile(replacer);
+      }
+      // Same directory, so that the move is a rename in the same file system.
+      Path tmp = Files.createTempFile(path.getParent(), ".copybara_replace", ".tmp");
+      try {
+        boolean fileChanged;
+        // InputStreamReader and OutputStreamWriter replace malformed input, like new String(bytes)
+        // and String.getBytes() do.
+        try (Reader reader = new InputStreamReader(Files.newInputStream(path), UTF_8);
+            Writer writer =
+                new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(tmp), UTF_8))) {
+          fileChanged = replacer.replace(reader, writer);
+        }
+        if (!fileChanged) {
+          return false;
+        }
+        PosixFileAttributeView attributes =
+            Files.getFileAttributeView(path, PosixFileAttributeView.class);
+        if (attributes != null) {
+          Files.setPosixFilePermissions(tmp, attributes.readAttributes().permissions());
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return true;
+      } finally {
+        Files.deleteIfExists(tmp);
+      }
+    }
+
+    private static ValidationException emptyBeforeOnBigFile(Replacer replacer) {
+      return new ValidationException(
+          "Error trying to replace empty string with text on a big file, this usually"
+              + " happens if you use the transform"
+              + " core.replace(before = '', after = 'some text') or, more commonly, when"
+              + " a you have a transform like core.replace(before = 'some text', after = '')"
+              + " and is reversed in another workflow. The effect of this transform is not"
+              + " what you want, as it will replace every single character with 'some text'."
+              + " In the case of the reverse, the fix is to either wrap the core.replace in:"
+              + " core.transform([core.replace(...)], reversal =[]) so that it doesn't do"
+              + " anything on the reversal or, even better, to use a reversible scrubber like"
+              + " core.replace(before = 'confidential text', after = 'some text that is safe"
+              + " to be public'): " + replacer.getLocation());
+    }
   }
 
   public Replacer createReplacer() {
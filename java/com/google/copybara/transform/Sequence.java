@@ -30,6 +30,7 @@ import com.google.copybara.exception.RepoException;
 import com.google.copybara.exception.ValidationException;
 import com.google.copybara.profiler.Profiler;
 import com.google.copybara.profiler.Profiler.ProfilerTask;
+import com.google.copybara.treestate.ProvenanceTracer;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -137,26 +138,41 @@ public class Sequence implements Transformation {
     }
     List<Transformation> result = new ArrayList<>(sequence.size());
     Transformation prev = null;
+    // Transformations moved after prev, so that later transformations can still be joined to it
+    List<Transformation> moved = new ArrayList<>();
     for (Transformation transformation : sequence) {
-      if (prev != null && prev.canJoin(transformation)) {
+      if (prev != null
+          && prev.canJoin(transformation)
+          && moved.stream().allMatch(transformation::canJoinAcross)) {
         prev = prev.join(transformation);
+      } else if (prev != null && prev.canJoinAcross(transformation)) {
+        moved.add(transformation);
       } else {
         if (prev != null) {
           result.add(prev);
         }
+        result.addAll(moved);
+        moved.clear();
         prev = transformation;
       }
     }
     if (prev != null) {
       result.add(prev);
     }
+    result.addAll(moved);
     return ImmutableList.copyOf(result);
   }
 
   private TransformationStatus runOneTransform(TransformWork work, Transformation transform)
       throws IOException, ValidationException, RepoException {
     try (ProfilerTask ignored = profiler.start(transform.describe().replace('/', ' '))) {
-      return transform.transform(work);
+      ProvenanceTracer tracer = work.getTreeState().getProvenanceTracer();
+      // Nested sequences don't change files themselves, their transformations are traced instead.
+      if (tracer == null || transform instanceof Sequence) {
+        return transform.transform(work);
+      }
+      return tracer.trace(
+          transform.describe(), transform.location().toString(), () -> transform.transform(work));
     }
   }
 
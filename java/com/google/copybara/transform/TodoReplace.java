@@ -69,6 +69,7 @@ public class TodoReplace implements Transformation {
   private final String defaultString;
   @Nullable
   private final Pattern regexIgnorelist;
+  private final LiteralPrefilter prefilter;
 
   public TodoReplace(
       Location location,
@@ -92,6 +93,8 @@ public class TodoReplace implements Transformation {
     }
     this.regexIgnorelist = regexIgnorelist;
     pattern = createPattern(todoTags);
+    // Every match starts with one of the tags.
+    prefilter = LiteralPrefilter.anyOf(todoTags);
   }
 
   private Pattern createPattern(ImmutableList<String> todoTags) {
@@ -120,7 +123,11 @@ public class TodoReplace implements Transformation {
       if (Files.isSymbolicLink(file.getPath())) {
         continue;
       }
-      String content = new String(Files.readAllBytes(file.getPath()), UTF_8);
+      byte[] bytes = Files.readAllBytes(file.getPath());
+      if (!prefilter.mightMatch(bytes)) {
+        continue;
+      }
+      String content = new String(bytes, UTF_8);
       Matcher matcher = batchPattern.matcher(content);
       StringBuffer sb = new StringBuffer();
       boolean modified = false;
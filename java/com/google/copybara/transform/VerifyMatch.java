@@ -57,6 +57,7 @@ public final class VerifyMatch implements Transformation {
   private final LocalParallelizer parallelizer;
   private final Location location;
   private final Optional<String> failureMessage;
+  private final LiteralPrefilter prefilter;
 
   private VerifyMatch(Pattern pattern, boolean verifyNoMatch, boolean alsoOnReversal,
       Glob fileMatcherBuilder, Optional<String> failureMessage, LocalParallelizer parallelizer,
@@ -69,6 +70,7 @@ public final class VerifyMatch implements Transformation {
 
     this.parallelizer = parallelizer;
     this.location = checkNotNull(location);
+    this.prefilter = LiteralPrefilter.forRegex(pattern);
   }
 
   @Override
@@ -123,9 +125,16 @@ public final class VerifyMatch implements Transformation {
         if (Files.isSymbolicLink(file.getPath())) {
           continue;
         }
-        String originalFileContent = new String(Files.readAllBytes(file.getPath()), UTF_8);
-        Matcher matcher = batchPattern.matcher(originalFileContent);
-        if (verifyNoMatch == matcher.find()) {
+        byte[] bytes = Files.readAllBytes(file.getPath());
+        String originalFileContent = null;
+        Matcher matcher = null;
+        boolean found = false;
+        if (prefilter.mightMatch(bytes)) {
+          originalFileContent = new String(bytes, UTF_8);
+          matcher = batchPattern.matcher(originalFileContent);
+          found = matcher.find();
+        }
+        if (verifyNoMatch == found) {
           String error = checkoutDir.relativize(file.getPath()).toString();
           if (verifyNoMatch) {
             int line = Splitter.on('\n')
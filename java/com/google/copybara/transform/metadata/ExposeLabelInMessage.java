@@ -116,6 +116,11 @@ public class ExposeLabelInMessage implements Transformation {
     return String.format("Exposing label %s as %s", label, newLabelName);
   }
 
+  @Override
+  public boolean isMetadataOnly() {
+    return true;
+  }
+
   @Override
   public Location location() {
     return location;
@@ -174,6 +174,11 @@ public class MapAuthor implements Transformation {
     return "Mapping authors";
   }
 
+  @Override
+  public boolean isMetadataOnly() {
+    return true;
+  }
+
   @Override
   public Location location() {
     return location;
@@ -151,6 +151,11 @@ public class MetadataSquashNotes implements Transformation {
     return "squash_notes";
   }
 
+  @Override
+  public boolean isMetadataOnly() {
+    return true;
+  }
+
   @Override
   public Location location() {
     return location;
@@ -71,6 +71,11 @@ public class MetadataVerifyMatch implements Transformation {
         pattern);
   }
 
+  @Override
+  public boolean isMetadataOnly() {
+    return true;
+  }
+
   @Override
   public Location location() {
     return location;
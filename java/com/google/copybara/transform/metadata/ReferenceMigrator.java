@@ -137,6 +137,11 @@ public class ReferenceMigrator implements Transformation {
     return "map_references: " + before + " to " + after;
   }
 
+  @Override
+  public boolean isMetadataOnly() {
+    return true;
+  }
+
   @Nullable
   private String findChange(String refBeingMigrated,
       String originLabel,
@@ -58,6 +58,11 @@ public class RemoveLabelInMessage implements Transformation {
     return "Removing label " + label;
   }
 
+  @Override
+  public boolean isMetadataOnly() {
+    return true;
+  }
+
   @Override
   public Location location() {
     return location;
@@ -86,6 +86,11 @@ public class RestoreOriginalAuthor implements Transformation {
     return "Restoring original author";
   }
 
+  @Override
+  public boolean isMetadataOnly() {
+    return true;
+  }
+
   @Override
   public Location location() {
     return location;
@@ -58,6 +58,11 @@ public class SaveOriginalAuthor implements Transformation {
     return "Saving original author";
   }
 
+  @Override
+  public boolean isMetadataOnly() {
+    return true;
+  }
+
   @Override
   public Location location() {
     return location;
@@ -88,6 +88,11 @@ public class Scrubber implements Transformation {
     return "Description scrubber";
   }
 
+  @Override
+  public boolean isMetadataOnly() {
+    return true;
+  }
+
   @Override
   public Location location() {
     return location;
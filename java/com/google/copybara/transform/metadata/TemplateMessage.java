@@ -83,6 +83,11 @@ public class TemplateMessage implements Transformation {
     return "Adding header to the message";
   }
 
+  @Override
+  public boolean isMetadataOnly() {
+    return true;
+  }
+
   @Override
   public Location location() {
     return location;
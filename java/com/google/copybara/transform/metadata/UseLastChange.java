@@ -92,6 +92,11 @@ public class UseLastChange implements Transformation {
     return "Use last change metadata";
   }
 
+  @Override
+  public boolean isMetadataOnly() {
+    return true;
+  }
+
   @Override
   public Location location() {
     return location;
@@ -0,0 +1,299 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.treestate;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import com.google.copybara.exception.RepoException;
+import com.google.copybara.exception.ValidationException;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Records which transformation last created, modified or deleted each file of a checkout.
+ *
+ * <p>Transformations that notify the {@link TreeState} of all the files they change are traced
+ * from those notifications, without reading the rest of the checkout. For the ones that don't,
+ * like {@code core.move} or patches, the checkout is compared with a snapshot of the file
+ * attributes (size, modification time and file key), and only the files whose attributes changed
+ * are read, to hash them. A file rewritten with its original content is therefore reported as
+ * modified, unless its hash was already known because a previous transformation changed it.
+ */
+public final class ProvenanceTracer {
+
+  private static final HashFunction HASH = Hashing.murmur3_128();
+
+  /** Type of the last change done to a file. */
+  public enum Kind {
+    CREATED("A"),
+    MODIFIED("M"),
+    DELETED("D");
+
+    private final String symbol;
+
+    Kind(String symbol) {
+      this.symbol = symbol;
+    }
+  }
+
+  /** The last change done to a file and the transformation that did it. */
+  public record Entry(Kind kind, String transform, String location) {}
+
+  /** A traced action, usually running a transformation. */
+  public interface TracedAction<T> {
+    T run() throws IOException, ValidationException, RepoException;
+  }
+
+  private record FileStat(long size, FileTime lastModified, @Nullable Object fileKey) {
+
+    static FileStat of(BasicFileAttributes attrs) {
+      return new FileStat(attrs.size(), attrs.lastModifiedTime(), attrs.fileKey());
+    }
+  }
+
+  /** A transformation being traced. */
+  private static final class Frame {
+    private final String transform;
+    private final String location;
+    private final Set<Path> modified = new LinkedHashSet<>();
+    private final Set<Path> deleted = new LinkedHashSet<>();
+    private boolean notified;
+
+    private Frame(String transform, String location) {
+      this.transform = transform;
+      this.location = location;
+    }
+  }
+
+  private final Path checkoutDir;
+  private final Deque<Frame> frames = new ArrayDeque<>();
+  private final Map<Path, Entry> provenance = new HashMap<>();
+  private final Map<Path, HashCode> hashes = new HashMap<>();
+  @Nullable private Map<Path, FileStat> snapshot;
+
+  public ProvenanceTracer(Path checkoutDir) {
+    this.checkoutDir = Preconditions.checkNotNull(checkoutDir);
+  }
+
+  /**
+   * Runs {@code action} and attributes the changes it does in the checkout to {@code transform}.
+   *
+   * <p>Traces can be nested. Changes done inside a nested trace are attributed to the innermost
+   * one.
+   */
+  public <T> T trace(String transform, String location, TracedAction<T> action)
+      throws IOException, ValidationException, RepoException {
+    if (snapshot == null) {
+      snapshot = readAttributes();
+    }
+    Frame frame = new Frame(transform, location);
+    frames.push(frame);
+    T result;
+    try {
+      result = action.run();
+    } catch (IOException | ValidationException | RepoException | RuntimeException e) {
+      // The checkout might be half transformed. Start from scratch in the next trace.
+      snapshot = null;
+      throw e;
+    } finally {
+      frames.pop();
+    }
+    if (snapshot == null) {
+      // A nested trace failed, but the error was handled. Changes can no longer be attributed.
+      snapshot = readAttributes();
+    } else if (frame.notified) {
+      recordNotified(frame);
+    } else {
+      recordDifferences(frame, readAttributes());
+    }
+    return result;
+  }
+
+  /** Returns the provenance of the files changed so far, keyed by path relative to the checkout. */
+  public ImmutableSortedMap<String, Entry> getProvenance() {
+    ImmutableSortedMap.Builder<String, Entry> result = ImmutableSortedMap.naturalOrder();
+    for (Map.Entry<Path, Entry> e : provenance.entrySet()) {
+      result.put(checkoutDir.relativize(e.getKey()).toString(), e.getValue());
+    }
+    return result.buildOrThrow();
+  }
+
+  /**
+   * Returns a compact report with a line per changed file, like {@code "M foo/bar.txt
+   * core.replace copy.bara.sky:12:5"}, or an empty string if no file changed.
+   */
+  public String report() {
+    StringBuilder sb = new StringBuilder();
+    for (Map.Entry<String, Entry> e : getProvenance().entrySet()) {
+      Entry entry = e.getValue();
+      sb.append(entry.kind().symbol)
+          .append(' ')
+          .append(e.getKey())
+          .append(' ')
+          .append(entry.transform())
+          .append(' ')
+          .append(entry.location())
+          .append('\n');
+    }
+    return sb.toString();
+  }
+
+  /** {@code path} was created or modified by the current transformation. */
+  void modified(Path path) {
+    Frame frame = frames.peek();
+    if (frame != null) {
+      frame.modified.add(path);
+    }
+  }
+
+  /** {@code path}, and everything below it, was deleted by the current transformation. */
+  void deleted(Path path) {
+    Frame frame = frames.peek();
+    if (frame != null) {
+      frame.modified.removeIf(p -> p.startsWith(path));
+      frame.deleted.add(path);
+    }
+  }
+
+  /** The current transformation notified all the files it changed. */
+  void notified() {
+    Frame frame = frames.peek();
+    if (frame != null) {
+      frame.notified = true;
+    }
+  }
+
+  private void recordNotified(Frame frame) throws IOException {
+    for (Path deleted : frame.deleted) {
+      snapshot.keySet().removeIf(
+          p -> {
+            if (p.startsWith(deleted)) {
+              recordDeletion(p, frame);
+              return true;
+            }
+            return false;
+          });
+    }
+    for (Path path : frame.modified) {
+      BasicFileAttributes attrs;
+      try {
+        attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+      } catch (NoSuchFileException e) {
+        if (snapshot.remove(path) != null) {
+          recordDeletion(path, frame);
+        }
+        continue;
+      }
+      FileStat current = FileStat.of(attrs);
+      // The transformation vouched for the change, even if the attributes are the same.
+      recordChange(path, snapshot.put(path, current), current, /* notified= */ true, frame);
+    }
+  }
+
+  private void recordDifferences(Frame frame, Map<Path, FileStat> current) throws IOException {
+    for (Map.Entry<Path, FileStat> e : current.entrySet()) {
+      recordChange(
+          e.getKey(), snapshot.get(e.getKey()), e.getValue(), /* notified= */ false, frame);
+    }
+    for (Path path : snapshot.keySet()) {
+      if (!current.containsKey(path)) {
+        recordDeletion(path, frame);
+      }
+    }
+    snapshot = current;
+  }
+
+  private void recordChange(
+      Path path, @Nullable FileStat previous, FileStat current, boolean notified, Frame frame)
+      throws IOException {
+    if (previous == null) {
+      hashes.remove(path);
+      record(path, Kind.CREATED, frame);
+    } else if (notified || !previous.equals(current)) {
+      // Rewriting a file with the content it already had is not a change, but that can only be
+      // detected if the file was hashed before.
+      HashCode hash = hash(path);
+      if (!Objects.equals(hashes.put(path, hash), hash)) {
+        record(path, Kind.MODIFIED, frame);
+      }
+    }
+  }
+
+  private void recordDeletion(Path path, Frame frame) {
+    hashes.remove(path);
+    record(path, Kind.DELETED, frame);
+  }
+
+  private void record(Path path, Kind kind, Frame frame) {
+    Entry previous = provenance.get(path);
+    // Report the change relative to the checkout before the first transformation.
+    if (previous != null) {
+      if (previous.kind() == Kind.CREATED && kind == Kind.DELETED) {
+        provenance.remove(path);
+        return;
+      }
+      if (previous.kind() == Kind.CREATED) {
+        kind = Kind.CREATED;
+      } else if (previous.kind() == Kind.DELETED && kind == Kind.CREATED) {
+        kind = Kind.MODIFIED;
+      }
+    }
+    provenance.put(path, new Entry(kind, frame.transform, frame.location));
+  }
+
+  private static HashCode hash(Path path) throws IOException {
+    if (Files.isSymbolicLink(path)) {
+      return HASH.hashString(Files.readSymbolicLink(path).toString(), UTF_8);
+    }
+    return MoreFiles.asByteSource(path).hash(HASH);
+  }
+
+  private Map<Path, FileStat> readAttributes() throws IOException {
+    Map<Path, FileStat> result = new HashMap<>();
+    Files.walkFileTree(
+        checkoutDir,
+        new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+            result.put(file, FileStat.of(attrs));
+            return FileVisitResult.CONTINUE;
+          }
+        });
+    return result;
+  }
+}
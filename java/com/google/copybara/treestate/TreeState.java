@@ -32,6 +32,7 @@ import java.nio.file.attribute.BasicFileAttributes;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import javax.annotation.Nullable;
 
 /**
  * An object that allows to do potentially cached filesystem lookups.
@@ -84,6 +85,7 @@ public class TreeState {
   private boolean isCached = false;
   private boolean notified = false;
   private Map<Path, FileState> files = new HashMap<>();
+  @Nullable private ProvenanceTracer provenanceTracer;
 
   private final LoadingCache<PathMatcher, List<FileState>> cachedMatches =
       CacheBuilder.newBuilder()
@@ -100,6 +102,17 @@ public class TreeState {
     this.checkoutDir = checkoutDir;
   }
 
+  /** Sets the tracer that receives the changes notified to this {@link TreeState}. */
+  public void setProvenanceTracer(@Nullable ProvenanceTracer provenanceTracer) {
+    this.provenanceTracer = provenanceTracer;
+  }
+
+  /** Returns the tracer for the changes done to the checkout, if tracing is enabled. */
+  @Nullable
+  public ProvenanceTracer getProvenanceTracer() {
+    return provenanceTracer;
+  }
+
   /** Find a a set of files in the checkout dir, using a {@link PathMatcher}. */
   public Iterable<FileState> find(PathMatcher pathMatcher) throws IOException {
     if (!isCached) {
@@ -127,7 +140,46 @@ public class TreeState {
   public void notifyModify(Iterable<FileState> paths) {
     notified = true;
     for (FileState path : paths) {
-      files.put(path.getPath(), path);
+      boolean added = files.put(path.getPath(), path) == null;
+      if (added) {
+        cachedMatches.invalidateAll();
+      }
+      if (provenanceTracer != null) {
+        provenanceTracer.modified(path.getPath());
+      }
+    }
+    if (provenanceTracer != null) {
+      provenanceTracer.notified();
+    }
+  }
+
+  /**
+   * Record that {@code path} has been created or modified, keeping the cache (if any) coherent.
+   *
+   * <p>Unlike the notify* methods, this doesn't vouch for the rest of the changes done by the
+   * current Transformation, so the cache is still cleared at the end of it unless it notifies.
+   */
+  public void trackWrite(Path path) {
+    boolean added = isCached && files.putIfAbsent(path, new FileState(path)) == null;
+    if (added) {
+      cachedMatches.invalidateAll();
+    }
+    if (provenanceTracer != null) {
+      provenanceTracer.modified(path);
+    }
+  }
+
+  /**
+   * Record that {@code path}, and everything below it if it was a directory, has been deleted.
+   *
+   * @see #trackWrite(Path)
+   */
+  public void trackDelete(Path path) {
+    if (provenanceTracer != null) {
+      provenanceTracer.deleted(path);
+    }
+    if (isCached && files.keySet().removeIf(p -> p.startsWith(path))) {
+      cachedMatches.invalidateAll();
     }
   }
 
@@ -143,6 +195,9 @@ public class TreeState {
 
   public void notifyNoChange() {
     notified = true;
+    if (provenanceTracer != null) {
+      provenanceTracer.notified();
+    }
   }
 
   public boolean isCached() {
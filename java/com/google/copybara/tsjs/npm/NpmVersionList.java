@@ -96,8 +96,9 @@ public class NpmVersionList implements VersionList, StarlarkValue, LabelsAwareMo
 
   @Override
   public ImmutableSet<String> list() throws RepoException, ValidationException {
-    NpmVersionListResponseObject r = listVersions();
-    return ImmutableSet.copyOf(r.getAllVersions());
+    return remoteFileOptions
+        .getVersionListCache()
+        .get(listVersionsUrl.get(), () -> ImmutableSet.copyOf(listVersions().getAllVersions()));
   }
 
   public NpmVersionListResponseObject listVersions() throws RepoException, ValidationException {
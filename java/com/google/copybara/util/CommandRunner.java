@@ -23,6 +23,8 @@ import com.google.common.base.Splitter;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
 import com.google.common.flogger.FluentLogger;
+import com.google.common.io.FileBackedOutputStream;
+import com.google.common.primitives.Bytes;
 import com.google.errorprone.annotations.CheckReturnValue;
 import com.google.copybara.shell.AbnormalTerminationException;
 import com.google.copybara.shell.BadExitStatusException;
@@ -41,6 +43,7 @@ import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.Optional;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 
 /**
@@ -59,6 +62,12 @@ public final class CommandRunner {
   public static final int MAX_COMMAND_LENGTH = 40000;
   public static final byte[] AFTER_LIMIT_SUFFIX =
       "... (Rest of the output skipped)\n".getBytes(UTF_8);
+  // Stdout bytes kept in memory by executeStreaming before spilling to a temporary file.
+  public static final int DEFAULT_STREAMING_MEMORY_THRESHOLD = 8 * 1024 * 1024;
+  // Last stdout bytes kept by executeStreaming for logging and error reporting.
+  private static final int STREAMING_LOG_TAIL_BYTES = 64 * 1024;
+  private static final byte[] BEFORE_TAIL_PREFIX =
+      "(Beginning of the output skipped) ...\n".getBytes(UTF_8);
 
   private final Command cmd;
   private final boolean verbose;
@@ -183,18 +192,6 @@ public final class CommandRunner {
    * on the exit code of the command and the verbose flag.
    */
   public CommandOutputWithStatus execute() throws CommandException {
-    Stopwatch stopwatch = Stopwatch.createStarted();
-    String startMsg = ShellUtils.prettyPrintArgv(Arrays.asList(cmd.getCommandLineElements()));
-    startMsg = startMsg.length() > MAX_COMMAND_LENGTH
-        ? startMsg.substring(0, MAX_COMMAND_LENGTH) + "..." : startMsg;
-    String validStartMsg = "Executing [" + startMsg + "]";
-    logger.atInfo().log("%s", validStartMsg);
-    if (verbose) {
-      System.err.println(validStartMsg);
-    }
-    TerminationStatus exitStatus = null;
-    CombinedKillableObserver cmdMonitor =
-        new CombinedKillableObserver(timeout, additionalObservers.toArray(new KillableObserver[0]));
     ByteArrayOutputStream stdoutCollector = new ByteArrayOutputStream();
     ByteArrayOutputStream stderrCollector = new ByteArrayOutputStream();
     try {
@@ -207,28 +204,112 @@ public final class CommandRunner {
     } catch (IOException e) {
       logger.atSevere().withCause(e).log("Error writing output.");
     }
-    OutputStream stdoutStream = commandOutputStream(
-        asyncStdoutStream.orElse(stdoutCollector), maxOutLogLines);
-    OutputStream stderrStream = commandOutputStream(
-        asyncErrStream.orElse(stderrCollector), maxOutLogLines);
-
     try {
-      CommandExecutor runner = executor.orElse(new DefaultExecutor());
       TerminationStatus status =
-          runner.getCommandOutputWithStatus(cmd, input, cmdMonitor, stdoutStream, stderrStream);
-      exitStatus = status;
+          run(
+              asyncStdoutStream.orElse(stdoutCollector),
+              stdoutCollector::toByteArray,
+              asyncErrStream.orElse(stderrCollector),
+              stderrCollector);
       return new CommandOutputWithStatus(
           status,
           stdoutCollector.toByteArray(),
           stderrCollector.toByteArray());
     } catch (BadExitStatusException e) {
-      exitStatus = e.getResult().getTerminationStatus();
-      maybeTreatTimeout(stdoutCollector, stderrCollector, cmdMonitor, e);
       throw new BadExitStatusWithOutputException(e.getCommand(), e.getResult(), e.getMessage(),
           stdoutCollector.toByteArray(),
           stderrCollector.toByteArray());
+    }
+  }
+
+  /**
+   * Executes a {@link Command} like {@link #execute()}, but without keeping the whole stdout in
+   * memory: after {@code memoryThreshold} bytes the output is written to a temporary file, and only
+   * the last bytes are kept for logging.
+   *
+   * <p>Unlike {@link #execute()}, non-zero exit codes don't throw an exception. Callers should check
+   * {@link StreamingCommandOutput#getTerminationStatus()}. Timeouts and abnormal terminations still
+   * throw.
+   *
+   * <p>The returned object needs to be closed.
+   */
+  public StreamingCommandOutput executeStreaming(int memoryThreshold) throws CommandException {
+    Preconditions.checkState(!asyncStdoutStream.isPresent(),
+        "Streaming execution is not compatible with redirecting stdout");
+    FileBackedOutputStream stdout =
+        new FileBackedOutputStream(memoryThreshold, /* resetOnFinalize= */ true);
+    TailOutputStream stdoutTail = new TailOutputStream(STREAMING_LOG_TAIL_BYTES);
+    ByteArrayOutputStream stderrCollector = new ByteArrayOutputStream();
+    boolean success = false;
+    try {
+      TerminationStatus status;
+      try {
+        status =
+            run(
+                new MultiplexOutputStream(stdout, stdoutTail),
+                () -> tailForLog(stdoutTail),
+                asyncErrStream.orElse(stderrCollector),
+                stderrCollector);
+      } catch (BadExitStatusException e) {
+        status = e.getResult().getTerminationStatus();
+      }
+      success = true;
+      return new StreamingCommandOutput(status, stdout, stderrCollector.toByteArray());
+    } finally {
+      if (!success) {
+        try {
+          stdout.reset();
+        } catch (IOException e) {
+          logger.atWarning().withCause(e).log("Cannot delete temporary command output");
+        }
+      }
+    }
+  }
+
+  /** Returns the tail of the output, marked as such if the beginning was discarded. */
+  private static byte[] tailForLog(TailOutputStream tail) {
+    byte[] bytes = tail.toByteArray();
+    return tail.isTruncated() ? Bytes.concat(BEFORE_TAIL_PREFIX, bytes) : bytes;
+  }
+
+  /**
+   * Runs the command, writing stdout and stderr to the given streams.
+   *
+   * @param stdoutForLog returns the stdout to use for logging and timeout errors
+   */
+  private TerminationStatus run(
+      OutputStream stdoutSink,
+      Supplier<byte[]> stdoutForLog,
+      OutputStream stderrSink,
+      ByteArrayOutputStream stderrForLog)
+      throws CommandException {
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    String startMsg = ShellUtils.prettyPrintArgv(Arrays.asList(cmd.getCommandLineElements()));
+    startMsg = startMsg.length() > MAX_COMMAND_LENGTH
+        ? startMsg.substring(0, MAX_COMMAND_LENGTH) + "..." : startMsg;
+    String validStartMsg = "Executing [" + startMsg + "]";
+    logger.atInfo().log("%s", validStartMsg);
+    if (verbose) {
+      System.err.println(validStartMsg);
+    }
+    TerminationStatus exitStatus = null;
+    CombinedKillableObserver cmdMonitor =
+        new CombinedKillableObserver(timeout, additionalObservers.toArray(new KillableObserver[0]));
+    OutputStream stdoutStream = commandOutputStream(stdoutSink, maxOutLogLines);
+    OutputStream stderrStream = commandOutputStream(stderrSink, maxOutLogLines);
+
+    try {
+      CommandExecutor runner = executor.orElse(new DefaultExecutor());
+      TerminationStatus status =
+          runner.getCommandOutputWithStatus(cmd, input, cmdMonitor, stdoutStream, stderrStream);
+      exitStatus = status;
+      return status;
+    } catch (BadExitStatusException e) {
+      exitStatus = e.getResult().getTerminationStatus();
+      maybeTreatTimeout(stdoutForLog.get(), stderrForLog.toByteArray(), cmdMonitor, e);
+      throw e;
     } catch (AbnormalTerminationException e) {
-      maybeTreatTimeout(stdoutCollector, stderrCollector, cmdMonitor, e);
+      maybeTreatTimeout(stdoutForLog.get(), stderrForLog.toByteArray(), cmdMonitor, e);
       throw e;
     } finally {
       String commandName = cmd.getCommandLineElements()[0];
@@ -237,12 +318,12 @@ public final class CommandRunner {
         logOutput(
             Level.INFO,
             String.format("'%s' STDOUT: ", commandName),
-            stdoutCollector,
+            stdoutForLog.get(),
             maxOutLogLines);
         logOutput(
             Level.INFO,
             String.format("'%s' STDERR: ", commandName),
-            stderrCollector,
+            stderrForLog.toByteArray(),
             maxOutLogLines);
       }
 
@@ -286,9 +367,9 @@ public final class CommandRunner {
     }
   }
 
-  private void maybeTreatTimeout(ByteArrayOutputStream stdoutCollector,
-      ByteArrayOutputStream stderrCollector, CombinedKillableObserver cmdMonitor,
-      AbnormalTerminationException e) throws CommandTimeoutException {
+  private void maybeTreatTimeout(byte[] stdout, byte[] stderr,
+      CombinedKillableObserver cmdMonitor, AbnormalTerminationException e)
+      throws CommandTimeoutException {
     if (!cmdMonitor.hasTimedOut()) {
       return;
     }
@@ -301,8 +382,8 @@ public final class CommandRunner {
         timeout.getSeconds(),
         e.getResult().getTerminationStatus());
     throw new CommandTimeoutException(e.getCommand(), e.getResult(), msg,
-        stdoutCollector.toByteArray(),
-        stderrCollector.toByteArray(),
+        stdout,
+        stderr,
         timeout);
   }
 
@@ -322,8 +403,8 @@ public final class CommandRunner {
    * Log to the appropriate log level the output of the command
    */
   private static void logOutput(
-      Level level, String prefix, ByteArrayOutputStream outputBytes, int maxLogLines) {
-    String string = asString(outputBytes).trim();
+      Level level, String prefix, byte[] outputBytes, int maxLogLines) {
+    String string = new String(outputBytes, UTF_8).trim();
     if (string.isEmpty()) {
       return;
     }
@@ -338,10 +419,6 @@ public final class CommandRunner {
     }
   }
 
-  private static String asString(ByteArrayOutputStream outputBytes) {
-    return outputBytes.toString(UTF_8);
-  }
-
   /**
    * An {@link OutputStream} that can output to two {@code OutputStream}
    */
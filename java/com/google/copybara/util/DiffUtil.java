@@ -39,6 +39,7 @@ import com.google.copybara.util.console.Console;
 import com.google.copybara.shell.Command;
 import com.google.copybara.shell.CommandException;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.util.Iterator;
@@ -136,31 +137,30 @@ public class DiffUtil {
   public static ImmutableList<DiffFile> diffFiles(
       Path one, Path other, boolean verbose, @Nullable Map<String, String> environment)
       throws IOException, InsideGitDirException {
-    String cmdResult =
-        new String(
-            FoldersDiff.builder(verbose, environment)
-                .setZOption(true)
-                .setNameStatus(true)
-                .setNoRenames(true)
-                .build()
-                .run(one.getParent(), one, other),
-            UTF_8);
-
     ImmutableList.Builder<DiffFile> result = ImmutableList.builder();
-    for (Iterator<String> iterator = Splitter.on((char) 0).split(cmdResult).iterator();
-        iterator.hasNext(); ) {
-      String strOp = iterator.next();
-      if (Strings.isNullOrEmpty(strOp)) {
-        continue;
+    try (StreamingCommandOutput output =
+        FoldersDiff.builder(verbose, environment)
+            .setZOption(true)
+            .setNameStatus(true)
+            .setNoRenames(true)
+            .build()
+            .runStreaming(one.getParent(), one, other)) {
+      if (output.getTerminationStatus().success()) {
+        return ImmutableList.of();
       }
-      Operation op = DiffFile.OP_BY_CHAR.get(strOp);
-      if (op == null) {
-        throw new IllegalStateException(
-            String.format("Unknown type '%s'. Text:\n%s", strOp, cmdResult));
+      for (Iterator<String> iterator = output.split("\0"); iterator.hasNext(); ) {
+        String strOp = iterator.next();
+        Operation op = DiffFile.OP_BY_CHAR.get(strOp);
+        if (op == null) {
+          throw new IllegalStateException(
+              String.format("Unknown type '%s' in 'git diff --name-status' output", strOp));
+        }
+        String file = iterator.next();
+        Preconditions.checkState(file.contains("/"));
+        result.add(new DiffFile(file.substring(file.indexOf("/") + 1), op));
       }
-      String file = iterator.next();
-      Preconditions.checkState(file.contains("/"));
-      result.add(new DiffFile(file.substring(file.indexOf("/") + 1), op));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
     }
     return result.build();
   }
@@ -303,6 +303,18 @@ public class DiffUtil {
     }
 
     private byte[] run(Path root, Path one, Path other) throws IOException {
+      try (StreamingCommandOutput output = runStreaming(root, one, other)) {
+        return output.getTerminationStatus().success() ? EMPTY_DIFF : output.getStdoutBytes();
+      }
+    }
+
+    /**
+     * Runs 'git diff' without keeping the whole output in memory. git diff returns exit status 0
+     * when contents are identical, or 1 when they are different, so the output is only relevant
+     * when the termination status is not a success.
+     */
+    private StreamingCommandOutput runStreaming(Path root, Path one, Path other)
+        throws IOException {
       Preconditions.checkArgument(
           singleFile || one.getParent().equals(other.getParent()),
           "Paths 'one' and 'other' must be sibling directories.");
@@ -340,26 +352,27 @@ public class DiffUtil {
       params.add(root.relativize(one).toString());
       params.add(root.relativize(other).toString());
       Command cmd = new Command(params.toArray(new String[] {}), environment, root.toFile());
+      StreamingCommandOutput output;
       try {
-        new CommandRunner(cmd).withVerbose(verbose).execute();
-        return EMPTY_DIFF;
-      } catch (BadExitStatusWithOutputException e) {
-        CommandOutput output = e.getOutput();
-        // git diff returns exit status 0 when contents are identical, or 1 when they are different
-        // see https://github.com/git/git/blob/master/usage.c#L81 for git error format
-        String outputError = output.getStderr();
-        if (!Strings.isNullOrEmpty(outputError)
-            && OUTPUT_ERROR_PATTERN.matcher(outputError).find()) {
-          throw new IOException(
-              String.format(
-                  "Error executing 'git diff': %s. Stderr: \n%s",
-                  e.getMessage(), output.getStderr()),
-              e);
-        }
-        return output.getStdoutBytes();
+        output =
+            new CommandRunner(cmd)
+                .withVerbose(verbose)
+                .executeStreaming(CommandRunner.DEFAULT_STREAMING_MEMORY_THRESHOLD);
       } catch (CommandException e) {
         throw new IOException("Error executing 'git diff'", e);
       }
+      // see https://github.com/git/git/blob/master/usage.c#L81 for git error format
+      String outputError = output.getStderr();
+      if (!output.getTerminationStatus().success()
+          && !Strings.isNullOrEmpty(outputError)
+          && OUTPUT_ERROR_PATTERN.matcher(outputError).find()) {
+        output.close();
+        throw new IOException(
+            String.format(
+                "Error executing 'git diff': %s. Stderr: \n%s",
+                output.getTerminationStatus(), outputError));
+      }
+      return output;
     }
   }
 
@@ -26,6 +26,7 @@ import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.copybara.util.GlobAtom.AtomType;
 import com.google.copybara.util.GlobAtom.Root;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
@@ -315,6 +316,71 @@ public class Glob implements StarlarkValue, HasBinary {
     return computeRootsFromIncludes(getIncludes(), allowFiles);
   }
 
+  /**
+   * Returns git pathspecs that match at least every file matched by this glob, or an empty set if
+   * the glob could match any file. For example {@code glob(["foo/**"], exclude = ["foo/bar/**"])}
+   * returns {@code [":(glob)foo/**", ":(exclude,glob)foo/bar/**"]}.
+   *
+   * <p>Includes that use syntax that git doesn't support, like braces, or a {@code **} that is not
+   * a whole path component, are replaced by their roots. Excludes are only kept if they are a
+   * single file or a whole directory, so that the pathspecs never exclude a file matched by the
+   * glob.
+   */
+  public ImmutableSet<String> pathspecs() {
+    ImmutableSet.Builder<String> result = ImmutableSet.builder();
+    for (GlobAtom atom : getIncludes()) {
+      String pattern = atom.pattern();
+      if (atom.getType() == AtomType.SINGLE_FILE) {
+        result.add(":(literal)" + pattern);
+      } else if (!AtomType.isMeta(pattern)) {
+        result.add(":(literal)" + atom.root(/* allowFiles= */ true));
+      } else if (pattern.equals("**")) {
+        return ImmutableSet.of();
+      } else if (isGitGlob(pattern)) {
+        result.add(":(glob)" + pattern);
+      } else if (atom.root(/* allowFiles= */ false).isEmpty()) {
+        return ImmutableSet.of();
+      } else {
+        result.add(":(literal)" + atom.root(/* allowFiles= */ false));
+      }
+    }
+    ImmutableSet<String> includes = result.build();
+    if (includes.isEmpty() || exclude == null || exclude.exclude != null) {
+      return includes;
+    }
+    for (GlobAtom atom : exclude.include) {
+      String pattern = atom.pattern();
+      if (atom.getType() == AtomType.SINGLE_FILE) {
+        result.add(":(exclude,literal)" + pattern);
+      } else if (!AtomType.isMeta(pattern)) {
+        result.add(":(exclude,literal)" + atom.root(/* allowFiles= */ true));
+      } else if (pattern.endsWith("/**")
+          && !pattern.contains("\\")
+          && !AtomType.isMeta(pattern.substring(0, pattern.length() - 3))) {
+        result.add(":(exclude,glob)" + pattern);
+      }
+    }
+    return result.build();
+  }
+
+  /**
+   * Whether git matches {@code pattern} as a glob pathspec like this glob does. Git doesn't support
+   * braces, escapes differently, and treats a {@code **} that is not a whole path component, like
+   * in {@code foo/**.java}, as {@code *}, that doesn't match files in subdirectories.
+   */
+  private static boolean isGitGlob(String pattern) {
+    if (pattern.contains("{") || pattern.contains("\\")) {
+      return false;
+    }
+    for (int i = pattern.indexOf("**"); i != -1; i = pattern.indexOf("**", i + 2)) {
+      if ((i > 0 && pattern.charAt(i - 1) != '/')
+          || (i + 2 < pattern.length() && pattern.charAt(i + 2) != '/')) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * If roots is empty or contains a single elemnent that is not a subdirectory. See {@link
    * #roots()} for detail.
@@ -0,0 +1,237 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.flogger.FluentLogger;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import com.google.copybara.util.FileUtil.ResolvedSymlink;
+import com.google.copybara.util.FileUtil.ResolvedSymlink.TargetLocation;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+
+/**
+ * The hashes of the files of a directory, that can be compared with a later version of the same
+ * tree without keeping a copy of it.
+ *
+ * <p>This is a cheaper alternative, for the reversible check, to copying the tree before and after
+ * the transformations and diffing both copies: the tree is not copied before the transformations,
+ * and after the reverse transformations run in a {@link Workspace}, only the files whose
+ * attributes changed since they were copied are hashed and compared with the snapshot.
+ *
+ * <p>Changes are detected from the size, modification time, file key and executable bit of the
+ * files, so a file rewritten without changing any of them is considered unchanged. Like git does
+ * for its index, files modified in the same timestamp tick as the snapshot are always hashed,
+ * since a later write in that tick wouldn't change their modification time.
+ */
+public final class HashedTree {
+
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  private static final HashFunction HASH = Hashing.murmur3_128();
+
+  private record FileStat(
+      long size, FileTime lastModified, @Nullable Object fileKey, boolean executable) {}
+
+  private record Entry(FileStat stat, HashCode hash) {}
+
+  private final ImmutableMap<String, Entry> files;
+  // Files modified at or after this time could be modified again without changing their stat.
+  private final FileTime snapshotTime;
+
+  private HashedTree(ImmutableMap<String, Entry> files, FileTime snapshotTime) {
+    this.files = files;
+    this.snapshotTime = snapshotTime;
+  }
+
+  /**
+   * Hashes the files in {@code root}.
+   *
+   * @throws SymlinkException if a symlink points outside of {@code root}
+   */
+  public static HashedTree create(Path root) throws IOException {
+    ImmutableMap.Builder<String, Entry> files = ImmutableMap.builder();
+    for (Map.Entry<String, FileStat> e : readAttributes(root, /* checkSymlinks= */ true)
+        .entrySet()) {
+      files.put(e.getKey(), new Entry(e.getValue(), hash(root.resolve(e.getKey()))));
+    }
+    return new HashedTree(files.buildOrThrow(), fileSystemTime(root));
+  }
+
+  /**
+   * Copies to {@code workspace} the current content of {@code tree}, which is the tree this
+   * snapshot was taken from after being modified.
+   *
+   * <p>Files are copied, not hard linked: a tool that writes a linked file in place would also
+   * change the file in {@code tree}, even if a later step replaces it with a new file and the diff
+   * doesn't report it. The attributes of the copies of files that didn't change since the
+   * snapshot are recorded, so that {@link Workspace#diff} doesn't need to hash them again unless
+   * they are modified.
+   */
+  public Workspace createWorkspace(Path tree, Path workspace) throws IOException {
+    Preconditions.checkArgument(Files.isDirectory(workspace), "%s is not a directory", workspace);
+    Map<String, FileStat> current = readAttributes(tree, /* checkSymlinks= */ true);
+    Set<String> unchanged = new HashSet<>();
+    for (Map.Entry<String, FileStat> e : current.entrySet()) {
+      Path from = tree.resolve(e.getKey());
+      Path to = workspace.resolve(e.getKey());
+      Files.createDirectories(to.getParent());
+      if (Files.isSymbolicLink(from)) {
+        Files.createSymbolicLink(to, Files.readSymbolicLink(from));
+      } else {
+        Files.copy(from, to, StandardCopyOption.COPY_ATTRIBUTES);
+      }
+      Entry original = files.get(e.getKey());
+      if (original != null
+          && original.stat().equals(e.getValue())
+          && isOlder(e.getValue(), snapshotTime)) {
+        unchanged.add(e.getKey());
+      }
+    }
+    Map<String, FileStat> copies = readAttributes(workspace, /* checkSymlinks= */ false);
+    FileTime copyTime = fileSystemTime(workspace);
+    copies.keySet().retainAll(unchanged);
+    copies.values().removeIf(stat -> !isOlder(stat, copyTime));
+    logger.atInfo().log(
+        "Reversible check workspace: %d files copied, %d unchanged since the snapshot",
+        current.size(), copies.size());
+    return new Workspace(workspace, copies);
+  }
+
+  /** A copy of a tree, cheap to compare with the {@link HashedTree}. */
+  public final class Workspace {
+
+    private final Path root;
+    private final Map<String, FileStat> unchanged;
+
+    private Workspace(Path root, Map<String, FileStat> unchanged) {
+      this.root = root;
+      this.unchanged = unchanged;
+    }
+
+    /**
+     * Returns the differences between the workspace and the snapshot, as lines like {@code "M
+     * foo/bar.txt"} for files that were modified, {@code "A ..."} for added files and {@code "D
+     * ..."} for deleted files, in path order. Files that match {@code ignore} are not compared.
+     */
+    public ImmutableList<String> diff(PathMatcher ignore) throws IOException {
+      Map<String, String> result = new TreeMap<>();
+      Map<String, FileStat> current = readAttributes(root, /* checkSymlinks= */ false);
+      for (Map.Entry<String, FileStat> e : current.entrySet()) {
+        String path = e.getKey();
+        if (ignore.matches(root.resolve(path))) {
+          continue;
+        }
+        Entry original = files.get(path);
+        if (original == null) {
+          result.put(path, "A " + path);
+          continue;
+        }
+        // Copies of files that didn't change, and that nobody modified since, are skipped.
+        if (!e.getValue().equals(unchanged.get(path))
+            && (original.stat().executable() != e.getValue().executable()
+                || !original.hash().equals(hash(root.resolve(path))))) {
+          result.put(path, "M " + path);
+        }
+      }
+      for (String path : files.keySet()) {
+        if (!current.containsKey(path) && !ignore.matches(root.resolve(path))) {
+          result.put(path, "D " + path);
+        }
+      }
+      return ImmutableList.copyOf(result.values());
+    }
+  }
+
+  private static boolean isOlder(FileStat stat, FileTime time) {
+    return stat.lastModified().compareTo(time) < 0;
+  }
+
+  /**
+   * Returns the modification time of a new file in {@code dir}, which has the granularity of the
+   * file system, unlike the clock.
+   */
+  private static FileTime fileSystemTime(Path dir) throws IOException {
+    Path marker = Files.createTempFile(dir, ".hashed_tree", null);
+    try {
+      return Files.getLastModifiedTime(marker);
+    } finally {
+      Files.delete(marker);
+    }
+  }
+
+  private static HashCode hash(Path path) throws IOException {
+    if (Files.isSymbolicLink(path)) {
+      return HASH.hashString(Files.readSymbolicLink(path).toString(), UTF_8);
+    }
+    return MoreFiles.asByteSource(path).hash(HASH);
+  }
+
+  private static Map<String, FileStat> readAttributes(Path root, boolean checkSymlinks)
+      throws IOException {
+    PathMatcher inside = Glob.ALL_FILES.relativeTo(root.normalize());
+    Map<String, FileStat> result = new HashMap<>();
+    Files.walkFileTree(
+        root,
+        new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+              throws IOException {
+            boolean symlink = attrs.isSymbolicLink();
+            if (symlink && checkSymlinks) {
+              ResolvedSymlink resolved = FileUtil.resolveSymlink(inside, file);
+              if (resolved.getTargetLocation() != TargetLocation.INSIDE) {
+                throw new SymlinkException(
+                    String.format(
+                        "Symlink '%s' is %s as it points to '%s'",
+                        file, resolved.getTargetLocation(), resolved.getRegularFile()));
+              }
+            }
+            if (symlink || attrs.isRegularFile()) {
+              result.put(
+                  root.relativize(file).toString(),
+                  new FileStat(
+                      attrs.size(),
+                      attrs.lastModifiedTime(),
+                      attrs.fileKey(),
+                      !symlink && Files.isExecutable(file)));
+            }
+            return FileVisitResult.CONTINUE;
+          }
+        });
+    return result;
+  }
+}
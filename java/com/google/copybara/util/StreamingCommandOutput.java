@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteSource;
+import com.google.common.io.FileBackedOutputStream;
+import com.google.copybara.shell.TerminationStatus;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+import java.util.regex.Pattern;
+
+/**
+ * Holds the result of a command executed with {@link CommandRunner#executeStreaming(int)}.
+ *
+ * <p>Stdout is kept in memory up to a threshold and in a temporary file after that, so that it can
+ * be consumed as a stream without holding the whole output in the heap. Stderr is kept in memory.
+ *
+ * <p>Instances need to be closed to delete the temporary file and release the iterators returned
+ * by {@link #split(String, String)} that were not exhausted.
+ */
+public final class StreamingCommandOutput implements Closeable {
+
+  private final TerminationStatus terminationStatus;
+  private final FileBackedOutputStream stdout;
+  private final byte[] stderr;
+  private final List<Scanner> scanners = new ArrayList<>();
+
+  StreamingCommandOutput(
+      TerminationStatus terminationStatus, FileBackedOutputStream stdout, byte[] stderr) {
+    this.terminationStatus = Preconditions.checkNotNull(terminationStatus);
+    this.stdout = Preconditions.checkNotNull(stdout);
+    this.stderr = Preconditions.checkNotNull(stderr);
+  }
+
+  public TerminationStatus getTerminationStatus() {
+    return terminationStatus;
+  }
+
+  /** The stdout of the command. Can be opened as many times as needed until closed. */
+  public ByteSource getStdout() {
+    return stdout.asByteSource();
+  }
+
+  /** Reads the whole stdout in memory. Prefer {@link #getStdout()} or {@link #split(String)}. */
+  public byte[] getStdoutBytes() throws IOException {
+    return getStdout().read();
+  }
+
+  public String getStderr() {
+    return new String(stderr, UTF_8);
+  }
+
+  /**
+   * Returns the UTF-8 stdout split by {@code delimiter}, reading it incrementally. Empty tokens
+   * are skipped, so an empty output returns no tokens. The iterator throws {@link
+   * java.io.UncheckedIOException} on read errors. It can't be used after this output is closed.
+   *
+   * @param prefix a prefix that the output is expected to start with, skipped before splitting
+   */
+  public Iterator<String> split(String prefix, String delimiter) throws IOException {
+    Reader reader = new InputStreamReader(getStdout().openBufferedStream(), UTF_8);
+    char[] head = new char[prefix.length()];
+    int read = 0;
+    while (read < head.length) {
+      int n = reader.read(head, read, head.length - read);
+      if (n == -1) {
+        break;
+      }
+      read += n;
+    }
+    // An empty output has no tokens, even if a prefix was expected.
+    if (read > 0 && !new String(head, 0, read).equals(prefix)) {
+      reader.close();
+      throw new IOException(
+          String.format(
+              "Unexpected command output. Expected prefix '%s' but got '%s'",
+              prefix, new String(head, 0, read)));
+    }
+    Scanner scanner = new Scanner(reader).useDelimiter(Pattern.quote(delimiter));
+    // Callers can stop before the end of the output, so the reader is closed with this output.
+    scanners.add(scanner);
+    return new TokenIterator(scanner);
+  }
+
+  /** Same as {@link #split(String, String)} without a prefix. */
+  public Iterator<String> split(String delimiter) throws IOException {
+    return split("", delimiter);
+  }
+
+  /** Closes the readers of the iterators and deletes the backing temporary file, if any. */
+  @Override
+  public void close() throws IOException {
+    for (Scanner scanner : scanners) {
+      scanner.close();
+    }
+    scanners.clear();
+    stdout.reset();
+  }
+
+  private static class TokenIterator implements Iterator<String> {
+
+    private final Scanner scanner;
+    private String next;
+
+    private TokenIterator(Scanner scanner) {
+      this.scanner = scanner;
+      advance();
+    }
+
+    private void advance() {
+      next = null;
+      while (scanner.hasNext()) {
+        String token = scanner.next();
+        if (!token.isEmpty()) {
+          next = token;
+          return;
+        }
+      }
+      IOException e = scanner.ioException();
+      scanner.close();
+      if (e != null) {
+        throw new UncheckedIOException("Error reading command output", e);
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override
+    public String next() {
+      if (next == null) {
+        throw new NoSuchElementException();
+      }
+      String result = next;
+      advance();
+      return result;
+    }
+  }
+}
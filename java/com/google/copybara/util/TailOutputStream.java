@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * An {@link OutputStream} that only keeps the last {@code capacity} bytes written to it. Used for
+ * logging the output of commands whose full output is not kept in memory.
+ */
+final class TailOutputStream extends OutputStream {
+
+  private final byte[] buffer;
+  private long count;
+
+  TailOutputStream(int capacity) {
+    checkArgument(capacity > 0, "capacity is expected to be greater than zero.");
+    this.buffer = new byte[capacity];
+  }
+
+  @Override
+  public synchronized void write(int b) {
+    buffer[(int) (count % buffer.length)] = (byte) b;
+    count++;
+  }
+
+  @Override
+  public synchronized void write(byte[] b, int off, int len) {
+    if (len > buffer.length) {
+      // Only the last bytes matter
+      count += len - buffer.length;
+      off += len - buffer.length;
+      len = buffer.length;
+    }
+    int pos = (int) (count % buffer.length);
+    int first = Math.min(len, buffer.length - pos);
+    System.arraycopy(b, off, buffer, pos, first);
+    System.arraycopy(b, off + first, buffer, 0, len - first);
+    count += len;
+  }
+
+  /** True if more bytes than the capacity were written, so the head was discarded. */
+  synchronized boolean isTruncated() {
+    return count > buffer.length;
+  }
+
+  /** Returns the last (up to capacity) bytes written, in order. */
+  synchronized byte[] toByteArray() {
+    if (count <= buffer.length) {
+      return Arrays.copyOf(buffer, (int) count);
+    }
+    int pos = (int) (count % buffer.length);
+    byte[] result = new byte[buffer.length];
+    System.arraycopy(buffer, pos, result, 0, buffer.length - pos);
+    System.arraycopy(buffer, 0, result, buffer.length - pos, pos);
+    return result;
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.version;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.flogger.FluentLogger;
+import com.google.common.hash.Hashing;
+import com.google.copybara.exception.RepoException;
+import com.google.copybara.exception.ValidationException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.Nullable;
+
+/**
+ * Cache of the versions listed by {@link VersionList}s that query a remote source, like a package
+ * registry or a git repository, so that resolving several workflows against the same source only
+ * queries it once per TTL.
+ *
+ * <p>Entries are keyed by a string that identifies the source, usually the URL queried, and
+ * optionally stored in a directory so that they are reused by later runs. Each source is stored in
+ * its own file and a file that cannot be parsed is ignored.
+ */
+public final class VersionListCache {
+
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  /** A cache that always lists the versions from the source. */
+  public static final VersionListCache DISABLED =
+      new VersionListCache(/* dir= */ null, Duration.ZERO, Clock.systemUTC());
+
+  /** Lists the versions from the source. */
+  public interface Loader {
+    ImmutableSet<String> load() throws ValidationException, RepoException;
+  }
+
+  private record Entry(Instant listed, ImmutableSet<String> versions) {}
+
+  @Nullable private final Path dir;
+  private final Duration ttl;
+  private final Clock clock;
+  private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<>();
+
+  /**
+   * Creates a cache whose entries expire after {@code ttl}, stored in {@code dir} if not null.
+   */
+  public VersionListCache(@Nullable Path dir, Duration ttl, Clock clock) {
+    Preconditions.checkArgument(!ttl.isNegative(), "Negative TTL: %s", ttl);
+    this.dir = dir;
+    this.ttl = ttl;
+    this.clock = Preconditions.checkNotNull(clock);
+  }
+
+  /**
+   * Returns the versions of {@code source}, listing them with {@code loader} if they are not
+   * cached or they expired.
+   */
+  public ImmutableSet<String> get(String source, Loader loader)
+      throws ValidationException, RepoException {
+    if (ttl.isZero()) {
+      return loader.load();
+    }
+    Entry entry = entries.get(source);
+    if (isFresh(entry)) {
+      return entry.versions();
+    }
+    // Concurrent requests for the same source wait for the first one to list the versions.
+    synchronized (locks.computeIfAbsent(source, k -> new Object())) {
+      entry = entries.get(source);
+      if (isFresh(entry)) {
+        return entry.versions();
+      }
+      entry = read(source);
+      if (isFresh(entry)) {
+        entries.put(source, entry);
+        return entry.versions();
+      }
+      entry = new Entry(clock.instant(), loader.load());
+      entries.put(source, entry);
+      write(source, entry);
+      return entry.versions();
+    }
+  }
+
+  private boolean isFresh(@Nullable Entry entry) {
+    if (entry == null) {
+      return false;
+    }
+    Instant now = clock.instant();
+    return !entry.listed().isAfter(now) && entry.listed().plus(ttl).isAfter(now);
+  }
+
+  private static boolean fitsInLine(String s) {
+    return s.indexOf('\n') == -1 && s.indexOf('\r') == -1;
+  }
+
+  private Path file(String source) {
+    return dir.resolve(Hashing.murmur3_128().hashString(source, UTF_8).toString());
+  }
+
+  /**
+   * Reads the entry for {@code source}. The file contains the source, the time the versions were
+   * listed and the versions, one per line.
+   */
+  @Nullable
+  private Entry read(String source) {
+    if (dir == null) {
+      return null;
+    }
+    Path file = file(source);
+    try {
+      List<String> lines = Files.readAllLines(file, UTF_8);
+      if (lines.size() < 2 || !lines.get(0).equals(source)) {
+        return null;
+      }
+      return new Entry(
+          Instant.ofEpochMilli(Long.parseLong(lines.get(1))),
+          ImmutableSet.copyOf(lines.subList(2, lines.size())));
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException | NumberFormatException e) {
+      logger.atWarning().withCause(e).log("Cannot read version list cache %s", file);
+      return null;
+    }
+  }
+
+  private void write(String source, Entry entry) {
+    if (dir == null
+        || !fitsInLine(source)
+        || !entry.versions().stream().allMatch(v -> !v.isEmpty() && fitsInLine(v))) {
+      // Doesn't fit in the file format
+      return;
+    }
+    Path file = file(source);
+    StringBuilder content = new StringBuilder();
+    content.append(source).append('\n').append(entry.listed().toEpochMilli()).append('\n');
+    for (String version : entry.versions()) {
+      content.append(version).append('\n');
+    }
+    try {
+      Files.createDirectories(dir);
+      // Written to a temporary file first, so that concurrent readers never see partial content.
+      Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+      Files.writeString(tmp, content, UTF_8);
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      logger.atWarning().withCause(e).log("Cannot write version list cache %s", file);
+    }
+  }
+}
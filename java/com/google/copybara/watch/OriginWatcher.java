@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.watch;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Multimaps;
+import com.google.common.flogger.FluentLogger;
+import com.google.copybara.exception.RepoException;
+import com.google.copybara.exception.ValidationException;
+import com.google.copybara.git.GitOptions;
+import com.google.copybara.git.GitRepository;
+import com.google.copybara.util.Glob;
+import com.google.copybara.util.console.Console;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+
+/**
+ * Polls the heads of the git origins of a set of workflows and decides which workflows need to
+ * run.
+ *
+ * <p>The refs of each remote are read with a single ls-remote. When the head of a workflow moves,
+ * the workflow waits until the head stays at the same revision for the quiet period, so that a
+ * burst of pushes triggers a single run. Then, the new revision is fetched and the workflow only
+ * runs if the files changed since the previous head match its origin files. If the previous head
+ * is not available locally, the workflow runs.
+ *
+ * <p>Workflows with the same origin url share the cached repository of the url, so only one of
+ * them runs at a time, and the repository is not fetched while one of them runs.
+ *
+ * <p>The first poll only records the heads.
+ */
+public final class OriginWatcher {
+
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  private static final Path ROOT = FileSystems.getDefault().getPath("/");
+
+  /** A workflow to watch: the url and ref of its git origin, and its origin files. */
+  public record WatchedWorkflow(String name, String url, String ref, Glob originFiles) {}
+
+  /** A workflow that needs to run because its origin {@code url} moved to {@code sha}. */
+  public record Launch(String workflow, String url, String sha) {}
+
+  private record Pending(String from, String to, String resolvedRef, Instant lastChange) {}
+
+  private final GitOptions gitOptions;
+  private final Console console;
+  private final ImmutableListMultimap<String, WatchedWorkflow> workflowsByUrl;
+  private final Duration quietPeriod;
+  // Last head seen for each url and ref
+  private final Map<String, Map<String, String>> heads = new HashMap<>();
+  private final Map<String, Pending> pending = new LinkedHashMap<>();
+
+  public OriginWatcher(
+      GitOptions gitOptions,
+      Console console,
+      ImmutableList<WatchedWorkflow> workflows,
+      Duration quietPeriod) {
+    this.gitOptions = Preconditions.checkNotNull(gitOptions);
+    this.console = Preconditions.checkNotNull(console);
+    this.workflowsByUrl = Multimaps.index(workflows, WatchedWorkflow::url);
+    this.quietPeriod = Preconditions.checkNotNull(quietPeriod);
+  }
+
+  /**
+   * Reads the heads of the origins and returns the workflows that need to run, at most one per
+   * origin url. Workflows whose origin url is {@code busy}, because a workflow with the same origin
+   * is running, are kept pending until it finishes.
+   */
+  public ImmutableList<Launch> poll(Instant now, Predicate<String> busy)
+      throws RepoException, ValidationException {
+    for (String url : workflowsByUrl.keySet()) {
+      ImmutableList<WatchedWorkflow> workflows = workflowsByUrl.get(url);
+      ImmutableSet<String> refs =
+          workflows.stream().map(WatchedWorkflow::ref).collect(ImmutableSet.toImmutableSet());
+      Map<String, String> remoteRefs;
+      try {
+        remoteRefs = repo(url).lsRemote(url, refs);
+      } catch (RepoException e) {
+        // Keep watching the rest of remotes
+        console.warnFmt("Cannot read the references of %s: %s", url, e.getMessage());
+        logger.atWarning().withCause(e).log("Cannot read the references of %s", url);
+        continue;
+      }
+      Map<String, String> previous = heads.computeIfAbsent(url, k -> new HashMap<>());
+      for (String ref : refs) {
+        Optional<String> resolvedRef = resolve(remoteRefs, ref);
+        if (resolvedRef.isEmpty()) {
+          continue;
+        }
+        String sha = remoteRefs.get(resolvedRef.get());
+        String old = previous.put(ref, sha);
+        if (old == null || old.equals(sha)) {
+          continue;
+        }
+        for (WatchedWorkflow workflow : workflows) {
+          if (workflow.ref().equals(ref)) {
+            Pending existing = pending.get(workflow.name());
+            pending.put(
+                workflow.name(),
+                new Pending(
+                    existing == null ? old : existing.from(), sha, resolvedRef.get(), now));
+          }
+        }
+      }
+    }
+
+    ImmutableList.Builder<Launch> result = ImmutableList.builder();
+    Map<String, ImmutableSet<String>> changedFiles = new HashMap<>();
+    Set<String> launchedUrls = new HashSet<>();
+    for (WatchedWorkflow workflow : workflowsByUrl.values()) {
+      Pending change = pending.get(workflow.name());
+      if (change == null
+          || change.lastChange().plus(quietPeriod).isAfter(now)
+          || busy.test(workflow.url())
+          || launchedUrls.contains(workflow.url())) {
+        continue;
+      }
+      pending.remove(workflow.name());
+      String key = workflow.url() + " " + change.from() + " " + change.to();
+      if (!changedFiles.containsKey(key)) {
+        changedFiles.put(key, changedFiles(workflow.url(), change));
+      }
+      ImmutableSet<String> files = changedFiles.get(key);
+      PathMatcher matcher = workflow.originFiles().relativeTo(ROOT);
+      if (files != null && files.stream().noneMatch(f -> matcher.matches(ROOT.resolve(f)))) {
+        console.verboseFmt(
+            "Skipping %s: no origin files changed in %s..%s",
+            workflow.name(), change.from(), change.to());
+        continue;
+      }
+      launchedUrls.add(workflow.url());
+      result.add(new Launch(workflow.name(), workflow.url(), change.to()));
+    }
+    return result.build();
+  }
+
+  /**
+   * Returns the files changed between the two revisions of the change, or null if they cannot be
+   * computed.
+   */
+  @Nullable
+  private ImmutableSet<String> changedFiles(String url, Pending change)
+      throws ValidationException {
+    try {
+      GitRepository repo = repo(url);
+      repo.fetch(
+          url,
+          /* prune= */ false,
+          /* force= */ true,
+          ImmutableList.of(change.resolvedRef()),
+          /* partialFetch= */ false,
+          Optional.empty(),
+          /* tags= */ false);
+      // Fails if the previous head was never fetched
+      String diff =
+          repo.simpleCommand("diff", "--name-only", "--no-renames", change.from(), change.to())
+              .getStdout();
+      return ImmutableSet.copyOf(Splitter.on('\n').omitEmptyStrings().split(diff));
+    } catch (RepoException e) {
+      logger.atInfo().withCause(e).log(
+          "Cannot compute the files changed in %s..%s", change.from(), change.to());
+      return null;
+    }
+  }
+
+  private GitRepository repo(String url) throws RepoException {
+    return gitOptions.cachedBareRepoForUrl(url);
+  }
+
+  /** Finds the ref in the ls-remote output, where it might be listed with its full name. */
+  private static Optional<String> resolve(Map<String, String> remoteRefs, String ref) {
+    for (String candidate : ImmutableList.of(ref, "refs/heads/" + ref, "refs/tags/" + ref)) {
+      if (remoteRefs.containsKey(candidate)) {
+        return Optional.of(candidate);
+      }
+    }
+    return Optional.empty();
+  }
+
+  /** Returns the workflows that are waiting for the quiet period or for a previous run. */
+  public ImmutableSet<String> getPending() {
+    return ImmutableSet.copyOf(pending.keySet());
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.watch;
+
+import static com.google.copybara.exception.ValidationException.checkCondition;
+
+import com.beust.jcommander.Parameters;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Iterables;
+import com.google.common.flogger.FluentLogger;
+import com.google.copybara.CommandEnv;
+import com.google.copybara.ConfigFileArgs;
+import com.google.copybara.ConfigLoaderProvider;
+import com.google.copybara.CopybaraCmd;
+import com.google.copybara.GeneralOptions;
+import com.google.copybara.Workflow;
+import com.google.copybara.config.Config;
+import com.google.copybara.config.Migration;
+import com.google.copybara.exception.EmptyChangeException;
+import com.google.copybara.exception.RepoException;
+import com.google.copybara.exception.ValidationException;
+import com.google.copybara.git.GitOptions;
+import com.google.copybara.git.GitOrigin;
+import com.google.copybara.util.ExitCode;
+import com.google.copybara.util.console.Console;
+import com.google.copybara.watch.OriginWatcher.Launch;
+import com.google.copybara.watch.OriginWatcher.WatchedWorkflow;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polls the origins of the workflows of a config file and runs the workflows whose origin files
+ * changed.
+ */
+@Parameters(
+    separators = "=",
+    commandDescription =
+        "Polls the origins of the workflows with a git origin and runs the workflows whose origin"
+            + " files changed. Watches the workflows passed as arguments, or all of them.")
+public class WatchCmd implements CopybaraCmd {
+
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  private final ConfigLoaderProvider configLoaderProvider;
+
+  public WatchCmd(ConfigLoaderProvider configLoaderProvider) {
+    this.configLoaderProvider = Preconditions.checkNotNull(configLoaderProvider);
+  }
+
+  @Override
+  public ExitCode run(CommandEnv commandEnv)
+      throws ValidationException, IOException, RepoException {
+    ConfigFileArgs configFileArgs = commandEnv.getConfigFileArgs();
+    GeneralOptions generalOptions = commandEnv.getOptions().get(GeneralOptions.class);
+    WatchOptions watchOptions = commandEnv.getOptions().get(WatchOptions.class);
+    Console console = generalOptions.console();
+    checkCondition(watchOptions.threads > 0, "--watch-threads should be greater than 0");
+
+    Config config =
+        configLoaderProvider.newLoader(configFileArgs.getConfigPath(), null).load(console);
+    ImmutableList<String> names =
+        configFileArgs.hasWorkflowName()
+            ? ImmutableList.<String>builder()
+                .add(configFileArgs.getWorkflowName())
+                .addAll(configFileArgs.getSourceRefs())
+                .build()
+            : config.getMigrations().keySet().asList();
+
+    Map<String, Workflow<?, ?>> workflows = new HashMap<>();
+    ImmutableList.Builder<WatchedWorkflow> watched = ImmutableList.builder();
+    for (String name : names) {
+      Migration migration = config.getMigration(name);
+      if (!(migration instanceof Workflow<?, ?> workflow
+          && workflow.getOrigin() instanceof GitOrigin origin)) {
+        checkCondition(
+            !configFileArgs.hasWorkflowName(),
+            "'%s' cannot be watched. Only workflows with a git origin are supported",
+            name);
+        continue;
+      }
+      ImmutableSetMultimap<String, String> description =
+          origin.describe(workflow.getOriginFiles());
+      workflows.put(name, workflow);
+      watched.add(
+          new WatchedWorkflow(
+              name,
+              Iterables.getOnlyElement(description.get("url")),
+              Iterables.getFirst(description.get("ref"), "HEAD"),
+              workflow.getOriginFiles()));
+    }
+    checkCondition(
+        !workflows.isEmpty(),
+        "There are no workflows with a git origin in %s",
+        configFileArgs.getConfigPath());
+
+    OriginWatcher watcher =
+        new OriginWatcher(
+            commandEnv.getOptions().get(GitOptions.class),
+            console,
+            watched.build(),
+            watchOptions.quietPeriod);
+    // Origin urls of the running workflows
+    Set<String> running = ConcurrentHashMap.newKeySet();
+    ExecutorService executor = Executors.newFixedThreadPool(watchOptions.threads);
+    try {
+      console.infoFmt("Watching %d workflows", workflows.size());
+      for (int poll = 1; watchOptions.polls == 0 || poll <= watchOptions.polls; poll++) {
+        if (poll > 1) {
+          Thread.sleep(watchOptions.interval.toMillis());
+        }
+        ImmutableList<Launch> launches;
+        try {
+          launches = watcher.poll(Instant.now(), running::contains);
+        } catch (RepoException | ValidationException e) {
+          console.warnFmt("Cannot poll the origins: %s", e.getMessage());
+          logger.atWarning().withCause(e).log("Cannot poll the origins");
+          continue;
+        }
+        for (Launch launch : launches) {
+          String name = launch.workflow();
+          Workflow<?, ?> workflow = workflows.get(name);
+          running.add(launch.url());
+          console.infoFmt("Origin of '%s' changed to %s", name, launch.sha());
+          executor.execute(
+              () -> runWorkflow(generalOptions, workflow, name, launch.url(), running));
+        }
+      }
+      executor.shutdown();
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RepoException("Interrupted while watching the origins", e);
+    } finally {
+      executor.shutdownNow();
+    }
+    return ExitCode.SUCCESS;
+  }
+
+  private static void runWorkflow(
+      GeneralOptions generalOptions,
+      Workflow<?, ?> workflow,
+      String name,
+      String url,
+      Set<String> running) {
+    Console console = generalOptions.console();
+    try {
+      workflow.run(generalOptions.getDirFactory().newTempDir("watch"), ImmutableList.of());
+      console.infoFmt("Workflow '%s' finished", name);
+    } catch (EmptyChangeException e) {
+      console.infoFmt("Workflow '%s' was a no-op: %s", name, e.getMessage());
+    } catch (RepoException | ValidationException | IOException | RuntimeException e) {
+      // Keep watching. The workflow runs again the next time its origin changes.
+      console.errorFmt("Workflow '%s' failed: %s", name, e.getMessage());
+      logger.atSevere().withCause(e).log("Workflow '%s' failed", name);
+    } finally {
+      running.remove(url);
+    }
+  }
+
+  @Override
+  public String name() {
+    return "watch";
+  }
+}
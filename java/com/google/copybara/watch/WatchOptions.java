@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.watch;
+
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+import com.google.copybara.Option;
+import com.google.copybara.jcommander.DurationConverter;
+import java.time.Duration;
+
+/** Options for the watch command. */
+@Parameters(separators = "=")
+public class WatchOptions implements Option {
+
+  @Parameter(
+      names = "--watch-interval",
+      description = "How often the origins of the watched workflows are polled, e.g. 1m.",
+      converter = DurationConverter.class)
+  public Duration interval = Duration.ofMinutes(1);
+
+  @Parameter(
+      names = "--watch-quiet-period",
+      description =
+          "How long the origin of a workflow needs to stay at the same revision after a change"
+              + " before the workflow is run, so that bursts of pushes are migrated together.",
+      converter = DurationConverter.class)
+  public Duration quietPeriod = Duration.ofSeconds(30);
+
+  @Parameter(
+      names = "--watch-threads",
+      description =
+          "Maximum number of migrations run at the same time by the watch command. Workflows with"
+              + " the same origin url never run at the same time.")
+  public int threads = 4;
+
+  @Parameter(
+      names = "--watch-polls",
+      description = "Stop the watch command after this number of polls. 0 means never stop.")
+  public int polls = 0;
+}
@@ -20,10 +20,14 @@ import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.assertThrows;
 
 import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.copybara.exception.ValidationException;
 import com.google.copybara.testing.OptionsBuilder;
 import com.google.copybara.testing.SkylarkTestExecutor;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -132,4 +136,24 @@ public class ChangeMessageTest {
     ChangeMessage changeMessage = msg.withLabelsFilteredBy(predicate);
     assertThat(changeMessage.getLabels().stream().allMatch(predicate)).isTrue();
   }
+
+  @Test
+  public void testLabelsOfAll() {
+    List<String> messages = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      messages.add("Change " + i + "\n\nfoo: " + i + "\nnot a label\nbar=baz\n");
+    }
+
+    ImmutableList<ImmutableListMultimap<String, String>> labels =
+        ChangeMessage.labelsOfAll(messages);
+
+    assertThat(labels).hasSize(5000);
+    for (int i = 0; i < 5000; i++) {
+      assertThat(labels.get(i))
+          .containsExactly("foo", String.valueOf(i), "bar", "baz")
+          .inOrder();
+    }
+    assertThat(ChangeMessage.labelsOfAll(ImmutableList.of("a: b\n\nc=d")).get(0))
+        .isEqualTo(ChangeMessage.parseAllAsLabels("a: b\n\nc=d").labelsAsMultimap());
+  }
 }
@@ -23,10 +23,12 @@ import static org.junit.Assert.assertThrows;
 
 import com.beust.jcommander.internal.Lists;
 import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
 import com.google.copybara.util.CommandOutputWithStatus;
 import com.google.copybara.util.CommandRunner;
 import com.google.copybara.util.CommandRunner.CommandExecutor;
 import com.google.copybara.util.CommandTimeoutException;
+import com.google.copybara.util.StreamingCommandOutput;
 import com.google.copybara.shell.AbnormalTerminationException;
 import com.google.copybara.shell.Command;
 import com.google.copybara.shell.CommandException;
@@ -42,6 +44,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.PosixFilePermissions;
 import java.time.Duration;
+import java.util.Iterator;
 import java.util.List;
 import java.util.logging.LogRecord;
 import java.util.logging.Logger;
@@ -286,6 +289,61 @@ public class CommandRunnerTest {
     assertThat(e).hasMessageThat().contains("OH NOES!");
   }
 
+  @Test
+  public void testExecuteStreamingSpillsToFile() throws Exception {
+    Command command =
+        bashCommand(
+            """
+            for i in $(seq 1 %d); do printf 'line%%d\\0' $i; done
+            echo 'some error' >&2
+            exit 1
+            """
+                .formatted(LINES_SIZE));
+    // Small threshold so that the output doesn't fit in memory.
+    try (StreamingCommandOutput output = new CommandRunner(command).executeStreaming(16)) {
+      assertThat(output.getTerminationStatus().success()).isFalse();
+      assertThat(output.getStderr()).isEqualTo("some error\n");
+      Iterator<String> lines = output.split("\0");
+      int count = 0;
+      while (lines.hasNext()) {
+        count++;
+        assertThat(lines.next()).isEqualTo("line" + count);
+      }
+      assertThat(count).isEqualTo(LINES_SIZE);
+    }
+  }
+
+  @Test
+  public void testExecuteStreamingCloseReleasesUnfinishedSplit() throws Exception {
+    Command command =
+        bashCommand(
+            """
+            for i in $(seq 1 %d); do printf 'line%%d\\0' $i; done
+            """
+                .formatted(LINES_SIZE));
+    Iterator<String> lines;
+    try (StreamingCommandOutput output = new CommandRunner(command).executeStreaming(16)) {
+      lines = output.split("\0");
+      assertThat(lines.next()).isEqualTo("line1");
+    }
+
+    assertThrows(IllegalStateException.class, lines::next);
+  }
+
+  @Test
+  public void testExecuteStreamingPrefix() throws Exception {
+    Command command =
+        bashCommand(
+            """
+            printf 'SEPfooSEPbar'
+            """);
+    try (StreamingCommandOutput output = new CommandRunner(command).executeStreaming(1024)) {
+      assertThat(output.getTerminationStatus().success()).isTrue();
+      assertThat(ImmutableList.copyOf(output.split("SEP", "SEP"))).containsExactly("foo", "bar")
+          .inOrder();
+    }
+  }
+
   private CommandOutputWithStatus runCommand(CommandRunner commandRunner) throws CommandException {
     Logger logger = Logger.getLogger(CommandRunner.class.getName());
     boolean useParentLogger = logger.getUseParentHandlers();
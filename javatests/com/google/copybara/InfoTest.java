@@ -18,6 +18,7 @@ package com.google.copybara;
 
 import static com.google.common.truth.Truth.assertThat;
 import static com.google.copybara.util.ExitCode.SUCCESS;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -25,6 +26,8 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Sets;
 import com.google.copybara.Info.MigrationReference;
 import com.google.copybara.authoring.Author;
 import com.google.copybara.config.Config;
@@ -48,11 +51,16 @@ import java.nio.file.Path;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
 
 @RunWith(JUnit4.class)
 public class InfoTest {
@@ -253,6 +261,86 @@ public class InfoTest {
         .onceInLog(MessageType.INFO, ".*N/A.*Third change.*Foo <Bar>.*");
   }
 
+  @Test
+  public void testInfoAllMigrations() throws Exception {
+    Migration other = mock(Migration.class);
+    for (Migration m : ImmutableList.of(migration, other)) {
+      when(m.getOriginDescription()).thenReturn(ImmutableSetMultimap.of("url", "foo"));
+    }
+    when(migration.getName()).thenReturn("workflow");
+    when(other.getName()).thenReturn("another");
+    config = new Config(ImmutableMap.of("workflow", migration, "another", other),
+        temp.resolve("copy.bara.sky").toString(),
+        ImmutableMap.of());
+    info = new InfoCmd(
+        (configPath, sourceRef) -> new ConfigLoader(
+            skylark.createModuleSet(),
+            skylark.createConfigFile("copy.bara.sky", configInfo),
+            optionsBuilder.general.getStarlarkMode()) {
+          @Override
+          public ConfigWithDependencies loadWithDependencies(Console console) {
+            return configWithDeps;
+          }
+        }, getFakeContextProvider());
+    // Both migrations read the same origin, so they must not be read at the same time
+    AtomicInteger reading = new AtomicInteger();
+    AtomicBoolean concurrent = new AtomicBoolean();
+    Info<? extends Revision> workflowInfo =
+        Info.create(
+            dummyOriginDescription,
+            dummyDestinationDescription,
+            ImmutableList.of(
+                MigrationReference.create(
+                    "workflow",
+                    new DummyRevision("1111"),
+                    null,
+                    ImmutableList.of(newChange("2222", "First change", null)))));
+    Info<? extends Revision> anotherInfo =
+        Info.create(
+            dummyOriginDescription,
+            dummyDestinationDescription,
+            ImmutableList.of(
+                MigrationReference.create(
+                    "another", new DummyRevision("3333"), null, ImmutableList.of())));
+    // Both migrations get the same resolved origins, so the origin is resolved once
+    Set<Map<Object, Revision>> resolvedOrigins = Sets.newIdentityHashSet();
+    Mockito.<Info<? extends Revision>>when(migration.getInfo(any()))
+        .thenAnswer(i -> readInfo(reading, concurrent, workflowInfo, resolvedOrigins, i));
+    Mockito.<Info<? extends Revision>>when(other.getInfo(any()))
+        .thenAnswer(i -> readInfo(reading, concurrent, anotherInfo, resolvedOrigins, i));
+    optionsBuilder.general.infoAllMigrations = true;
+    optionsBuilder.general.infoThreads = 2;
+
+    ExitCode exitCode =
+        info.run(prepAndGetCommandEnv(info, ImmutableList.of("copy.bara.sky")));
+
+    assertThat(exitCode).isEqualTo(ExitCode.SUCCESS);
+    console
+        .assertThat()
+        .matchesNextSkipAhead(MessageType.INFO, "Migration 'another':")
+        .matchesNext(MessageType.INFO, ".*last_migrated 3333 - last_available None.*")
+        .matchesNext(MessageType.INFO, "Migration 'workflow':")
+        .matchesNext(MessageType.INFO, ".*last_migrated 1111 - last_available 2222.*");
+    assertThat(concurrent.get()).isFalse();
+    assertThat(resolvedOrigins).hasSize(1);
+  }
+
+  private static Info<? extends Revision> readInfo(
+      AtomicInteger reading,
+      AtomicBoolean concurrent,
+      Info<? extends Revision> info,
+      Set<Map<Object, Revision>> resolvedOrigins,
+      InvocationOnMock invocation)
+      throws InterruptedException {
+    resolvedOrigins.add(invocation.getArgument(0));
+    if (reading.incrementAndGet() > 1) {
+      concurrent.set(true);
+    }
+    Thread.sleep(100);
+    reading.decrementAndGet();
+    return info;
+  }
+
   @Test
   public void testInfoIncludeDefinitionAndListOnly() throws Exception {
     configInfo =
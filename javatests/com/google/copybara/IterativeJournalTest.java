@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.copybara.IterativeJournal.Entry;
+import com.google.copybara.IterativeJournal.Outcome;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class IterativeJournalTest {
+
+  private static final String KEY = "key";
+
+  private Path file;
+
+  @Before
+  public void setup() throws Exception {
+    file = Files.createTempDirectory("journal").resolve("journal");
+  }
+
+  @Test
+  public void testOutcomesAreStored() throws Exception {
+    IterativeJournal journal =
+        IterativeJournal.create(file, KEY, "1", ImmutableList.of("2", "3", "4"));
+    journal.record("2", Outcome.MIGRATED, ImmutableList.of("abc", "def"));
+    journal.record("3", Outcome.EMPTY, ImmutableList.of());
+
+    IterativeJournal read = IterativeJournal.read(file, KEY);
+
+    assertThat(read.getEntries())
+        .containsExactly(
+            new Entry("2", Outcome.MIGRATED, ImmutableList.of("abc", "def")),
+            new Entry("3", Outcome.EMPTY, ImmutableList.of()),
+            new Entry("4", Outcome.PENDING, ImmutableList.of()))
+        .inOrder();
+    assertThat(read.migrated()).isEqualTo(1);
+    assertThat(IterativeJournal.read(file, "other key")).isNull();
+
+    read.delete();
+    assertThat(IterativeJournal.read(file, KEY)).isNull();
+  }
+
+  @Test
+  public void testOutcomesAreAppended() throws Exception {
+    IterativeJournal journal =
+        IterativeJournal.create(file, KEY, "1", ImmutableList.of("2", "3", "4"));
+    String written = Files.readString(file, UTF_8);
+    journal.record("2", Outcome.MIGRATED, ImmutableList.of("abc"));
+    journal.record("3", Outcome.EMPTY, ImmutableList.of());
+
+    assertThat(Files.readString(file, UTF_8))
+        .isEqualTo(written + "2\tMIGRATED\tabc\n3\tEMPTY\n");
+  }
+
+  @Test
+  public void testPartialLineIsIgnored() throws Exception {
+    IterativeJournal journal =
+        IterativeJournal.create(file, KEY, "1", ImmutableList.of("2", "3"));
+    journal.record("2", Outcome.MIGRATED, ImmutableList.of("abc"));
+    // The process died while appending the outcome of 3
+    Files.writeString(file, "3\tMIGR", UTF_8, StandardOpenOption.APPEND);
+
+    assertThat(IterativeJournal.read(file, KEY).getEntries())
+        .containsExactly(
+            new Entry("2", Outcome.MIGRATED, ImmutableList.of("abc")),
+            new Entry("3", Outcome.PENDING, ImmutableList.of()))
+        .inOrder();
+  }
+
+  @Test
+  public void testResume() throws Exception {
+    IterativeJournal journal =
+        IterativeJournal.create(file, KEY, "1", ImmutableList.of("2", "3", "4"));
+    journal.record("2", Outcome.MIGRATED, ImmutableList.of("abc"));
+    journal.record("3", Outcome.EMPTY, ImmutableList.of());
+
+    IterativeJournal resumed =
+        IterativeJournal.read(file, KEY).resume("2", ImmutableList.of("3", "4", "5"));
+
+    assertThat(resumed.outcome("3")).isEqualTo(Outcome.EMPTY);
+    assertThat(resumed.outcome("4")).isEqualTo(Outcome.PENDING);
+    assertThat(IterativeJournal.read(file, KEY).getEntries())
+        .containsExactly(
+            new Entry("2", Outcome.MIGRATED, ImmutableList.of("abc")),
+            new Entry("3", Outcome.EMPTY, ImmutableList.of()),
+            new Entry("4", Outcome.PENDING, ImmutableList.of()),
+            new Entry("5", Outcome.PENDING, ImmutableList.of()))
+        .inOrder();
+  }
+
+  @Test
+  public void testResumeWithoutMigratedChanges() throws Exception {
+    IterativeJournal.create(file, KEY, /* start= */ null, ImmutableList.of("1", "2"));
+
+    assertThat(IterativeJournal.read(file, KEY).resume(null, ImmutableList.of("1", "2")))
+        .isNotNull();
+    assertThat(IterativeJournal.read(file, KEY).resume("1", ImmutableList.of("2"))).isNull();
+  }
+
+  @Test
+  public void testCannotResume() throws Exception {
+    IterativeJournal journal =
+        IterativeJournal.create(file, KEY, "1", ImmutableList.of("2", "3", "4"));
+    journal.record("2", Outcome.MIGRATED, ImmutableList.of("abc"));
+
+    // The destination is not at the last change migrated
+    assertThat(journal.resume("1", ImmutableList.of("2", "3", "4"))).isNull();
+    assertThat(journal.resume("3", ImmutableList.of("4"))).isNull();
+    // The pending changes are different
+    assertThat(journal.resume("2", ImmutableList.of("3", "5"))).isNull();
+    assertThat(journal.resume("2", ImmutableList.of("3"))).isNull();
+  }
+
+  @Test
+  public void testRevisionsThatDontFitAreNotStored() throws Exception {
+    IterativeJournal.create(file, KEY, "1", ImmutableList.of("2"));
+    IterativeJournal.create(file, KEY, "1", ImmutableList.of("2\t3"));
+
+    assertThat(Files.exists(file)).isFalse();
+  }
+
+  @Test
+  public void testRefsThatDontFitDeleteTheJournal() throws Exception {
+    IterativeJournal journal =
+        IterativeJournal.create(file, KEY, "1", ImmutableList.of("2", "3"));
+    journal.record("2", Outcome.MIGRATED, ImmutableList.of("a\nb"));
+    journal.record("3", Outcome.MIGRATED, ImmutableList.of("c"));
+
+    assertThat(Files.exists(file)).isFalse();
+  }
+}
@@ -43,6 +43,14 @@ public class LabelFinderTest {
     assertThat(new LabelFinder("foo://").isLabel()).isFalse();
     assertThat(new LabelFinder("foo://aaa").isLabel()).isFalse();
     assertThat(new LabelFinder("foo bar baz=baz").isLabel()).isFalse();
+    assertThat(new LabelFinder("foo://aaa").isLabel("foo")).isFalse();
+  }
+
+  @Test
+  public void testIsLabelWithName() {
+    assertThat(new LabelFinder("foo: bar").isLabel("foo")).isTrue();
+    assertThat(new LabelFinder("foo: bar").isLabel("bar")).isFalse();
+    assertThat(new LabelFinder("foo: bar").getSeparator()).isEqualTo(": ");
   }
 
   private void checkIsLabel(String string, String labelName, String labelValue) {
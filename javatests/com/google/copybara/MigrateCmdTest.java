@@ -18,6 +18,8 @@ package com.google.copybara;
 
 import static com.google.common.truth.Truth.assertThat;
 import static com.google.copybara.testing.git.GitTestUtil.writeFile;
+import static com.google.copybara.util.CommandRunner.DEFAULT_TIMEOUT;
+import static org.junit.Assert.assertThrows;
 
 import com.google.common.collect.ImmutableList;
 import com.google.copybara.config.Config;
@@ -136,6 +138,55 @@ public class MigrateCmdTest {
         .isTrue();
   }
 
+  @Test
+  public void testParallelMigrations() throws Exception {
+    optionsBuilder.general.dryRunMode = false;
+    Path destA = Files.createTempDirectory("destA");
+    Path destB = Files.createTempDirectory("destB");
+    GitEnvironment gitEnv = new GitEnvironment(optionsBuilder.general.getEnvironment());
+    GitRepository destARepo =
+        GitRepository.newBareRepo(destA, gitEnv, /* verbose= */ true, DEFAULT_TIMEOUT, false)
+            .init();
+    GitRepository destBRepo =
+        GitRepository.newBareRepo(destB, gitEnv, /* verbose= */ true, DEFAULT_TIMEOUT, false)
+            .init();
+    optionsBuilder.workflowOptions.parallelMigrations = ImmutableList.of("mirror_b");
+    MigrateCmd cmd =
+        getMigrateCmd(
+            """
+            git.mirror(name = 'mirror_a', origin = '%s', destination = 'file://%s')
+            git.mirror(name = 'mirror_b', origin = '%s', destination = 'file://%s')
+            """.formatted(url, destA, url, destB));
+    CommandEnv commandEnv =
+        prepAndGetCommandEnv(
+            cmd, ImmutableList.of(temp.resolve("copy.bara.sky").toString(), "mirror_a"));
+
+    cmd.run(commandEnv);
+
+    String head = repo.parseRef(primaryBranch).getSha1();
+    assertThat(destARepo.parseRef(primaryBranch).getSha1()).isEqualTo(head);
+    assertThat(destBRepo.parseRef(primaryBranch).getSha1()).isEqualTo(head);
+  }
+
+  @Test
+  public void testParallelMigrationsRejectWorkflows() throws Exception {
+    optionsBuilder.workflowOptions.parallelMigrations = ImmutableList.of("default");
+    MigrateCmd cmd =
+        getMigrateCmd(
+            getConfigInfo(/* partialFetch= */ "False")
+                + """
+
+                git.mirror(name = 'mirror', origin = '%s', destination = '%s')
+                """.formatted(url, url));
+    CommandEnv commandEnv =
+        prepAndGetCommandEnv(
+            cmd, ImmutableList.of(temp.resolve("copy.bara.sky").toString(), "mirror"));
+
+    ValidationException e = assertThrows(ValidationException.class, () -> cmd.run(commandEnv));
+
+    assertThat(e).hasMessageThat().contains("'default' is a workflow");
+  }
+
   private CommandEnv prepAndGetCommandEnv(MigrateCmd cmd, ImmutableList<String> args)
       throws Exception {
     CommandEnv commandEnv = new CommandEnv(temp, optionsBuilder.build(), args);
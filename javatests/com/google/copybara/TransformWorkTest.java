@@ -999,6 +999,35 @@ public class TransformWorkTest {
             "prefix_file3.txt", "bbb"));
   }
 
+  @Test
+  public void testListIsCoherentWithWritesAndDeletes() throws Exception {
+    FileSystem fileSystem = Jimfs.newFileSystem();
+    Path base = fileSystem.getPath("testListIsCoherentWithWritesAndDeletes");
+    writeFile(base, "folder/file1.txt", "aaa");
+    writeFile(base, "folder/file2.txt", "aaa");
+
+    Files.createDirectories(workdir.resolve("folder"));
+    origin.addChange(0, base, "message", /*matchesGlob=*/true);
+
+    runWorkflow(
+        "test",
+        """
+        def test(ctx):
+            if len(ctx.list(glob(['**.txt']))) != 2:
+                fail('Expected two files')
+            ctx.write_path(ctx.new_path('folder/file3.txt'), 'ccc')
+            ctx.new_path('folder/file1.txt').remove()
+            names = [f.name for f in ctx.list(glob(['**.txt']))]
+            ctx.write_path(ctx.new_path('listed.txt'), ','.join(names))\
+        """);
+
+    assertThat(destination.processed.get(0).getWorkdir())
+        .containsExactlyEntriesIn(ImmutableMap.of(
+            "folder/file2.txt", "aaa",
+            "folder/file3.txt", "ccc",
+            "listed.txt", "file2.txt,file3.txt"));
+  }
+
   @Test
   public void testRunFileOps() throws IOException, ValidationException, RepoException {
     checkPathOperations(
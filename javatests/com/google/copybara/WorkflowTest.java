@@ -115,10 +115,12 @@ import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoField;
 import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.Nullable;
 import net.starlark.java.annot.StarlarkBuiltin;
 import net.starlark.java.annot.StarlarkMethod;
@@ -851,6 +853,186 @@ public class WorkflowTest {
     assertThat(destination.processed).hasSize(18);
   }
 
+  @Test
+  public void iterativeWorkflowTest_pipelined() throws Exception {
+    for (int timestamp = 0; timestamp < 61; timestamp++) {
+      origin.addSimpleChange(timestamp);
+    }
+    options.workflowOptions.pipelinedIterative = true;
+    Workflow<?, ?> workflow = iterativeWorkflow(/*previousRef=*/ "42");
+
+    workflow.run(workdir, ImmutableList.of("60"));
+    assertThat(destination.processed).hasSize(18);
+    int nextChange = 43;
+    for (ProcessedChange change : destination.processed) {
+      assertThat(change.getChangesSummary()).isEqualTo(nextChange + " change");
+      String asString = Integer.toString(nextChange);
+      assertThat(change.getOriginRef().asString()).isEqualTo(asString);
+      assertThat(change.getContent("file.txt")).isEqualTo(PREFIX + asString);
+      nextChange++;
+    }
+    assertThat(eventMonitor.changeMigrationStartedEventCount()).isEqualTo(18);
+    assertThat(eventMonitor.changeMigrationFinishedEventCount()).isEqualTo(18);
+  }
+
+  @Test
+  public void iterativeWorkflowTest_pipelinedWithLimit() throws Exception {
+    for (int timestamp = 0; timestamp < 51; timestamp++) {
+      origin.addSimpleChange(timestamp);
+    }
+    options.workflowOptions.pipelinedIterative = true;
+    options.workflowOptions.iterativeLimitChanges = 3;
+
+    iterativeWorkflow(/*previousRef=*/ "40").run(workdir, ImmutableList.of("50"));
+
+    assertThat(destination.processed).hasSize(3);
+    assertThat(Iterables.getLast(destination.processed).getChangesSummary())
+        .isEqualTo("43 change");
+  }
+
+  @Test
+  public void testIterativePipelinedValidationException() throws Exception {
+    options.workflowOptions.pipelinedIterative = true;
+    assertThat(checkIterativeModeWithError(new ValidationException("Your change is wrong!")))
+        .hasMessageThat()
+        .isEqualTo("Your change is wrong!");
+    console()
+        .assertThat()
+        .onceInLog(
+            MessageType.ERROR,
+            "Migration of origin revision '2' failed with error: Your change is wrong.*");
+  }
+
+  @Test
+  public void testIterativePipelinedProducesNoop() throws Exception {
+    options.workflowOptions.pipelinedIterative = true;
+    assertThat(checkIterativeModeWithError(new EmptyChangeException("This was an empty change!")))
+        .hasMessageThat()
+        .isEqualTo("Iterative workflow produced no changes in the destination for resolved ref: 3");
+    console()
+        .assertThat()
+        .onceInLog(
+            MessageType.WARNING, "Migration of origin revision '2' resulted in an empty change.*")
+        .onceInLog(
+            MessageType.WARNING, "Migration of origin revision '3' resulted in an empty change.*");
+  }
+
+  @Test
+  public void iterativeWorkflowTest_pipelinedPreparesDuringWrite() throws Exception {
+    for (int timestamp = 0; timestamp < 6; timestamp++) {
+      origin.addSimpleChange(timestamp);
+    }
+    options.workflowOptions.pipelinedIterative = true;
+    List<String> prepared = new ArrayList<>();
+    destination.onWrite(
+        result -> {
+          int next = Integer.parseInt(result.getCurrentRevision().asString()) + 1;
+          if (next > 5) {
+            return;
+          }
+          // The next change is checked out and transformed in the other workdir
+          Path current = result.getPath().getParent();
+          String name = current.getFileName().toString();
+          Path other =
+              name.endsWith("_next")
+                  ? current.resolveSibling(name.substring(0, name.length() - "_next".length()))
+                  : current.resolveSibling(name + "_next");
+          Path file = other.resolve("checkout/file.txt");
+          for (int i = 0; i < 300; i++) {
+            try {
+              if (Files.readString(file).equals(PREFIX + next)) {
+                prepared.add(Integer.toString(next));
+                return;
+              }
+            } catch (IOException e) {
+              // Not checked out yet
+            }
+            try {
+              Thread.sleep(100);
+            } catch (InterruptedException e) {
+              throw new AssertionError(e);
+            }
+          }
+        });
+
+    iterativeWorkflow(/* previousRef= */ "1").run(workdir, ImmutableList.of("5"));
+
+    assertThat(destination.processed).hasSize(4);
+    assertThat(prepared).containsExactly("3", "4", "5").inOrder();
+  }
+
+  @Test
+  public void iterativeWorkflowTest_pipelinedDestinationReaderWaitsForWrite() throws Exception {
+    for (int timestamp = 0; timestamp < 6; timestamp++) {
+      origin.addSimpleChange(timestamp);
+    }
+    options.workflowOptions.pipelinedIterative = true;
+    transformations =
+        ImmutableList.<String>builder()
+            .addAll(transformations)
+            .add(
+                """
+                lambda ctx: ctx.write_path(
+                    ctx.new_path('previous.txt'),
+                    ctx.destination_reader().read_file('file.txt')
+                    if ctx.destination_reader().file_exists('file.txt') else 'none')\
+                """)
+            .build();
+    // Make the writes slow, so that the next change would read a stale destination if it didn't
+    // wait.
+    destination.onWrite(
+        result -> {
+          try {
+            Thread.sleep(200);
+          } catch (InterruptedException e) {
+            throw new AssertionError(e);
+          }
+        });
+
+    iterativeWorkflow(/* previousRef= */ "1").run(workdir, ImmutableList.of("5"));
+
+    assertThat(destination.processed).hasSize(4);
+    assertThat(destination.processed.get(0).getContent("previous.txt")).isEqualTo("none");
+    for (int i = 1; i < 4; i++) {
+      assertThat(destination.processed.get(i).getContent("previous.txt"))
+          .isEqualTo(PREFIX + (i + 1));
+    }
+  }
+
+  @Test
+  public void iterativeWorkflowTest_pipelinedEndpointsWaitForWrite() throws Exception {
+    for (int timestamp = 0; timestamp < 6; timestamp++) {
+      origin.addSimpleChange(timestamp);
+    }
+    options.workflowOptions.pipelinedIterative = true;
+    transformations =
+        ImmutableList.<String>builder()
+            .addAll(transformations)
+            .add("lambda ctx: ctx.destination_api().message(ctx.message)")
+            .build();
+    // The write of 3 fails slowly, so that the next change would use the endpoint before the
+    // failure if it didn't wait.
+    destination.onWrite(
+        result -> {
+          try {
+            Thread.sleep(200);
+          } catch (InterruptedException e) {
+            throw new AssertionError(e);
+          }
+          if (result.getCurrentRevision().asString().equals("3")) {
+            throw new IllegalStateException("Write failed");
+          }
+        });
+
+    assertThrows(
+        IllegalStateException.class,
+        () -> iterativeWorkflow(/* previousRef= */ "1").run(workdir, ImmutableList.of("5")));
+
+    assertThat(destination.processed).hasSize(1);
+    // Only the changes 2 and 3 reached the endpoint
+    assertThat(destination.getEndpoint().messages).hasSize(2);
+  }
+
   @Test
   @SuppressWarnings("AssertThrowsMinimizer")
   public void testIterativeModeWithLimit() throws Exception {
@@ -914,6 +1096,62 @@ public class WorkflowTest {
 
   // Safe cast of unchecked exception types for parameterized exception helper.
   @SuppressWarnings("unchecked")
+  @Test
+  public void iterativeWorkflowResumesFromJournal() throws Exception {
+    for (int timestamp = 0; timestamp < 7; timestamp++) {
+      origin.addSimpleChange(timestamp);
+    }
+    options.workflowOptions.iterativeJournal = true;
+    List<String> written = new ArrayList<>();
+    AtomicBoolean fail = new AtomicBoolean(true);
+    options.testingOptions.destination =
+        new RecordsProcessCallDestination() {
+          @Override
+          public Writer<Revision> newWriter(WriterContext writerContext) {
+            return new WriterImpl(writerContext.isDryRun()) {
+              @Override
+              public ImmutableList<DestinationEffect> write(
+                  TransformResult transformResult, Glob destinationFiles, Console console)
+                  throws ValidationException, RepoException {
+                String revision = transformResult.getCurrentRevision().asString();
+                written.add(revision);
+                if (revision.equals("3")) {
+                  throw new EmptyChangeException("Empty change");
+                }
+                if (revision.equals("4") && fail.get()) {
+                  throw new RepoException("Connection lost");
+                }
+                return super.write(transformResult, destinationFiles, console);
+              }
+            };
+          }
+        };
+
+    assertThrows(
+        RepoException.class,
+        () -> iterativeWorkflow(/* previousRef= */ "1").run(workdir, ImmutableList.of("6")));
+    assertThat(written).containsExactly("2", "3", "4").inOrder();
+
+    fail.set(false);
+    written.clear();
+    iterativeWorkflow(/* previousRef= */ null).run(workdir, ImmutableList.of("6"));
+
+    // The empty change is not written again
+    assertThat(written).containsExactly("4", "5", "6").inOrder();
+    console()
+        .assertThat()
+        .onceInLog(MessageType.INFO, "Resuming the iterative migration of a previous run.*");
+
+    // The journal is deleted once the migration finishes
+    origin.addSimpleChange(7);
+    written.clear();
+    iterativeWorkflow(/* previousRef= */ null).run(workdir, ImmutableList.of("7"));
+    assertThat(written).containsExactly("7");
+    console()
+        .assertThat()
+        .onceInLog(MessageType.INFO, "Resuming the iterative migration of a previous run.*");
+  }
+
   private <T extends Exception> T checkIterativeModeWithError(T exception)
       throws IOException, ValidationException {
     for (int timestamp = 0; timestamp < 10; timestamp++) {
@@ -1304,6 +1542,39 @@ public class WorkflowTest {
     assertThat(destination.processed.get(1).getBaseline()).isEqualTo("3");
   }
 
+  @Test
+  public void squashWithCompactChanges() throws Exception {
+    transformations =
+        ImmutableList.of(
+            "metadata.squash_notes(compact = False, show_author = False, oldest_first = True)");
+    options.workflowOptions.squashCompactChangesThreshold = 1;
+    origin.singleFileChange(0, "base", "file.txt", "a");
+    origin.singleFileChange(1, "first\n\nfirst body", "file.txt", "b");
+    origin.singleFileChange(2, "second\n\nsecond body", "file.txt", "c");
+    options.workflowOptions.lastRevision = "0";
+
+    skylarkWorkflow("default", SQUASH).run(workdir, ImmutableList.of("2"));
+
+    assertThat(Iterables.getLast(destination.processed).getChangesSummary())
+        .isEqualTo(
+            """
+            Copybara import of the project:
+
+            --
+            1:
+
+            first
+
+            first body
+            --
+            2:
+
+            second
+
+            second body
+            """);
+  }
+
   @Test
   public void squashWithGroup() throws Exception {
     transformations = ImmutableList.of("metadata.squash_notes()");
@@ -3854,6 +4125,66 @@ public class WorkflowTest {
     workflow.run(Files.createDirectory(someRoot.resolve("run2")), ImmutableList.of());
   }
 
+  @Test
+  public void reversibleCheckFilesHashDiff() throws Exception {
+    options.workflowOptions.reversibleCheckHashDiff = true;
+    Path someRoot = Files.createTempDirectory("someRoot");
+    Path originPath = someRoot.resolve("origin");
+    Files.createDirectories(originPath);
+
+    GitRepository origin =
+        GitRepository.newRepo(/* verbose= */ true, originPath, getGitEnv()).init();
+    String primaryBranch = origin.getPrimaryBranch();
+
+    String config = "core.workflow(\n"
+        + "    name = 'default',\n"
+        + String.format("    origin = git.origin( url = 'file://%s', ref = '%s'),\n",
+        origin.getWorkTree(), primaryBranch)
+        + "    destination = testing.destination(),\n"
+        + "    authoring = " + authoring + ",\n"
+        + "    reversible_check = True,\n"
+        + "    reversible_check_ignore_files = glob([\"to_ignore/**\"],"
+        + "                                          exclude = [\"to_ignore/exclude\"]),\n"
+        + "    mode = '" + WorkflowMode.SQUASH + "',\n"
+        + "    transformations = ["
+        + "      core.replace(before = 'aa', after = 'bb')"
+        + "    ]"
+        + ")\n";
+
+    Migration workflow = loadConfig(config).getMigration("default");
+
+    GitTestUtil.writeFile(originPath, "test", "aabb");
+    GitTestUtil.writeFile(originPath, "untouched", "cc");
+    GitTestUtil.writeFile(originPath, "to_ignore/test", "aabb");
+    GitTestUtil.writeFile(originPath, "to_ignore/exclude", "aabb");
+
+    origin.add().all().run();
+    origin.simpleCommand("commit", "-m", "change");
+
+    ValidationException e =
+        assertThrows(
+            ValidationException.class,
+            () ->
+                workflow.run(Files.createDirectory(someRoot.resolve("run1")), ImmutableList.of()));
+    assertThat(e).hasMessageThat().contains("is not reversible");
+    String msg =
+        console().getMessages().stream()
+            .filter(m -> m.getType() == MessageType.ERROR && m.getText().contains("non-reversible"))
+            .findFirst()
+            .get()
+            .getText();
+    assertThat(msg).contains("M test");
+    assertThat(msg).doesNotContain("untouched");
+    assertThat(msg).doesNotContain("M to_ignore/test");
+    assertThat(msg).contains("M to_ignore/exclude");
+
+    GitTestUtil.writeFile(originPath, "test", "aa");
+    GitTestUtil.writeFile(originPath, "to_ignore/exclude", "aa");
+    origin.add().all().run();
+    origin.simpleCommand("commit", "-m", "change 2");
+    workflow.run(Files.createDirectory(someRoot.resolve("run2")), ImmutableList.of());
+  }
+
   @Test
   public void testGitDescribeVersionSemanticsForFilteredChanges_squash() throws Exception {
     runGitDescribeVersionSemanticsForFilteredChanges("SQUASH");
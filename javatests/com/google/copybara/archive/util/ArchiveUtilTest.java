@@ -27,6 +27,7 @@ import com.google.copybara.testing.FileSubjects;
 import com.google.copybara.util.Glob;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.stream.Stream;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
@@ -265,4 +266,102 @@ public final class ArchiveUtilTest {
     // Can refer https://en.wikipedia.org/wiki/ZIP_(file_format)#Limits.
     assertThat(Files.size(archivePath)).isEqualTo(22);
   }
+
+  @Test
+  public void testCreateArchive_zipFile_serial() throws Exception {
+    Path archivePath = testFolder.resolve("test.zip");
+    CheckoutPath checkoutPath =
+        CheckoutPath.createWithCheckoutDir(archivePath.getFileName(), testFolder);
+
+    ArchiveUtil.createArchive(
+        Files.newOutputStream(archivePath),
+        ExtractType.ZIP,
+        checkoutPath,
+        Glob.createGlob(ImmutableList.of("**")),
+        /* threads= */ 1);
+
+    ZipArchiveEntry archiveEntry;
+    try (ZipArchiveInputStream inputStream =
+        new ZipArchiveInputStream(Files.newInputStream(archivePath))) {
+      while (((archiveEntry = inputStream.getNextEntry()) != null)) {
+        Files.createDirectories(unarchiveResultFolder.resolve(archiveEntry.getName()).getParent());
+        MoreFiles.asByteSink(unarchiveResultFolder.resolve(archiveEntry.getName()))
+            .writeFrom(inputStream);
+      }
+    }
+
+    FileSubjects.assertThatPath(testFolder)
+        .containsFile("unarchive_result/filea.txt", "aaaa")
+        .containsFile("unarchive_result/fileb.md", "bbbb")
+        .containsFile("unarchive_result/subdir/filec.txt", "cccc");
+  }
+
+  @Test
+  public void testCreateArchive_zipFile_parallelKeepsWalkOrder() throws Exception {
+    for (int i = 0; i < 20; i++) {
+      MoreFiles.asByteSink(testFolder.resolve("subdir/file" + i + ".txt"))
+          .asCharSink(UTF_8)
+          .write("content " + i);
+    }
+    Path archivePath = testFolder.resolve("test.zip");
+    CheckoutPath checkoutPath =
+        CheckoutPath.createWithCheckoutDir(archivePath.getFileName(), testFolder);
+
+    ArchiveUtil.createArchive(
+        Files.newOutputStream(archivePath),
+        ExtractType.ZIP,
+        checkoutPath,
+        Glob.createGlob(ImmutableList.of("subdir/file*.txt")),
+        /* threads= */ 4);
+
+    ImmutableList<String> expected;
+    try (Stream<Path> files = Files.walk(testFolder.resolve("subdir"))) {
+      expected =
+          files
+              .filter(p -> p.getFileName().toString().matches("file[0-9]+\\.txt"))
+              .map(p -> testFolder.relativize(p).toString())
+              .collect(ImmutableList.toImmutableList());
+    }
+    ImmutableList.Builder<String> names = ImmutableList.builder();
+    ZipArchiveEntry archiveEntry;
+    try (ZipArchiveInputStream inputStream =
+        new ZipArchiveInputStream(Files.newInputStream(archivePath))) {
+      while (((archiveEntry = inputStream.getNextEntry()) != null)) {
+        names.add(archiveEntry.getName());
+      }
+    }
+    assertThat(names.build()).containsExactlyElementsIn(expected).inOrder();
+  }
+
+  @Test
+  public void testCreateArchive_tarGzFile_multiMember() throws Exception {
+    Path archivePath = testFolder.resolve("test.tar.gz");
+    CheckoutPath checkoutPath =
+        CheckoutPath.createWithCheckoutDir(archivePath.getFileName(), testFolder);
+
+    ArchiveUtil.createArchive(
+        Files.newOutputStream(archivePath),
+        ExtractType.TAR_GZ,
+        checkoutPath,
+        Glob.createGlob(ImmutableList.of("**")),
+        /* threads= */ 4,
+        /* multiMemberGzip= */ true);
+
+    TarArchiveEntry archiveEntry;
+    try (TarArchiveInputStream inputStream =
+        new TarArchiveInputStream(
+            new GzipCompressorInputStream(
+                Files.newInputStream(archivePath), /* decompressConcatenated= */ true))) {
+      while (((archiveEntry = inputStream.getNextEntry()) != null)) {
+        Files.createDirectories(unarchiveResultFolder.resolve(archiveEntry.getName()).getParent());
+        MoreFiles.asByteSink(unarchiveResultFolder.resolve(archiveEntry.getName()))
+            .writeFrom(inputStream);
+      }
+    }
+
+    FileSubjects.assertThatPath(testFolder)
+        .containsFile("unarchive_result/filea.txt", "aaaa")
+        .containsFile("unarchive_result/fileb.md", "bbbb")
+        .containsFile("unarchive_result/subdir/filec.txt", "cccc");
+  }
 }
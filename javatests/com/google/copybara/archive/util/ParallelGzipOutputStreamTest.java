@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.archive.util;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class ParallelGzipOutputStreamTest {
+
+  @Test
+  public void testRoundTrip_manyBlocks() throws Exception {
+    byte[] data = randomText(1_000_000);
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (OutputStream os = new ParallelGzipOutputStream(bos, /* blockSize= */ 10_000, 4)) {
+      // Unaligned writes to exercise block boundaries.
+      os.write(data, 0, 7);
+      os.write(data[7]);
+      os.write(data, 8, data.length - 8);
+    }
+
+    assertThat(gunzip(bos.toByteArray())).isEqualTo(data);
+    assertThat(
+            new GzipCompressorInputStream(
+                    new ByteArrayInputStream(bos.toByteArray()),
+                    /* decompressConcatenated= */ true)
+                .readAllBytes())
+        .isEqualTo(data);
+  }
+
+  @Test
+  public void testEmptyInputIsValidGzip() throws Exception {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    new ParallelGzipOutputStream(bos, 2).close();
+
+    assertThat(gunzip(bos.toByteArray())).isEmpty();
+  }
+
+  @Test
+  public void testWriteAfterClose() throws Exception {
+    OutputStream os = new ParallelGzipOutputStream(new ByteArrayOutputStream(), 2);
+    os.close();
+
+    assertThrows(IOException.class, () -> os.write(1));
+  }
+
+  private static byte[] gunzip(byte[] bytes) throws IOException {
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+      return in.readAllBytes();
+    }
+  }
+
+  private static byte[] randomText(int size) {
+    Random random = new Random(42);
+    byte[] data = new byte[size];
+    for (int i = 0; i < size; i++) {
+      data[i] = (byte) ('a' + random.nextInt(8));
+    }
+    return data;
+  }
+}
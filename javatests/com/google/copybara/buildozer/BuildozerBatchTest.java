@@ -21,6 +21,8 @@ import static com.google.copybara.testing.FileSubjects.assertThatPath;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertThrows;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.copybara.Transformation;
 import com.google.copybara.TransformationStatus;
 import com.google.copybara.exception.ValidationException;
@@ -28,6 +30,7 @@ import com.google.copybara.testing.OptionsBuilder;
 import com.google.copybara.testing.SkylarkTestExecutor;
 import com.google.copybara.testing.TransformWorks;
 import com.google.copybara.util.console.testing.TestingConsole;
+import com.google.copybara.buildozer.BuildozerOptions.BuildozerCommand;
 import com.google.copybara.buildozer.testing.BuildozerTesting;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -165,4 +168,101 @@ public class BuildozerBatchTest {
             () -> transform(create.join(targetNotFoundButIgnored).join(fileNotFound)));
     assertThat(thrown).hasMessageThat().contains("nosuch:file");
   }
+
+  @Test
+  public void testShardedBatch() throws Exception {
+    options.buildozerShards = 2;
+    BuildozerCreate create1 = skylark.eval("c", """
+        c = buildozer.create(
+            target = 'copy/bar:baz',
+            rule_type = 'proto_library'
+        )""");
+    BuildozerCreate create2 = skylark.eval("c", """
+        c = buildozer.create(
+            target = 'bara/bar:baz',
+            rule_type = 'proto_library'
+        )""");
+    BuildozerModify modify = skylark.eval("c", """
+        c = buildozer.modify(
+            target = ['copy/bar:baz', 'bara/bar:baz'],
+            commands = [ buildozer.cmd('set config "test"')],
+        )""");
+
+    TransformationStatus status = transform(create1.join(create2).join(modify));
+
+    assertThat(status.isSuccess()).isTrue();
+    assertThatPath(checkoutDir)
+        .containsFile(
+            "copy/bar/BUILD",
+            """
+            proto_library(
+                name = "baz",
+                config = "test",
+            )
+            """)
+        .containsFile(
+            "bara/bar/BUILD",
+            """
+            proto_library(
+                name = "baz",
+                config = "test",
+            )
+            """);
+  }
+
+  @Test
+  public void testShardedBatchTargetNotFoundIsError() throws Exception {
+    options.buildozerShards = 2;
+    BuildozerCreate create = skylark.eval("c", """
+        c = buildozer.create(
+            target = 'copy/bar:baz',
+            rule_type = 'proto_library'
+        )""");
+    BuildozerModify notFound = skylark.eval("c", """
+        c = buildozer.modify(
+            target = ['foo/bar:idontexist'],
+            commands = [ buildozer.cmd('set config "test"')],
+        )""");
+    Files.createDirectories(checkoutDir.resolve("foo/bar"));
+    Files.write(checkoutDir.resolve("foo/bar/BUILD"), "".getBytes(UTF_8));
+
+    TransformationStatus status = transform(create.join(notFound));
+
+    assertThat(status.isNoop()).isTrue();
+    assertThat(status.getMessage()).contains("foo/bar:idontexist");
+    assertThatPath(checkoutDir).containsFiles("copy/bar/BUILD");
+  }
+
+  @Test
+  public void testShardByPackage() throws Exception {
+    BuildozerOptions buildozer =
+        new BuildozerOptions(options.general, options.buildifier, options.workflowOptions);
+    buildozer.shards = 2;
+
+    ImmutableList<ImmutableList<BuildozerCommand>> shards =
+        buildozer.shard(
+            ImmutableList.of(
+                new BuildozerCommand(ImmutableList.of("a:x", "//b:y"), "set foo 1"),
+                new BuildozerCommand("a:z", "set bar 2"),
+                new BuildozerCommand("c:w", "set baz 3")));
+
+    assertThat(Lists.transform(shards, Object::toString))
+        .containsExactly(
+            "[set foo 1|a:x, set bar 2|a:z]",
+            "[set foo 1|//b:y, set baz 3|c:w]")
+        .inOrder();
+  }
+
+  @Test
+  public void testShardRecursiveTargets() throws Exception {
+    BuildozerOptions buildozer =
+        new BuildozerOptions(options.general, options.buildifier, options.workflowOptions);
+    buildozer.shards = 2;
+    ImmutableList<BuildozerCommand> commands =
+        ImmutableList.of(
+            new BuildozerCommand("a:x", "set foo 1"),
+            new BuildozerCommand("b/...:*", "set bar 2"));
+
+    assertThat(buildozer.shard(commands)).containsExactly(commands);
+  }
 }
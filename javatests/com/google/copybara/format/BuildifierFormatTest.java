@@ -32,6 +32,8 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -199,4 +201,47 @@ java_library(
         .hasMessageThat()
         .contains("Build file(s) couldn't be formatted because there was a syntax error");
   }
+
+  @Test
+  public void incremental() throws Exception {
+    options.setOutputRootToTmpDir();
+    options.buildifier.incremental = true;
+    Path bin = Files.createTempDirectory("bin").resolve("buildifier");
+    Files.copy(
+        Paths.get(options.buildifier.buildifierBin), bin, StandardCopyOption.COPY_ATTRIBUTES);
+    options.buildifier.buildifierBin = bin.toString();
+    BuildifierFormat b = skylark.eval("c", "c = format.buildifier()\n");
+
+    Files.write(checkoutDir.resolve("BUILD"), NOT_FORMATTED.getBytes(UTF_8));
+    Files.createDirectories(checkoutDir.resolve("foo"));
+    Files.write(checkoutDir.resolve("foo/BUILD"), FORMATTED.getBytes(UTF_8));
+    b.transform(TransformWorks.of(checkoutDir, "foo", console));
+
+    assertThatPath(checkoutDir)
+        .containsFile("BUILD", FORMATTED)
+        .containsFile("foo/BUILD", FORMATTED)
+        .containsNoMoreFiles();
+
+    // Same binary for the cache, but fails if it is run
+    FileTime modified = Files.getLastModifiedTime(bin);
+    Files.writeString(bin, "#!/bin/sh\nexit 2\n");
+    Files.setLastModifiedTime(bin, modified);
+
+    Path other = Files.createTempDirectory("BuildifierFormatTest");
+    Files.write(other.resolve("BUILD"), NOT_FORMATTED.getBytes(UTF_8));
+    Files.createDirectories(other.resolve("foo"));
+    Files.write(other.resolve("foo/BUILD"), FORMATTED.getBytes(UTF_8));
+    TransformationStatus status = b.transform(TransformWorks.of(other, "foo", console));
+
+    assertThat(status.isSuccess()).isTrue();
+    assertThatPath(other)
+        .containsFile("BUILD", FORMATTED)
+        .containsFile("foo/BUILD", FORMATTED)
+        .containsNoMoreFiles();
+
+    // New content needs buildifier
+    Files.createDirectories(other.resolve("bar"));
+    Files.write(other.resolve("bar/BUILD"), NOT_FORMATTED.getBytes(UTF_8));
+    assertThrows(IOException.class, () -> b.transform(TransformWorks.of(other, "foo", console)));
+  }
 }
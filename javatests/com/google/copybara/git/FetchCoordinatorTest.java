@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.git;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.copybara.exception.CannotResolveRevisionException;
+import com.google.copybara.exception.ValidationException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class FetchCoordinatorTest {
+
+  private static final FetchResult EMPTY_RESULT =
+      new FetchResult(ImmutableMap.of(), ImmutableMap.of());
+
+  private FetchCoordinator coordinator;
+  private FetchCoordinator.Key key;
+  private ExecutorService executor;
+  private final List<ImmutableList<String>> fetched =
+      Collections.synchronizedList(new ArrayList<>());
+
+  @Before
+  public void setup() throws Exception {
+    coordinator = new FetchCoordinator();
+    Path gitDir = Files.createTempDirectory("gitdir");
+    key =
+        new FetchCoordinator.Key(
+            gitDir,
+            "https://example.com/repo",
+            /* prune= */ false,
+            /* force= */ true,
+            /* partialFetch= */ false,
+            Optional.empty(),
+            /* tags= */ false);
+    executor = Executors.newCachedThreadPool();
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testConcurrentFetchesAreCoalesced() throws Exception {
+    CountDownLatch firstStarted = new CountDownLatch(1);
+    CountDownLatch releaseFirst = new CountDownLatch(1);
+    FetchCoordinator.Fetcher fetcher =
+        refspecs -> {
+          fetched.add(refspecs);
+          if (refspecs.contains("first")) {
+            firstStarted.countDown();
+            releaseFirst.await();
+          }
+          return EMPTY_RESULT;
+        };
+
+    Future<FetchResult> first =
+        executor.submit(() -> coordinator.fetch(key, ImmutableList.of("first"), fetcher));
+    firstStarted.await();
+    Future<FetchResult> second =
+        executor.submit(() -> coordinator.fetch(key, ImmutableList.of("second"), fetcher));
+    Future<FetchResult> third =
+        executor.submit(() -> coordinator.fetch(key, ImmutableList.of("third", "second"), fetcher));
+    waitForQueued(2);
+    releaseFirst.countDown();
+
+    assertThat(first.get(10, TimeUnit.SECONDS)).isSameInstanceAs(EMPTY_RESULT);
+    assertThat(second.get(10, TimeUnit.SECONDS)).isSameInstanceAs(EMPTY_RESULT);
+    assertThat(third.get(10, TimeUnit.SECONDS)).isSameInstanceAs(EMPTY_RESULT);
+    assertThat(fetched).hasSize(2);
+    assertThat(fetched.get(0)).containsExactly("first");
+    assertThat(fetched.get(1)).containsExactly("second", "third");
+    assertThat(coordinator.hasRequests(key)).isFalse();
+  }
+
+  @Test
+  public void testRequestsAreRemovedOnceDone() throws Exception {
+    FetchCoordinator.Fetcher fetcher =
+        refspecs -> {
+          assertThat(coordinator.hasRequests(key)).isTrue();
+          fetched.add(refspecs);
+          return EMPTY_RESULT;
+        };
+
+    coordinator.fetch(key, ImmutableList.of("first"), fetcher);
+    assertThat(coordinator.hasRequests(key)).isFalse();
+    coordinator.fetch(key, ImmutableList.of("second"), fetcher);
+
+    assertThat(coordinator.hasRequests(key)).isFalse();
+    assertThat(fetched).containsExactly(ImmutableList.of("first"), ImmutableList.of("second"));
+  }
+
+  @Test
+  public void testFailedCoalescedFetchIsRetriedSeparately() throws Exception {
+    CountDownLatch firstStarted = new CountDownLatch(1);
+    CountDownLatch releaseFirst = new CountDownLatch(1);
+    FetchCoordinator.Fetcher fetcher =
+        refspecs -> {
+          fetched.add(refspecs);
+          if (refspecs.contains("first")) {
+            firstStarted.countDown();
+            releaseFirst.await();
+          }
+          if (refspecs.contains("missing")) {
+            throw new CannotResolveRevisionException("Cannot find reference(s): " + refspecs);
+          }
+          return EMPTY_RESULT;
+        };
+
+    Future<FetchResult> first =
+        executor.submit(() -> coordinator.fetch(key, ImmutableList.of("first"), fetcher));
+    firstStarted.await();
+    Future<FetchResult> good =
+        executor.submit(() -> coordinator.fetch(key, ImmutableList.of("good"), fetcher));
+    Future<FetchResult> bad =
+        executor.submit(() -> coordinator.fetch(key, ImmutableList.of("missing"), fetcher));
+    waitForQueued(2);
+    releaseFirst.countDown();
+
+    assertThat(first.get(10, TimeUnit.SECONDS)).isSameInstanceAs(EMPTY_RESULT);
+    assertThat(good.get(10, TimeUnit.SECONDS)).isSameInstanceAs(EMPTY_RESULT);
+    Exception e = assertThrows(Exception.class, () -> bad.get(10, TimeUnit.SECONDS));
+    assertThat(e).hasCauseThat().isInstanceOf(CannotResolveRevisionException.class);
+    assertThat(e).hasCauseThat().hasMessageThat().contains("[missing]");
+    // first, the coalesced one and then each request separately.
+    assertThat(fetched).hasSize(4);
+  }
+
+  @Test
+  public void testSingleFetchErrorIsPropagated() {
+    ValidationException e =
+        assertThrows(
+            ValidationException.class,
+            () ->
+                coordinator.fetch(
+                    key,
+                    ImmutableList.of("foo"),
+                    refspecs -> {
+                      throw new ValidationException("bad fetch");
+                    }));
+    assertThat(e).hasMessageThat().isEqualTo("bad fetch");
+    assertThat(coordinator.hasRequests(key)).isFalse();
+  }
+
+  @Test
+  public void testFetchHoldsLockFile() throws Exception {
+    coordinator.fetch(
+        key,
+        ImmutableList.of(),
+        refspecs -> {
+          assertThat(Files.exists(key.gitDir().resolve(FetchCoordinator.LOCK_FILE))).isTrue();
+          return EMPTY_RESULT;
+        });
+  }
+
+  /** Waits until the coordinator has {@code count} requests waiting for the running fetch. */
+  private void waitForQueued(int count) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (coordinator.queuedRequests(key) < count && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(coordinator.queuedRequests(key)).isEqualTo(count);
+  }
+}
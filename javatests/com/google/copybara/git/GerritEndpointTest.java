@@ -54,6 +54,7 @@ import java.nio.file.Path;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import org.junit.Before;
 import org.junit.Test;
@@ -539,6 +540,34 @@ public class GerritEndpointTest {
             .build());
   }
 
+  @Test
+  public void testPostReviews() throws Exception {
+    mockForTest();
+    runFeedback(
+        ImmutableList.<String>builder()
+            .add(
+                "res = ctx.destination.post_reviews(["
+                    + "('12345', 'sha1', git.review_input({'Code-Review': 1}, 'foo')),"
+                    + "('12346', 'sha2', git.review_input({'Code-Review': 1}, 'bar'))])")
+            .add("if len(res) != 2:")
+            .add("  fail('unexpected number of results: ' + str(len(res)))")
+            .addAll(checkFieldStarLark("res[1]", "labels", "{'Code-Review': 1}"))
+            .build());
+  }
+
+  @Test
+  public void testGetChanges() throws Exception {
+    mockForTest();
+    runFeedback(
+        ImmutableList.<String>builder()
+            .add(
+                "res = ctx.destination.get_changes(["
+                    + "'I85dd4ea583ac218d9480eefb12ff2c83ce0bce61', '12345'])")
+            .add("if len(res) != 1:")
+            .add("  fail('unexpected number of results: ' + str(len(res)))")
+            .build());
+  }
+
   @Test
   public void testPostMessageTooLongHasPrefix() throws Exception {
     int maxMessageBytes = 16 << 10;
@@ -653,6 +682,44 @@ public class GerritEndpointTest {
     assertThat(called.get()).isTrue();
   }
 
+  @Test
+  public void deleteVotes() throws Exception {
+    AtomicInteger called = new AtomicInteger();
+    gitUtil.mockApi(
+        eq("POST"),
+        matches(BASE_URL + "/changes/1234[56]/reviewers/me/votes/Code-Review/delete"),
+        mockResponseWithStatus(
+            "",
+            204,
+            new MockRequestAssertion(
+                "Always true with side-effect",
+                s -> {
+                  called.incrementAndGet();
+                  return true;
+                })));
+
+    runFeedback(
+        ImmutableList.of(
+            "ctx.destination.delete_votes(["
+                + "('12345', 'me', 'Code-Review'), ('12346', 'me', 'Code-Review')])"));
+
+    assertThat(called.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void deleteVotes_invalidTuple() throws Exception {
+    ValidationException e =
+        assertThrows(
+            ValidationException.class,
+            () ->
+                runFeedback(
+                    ImmutableList.of("ctx.destination.delete_votes([('12345', 'me')])")));
+
+    assertThat(e)
+        .hasMessageThat()
+        .contains("Elements of 'votes' should be tuples of 3 elements");
+  }
+
   @Test
   public void deleteVote_gerritApiException_permissionIssue() throws Exception {
     var unused =
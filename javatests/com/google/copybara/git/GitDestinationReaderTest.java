@@ -134,6 +134,24 @@ public class GitDestinationReaderTest {
   }
 
 
+  @Test
+  public void testListAfterCopyingFromDestination() throws Exception {
+    Files.createDirectories(gitDir.resolve("foo"));
+    Files.write(gitDir.resolve("foo/destination.txt"), "foo".getBytes(UTF_8));
+    repo.add().files("foo/destination.txt").run();
+    ZonedDateTime date = ZonedDateTime.now(ZoneId.of("-07:00"))
+        .truncatedTo(ChronoUnit.SECONDS);
+    repo.commit("= Foo = <bar@bara.com>", date,
+        String.format("adding foo  \n\n%s: %s", DummyOrigin.LABEL_NAME, "0"));
+    runWorkflow(ImmutableList.of(
+        "reader = ctx.destination_reader()",
+        "if len(ctx.list(glob(['foo/**']))) != 1:",
+        "  fail('expected only the origin file')",
+        "reader.copy_destination_files(glob = glob(include = ['foo/**']))",
+        "if len(ctx.list(glob(['foo/**']))) != 2:",
+        "  fail('expected the copied file to be listed')"));
+  }
+
   @Test
   public void testGlobFileFromDestination_otherRoot() throws Exception {
     Files.createDirectories(gitDir.resolve("foo"));
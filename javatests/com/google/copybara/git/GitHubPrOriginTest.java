@@ -65,6 +65,8 @@ import com.google.copybara.exception.EmptyChangeException;
 import com.google.copybara.exception.RepoException;
 import com.google.copybara.exception.ValidationException;
 import com.google.copybara.git.GitCredential.UserPassword;
+import com.google.copybara.git.GitHubPrOrigin.ReviewState;
+import com.google.copybara.git.github.api.Review;
 import com.google.copybara.git.github.util.GitHubUtil;
 import com.google.copybara.revision.Change;
 import com.google.copybara.testing.FileSubjects;
@@ -85,6 +87,7 @@ import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
@@ -515,6 +518,128 @@ public class GitHubPrOriginTest {
     verify(gitUtil.httpTransport(), never()).buildRequest(eq("GET"), contains("/check-runs"));
   }
 
+  @Test
+  public void resolve_graphqlPullRequestGates() throws Exception {
+    options.general.setTemporaryFeaturesForTest(
+        ImmutableMap.of("use_graphql_api_for_pr_gates", "true"));
+    MockPullRequest.create(gitUtil).setState("open").setPrNumber(125).mock();
+    mockPullRequestGates(sha, "foo/one", "success");
+
+    checkResolve(
+        githubPrOrigin(
+            "url = 'https://github.com/google/example'",
+            "required_labels = ['bar: yes']",
+            "required_status_context_names = ['ci']",
+            "required_check_runs = ['foo/one']"),
+        sha,
+        125);
+
+    verify(gitUtil.httpTransport(), times(1))
+        .buildRequest("POST", "https://api.github.com/graphql");
+    verify(gitUtil.httpTransport(), never()).buildRequest(eq("GET"), contains("/issues/"));
+    verify(gitUtil.httpTransport(), never()).buildRequest(eq("GET"), contains("/status"));
+    verify(gitUtil.httpTransport(), never()).buildRequest(eq("GET"), contains("/check-runs"));
+  }
+
+  @Test
+  public void resolve_graphqlPullRequestGates_failingCheckRun() throws Exception {
+    options.general.setTemporaryFeaturesForTest(
+        ImmutableMap.of("use_graphql_api_for_pr_gates", "true"));
+    MockPullRequest.create(gitUtil).setState("open").setPrNumber(125).mock();
+    mockPullRequestGates(sha, "foo/one", "failure");
+
+    EmptyChangeException thrown =
+        assertThrows(
+            EmptyChangeException.class,
+            () ->
+                checkResolve(
+                    githubPrOrigin(
+                        "url = 'https://github.com/google/example'",
+                        "required_check_runs = ['foo/one']"),
+                    sha,
+                    125));
+
+    assertThat(thrown)
+        .hasMessageThat()
+        .contains("the following check runs have not been passed: [foo/one]");
+    verify(gitUtil.httpTransport(), never()).buildRequest(eq("GET"), contains("/check-runs"));
+  }
+
+  @Test
+  public void resolve_graphqlPullRequestGates_headChanged() throws Exception {
+    options.general.setTemporaryFeaturesForTest(
+        ImmutableMap.of("use_graphql_api_for_pr_gates", "true"));
+    MockPullRequest.create(gitUtil)
+        .setState("open")
+        .setPrNumber(125)
+        .addCommitStatus("ci", "success")
+        .mock();
+    mockPullRequestGates(Strings.repeat("1", 40), "foo/one", "success");
+
+    checkResolve(
+        githubPrOrigin(
+            "url = 'https://github.com/google/example'",
+            "required_labels = ['bar: yes']",
+            "required_status_context_names = ['ci']"),
+        sha,
+        125);
+
+    // Labels don't depend on the head, but the statuses have to be the ones of the head migrated.
+    verify(gitUtil.httpTransport(), never()).buildRequest(eq("GET"), contains("/issues/"));
+    verify(gitUtil.httpTransport(), times(1))
+        .buildRequest(
+            "GET",
+            "https://api.github.com/repos/google/example/commits/" + sha + "/status?per_page=100");
+  }
+
+  private void mockPullRequestGates(String headSha, String checkRun, String conclusion) {
+    ImmutableMap<String, Object> run =
+        ImmutableMap.of(
+            "id", "CR_1",
+            "name", checkRun,
+            "status", "COMPLETED",
+            "conclusion", conclusion.toUpperCase(Locale.US),
+            "detailsUrl", "https://github.com/google/example/runs/1",
+            "checkSuite",
+                ImmutableMap.of(
+                    "commit", ImmutableMap.of("oid", headSha),
+                    "app", ImmutableMap.of("databaseId", 1, "name", "App", "slug", "app")));
+    ImmutableMap<String, Object> lastPage = ImmutableMap.of("hasNextPage", false);
+    ImmutableMap<String, Object> commit =
+        ImmutableMap.of(
+            "oid", headSha,
+            "status",
+                ImmutableMap.of(
+                    "contexts",
+                    ImmutableList.of(ImmutableMap.of("context", "ci", "state", "SUCCESS"))),
+            "checkSuites",
+                ImmutableMap.of(
+                    "pageInfo", lastPage,
+                    "nodes",
+                        ImmutableList.of(
+                            ImmutableMap.of(
+                                "checkRuns",
+                                ImmutableMap.of(
+                                    "pageInfo", lastPage, "nodes", ImmutableList.of(run))))));
+    ImmutableMap<String, Object> pullRequest =
+        ImmutableMap.of(
+            "headRefOid", headSha,
+            "labels",
+                ImmutableMap.of(
+                    "pageInfo", lastPage,
+                    "nodes", ImmutableList.of(ImmutableMap.of("name", "bar: yes"))),
+            "commits",
+                ImmutableMap.of("nodes", ImmutableList.of(ImmutableMap.of("commit", commit))));
+    gitUtil.mockApi(
+        "POST",
+        "https://api.github.com/graphql",
+        mockResponse(
+            toJson(
+                ImmutableMap.of(
+                    "data",
+                    ImmutableMap.of("repository", ImmutableMap.of("pullRequest", pullRequest))))));
+  }
+
   @Test
   public void testGitResolve_thresholdExceeded_requiredCheckRunsPass() throws Exception {
     MockPullRequest.create(gitUtil)
@@ -1234,6 +1359,14 @@ public class GitHubPrOriginTest {
         .containsExactly("APPROVED_MEMBER", "COMMENTED_OTHER", "APPROVED_COLLABORATOR");
   }
 
+  @Test
+  public void testHeadCommitApprovedWithReviewWithoutCommit() {
+    // Reviews of commits removed by a force push don't have a commit id.
+    ImmutableList<Review> reviews =
+        ImmutableList.of(new Review(1, null, "LGTM", null, "APPROVED", "MEMBER"));
+
+    assertThat(ReviewState.HEAD_COMMIT_APPROVED.shouldMigrate(reviews, "123456")).isFalse();
+  }
 
   @Test
   public void testHttprUrl() throws Exception {
@@ -27,6 +27,7 @@ import static org.junit.Assert.assertThrows;
 import com.google.common.collect.ImmutableList;
 import com.google.common.testing.FakeTicker;
 import com.google.copybara.config.Migration;
+import com.google.copybara.exception.EmptyChangeException;
 import com.google.copybara.exception.RepoException;
 import com.google.copybara.exception.ValidationException;
 import com.google.copybara.git.GitCredential.UserPassword;
@@ -161,6 +162,67 @@ public class GitMirrorTest {
     assertThat(dest).isEqualTo(destOld);
   }
 
+  @Test
+  public void testIncrementalMirror() throws Exception {
+    options.gitMirrorOptions.incremental = true;
+    RecordingListener recordingCallback = new RecordingListener();
+    Profiler profiler = new Profiler(new FakeTicker());
+    profiler.init(ImmutableList.of(recordingCallback));
+    options.general.withProfiler(profiler);
+
+    createMirrorObj().run(workdir, ImmutableList.of());
+    assertThat(destRepo.simpleCommand("show-ref").getStdout())
+        .isEqualTo(originRepo.simpleCommand("show-ref").getStdout());
+    recordingCallback
+        .assertMatchesNext(EventType.START, "//copybara")
+        .assertMatchesNext(EventType.START, "//copybara/run/default")
+        .assertMatchesNext(EventType.START, "//copybara/run/default/ls_remote")
+        .assertMatchesNext(EventType.END, "//copybara/run/default/ls_remote")
+        .assertMatchesNext(EventType.START, "//copybara/run/default/fetch")
+        .assertMatchesNext(EventType.END, "//copybara/run/default/fetch")
+        .assertMatchesNext(EventType.START, "//copybara/run/default/push")
+        .assertMatchesNext(EventType.END, "//copybara/run/default/push")
+        .assertMatchesNext(EventType.END, "//copybara/run/default");
+
+    EmptyChangeException e =
+        assertThrows(
+            EmptyChangeException.class,
+            () -> createMirrorObj().run(workdir, ImmutableList.of()));
+    assertThat(e).hasMessageThat().contains("All the references are up to date");
+
+    Files.write(originRepo.getWorkTree().resolve("test.txt"), "updated content".getBytes(UTF_8));
+    originRepo.add().files("test.txt").run();
+    originRepo.simpleCommand("commit", "-m", "second commit");
+
+    createMirrorObj().run(workdir, ImmutableList.of());
+    assertThat(destRepo.simpleCommand("show-ref").getStdout())
+        .isEqualTo(originRepo.simpleCommand("show-ref").getStdout());
+  }
+
+  @Test
+  public void testIncrementalMirrorDeletedRef() throws Exception {
+    options.gitMirrorOptions.incremental = true;
+    String cfg =
+        """
+        git.mirror(
+            name = 'default',
+            origin = 'file://%s',
+            destination = 'file://%s',
+            prune = True,
+        )
+        """.formatted(
+            originRepo.getGitDir().toAbsolutePath(), destRepo.getGitDir().toAbsolutePath());
+    loadMigration(cfg, "default").run(workdir, ImmutableList.of());
+    assertThat(destRepo.simpleCommand("show-ref").getStdout()).contains("refs/heads/other");
+
+    originRepo.simpleCommand("branch", "-D", "other");
+    // Deletions are done with a full mirror
+    loadMigration(cfg, "default").run(workdir, ImmutableList.of());
+
+    assertThat(destRepo.simpleCommand("show-ref").getStdout())
+        .isEqualTo(originRepo.simpleCommand("show-ref").getStdout());
+  }
+
   private Migration createMirrorObj() throws IOException, ValidationException {
     return loadMigration(
         """
@@ -161,6 +161,49 @@ public class GitOriginSubmodulesTest {
         .containsNoMoreFiles();
   }
 
+  @Test
+  public void testManySubmodulesSharingRepos() throws Exception {
+    Path base = Files.createTempDirectory("base");
+    GitRepository r1 = createRepoWithFoo(base, "r1");
+    GitRepository r2 = createRepoWithFile(base, "r2", "bar");
+    addSubmodule(r2, r1, "r1", "nested");
+    commit(r2, "adding r1 submodule");
+
+    GitRepository r3 = createRepoWithFoo(base, "r3");
+    addSubmodule(r3, r1, "a", "a");
+    addSubmodule(r3, r1, "b", "b");
+    addSubmodule(r3, r2, "c", "c");
+    commit(r3, "adding submodules");
+
+    String primary = r3.getPrimaryBranch();
+    GitOrigin origin = origin("file://" + r3.getGitDir(), primary);
+    GitRevision main = origin.resolve(primary);
+    origin.newReader(Glob.ALL_FILES, authoring).checkout(main, checkoutDir);
+
+    FileSubjects.assertThatPath(checkoutDir)
+        .containsFiles(GITMODULES, "c/" + GITMODULES)
+        .containsFile("foo", "1")
+        .containsFile("a/foo", "1")
+        .containsFile("b/foo", "1")
+        .containsFile("c/bar", "1")
+        .containsFile("c/nested/foo", "1")
+        .containsNoMoreFiles();
+  }
+
+  private void addSubmodule(GitRepository repo, GitRepository submodule, String name, String path)
+      throws RepoException {
+    repo.simpleCommand(
+        "-c",
+        "protocol.file.allow=always",
+        "submodule",
+        "add",
+        "-f",
+        "--name",
+        name,
+        "file://" + submodule.getWorkTree(),
+        path);
+  }
+
   /**
    * Test case where parent points to a submodule sha1 that is not reachable from primary (branch
    * only).
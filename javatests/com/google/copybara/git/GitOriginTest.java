@@ -54,6 +54,7 @@ import com.google.copybara.git.GitCredential.UserPassword;
 import com.google.copybara.git.GitRevision.GitHashAlgorithm;
 import com.google.copybara.revision.Change;
 import com.google.copybara.revision.Changes;
+import com.google.copybara.revision.MessageStore;
 import com.google.copybara.revision.Revision;
 import com.google.copybara.testing.OptionsBuilder;
 import com.google.copybara.testing.RecordsProcessCallDestination;
@@ -1399,6 +1400,29 @@ public class GitOriginTest {
     assertThat(changes.get(2).getMessage()).contains("Merge branch 'feature'");
   }
 
+  @Test
+  public void testChangesMerge_compacted() throws Exception {
+    String author = "John Name <john@name.com>";
+    createBranchMerge(author);
+    options.gitOrigin.gitOriginLogBatchSize = 1;
+    MessageStore store = new MessageStore(Files.createTempDirectory("messages"));
+    ImmutableList<Change<GitRevision>> changes = newReader()
+        .changes(origin.resolve(firstCommitRef), origin.resolve("HEAD"), store, 1).getChanges();
+
+    assertThat(changes).hasSize(3);
+    assertThat(changes.stream().allMatch(Change::isCompact)).isTrue();
+    assertThat(changes.get(0).getMessage()).isEqualTo("main1\n");
+    assertThat(changes.get(1).getMessage()).isEqualTo("main2\n");
+    assertThat(changes.get(2).getMessage()).contains("Merge branch 'feature'");
+    assertThat(changes.get(0).getChangeFiles()).isNotNull();
+    assertThat(changes)
+        .containsExactlyElementsIn(
+            newReader()
+                .changes(origin.resolve(firstCommitRef), origin.resolve("HEAD"))
+                .getChanges())
+        .inOrder();
+  }
+
   @Test
   public void testIncludeBranchCommitLogNoCommitsInMerge() throws Exception {
 
@@ -1420,6 +1444,42 @@ public class GitOriginTest {
     assertThat(changes.get(1).getMessage()).contains("Merge branch 'feature'");
   }
 
+  @Test
+  public void testChangesWithPathspecs() throws Exception {
+    options.gitOrigin.logPathspecs = true;
+    originFiles = createGlob(ImmutableList.of("include/**"), ImmutableList.of("include/ex/**"));
+    String author = "John Name <john@name.com>";
+    singleFileCommit(author, "included", "include/test.txt", "a");
+    singleFileCommit(author, "other", "other/test.txt", "a");
+    singleFileCommit(author, "excluded", "include/ex/test.txt", "a");
+    repo.branch("feature").run();
+    git("checkout", "feature");
+    singleFileCommit(author, "feature", "include/feature.txt", "a");
+    git("checkout", defaultBranch);
+    singleFileCommit(author, "main", "other/main.txt", "b");
+    git("merge", defaultBranch, "feature");
+
+    ImmutableList<Change<GitRevision>> changes =
+        origin
+            .newReader(originFiles, originFiles, authoring)
+            .changes(origin.resolve(firstCommitRef), origin.resolve("HEAD"))
+            .getChanges();
+
+    assertThat(changes).hasSize(2);
+    assertThat(changes.get(0).getMessage()).isEqualTo("included\n");
+    assertThat(changes.get(1).getMessage()).contains("Merge branch 'feature'");
+    assertThat(changes.get(1).getChangeFiles()).containsExactly("include/feature.txt");
+
+    // Without pathspecs all the changes are listed
+    options.gitOrigin.logPathspecs = false;
+    assertThat(
+            origin
+                .newReader(originFiles, originFiles, authoring)
+                .changes(origin.resolve(firstCommitRef), origin.resolve("HEAD"))
+                .getChanges())
+        .hasSize(5);
+  }
+
   @Test
   public void testChangesMergeNoop() throws Exception {
     ImmutableList<? extends Change<?>> includedChanges = checkChangesMergeNoop(false);
@@ -2257,6 +2317,18 @@ public class GitOriginTest {
     assertThat(actual.get("root")).isEmpty();
   }
 
+  @Test
+  public void testResolveKey() throws Exception {
+    Object key = origin.resolveKey();
+
+    assertThat(key).isNotNull();
+    assertThat(origin().resolveKey()).isEqualTo(key);
+    moreOriginArgs = "describe_version = False";
+    assertThat(origin().resolveKey()).isNotEqualTo(key);
+    moreOriginArgs = "partial_fetch = True";
+    assertThat(origin().resolveKey()).isNull();
+  }
+
   @Test
   public void testCredentials() throws Exception {
     Path credentialsFile = Files.createTempFile("credentials", "test");
@@ -718,6 +718,27 @@ public class GitRepositoryTest {
     assertThat(paged.toString()).isEqualTo(singlePage.toString());
   }
 
+  @Test
+  public void testPagination_batchConsumer() throws Exception {
+    createGraphOfCommits();
+    ImmutableList<GitLogEntry> singlePage = repository.log(defaultBranch)
+        .includeFiles(true)
+        .includeMergeDiff(true)
+        .firstParent(false)
+        .run();
+    List<ImmutableList<GitLogEntry>> batches = new ArrayList<>();
+    repository.log(defaultBranch)
+        .includeFiles(true)
+        .includeMergeDiff(true)
+        .firstParent(false)
+        .withBatchSize(3)
+        .run(batches::add);
+
+    assertThat(batches.size()).isGreaterThan(1);
+    assertThat(batches.stream().flatMap(List::stream).collect(toImmutableList()).toString())
+        .isEqualTo(singlePage.toString());
+  }
+
   private void createGraphOfCommits() throws Exception {
     for (int i = 0; i < 10; i++) {
       singleFileCommit("main_" + i, "foo.txt", "foo_" + i);
@@ -817,6 +838,89 @@ public class GitRepositoryTest {
     assertThat(result.getInserted()).isEmpty();
   }
 
+  @Test
+  public void testFetchWithObjectPool() throws Exception {
+    GitRepository pool = GitRepository.newBareRepo(Files.createTempDirectory("poolDir"),
+        getGitEnv(), /*verbose=*/true, DEFAULT_TIMEOUT, /*noVerify=*/ false);
+    GitRepository dest = GitRepository.newBareRepo(Files.createTempDirectory("destDir"),
+        getGitEnv(), /*verbose=*/true, DEFAULT_TIMEOUT, /*noVerify=*/ false);
+    dest.init(repoFormat);
+    dest.useObjectPool(pool);
+    // Idempotent
+    dest.useObjectPool(pool);
+
+    Files.write(workdir.resolve("foo.txt"), new byte[]{});
+    repository.add().files("foo.txt").run();
+    repository.simpleCommand("commit", "foo.txt", "-m", "message");
+    String sha1 = repository.parseRef("HEAD");
+
+    dest.fetch(
+        "file://" + repository.getGitDir(),
+        /* prune= */ false,
+        /* force= */ true,
+        ImmutableList.of("refs/heads/*:refs/heads/*"),
+        false,
+        Optional.empty(),
+        false);
+
+    assertThat(dest.parseRef("refs/heads/" + defaultBranch)).isEqualTo(sha1);
+    assertThat(pool.simpleCommand("cat-file", "-t", sha1).getStdout().trim()).isEqualTo("commit");
+    assertThat(Files.readAllLines(dest.getGitDir().resolve("objects/info/alternates")))
+        .containsExactly(pool.getGitDir().resolve("objects").toAbsolutePath().toString());
+  }
+
+  @Test
+  public void testGcDoesNotPruneObjectsOfOtherPooledRepos() throws Exception {
+    GitRepository pool = GitRepository.newBareRepo(Files.createTempDirectory("poolDir"),
+        getGitEnv(), /*verbose=*/true, DEFAULT_TIMEOUT, /*noVerify=*/ false);
+    GitRepository first = GitRepository.newBareRepo(Files.createTempDirectory("firstDir"),
+        getGitEnv(), /*verbose=*/true, DEFAULT_TIMEOUT, /*noVerify=*/ false);
+    GitRepository second = GitRepository.newBareRepo(Files.createTempDirectory("secondDir"),
+        getGitEnv(), /*verbose=*/true, DEFAULT_TIMEOUT, /*noVerify=*/ false);
+    for (GitRepository repo : ImmutableList.of(first, second)) {
+      repo.init(repoFormat);
+      repo.useObjectPool(pool);
+      // Keep fetched objects in packs, so that a second fetch into the pool reaches the pack limit
+      repo.simpleCommand("config", "fetch.unpackLimit", "1");
+    }
+    // Make the automatic gc of the fetches into the pool run, and prune everything unreachable
+    second.simpleCommand("config", "gc.auto", "1");
+    second.simpleCommand("config", "gc.autoPackLimit", "1");
+    second.simpleCommand("config", "gc.autoDetach", "false");
+    second.simpleCommand("config", "gc.pruneExpire", "now");
+
+    Files.write(workdir.resolve("foo.txt"), new byte[]{});
+    repository.add().files("foo.txt").run();
+    repository.simpleCommand("commit", "foo.txt", "-m", "message");
+    String firstSha = repository.parseRef("HEAD");
+    // A history unrelated to the one fetched by the first repository
+    repository.simpleCommand("checkout", "--orphan", "unrelated");
+    Files.write(workdir.resolve("bar.txt"), new byte[]{});
+    repository.add().files("bar.txt").run();
+    repository.simpleCommand("commit", "-m", "unrelated");
+
+    first.fetch(
+        "file://" + repository.getGitDir(),
+        /* prune= */ false,
+        /* force= */ true,
+        ImmutableList.of("refs/heads/" + defaultBranch + ":refs/heads/" + defaultBranch),
+        false,
+        Optional.empty(),
+        false);
+    second.fetch(
+        "file://" + repository.getGitDir(),
+        /* prune= */ false,
+        /* force= */ true,
+        ImmutableList.of("refs/heads/unrelated:refs/heads/unrelated"),
+        false,
+        Optional.empty(),
+        false);
+    second.simpleCommand("-c", "gc.pruneExpire=now", "gc");
+
+    assertThat(first.simpleCommand("cat-file", "-t", firstSha).getStdout().trim())
+        .isEqualTo("commit");
+  }
+
   @Test
   public void testFetchRunsHooks() throws Exception {
     GitRepositoryHook testHook =
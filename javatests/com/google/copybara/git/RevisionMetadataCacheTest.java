@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.git;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class RevisionMetadataCacheTest {
+
+  private Path gitDir;
+  private final AtomicInteger loads = new AtomicInteger();
+
+  @Before
+  public void setup() throws Exception {
+    gitDir = Files.createTempDirectory("gitdir");
+  }
+
+  @Test
+  public void testNotEnabled() {
+    assertThat(RevisionMetadataCache.forGitDir(gitDir)).isNull();
+  }
+
+  @Test
+  public void testValuesAreStored() throws Exception {
+    RevisionMetadataCache.enable(gitDir);
+    RevisionMetadataCache cache = RevisionMetadataCache.forGitDir(gitDir);
+
+    assertThat(cache.get("count", "abc", () -> load("42"))).isEqualTo("42");
+    assertThat(cache.get("count", "abc", () -> load("43"))).isEqualTo("42");
+    assertThat(cache.get("count", "def", () -> load("7"))).isEqualTo("7");
+
+    assertThat(loads.get()).isEqualTo(2);
+    assertThat(Files.readString(gitDir.resolve(RevisionMetadataCache.FILE_NAME), UTF_8))
+        .isEqualTo("count abc\t42\t\ncount def\t7\t\n");
+  }
+
+  @Test
+  public void testValuesAreReadFromFile() throws Exception {
+    Files.writeString(
+        gitDir.resolve(RevisionMetadataCache.FILE_NAME),
+        // The last line was partially written
+        "count abc\t42\t\ncount def\t7",
+        UTF_8);
+    RevisionMetadataCache cache = RevisionMetadataCache.forGitDir(gitDir);
+
+    assertThat(cache.get("count", "abc", () -> load("43"))).isEqualTo("42");
+    assertThat(cache.get("count", "def", () -> load("8"))).isEqualTo("8");
+    assertThat(loads.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void testMultilineValuesAreNotStored() throws Exception {
+    RevisionMetadataCache.enable(gitDir);
+    RevisionMetadataCache cache = RevisionMetadataCache.forGitDir(gitDir);
+
+    assertThat(cache.get("describe", "abc", () -> load("foo\nbar"))).isEqualTo("foo\nbar");
+    assertThat(cache.get("describe", "abc", () -> load("foo\nbar"))).isEqualTo("foo\nbar");
+
+    assertThat(loads.get()).isEqualTo(2);
+    assertThat(Files.readString(gitDir.resolve(RevisionMetadataCache.FILE_NAME), UTF_8))
+        .isEmpty();
+  }
+
+  @Test
+  public void testTagDependentValues() throws Exception {
+    RevisionMetadataCache.enable(gitDir);
+    RevisionMetadataCache cache = RevisionMetadataCache.forGitDir(gitDir);
+
+    assertThat(cache.getForTags("describe", "abc", () -> "v1", () -> load("v1-1")))
+        .isEqualTo("v1-1");
+    // Not read again until they change
+    assertThat(cache.getForTags("describe", "abc", () -> "v2", () -> load("v2-1")))
+        .isEqualTo("v1-1");
+
+    cache.tagsChanged();
+    assertThat(cache.getForTags("describe", "abc", () -> "v2", () -> load("v2-1")))
+        .isEqualTo("v2-1");
+    cache.tagsChanged();
+    assertThat(cache.getForTags("describe", "abc", () -> "v1", () -> load("v1-2")))
+        .isEqualTo("v1-1");
+
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  private String load(String value) {
+    loads.incrementAndGet();
+    return value;
+  }
+}
@@ -58,6 +58,8 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -179,6 +181,71 @@ public class GerritApiTest {
     assertThat(e.getExitCode()).isEqualTo(404);
   }
 
+  @Test
+  public void testGetAllChanges() throws Exception {
+    mockResponse(
+        new CheckRequest("GET", "/changes/\\?q=status(:|%3A)open&S=0"),
+        ")]}'\n[" + mockShortChangeInfo(1, false) + "," + mockShortChangeInfo(2, true) + "]");
+    mockResponse(
+        new CheckRequest("GET", "/changes/\\?q=status(:|%3A)open&S=2"),
+        ")]}'\n[" + mockShortChangeInfo(3, false) + "]");
+
+    List<ChangeInfo> changes = gerritApi.getAllChanges(new ChangesQuery("status:open"));
+
+    assertThat(changes.stream().map(ChangeInfo::getNumber).collect(Collectors.toList()))
+        .containsExactly(1L, 2L, 3L)
+        .inOrder();
+  }
+
+  @Test
+  public void testGetChangesById() throws Exception {
+    mockResponse(
+        new CheckRequest(
+            "GET",
+            "/changes/\\?q=%28change%3AI1\\+OR\\+change%3A2\\+OR\\+change%3AI3%29"
+                + "\\+AND\\+project%3Afoo&o=CURRENT_REVISION&S=0"),
+        ")]}'\n[" + mockShortChangeInfo(1, false) + "," + mockShortChangeInfo(2, false) + "]");
+
+    List<ChangeInfo> changes =
+        gerritApi.getChangesById(
+            ImmutableList.of("I1", "2", "I3", "I1"),
+            "project:foo",
+            ImmutableList.of(CURRENT_REVISION));
+
+    assertThat(changes.stream().map(ChangeInfo::getNumber).collect(Collectors.toList()))
+        .containsExactly(1L, 2L)
+        .inOrder();
+  }
+
+  @Test
+  public void testRunConcurrently() throws Exception {
+    mockResponse(
+        new CheckRequest("POST", "/changes/I1/revisions/.*"), ")]}'\n" + mockReviewResult());
+    mockResponse(
+        new CheckRequest("POST", "/changes/I3/revisions/.*"), ")]}'\n" + mockReviewResult());
+    List<String> posted = Collections.synchronizedList(new ArrayList<>());
+    List<GerritApi.Request<ReviewResult>> requests = new ArrayList<>();
+    for (String changeId : ImmutableList.of("I1", "I2", "I3")) {
+      requests.add(
+          () -> {
+            ReviewResult result =
+                gerritApi.setReview(
+                    changeId, REVISION_ID, SetReviewInput.create(null, ImmutableMap.of(), null));
+            posted.add(changeId);
+            return result;
+          });
+    }
+
+    // I2 is not found, but the rest are still posted.
+    GerritApiException e =
+        assertThrows(GerritApiException.class, () -> gerritApi.runConcurrently(requests));
+
+    assertThat(e.getResponseCode()).isEqualTo(ResponseCode.NOT_FOUND);
+    assertThat(posted).containsExactly("I1", "I3");
+    assertThat(gerritApi.runConcurrently(ImmutableList.of(requests.get(0), requests.get(2))))
+        .hasSize(2);
+  }
+
   @Test
   public void testGetChange() throws Exception {
     mockResponse(new CheckRequest("GET", "/changes/" + CHANGE_ID + "\\?o="), ""
@@ -711,6 +778,12 @@ public class GerritApiTest {
     assertThat(info.getAccountId()).isEqualTo(42);
   }
 
+  private static String mockShortChangeInfo(int number, boolean moreChanges) {
+    return String.format(
+        "{\"id\": \"foo~master~I%1$d\", \"change_id\": \"I%1$d\", \"_number\": %1$d%2$s}",
+        number, moreChanges ? ", \"_more_changes\": true" : "");
+  }
+
   protected void mockResponse(Predicate<String> filter, String response) {
     requestToResponse.put(filter, response.getBytes(StandardCharsets.UTF_8));
   }
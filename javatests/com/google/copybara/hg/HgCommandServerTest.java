@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.hg;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Ints;
+import com.google.copybara.exception.RepoException;
+import com.google.copybara.hg.HgCommandServer.Result;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class HgCommandServerTest {
+
+  private static final Path REPO = Paths.get("/repo");
+  private static final Duration TIMEOUT = Duration.ofMinutes(1);
+  private static final String HELLO =
+      "capabilities: getencoding runcommand\nencoding: UTF-8\npid: 42";
+
+  private final Queue<byte[]> outputs = new ArrayDeque<>();
+  private final List<FakeProcess> processes = new ArrayList<>();
+
+  @Test
+  public void testRunCommand() throws Exception {
+    outputs.add(
+        concat(
+            message('o', HELLO),
+            message('o', "foo\n"),
+            message('d', "debug"),
+            message('e', "warning"),
+            message('o', "bar\n"),
+            result(0)));
+    HgCommandServer server = server();
+
+    Result result = server.run(ImmutableList.of("log", "-r", "tip"), TIMEOUT);
+
+    assertThat(result.exitCode()).isEqualTo(0);
+    assertThat(result.output().getStdout()).isEqualTo("foo\nbar\n");
+    assertThat(result.output().getStderr()).isEqualTo("warning");
+    assertThat(processes.get(0).input.toByteArray())
+        .isEqualTo(
+            concat(
+                "runcommand\n".getBytes(UTF_8),
+                Ints.toByteArray(10),
+                "log\0-r\0tip".getBytes(UTF_8)));
+  }
+
+  @Test
+  public void testServerIsReused() throws Exception {
+    outputs.add(concat(message('o', HELLO), result(0), message('e', "abort"), result(255)));
+    HgCommandServer server = server();
+
+    assertThat(server.run(ImmutableList.of("identify"), TIMEOUT).exitCode()).isEqualTo(0);
+    Result failed = server.run(ImmutableList.of("identify"), TIMEOUT);
+
+    assertThat(failed.exitCode()).isEqualTo(255);
+    assertThat(failed.output().getStderr()).isEqualTo("abort");
+    assertThat(processes).hasSize(1);
+  }
+
+  @Test
+  public void testInputRequestsGetNoInput() throws Exception {
+    outputs.add(
+        concat(message('o', HELLO), "L".getBytes(UTF_8), Ints.toByteArray(4096), result(1)));
+    HgCommandServer server = server();
+
+    assertThat(server.run(ImmutableList.of("commit"), TIMEOUT).exitCode()).isEqualTo(1);
+
+    byte[] input = processes.get(0).input.toByteArray();
+    assertThat(slice(input, input.length - 4, 4)).isEqualTo(Ints.toByteArray(0));
+  }
+
+  @Test
+  public void testServerIsRestartedAfterFailure() throws Exception {
+    outputs.add(concat(message('o', HELLO), message('o', "partial")));
+    outputs.add(concat(message('o', HELLO), message('o', "foo"), result(0)));
+    HgCommandServer server = server();
+
+    assertThrows(RepoException.class, () -> server.run(ImmutableList.of("log"), TIMEOUT));
+    Result result = server.run(ImmutableList.of("log"), TIMEOUT);
+
+    assertThat(result.output().getStdout()).isEqualTo("foo");
+    assertThat(processes).hasSize(2);
+    assertThat(processes.get(0).destroyed).isTrue();
+  }
+
+  @Test
+  public void testUnsupportedServerIsDisabled() throws Exception {
+    outputs.add(message('o', "capabilities: getencoding\nencoding: UTF-8"));
+    HgCommandServer server = server();
+
+    assertThrows(IOException.class, () -> server.run(ImmutableList.of("log"), TIMEOUT));
+    assertThrows(IOException.class, () -> server.run(ImmutableList.of("log"), TIMEOUT));
+
+    assertThat(processes).hasSize(1);
+  }
+
+  @Test
+  public void testUnsupportedRequiredChannel() throws Exception {
+    outputs.add(concat(message('o', HELLO), message('X', "")));
+    HgCommandServer server = server();
+
+    RepoException e =
+        assertThrows(RepoException.class, () -> server.run(ImmutableList.of("log"), TIMEOUT));
+
+    assertThat(e).hasMessageThat().contains("channel: X");
+  }
+
+  @Test
+  public void testDeadServerIsRestarted() throws Exception {
+    outputs.add(concat(message('o', HELLO), result(0)));
+    outputs.add(concat(message('o', HELLO), result(0)));
+    HgCommandServer server = server();
+
+    server.run(ImmutableList.of("identify"), TIMEOUT);
+    processes.get(0).destroy();
+    assertThat(server.run(ImmutableList.of("identify"), TIMEOUT).exitCode()).isEqualTo(0);
+
+    assertThat(processes).hasSize(2);
+    assertThat(processes.get(1).input.toByteArray())
+        .isEqualTo(processes.get(0).input.toByteArray());
+  }
+
+  private HgCommandServer server() {
+    return new HgCommandServer(
+        REPO,
+        /* verbose= */ false,
+        repoDir -> {
+          FakeProcess process = new FakeProcess(outputs.remove());
+          processes.add(process);
+          return process;
+        });
+  }
+
+  private static byte[] message(char channel, String data) {
+    byte[] bytes = data.getBytes(UTF_8);
+    return concat(new byte[] {(byte) channel}, Ints.toByteArray(bytes.length), bytes);
+  }
+
+  private static byte[] result(int exitCode) {
+    return concat(new byte[] {'r'}, Ints.toByteArray(4), Ints.toByteArray(exitCode));
+  }
+
+  private static byte[] concat(byte[]... arrays) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (byte[] array : arrays) {
+      out.writeBytes(array);
+    }
+    return out.toByteArray();
+  }
+
+  private static byte[] slice(byte[] array, int from, int length) {
+    byte[] result = new byte[length];
+    System.arraycopy(array, from, result, 0, length);
+    return result;
+  }
+
+  /** A server that replies with canned output and records its input. */
+  private static class FakeProcess extends Process {
+
+    private final ByteArrayInputStream output;
+    private final ByteArrayOutputStream input = new ByteArrayOutputStream();
+    private boolean destroyed;
+
+    FakeProcess(byte[] output) {
+      this.output = new ByteArrayInputStream(output);
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+      return input;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+      return output;
+    }
+
+    @Override
+    public InputStream getErrorStream() {
+      return InputStream.nullInputStream();
+    }
+
+    @Override
+    public int waitFor() {
+      return 0;
+    }
+
+    @Override
+    public int exitValue() {
+      return 0;
+    }
+
+    @Override
+    public boolean isAlive() {
+      return !destroyed;
+    }
+
+    @Override
+    public void destroy() {
+      destroyed = true;
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.revision;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.copybara.authoring.Author;
+import com.google.copybara.revision.MessageStore.StoredMessage;
+import com.google.copybara.testing.DummyRevision;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.stream.Stream;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class MessageStoreTest {
+
+  private Path dir;
+
+  @Before
+  public void setup() throws Exception {
+    dir = Files.createTempDirectory("messages");
+  }
+
+  @Test
+  public void testMessagesAcrossSegments() throws Exception {
+    MessageStore store = new MessageStore(dir, /* segmentSize= */ 10);
+    StoredMessage first = store.add("first");
+    StoredMessage second = store.add("secönd");
+    StoredMessage empty = store.add("");
+    StoredMessage big = store.add("a message bigger than a segment");
+
+    assertThat(first.read()).isEqualTo("first");
+    assertThat(second.read()).isEqualTo("secönd");
+    assertThat(empty.read()).isEmpty();
+    assertThat(big.read()).isEqualTo("a message bigger than a segment");
+    try (Stream<Path> files = Files.list(dir)) {
+      assertThat(files.count()).isEqualTo(3);
+    }
+  }
+
+  @Test
+  public void testCompactChange() throws Exception {
+    MessageStore store = new MessageStore(dir);
+    Change<Revision> change =
+        new Change<>(
+            new DummyRevision("1"),
+            new Author("Foo", "foo@example.com"),
+            "first line\n\nbody\n",
+            ZonedDateTime.now(),
+            ImmutableListMultimap.of("FOO", "bar"),
+            ImmutableSet.of("file.txt"));
+
+    Change<Revision> compact = change.compact(store);
+
+    assertThat(compact.isCompact()).isTrue();
+    assertThat(compact.getMessage()).isEqualTo("first line\n\nbody\n");
+    assertThat(compact.firstLineMessage()).isEqualTo("first line");
+    assertThat(compact.getLabels()).isEqualTo(change.getLabels());
+    assertThat(compact.getChangeFiles()).containsExactly("file.txt");
+    assertThat(compact.withLabels(ImmutableListMultimap.of("BAZ", "1")).getMessage())
+        .isEqualTo("first line\n\nbody\n");
+    assertThat(compact.compact(store)).isSameInstanceAs(compact);
+    assertThat(compact).isEqualTo(change);
+    assertThat(compact.hashCode()).isEqualTo(change.hashCode());
+  }
+
+  @Test
+  public void testAddAfterClose() throws Exception {
+    MessageStore store = new MessageStore(dir, /* segmentSize= */ 100);
+    StoredMessage first = store.add("first");
+    store.close();
+    StoredMessage second = store.add("second");
+
+    assertThat(first.read()).isEqualTo("first");
+    assertThat(second.read()).isEqualTo("second");
+    try (Stream<Path> files = Files.list(dir)) {
+      assertThat(files.count()).isEqualTo(2);
+    }
+  }
+}
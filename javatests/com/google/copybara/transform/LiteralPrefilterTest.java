@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.transform;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.copybara.templatetoken.RegexTemplateTokens;
+import com.google.re2j.Pattern;
+import java.io.ByteArrayInputStream;
+import net.starlark.java.syntax.Location;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class LiteralPrefilterTest {
+
+  @Test
+  public void testRequiredLiteral() {
+    assertThat(LiteralPrefilter.requiredLiteral("foo")).hasValue("foo");
+    assertThat(LiteralPrefilter.requiredLiteral("foo\\d+barbaz")).hasValue("barbaz");
+    assertThat(LiteralPrefilter.requiredLiteral("abc?de")).hasValue("ab");
+    assertThat(LiteralPrefilter.requiredLiteral("x{0,2}yz")).hasValue("yz");
+    assertThat(LiteralPrefilter.requiredLiteral("(foo)+bar")).hasValue("bar");
+    assertThat(LiteralPrefilter.requiredLiteral("[abc]xyz{2}")).hasValue("xyz");
+    assertThat(LiteralPrefilter.requiredLiteral("^import foo\\.bar;$")).hasValue("import foo.bar;");
+    assertThat(LiteralPrefilter.requiredLiteral("a(?:b|c)dd")).hasValue("dd");
+  }
+
+  @Test
+  public void testNoRequiredLiteral() {
+    assertThat(LiteralPrefilter.requiredLiteral("")).isEmpty();
+    assertThat(LiteralPrefilter.requiredLiteral("foo|bar")).isEmpty();
+    assertThat(LiteralPrefilter.requiredLiteral("(?i)foo")).isEmpty();
+    assertThat(LiteralPrefilter.requiredLiteral("\\Qfoo\\E")).isEmpty();
+    assertThat(LiteralPrefilter.requiredLiteral(".*")).isEmpty();
+    assertThat(LiteralPrefilter.requiredLiteral("a?")).isEmpty();
+  }
+
+  @Test
+  public void testAnyOf() {
+    LiteralPrefilter prefilter = LiteralPrefilter.anyOf(ImmutableList.of("TODO", "NOTE"));
+
+    assertThat(prefilter.isEnabled()).isTrue();
+    assertThat(mightMatch(prefilter, "// NOTE(foo): bar")).isTrue();
+    assertThat(mightMatch(prefilter, "TOD TODO")).isTrue();
+    assertThat(mightMatch(prefilter, "TOD NOT")).isFalse();
+    assertThat(mightMatch(prefilter, "")).isFalse();
+  }
+
+  @Test
+  public void testOverlappingLiterals() {
+    LiteralPrefilter prefilter = LiteralPrefilter.anyOf(ImmutableList.of("abab", "bac"));
+
+    assertThat(mightMatch(prefilter, "abac")).isTrue();
+    assertThat(mightMatch(prefilter, "aabab")).isTrue();
+    assertThat(mightMatch(prefilter, "abaab")).isFalse();
+  }
+
+  @Test
+  public void testNonAscii() {
+    LiteralPrefilter prefilter = LiteralPrefilter.anyOf(ImmutableList.of("añé"));
+
+    assertThat(mightMatch(prefilter, "xx añé xx")).isTrue();
+    assertThat(mightMatch(prefilter, "xx ané xx")).isFalse();
+  }
+
+  @Test
+  public void testInputStream() throws Exception {
+    LiteralPrefilter prefilter = LiteralPrefilter.anyOf(ImmutableList.of("TODO"));
+    // The literal is split between two reads of the stream.
+    String content = "x".repeat(64 * 1024 - 2) + "TODO";
+
+    assertThat(prefilter.mightMatch(new ByteArrayInputStream(content.getBytes(UTF_8)))).isTrue();
+    assertThat(prefilter.mightMatch(new ByteArrayInputStream("TOD".getBytes(UTF_8)))).isFalse();
+  }
+
+  @Test
+  public void testEmptyLiteralIsDisabled() {
+    assertThat(LiteralPrefilter.anyOf(ImmutableList.of("foo", "")).isEnabled()).isFalse();
+    assertThat(LiteralPrefilter.NONE.mightMatch(new byte[0])).isTrue();
+  }
+
+  @Test
+  public void testForRegex() {
+    assertThat(mightMatch(LiteralPrefilter.forRegex(Pattern.compile("fo+\\d")), "fffo1")).isTrue();
+    assertThat(mightMatch(LiteralPrefilter.forRegex(Pattern.compile("fo+\\d")), "oo1")).isFalse();
+    assertThat(
+            LiteralPrefilter.forRegex(Pattern.compile("foo", Pattern.CASE_INSENSITIVE)).isEnabled())
+        .isFalse();
+  }
+
+  @Test
+  public void testForTemplate() throws Exception {
+    RegexTemplateTokens template =
+        new RegexTemplateTokens(
+            "a${x}foo.bar",
+            ImmutableMap.of("x", Pattern.compile("[0-9]+")),
+            /* repeatedGroups= */ false,
+            Location.BUILTIN);
+    LiteralPrefilter prefilter = LiteralPrefilter.forTemplate(template);
+
+    assertThat(mightMatch(prefilter, "a1foo.bar")).isTrue();
+    assertThat(mightMatch(prefilter, "a1fooxbar")).isFalse();
+  }
+
+  private static boolean mightMatch(LiteralPrefilter prefilter, String content) {
+    return prefilter.mightMatch(content.getBytes(UTF_8));
+  }
+}
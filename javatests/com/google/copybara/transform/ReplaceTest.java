@@ -828,6 +828,48 @@ public final class ReplaceTest {
             """);
   }
 
+  @Test
+  public void testStreamingReplace() throws Exception {
+    options.workflowOptions.replaceStreamingThreshold = 0;
+    Replace replace = eval("""
+        core.replace(
+          before = 'foo',
+          after = 'bar',
+          first_only = True,
+          ignore = ['.*// IGNORE'],
+        )
+        """);
+
+    Path file = checkoutDir.resolve("file");
+    writeFile(file, "foo x y foo\nfoo // IGNORE\n\nfoo");
+    Path unchanged = checkoutDir.resolve("unchanged");
+    writeFile(unchanged, "baz\n");
+    BasicFileAttributes before = Files.readAttributes(unchanged, BasicFileAttributes.class);
+    transform(replace);
+
+    assertThatPath(checkoutDir)
+        .containsFile("file", "bar x y foo\nfoo // IGNORE\n\nbar")
+        .containsFile("unchanged", "baz\n")
+        .containsNoMoreFiles();
+    assertThat(Files.readAttributes(unchanged, BasicFileAttributes.class).lastModifiedTime())
+        .isEqualTo(before.lastModifiedTime());
+  }
+
+  @Test
+  public void testStreamingReplaceMatchesInMemory() throws Exception {
+    String content = "a foo\nfoo\r\n\n\u00f1foo\nfoofoo\n";
+    Path file = checkoutDir.resolve("file");
+    writeFile(file, content);
+    transform(eval("core.replace(before = 'foo', after = 'bar')"));
+    String inMemory = Files.readString(file);
+
+    options.workflowOptions.replaceStreamingThreshold = 0;
+    writeFile(file, content);
+    transform(eval("core.replace(before = 'foo', after = 'bar')"));
+
+    assertThat(Files.readString(file)).isEqualTo(inMemory);
+  }
+
   @Test
   public void repeatGroupInBeforeTemplate() throws Exception {
     skylark.evalFails("""
@@ -34,6 +34,8 @@ import java.io.IOException;
 import java.nio.file.FileSystem;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import org.junit.Before;
 import org.junit.Test;
@@ -102,6 +104,61 @@ public final class SequenceTest {
     }
   }
 
+  private final List<String> runs = new ArrayList<>();
+
+  /** Records its runs and joins with other joinable transforms across metadata transforms. */
+  private class JoinableTransform implements Transformation {
+
+    private final String name;
+    private final boolean joinable;
+    private final boolean metadataOnly;
+
+    JoinableTransform(String name, boolean joinable, boolean metadataOnly) {
+      this.name = name;
+      this.joinable = joinable;
+      this.metadataOnly = metadataOnly;
+    }
+
+    @Override
+    public TransformationStatus transform(TransformWork work) {
+      runs.add(name);
+      return TransformationStatus.success();
+    }
+
+    @Override
+    public boolean canJoin(Transformation transformation) {
+      return joinable && transformation instanceof JoinableTransform other && other.joinable;
+    }
+
+    @Override
+    public Transformation join(Transformation next) {
+      return new JoinableTransform(
+          name + "+" + ((JoinableTransform) next).name,
+          /* joinable= */ true,
+          /* metadataOnly= */ false);
+    }
+
+    @Override
+    public boolean canJoinAcross(Transformation between) {
+      return joinable && between.isMetadataOnly();
+    }
+
+    @Override
+    public boolean isMetadataOnly() {
+      return metadataOnly;
+    }
+
+    @Override
+    public Transformation reverse() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String describe() {
+      return name;
+    }
+  }
+
   @Before
   public void setup() throws IOException {
     FileSystem fs = Jimfs.newFileSystem();
@@ -420,6 +477,49 @@ public final class SequenceTest {
     assertThat(status.isSuccess()).isTrue();
   }
 
+  @Test
+  public void testSequence_joinAcrossMetadataTransforms() throws Exception {
+    Transformation t =
+        sequence(
+            new JoinableTransform("a", /* joinable= */ true, /* metadataOnly= */ false),
+            new JoinableTransform("m1", /* joinable= */ false, /* metadataOnly= */ true),
+            new JoinableTransform("b", /* joinable= */ true, /* metadataOnly= */ false),
+            new JoinableTransform("m2", /* joinable= */ false, /* metadataOnly= */ true),
+            new JoinableTransform("c", /* joinable= */ false, /* metadataOnly= */ false),
+            new JoinableTransform("d", /* joinable= */ true, /* metadataOnly= */ false));
+
+    t.transform(uncachedTreeStateTransformWork());
+
+    assertThat(runs).containsExactly("a+b", "m1", "m2", "c", "d").inOrder();
+  }
+
+  @Test
+  public void testSequence_noJoinAcrossFileTransforms() throws Exception {
+    Transformation t =
+        sequence(
+            new JoinableTransform("a", /* joinable= */ true, /* metadataOnly= */ false),
+            new JoinableTransform("c", /* joinable= */ false, /* metadataOnly= */ false),
+            new JoinableTransform("b", /* joinable= */ true, /* metadataOnly= */ false));
+
+    t.transform(uncachedTreeStateTransformWork());
+
+    assertThat(runs).containsExactly("a", "c", "b").inOrder();
+  }
+
+  @Test
+  public void testSequence_noJoin() throws Exception {
+    options.workflowOptions.noTransformationJoin = true;
+    Transformation t =
+        sequence(
+            new JoinableTransform("a", /* joinable= */ true, /* metadataOnly= */ false),
+            new JoinableTransform("m", /* joinable= */ false, /* metadataOnly= */ true),
+            new JoinableTransform("b", /* joinable= */ true, /* metadataOnly= */ false));
+
+    t.transform(uncachedTreeStateTransformWork());
+
+    assertThat(runs).containsExactly("a", "m", "b").inOrder();
+  }
+
   private TransformWork uncachedTreeStateTransformWork() throws IOException {
     return TransformWorks.of(checkoutDir, "foo", console);
   }
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.treestate;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.collect.ImmutableList;
+import com.google.copybara.exception.ValidationException;
+import com.google.copybara.treestate.ProvenanceTracer.Entry;
+import com.google.copybara.treestate.ProvenanceTracer.Kind;
+import com.google.copybara.treestate.TreeState.FileState;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ProvenanceTracerTest {
+
+  private Path checkoutDir;
+  private TreeState treeState;
+  private ProvenanceTracer tracer;
+
+  @Before
+  public void setup() throws IOException {
+    checkoutDir = Files.createTempDirectory("checkout");
+    write("a.txt", "a");
+    write("dir/b.txt", "b");
+    write("dir/c.txt", "c");
+    treeState = new TreeState(checkoutDir);
+    tracer = new ProvenanceTracer(checkoutDir);
+    treeState.setProvenanceTracer(tracer);
+  }
+
+  @Test
+  public void testUsesNotifications() throws Exception {
+    tracer.trace("replace", "copy.bara.sky:1:1", () -> {
+      write("a.txt", "modified");
+      // Not notified, so it is not seen, since the transformation vouched for its changes.
+      write("dir/b.txt", "modified");
+      treeState.notifyModify(ImmutableList.of(new FileState(checkoutDir.resolve("a.txt"))));
+      return null;
+    });
+    tracer.trace("no change", "copy.bara.sky:2:1", () -> {
+      treeState.notifyNoChange();
+      return null;
+    });
+
+    assertThat(tracer.getProvenance())
+        .containsExactly("a.txt", new Entry(Kind.MODIFIED, "replace", "copy.bara.sky:1:1"));
+  }
+
+  @Test
+  public void testChangesWithoutNotificationsAreHashed() throws Exception {
+    tracer.trace("move", "copy.bara.sky:1:1", () -> {
+      write("a.txt", "modified");
+      Files.move(checkoutDir.resolve("dir/b.txt"), checkoutDir.resolve("b.txt"));
+      return null;
+    });
+    tracer.trace("revert", "copy.bara.sky:2:1", () -> {
+      // Same content it had after the previous transformation
+      write("a.txt", "modified");
+      write("dir/c.txt", "modified");
+      return null;
+    });
+
+    assertThat(tracer.report())
+        .isEqualTo(
+            "M a.txt move copy.bara.sky:1:1\n"
+                + "A b.txt move copy.bara.sky:1:1\n"
+                + "D dir/b.txt move copy.bara.sky:1:1\n"
+                + "M dir/c.txt revert copy.bara.sky:2:1\n");
+  }
+
+  @Test
+  public void testTrackedDeletesAndWrites() throws Exception {
+    tracer.trace("starlark", "copy.bara.sky:1:1", () -> {
+      write("d.txt", "d");
+      treeState.trackWrite(checkoutDir.resolve("d.txt"));
+      write("a.txt", "modified");
+      treeState.trackWrite(checkoutDir.resolve("a.txt"));
+      treeState.trackDelete(checkoutDir.resolve("dir"));
+      treeState.notifyNoChange();
+      return null;
+    });
+
+    assertThat(tracer.report())
+        .isEqualTo(
+            "M a.txt starlark copy.bara.sky:1:1\n"
+                + "A d.txt starlark copy.bara.sky:1:1\n"
+                + "D dir/b.txt starlark copy.bara.sky:1:1\n"
+                + "D dir/c.txt starlark copy.bara.sky:1:1\n");
+  }
+
+  @Test
+  public void testCreatedFileModifiedLater() throws Exception {
+    tracer.trace("starlark", "copy.bara.sky:1:1", () -> {
+      write("new.txt", "new");
+      treeState.trackWrite(checkoutDir.resolve("new.txt"));
+      treeState.notifyNoChange();
+      return null;
+    });
+    tracer.trace("replace", "copy.bara.sky:2:1", () -> {
+      write("new.txt", "replaced");
+      treeState.notifyModify(ImmutableList.of(new FileState(checkoutDir.resolve("new.txt"))));
+      return null;
+    });
+
+    assertThat(tracer.report()).isEqualTo("A new.txt replace copy.bara.sky:2:1\n");
+  }
+
+  @Test
+  public void testNestedTracesAttributeToInnermost() throws Exception {
+    tracer.trace("outer", "copy.bara.sky:1:1", () -> {
+      write("a.txt", "modified");
+      return tracer.trace("inner", "copy.bara.sky:2:1", () -> {
+        write("dir/b.txt", "modified");
+        treeState.notifyModify(ImmutableList.of(new FileState(checkoutDir.resolve("dir/b.txt"))));
+        return null;
+      });
+    });
+
+    assertThat(tracer.getProvenance())
+        .containsExactly(
+            "a.txt", new Entry(Kind.MODIFIED, "outer", "copy.bara.sky:1:1"),
+            "dir/b.txt", new Entry(Kind.MODIFIED, "inner", "copy.bara.sky:2:1"));
+  }
+
+  @Test
+  public void testCreatedAndDeletedIsNotReported() throws Exception {
+    tracer.trace("create", "copy.bara.sky:1:1", () -> {
+      write("tmp.txt", "tmp");
+      treeState.trackWrite(checkoutDir.resolve("tmp.txt"));
+      treeState.notifyNoChange();
+      return null;
+    });
+    tracer.trace("delete", "copy.bara.sky:2:1", () -> {
+      Files.delete(checkoutDir.resolve("tmp.txt"));
+      return null;
+    });
+
+    assertThat(tracer.getProvenance()).isEmpty();
+  }
+
+  @Test
+  public void testFailedTransformation() throws Exception {
+    assertThrows(
+        ValidationException.class,
+        () ->
+            tracer.trace("fail", "copy.bara.sky:1:1", () -> {
+              write("a.txt", "modified");
+              throw new ValidationException("failed");
+            }));
+    tracer.trace("next", "copy.bara.sky:2:1", () -> {
+      write("dir/b.txt", "modified");
+      return null;
+    });
+
+    assertThat(tracer.getProvenance())
+        .containsExactly("dir/b.txt", new Entry(Kind.MODIFIED, "next", "copy.bara.sky:2:1"));
+  }
+
+  private void write(String path, String content) throws IOException {
+    Path file = checkoutDir.resolve(path);
+    Files.createDirectories(file.getParent());
+    Files.writeString(file, content, UTF_8);
+  }
+}
@@ -18,7 +18,9 @@ package com.google.copybara.treestate;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.jimfs.Jimfs;
+import com.google.copybara.treestate.TreeState.FileState;
 import com.google.copybara.util.Glob;
 import java.io.IOException;
 import java.nio.file.FileSystem;
@@ -104,4 +106,41 @@ public class TreeStateTest {
     treeState.maybeClearCache();
     assertThat(treeState.isCached()).isFalse();
   }
+
+  @Test
+  public void testTrackWriteAndDeleteKeepCacheCoherent() throws IOException {
+    Files.write(checkoutDir.resolve("a.txt"), new byte[0]);
+    Files.createDirectories(checkoutDir.resolve("dir"));
+    Files.write(checkoutDir.resolve("dir/b.txt"), new byte[0]);
+    TreeState treeState = new TreeState(checkoutDir);
+    assertThat(paths(treeState)).containsExactly("a.txt", "dir/b.txt");
+
+    Files.write(checkoutDir.resolve("c.txt"), new byte[0]);
+    treeState.trackWrite(checkoutDir.resolve("c.txt"));
+    assertThat(paths(treeState)).containsExactly("a.txt", "c.txt", "dir/b.txt");
+
+    treeState.trackDelete(checkoutDir.resolve("dir"));
+    assertThat(paths(treeState)).containsExactly("a.txt", "c.txt");
+    assertThat(treeState.isCached()).isTrue();
+
+    // Tracking doesn't vouch for the whole transformation.
+    treeState.maybeClearCache();
+    assertThat(treeState.isCached()).isFalse();
+  }
+
+  @Test
+  public void testTrackWriteWithoutCacheIsNoop() {
+    TreeState treeState = new TreeState(checkoutDir);
+    treeState.trackWrite(checkoutDir.resolve("c.txt"));
+
+    assertThat(treeState.isCached()).isFalse();
+  }
+
+  private ImmutableList<String> paths(TreeState treeState) throws IOException {
+    ImmutableList.Builder<String> result = ImmutableList.builder();
+    for (FileState file : treeState.find(Glob.ALL_FILES.relativeTo(checkoutDir))) {
+      result.add(checkoutDir.relativize(file.getPath()).toString());
+    }
+    return result.build();
+  }
 }
@@ -442,6 +442,48 @@ public class GlobTest {
     assertThat(matcher.matches(Path.of("/foo/bar"))).isFalse();
   }
 
+  @Test
+  public void pathspecsTest() throws Exception {
+    assertThat(
+            parseGlob("glob(['foo/**', 'bar/*.java', 'baz/BUILD'], exclude = ['foo/bar/**'])")
+                .pathspecs())
+        .containsExactly(
+            ":(glob)foo/**",
+            ":(glob)bar/*.java",
+            ":(literal)baz/BUILD",
+            ":(exclude,glob)foo/bar/**");
+    assertThat(parseGlob("glob(['foo/**']) - ['foo/a']").pathspecs())
+        .containsExactly(":(glob)foo/**", ":(exclude,literal)foo/a");
+    assertThat(parseGlob("glob(['foo/**']) + glob(['bar/**'])").pathspecs())
+        .containsExactly(":(glob)foo/**", ":(glob)bar/**");
+  }
+
+  @Test
+  public void pathspecsUnsupportedSyntax() throws Exception {
+    // Braces are replaced by the root
+    assertThat(parseGlob("glob(['foo/{a,b}/**'])").pathspecs()).containsExactly(":(literal)foo");
+    // Excludes that are not a file or a directory could exclude files matched by the glob
+    assertThat(parseGlob("glob(['foo/**'], exclude = ['foo/**/*.md'])").pathspecs())
+        .containsExactly(":(glob)foo/**");
+    // Any file can match
+    assertThat(parseGlob("glob(['**'], exclude = ['foo/**'])").pathspecs()).isEmpty();
+    assertThat(parseGlob("glob(['{foo,bar}/**'])").pathspecs()).isEmpty();
+  }
+
+  @Test
+  public void pathspecsDoubleStarNotAWholeComponent() throws Exception {
+    // For git these only match one directory level, so they are replaced by the root
+    assertThat(parseGlob("glob(['src/**Test.java'])").pathspecs())
+        .containsExactly(":(literal)src");
+    assertThat(parseGlob("glob(['foo/**.md'])").pathspecs()).containsExactly(":(literal)foo");
+    assertThat(parseGlob("glob(['foo/bar**/baz'])").pathspecs()).containsExactly(":(literal)foo");
+    assertThat(parseGlob("glob(['**.java'])").pathspecs()).isEmpty();
+    assertThat(parseGlob("glob(['foo/**', '**.java'])").pathspecs()).isEmpty();
+    // Whole components are kept
+    assertThat(parseGlob("glob(['**/*.java', 'foo/**/BUILD', 'bar/**'])").pathspecs())
+        .containsExactly(":(glob)**/*.java", ":(glob)foo/**/BUILD", ":(glob)bar/**");
+  }
+
   private PathMatcher createPathMatcher(String expression)
       throws ValidationException {
     return parseGlob(expression).relativeTo(workdir);
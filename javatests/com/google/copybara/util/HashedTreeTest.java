@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.util;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class HashedTreeTest {
+
+  private static final PathMatcher NONE = p -> false;
+
+  private Path tree;
+  private Path workspace;
+
+  @Before
+  public void setup() throws Exception {
+    tree = Files.createTempDirectory("tree");
+    workspace = Files.createTempDirectory("workspace");
+    write(tree, "a.txt", "a");
+    write(tree, "dir/b.txt", "b");
+    write(tree, "dir/c.txt", "c");
+  }
+
+  @Test
+  public void testFilesAreCopied() throws Exception {
+    HashedTree snapshot = HashedTree.create(tree);
+    write(tree, "a.txt", "modified");
+    write(tree, "new.txt", "new");
+
+    HashedTree.Workspace reverse = snapshot.createWorkspace(tree, workspace);
+
+    assertThat(Files.readString(workspace.resolve("a.txt"), UTF_8)).isEqualTo("modified");
+    assertThat(Files.isSameFile(workspace.resolve("a.txt"), tree.resolve("a.txt"))).isFalse();
+    assertThat(Files.isSameFile(workspace.resolve("dir/b.txt"), tree.resolve("dir/b.txt")))
+        .isFalse();
+    assertThat(reverse.diff(NONE)).containsExactly("M a.txt", "A new.txt").inOrder();
+  }
+
+  @Test
+  public void testReverted() throws Exception {
+    HashedTree snapshot = HashedTree.create(tree);
+    write(tree, "a.txt", "modified");
+    Files.delete(tree.resolve("dir/b.txt"));
+    HashedTree.Workspace reverse = snapshot.createWorkspace(tree, workspace);
+
+    write(workspace, "a.txt", "a");
+    write(workspace, "dir/b.txt", "b");
+
+    assertThat(reverse.diff(NONE)).isEmpty();
+  }
+
+  @Test
+  public void testDifferences() throws Exception {
+    HashedTree snapshot = HashedTree.create(tree);
+    HashedTree.Workspace reverse = snapshot.createWorkspace(tree, workspace);
+
+    write(workspace, "dir/b.txt", "modified");
+    Files.delete(workspace.resolve("dir/c.txt"));
+    write(workspace, "new.txt", "new");
+
+    assertThat(reverse.diff(NONE))
+        .containsExactly("M dir/b.txt", "D dir/c.txt", "A new.txt")
+        .inOrder();
+  }
+
+  @Test
+  public void testIgnoredFiles() throws Exception {
+    HashedTree snapshot = HashedTree.create(tree);
+    PathMatcher ignore = Glob.createGlob(ImmutableList.of("dir/**")).relativeTo(workspace);
+    HashedTree.Workspace reverse = snapshot.createWorkspace(tree, workspace);
+
+    write(workspace, "dir/b.txt", "modified");
+
+    assertThat(reverse.diff(ignore)).isEmpty();
+  }
+
+  @Test
+  public void testWritesInPlaceDoNotModifyTree() throws Exception {
+    HashedTree snapshot = HashedTree.create(tree);
+    HashedTree.Workspace reverse = snapshot.createWorkspace(tree, workspace);
+
+    // A step writes the file in place and a later one replaces it with the original content.
+    Files.writeString(workspace.resolve("dir/b.txt"), "modified", UTF_8);
+    Path replacement = workspace.resolve("replacement");
+    Files.writeString(replacement, "b", UTF_8);
+    Files.move(replacement, workspace.resolve("dir/b.txt"), StandardCopyOption.REPLACE_EXISTING);
+
+    assertThat(reverse.diff(NONE)).isEmpty();
+    assertThat(Files.readString(tree.resolve("dir/b.txt"), UTF_8)).isEqualTo("b");
+  }
+
+  @Test
+  public void testFilesModifiedInTheSnapshotTickAreHashed() throws Exception {
+    // Simulates a file written in the same timestamp tick as the snapshot.
+    FileTime tick = FileTime.from(Instant.now().plus(Duration.ofHours(1)));
+    Files.setLastModifiedTime(tree.resolve("a.txt"), tick);
+    HashedTree snapshot = HashedTree.create(tree);
+    // Rewritten in place with the same size, in the same tick.
+    Files.writeString(tree.resolve("a.txt"), "x", UTF_8);
+    Files.setLastModifiedTime(tree.resolve("a.txt"), tick);
+
+    HashedTree.Workspace reverse = snapshot.createWorkspace(tree, workspace);
+
+    assertThat(reverse.diff(NONE)).containsExactly("M a.txt");
+  }
+
+  @Test
+  public void testSymlinkOutside() throws Exception {
+    Path outside = Files.createTempFile("outside", "txt");
+    Files.createSymbolicLink(tree.resolve("link"), outside);
+
+    assertThrows(SymlinkException.class, () -> HashedTree.create(tree));
+  }
+
+  @Test
+  public void testSymlinkInside() throws Exception {
+    Files.createSymbolicLink(tree.resolve("link"), tree.getFileSystem().getPath("a.txt"));
+    HashedTree snapshot = HashedTree.create(tree);
+    HashedTree.Workspace reverse = snapshot.createWorkspace(tree, workspace);
+
+    assertThat(Files.readSymbolicLink(workspace.resolve("link")).toString()).isEqualTo("a.txt");
+    assertThat(reverse.diff(NONE)).isEmpty();
+
+    Files.delete(workspace.resolve("link"));
+    Files.createSymbolicLink(workspace.resolve("link"), tree.getFileSystem().getPath("dir"));
+
+    assertThat(reverse.diff(NONE)).containsExactly("M link");
+  }
+
+  private static void write(Path root, String path, String content) throws IOException {
+    Path file = root.resolve(path);
+    Files.createDirectories(file.getParent());
+    Files.writeString(file, content, UTF_8);
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.util;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertThrows;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class TailOutputStreamTest {
+
+  @Test
+  public void testEmpty() {
+    TailOutputStream stream = new TailOutputStream(4);
+
+    assertThat(stream.toByteArray()).isEmpty();
+    assertThat(stream.isTruncated()).isFalse();
+  }
+
+  @Test
+  public void testUnderCapacity() {
+    TailOutputStream stream = new TailOutputStream(4);
+    stream.write(bytes("ab"), 0, 2);
+
+    assertThat(content(stream)).isEqualTo("ab");
+    assertThat(stream.isTruncated()).isFalse();
+  }
+
+  @Test
+  public void testExactlyCapacityIsNotTruncated() {
+    TailOutputStream stream = new TailOutputStream(4);
+    stream.write(bytes("ab"), 0, 2);
+    stream.write(bytes("cd"), 0, 2);
+
+    assertThat(content(stream)).isEqualTo("abcd");
+    assertThat(stream.isTruncated()).isFalse();
+  }
+
+  @Test
+  public void testOneByteOverCapacityIsTruncated() {
+    TailOutputStream stream = new TailOutputStream(4);
+    stream.write(bytes("abcd"), 0, 4);
+    stream.write('e');
+
+    assertThat(content(stream)).isEqualTo("bcde");
+    assertThat(stream.isTruncated()).isTrue();
+  }
+
+  @Test
+  public void testWritesWrapAroundTheBuffer() {
+    TailOutputStream stream = new TailOutputStream(4);
+    stream.write(bytes("abc"), 0, 3);
+    stream.write(bytes("def"), 0, 3);
+
+    assertThat(content(stream)).isEqualTo("cdef");
+
+    stream.write(bytes("gh"), 0, 2);
+
+    assertThat(content(stream)).isEqualTo("efgh");
+  }
+
+  @Test
+  public void testWriteBiggerThanCapacityKeepsTheTail() {
+    TailOutputStream stream = new TailOutputStream(4);
+    stream.write('x');
+    stream.write(bytes("-abcdefgh-"), 1, 8);
+
+    assertThat(content(stream)).isEqualTo("efgh");
+    assertThat(stream.isTruncated()).isTrue();
+
+    stream.write(bytes("ij"), 0, 2);
+
+    assertThat(content(stream)).isEqualTo("ghij");
+  }
+
+  @Test
+  public void testSingleByteWrites() {
+    TailOutputStream stream = new TailOutputStream(3);
+    for (byte b : bytes("abcdefg")) {
+      stream.write(b);
+    }
+
+    assertThat(content(stream)).isEqualTo("efg");
+  }
+
+  @Test
+  public void testInvalidCapacity() {
+    assertThrows(IllegalArgumentException.class, () -> new TailOutputStream(0));
+  }
+
+  private static byte[] bytes(String s) {
+    return s.getBytes(UTF_8);
+  }
+
+  private static String content(TailOutputStream stream) {
+    return new String(stream.toByteArray(), UTF_8);
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.version;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableSet;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class VersionListCacheTest {
+
+  private static final Duration TTL = Duration.ofMinutes(10);
+  private static final Instant NOW = Instant.ofEpochSecond(1_700_000_000);
+
+  private Path dir;
+  private final AtomicInteger loads = new AtomicInteger();
+
+  @Before
+  public void setup() throws Exception {
+    dir = Files.createTempDirectory("versions");
+  }
+
+  @Test
+  public void testDisabled() throws Exception {
+    VersionListCache cache = VersionListCache.DISABLED;
+
+    assertThat(cache.get("foo", () -> load("1.0"))).containsExactly("1.0");
+    assertThat(cache.get("foo", () -> load("2.0"))).containsExactly("2.0");
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testVersionsAreReusedUntilExpired() throws Exception {
+    VersionListCache cache = new VersionListCache(/* dir= */ null, TTL, clockAt(NOW));
+
+    assertThat(cache.get("foo", () -> load("1.0"))).containsExactly("1.0");
+    assertThat(cache.get("foo", () -> load("2.0"))).containsExactly("1.0");
+    assertThat(cache.get("bar", () -> load("3.0"))).containsExactly("3.0");
+    assertThat(loads.get()).isEqualTo(2);
+
+    // Same entries, read with a later clock
+    cache = new VersionListCache(dir, TTL, clockAt(NOW));
+    cache.get("foo", () -> load("1.0"));
+    VersionListCache later = new VersionListCache(dir, TTL, clockAt(NOW.plus(TTL)));
+    assertThat(later.get("foo", () -> load("2.0"))).containsExactly("2.0");
+  }
+
+  @Test
+  public void testVersionsAreStored() throws Exception {
+    new VersionListCache(dir, TTL, clockAt(NOW)).get("foo", () -> load("1.0", "1.1"));
+
+    VersionListCache cache = new VersionListCache(dir, TTL, clockAt(NOW.plusSeconds(60)));
+
+    assertThat(cache.get("foo", () -> load("2.0"))).containsExactly("1.0", "1.1").inOrder();
+    assertThat(loads.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void testInvalidFilesAreIgnored() throws Exception {
+    new VersionListCache(dir, TTL, clockAt(NOW)).get("foo", () -> load("1.0"));
+    try (var files = Files.list(dir)) {
+      for (Path file : files.toList()) {
+        Files.writeString(file, "foo\nnot a time\n1.0\n", UTF_8);
+      }
+    }
+
+    VersionListCache cache = new VersionListCache(dir, TTL, clockAt(NOW));
+
+    assertThat(cache.get("foo", () -> load("2.0"))).containsExactly("2.0");
+  }
+
+  @Test
+  public void testVersionsThatDontFitAreNotStored() throws Exception {
+    new VersionListCache(dir, TTL, clockAt(NOW)).get("foo", () -> load("1.0\n2.0"));
+
+    try (var files = Files.list(dir)) {
+      assertThat(files.toList()).isEmpty();
+    }
+  }
+
+  private ImmutableSet<String> load(String... versions) {
+    loads.incrementAndGet();
+    return ImmutableSet.copyOf(versions);
+  }
+
+  private static Clock clockAt(Instant instant) {
+    return Clock.fixed(instant, ZoneOffset.UTC);
+  }
+}
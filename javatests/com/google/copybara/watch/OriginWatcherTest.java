@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.watch;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.copybara.testing.git.GitTestUtil.getGitEnv;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.copybara.git.GitEnvironment;
+import com.google.copybara.git.GitRepository;
+import com.google.copybara.testing.OptionsBuilder;
+import com.google.copybara.util.Glob;
+import com.google.copybara.util.console.testing.TestingConsole;
+import com.google.copybara.watch.OriginWatcher.Launch;
+import com.google.copybara.watch.OriginWatcher.WatchedWorkflow;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class OriginWatcherTest {
+
+  private static final Duration QUIET_PERIOD = Duration.ofSeconds(30);
+  private static final Instant NOW = Instant.ofEpochSecond(1_700_000_000);
+
+  private OptionsBuilder options;
+  private GitRepository origin;
+  private String url;
+  private String primaryBranch;
+
+  @Before
+  public void setup() throws Exception {
+    options =
+        new OptionsBuilder()
+            .setEnvironment(new GitEnvironment(System.getenv()).getEnvironment())
+            .setOutputRootToTmpDir()
+            .setWorkdirToRealTempDir()
+            .setConsole(new TestingConsole());
+    origin =
+        GitRepository.newRepo(
+                /* verbose= */ true,
+                Files.createTempDirectory("origin"),
+                new GitEnvironment(getGitEnv().getEnvironment()))
+            .init();
+    url = "file://" + origin.getGitDir().toAbsolutePath();
+    commit("foo/a.txt", "a");
+    primaryBranch = origin.getPrimaryBranch();
+  }
+
+  @Test
+  public void testFirstPollOnlyRecordsHeads() throws Exception {
+    OriginWatcher watcher = watcher(workflow("foo", "foo/**"));
+
+    assertThat(watcher.poll(NOW, u -> false)).isEmpty();
+    assertThat(watcher.poll(NOW.plus(QUIET_PERIOD), u -> false)).isEmpty();
+    assertThat(watcher.getPending()).isEmpty();
+  }
+
+  @Test
+  public void testChangesWaitForQuietPeriod() throws Exception {
+    OriginWatcher watcher = watcher(workflow("foo", "foo/**"));
+    watcher.poll(NOW, u -> false);
+
+    commit("foo/a.txt", "b");
+    assertThat(watcher.poll(NOW.plusSeconds(10), u -> false)).isEmpty();
+    String sha = commit("foo/a.txt", "c");
+    assertThat(watcher.poll(NOW.plusSeconds(20), u -> false)).isEmpty();
+    assertThat(watcher.getPending()).containsExactly("foo");
+
+    // Both pushes are migrated by a single run
+    assertThat(watcher.poll(NOW.plusSeconds(20).plus(QUIET_PERIOD), u -> false))
+        .containsExactly(new Launch("foo", url, sha));
+    assertThat(watcher.getPending()).isEmpty();
+  }
+
+  @Test
+  public void testOnlyWorkflowsWithChangedFilesRun() throws Exception {
+    OriginWatcher watcher =
+        watcher(workflow("foo", "foo/**"), workflow("bar", "bar/**"), workflow("all", "**"));
+    watcher.poll(NOW, u -> false);
+
+    String sha = commit("bar/b.txt", "b");
+    watcher.poll(NOW, u -> false);
+
+    // Workflows with the same origin don't run at the same time
+    assertThat(watcher.poll(NOW.plus(QUIET_PERIOD), u -> false))
+        .containsExactly(new Launch("bar", url, sha));
+    assertThat(watcher.getPending()).containsExactly("all");
+    assertThat(watcher.poll(NOW.plus(QUIET_PERIOD), u -> false))
+        .containsExactly(new Launch("all", url, sha));
+    assertThat(watcher.getPending()).isEmpty();
+  }
+
+  @Test
+  public void testWorkflowsWithBusyOriginStayPending() throws Exception {
+    OriginWatcher watcher = watcher(workflow("foo", "foo/**"));
+    watcher.poll(NOW, u -> false);
+
+    String sha = commit("foo/a.txt", "b");
+    watcher.poll(NOW, u -> false);
+    assertThat(watcher.poll(NOW.plus(QUIET_PERIOD), u -> true)).isEmpty();
+    assertThat(watcher.getPending()).containsExactly("foo");
+
+    assertThat(watcher.poll(NOW.plus(QUIET_PERIOD), u -> false))
+        .containsExactly(new Launch("foo", url, sha));
+  }
+
+  private OriginWatcher watcher(WatchedWorkflow... workflows) {
+    return new OriginWatcher(
+        options.git, options.general.console(), ImmutableList.copyOf(workflows), QUIET_PERIOD);
+  }
+
+  private WatchedWorkflow workflow(String name, String include) {
+    return new WatchedWorkflow(
+        name, url, primaryBranch, Glob.createGlob(ImmutableList.of(include)));
+  }
+
+  private String commit(String path, String content) throws Exception {
+    Path file = origin.getWorkTree().resolve(path);
+    Files.createDirectories(file.getParent());
+    Files.writeString(file, content, UTF_8);
+    origin.add().files(path).run();
+    origin.simpleCommand("commit", "-m", "change " + path);
+    return origin.simpleCommand("rev-parse", "HEAD").getStdout().trim();
+  }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.starlark.java.eval;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.io.IOException;
+import net.starlark.java.annot.Param;
+import net.starlark.java.annot.StarlarkMethod;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class MethodDescriptorTest {
+
+  private final Mutability mu = Mutability.create("test");
+  private final Target target = new Target();
+
+  @Test
+  public void testNoParameters() throws Exception {
+    assertThat(call("zero")).isEqualTo("zero");
+  }
+
+  @Test
+  public void testVoidReturnsNone() throws Exception {
+    assertThat(call("reset")).isEqualTo(Starlark.NONE);
+    assertThat(target.resets).isEqualTo(1);
+  }
+
+  @Test
+  public void testPrimitiveReturnIsBoxed() throws Exception {
+    assertThat(call("length", "abc")).isEqualTo(StarlarkInt.of(3));
+  }
+
+  @Test
+  public void testPrimitiveParameterIsUnboxed() throws Exception {
+    assertThat(call("pick", true, "a", "b")).isEqualTo("a");
+    assertThat(call("pick", false, "a", "b")).isEqualTo("b");
+  }
+
+  @Test
+  public void testMoreThanThreeParameters() throws Exception {
+    assertThat(call("join", "a", "b", "c", "d", "e")).isEqualTo("abcde");
+  }
+
+  @Test
+  public void testStaticMethod() throws Exception {
+    // StarlarkMethods can't be static, so borrow the annotation of a method with the same shape.
+    MethodDescriptor descriptor =
+        MethodDescriptor.of(
+            CallUtils.getBuiltinManager(StarlarkSemantics.DEFAULT),
+            Target.class.getMethod("staticLength", String.class),
+            Target.class.getMethod("length", String.class).getAnnotation(StarlarkMethod.class));
+
+    assertThat(descriptor.call(target, new Object[] {"abcd"}, mu)).isEqualTo(StarlarkInt.of(4));
+  }
+
+  @Test
+  public void testCheckedExceptionIsReportedToStarlark() {
+    EvalException e = assertThrows(EvalException.class, () -> call("fail", "checked"));
+    assertThat(e).hasCauseThat().isInstanceOf(IOException.class);
+    assertThat(e).hasCauseThat().hasMessageThat().isEqualTo("checked");
+  }
+
+  @Test
+  public void testEvalExceptionIsNotWrapped() {
+    EvalException e = assertThrows(EvalException.class, () -> call("fail", "eval"));
+    assertThat(e).hasMessageThat().isEqualTo("eval");
+    assertThat(e).hasCauseThat().isNull();
+  }
+
+  @Test
+  public void testUncheckedExceptionIsNotWrapped() {
+    IllegalArgumentException e =
+        assertThrows(IllegalArgumentException.class, () -> call("fail", "unchecked"));
+    assertThat(e).hasMessageThat().isEqualTo("unchecked");
+  }
+
+  @Test
+  public void testClassCastExceptionOfTheMethodIsNotWrapped() {
+    ClassCastException e = assertThrows(ClassCastException.class, () -> call("fail", "cast"));
+    assertThat(e).hasMessageThat().isEqualTo("cast");
+  }
+
+  @Test
+  public void testWrongArgumentType() {
+    IllegalStateException e =
+        assertThrows(IllegalStateException.class, () -> call("length", StarlarkInt.of(1)));
+    assertThat(e).hasMessageThat().startsWith("ClassCastException (");
+    assertThat(e).hasMessageThat().contains("in Starlark call of `");
+    assertThat(e).hasMessageThat().endsWith("args=[1 (int)]");
+  }
+
+  @Test
+  public void testNoneToPrimitiveParameter() {
+    IllegalStateException e =
+        assertThrows(IllegalStateException.class, () -> call("pick", Starlark.NONE, "a", "b"));
+    assertThat(e).hasMessageThat().startsWith("ClassCastException (");
+    assertThat(e)
+        .hasMessageThat()
+        .endsWith("args=[None (NoneType), \"a\" (string), \"b\" (string)]");
+  }
+
+  @Test
+  public void testWrongArgumentTypeWithMoreThanThreeParameters() {
+    IllegalStateException e =
+        assertThrows(
+            IllegalStateException.class, () -> call("join", "a", "b", "c", "d", StarlarkInt.of(1)));
+    assertThat(e).hasMessageThat().startsWith("ClassCastException (");
+    assertThat(e).hasMessageThat().contains("in Starlark call of `");
+  }
+
+  @Test
+  public void testWrongReceiver() throws Exception {
+    MethodDescriptor descriptor = descriptor("zero");
+
+    IllegalStateException e =
+        assertThrows(IllegalStateException.class, () -> descriptor.call("x", new Object[0], mu));
+    assertThat(e).hasMessageThat().contains("obj=\"x\" (string)");
+  }
+
+  @Test
+  public void testWrongArgumentCount() {
+    IllegalStateException e = assertThrows(IllegalStateException.class, () -> call("length"));
+    assertThat(e).hasMessageThat().startsWith("IllegalArgumentException (");
+  }
+
+  private Object call(String name, Object... args) throws Exception {
+    return descriptor(name).call(target, args, mu);
+  }
+
+  private static MethodDescriptor descriptor(String name) {
+    return CallUtils.getBuiltinManager(StarlarkSemantics.DEFAULT)
+        .getAnnotatedMethods(Target.class)
+        .get(name);
+  }
+
+  /** Methods of every call shape supported by MethodDescriptor. */
+  public static final class Target implements StarlarkValue {
+
+    private int resets;
+
+    @StarlarkMethod(name = "zero", doc = "Returns zero.")
+    public String zero() {
+      return "zero";
+    }
+
+    @StarlarkMethod(name = "reset", doc = "Counts resets.")
+    public void reset() {
+      resets++;
+    }
+
+    @StarlarkMethod(name = "length", doc = "Returns the length.", parameters = @Param(name = "s"))
+    public int length(String s) {
+      return s.length();
+    }
+
+    public static int staticLength(String s) {
+      return s.length();
+    }
+
+    @StarlarkMethod(
+        name = "pick",
+        doc = "Picks a or b.",
+        parameters = {@Param(name = "first"), @Param(name = "a"), @Param(name = "b")})
+    public String pick(boolean first, String a, String b) {
+      return first ? a : b;
+    }
+
+    @StarlarkMethod(
+        name = "join",
+        doc = "Joins the strings.",
+        parameters = {
+          @Param(name = "a"),
+          @Param(name = "b"),
+          @Param(name = "c"),
+          @Param(name = "d"),
+          @Param(name = "e")
+        })
+    public String join(String a, String b, String c, String d, String e) {
+      return a + b + c + d + e;
+    }
+
+    @StarlarkMethod(name = "fail", doc = "Fails.", parameters = @Param(name = "kind"))
+    public String fail(String kind) throws IOException, EvalException {
+      switch (kind) {
+        case "checked":
+          throw new IOException(kind);
+        case "eval":
+          throw Starlark.errorf("%s", kind);
+        case "cast":
+          throw new ClassCastException(kind);
+        default:
+          throw new IllegalArgumentException(kind);
+      }
+    }
+  }
+}
@@ -21,9 +21,15 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.primitives.Primitives;
 import com.google.errorprone.annotations.CheckReturnValue;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.math.BigInteger;
@@ -50,6 +56,8 @@ final class MethodDescriptor {
 
   private final Method method;
   @Nullable private transient StarlarkMethod annotation;
+  // Built on the first call. See invoke().
+  @Nullable private transient volatile MethodHandle handle;
 
   private final String name;
   private final String doc;
@@ -390,8 +398,22 @@ final class MethodDescriptor {
     if (!structField) {
       throw new IllegalStateException("not a struct field: " + name);
     }
-    Object[] args = useStarlarkSemantics ? new Object[] {semantics} : EMPTY;
-    return call(obj, args, mu);
+    if (!useStarlarkSemantics) {
+      return call(obj, EMPTY, mu);
+    }
+    // Fields are read more often than methods are called, so the semantics are passed without
+    // allocating an argument vector.
+    Preconditions.checkNotNull(obj);
+    Object result;
+    try {
+      result = invokeSingleArg(obj, semantics);
+    } catch (EvalException | InterruptedException e) {
+      throw e;
+    } catch (Throwable e) {
+      Throwables.throwIfUnchecked(e);
+      throw new EvalException(e);
+    }
+    return toStarlark(result, /* args= */ null, mu);
   }
 
   /**
@@ -406,50 +428,24 @@ final class MethodDescriptor {
     Preconditions.checkNotNull(obj);
     Object result;
     try {
-      result = method.invoke(obj, args);
-    } catch (IllegalAccessException ex) {
-      // "Can't happen": the annotated processor ensures that annotated methods are accessible.
-      throw new IllegalStateException(ex);
-
-    } catch (IllegalArgumentException ex) {
-      // "Can't happen": unexpected type mismatch in obj/args.
-      // Show details to aid debugging (see e.g. b/162444744).
-      StringBuilder buf = new StringBuilder();
-      buf.append(
-          String.format(
-              "IllegalArgumentException (%s) in Starlark call of `%s`, obj=%s (%s), args=[",
-              ex.getMessage(),
-              method,
-              Starlark.repr(obj, StarlarkSemantics.DEFAULT),
-              Starlark.type(obj)));
-      String sep = "";
-      for (Object arg : args) {
-        buf.append(
-            String.format(
-                "%s%s (%s)",
-                sep, Starlark.repr(arg, StarlarkSemantics.DEFAULT), Starlark.type(arg)));
-        sep = ", ";
-      }
-      buf.append(']');
-      throw new IllegalStateException(buf.toString(), ex);
-
-    } catch (InvocationTargetException ex) {
-      Throwable e = ex.getCause();
-      if (e == null) {
-        throw new IllegalStateException(ex);
-      }
+      result = invoke(obj, args);
+    } catch (EvalException | InterruptedException e) {
+      throw e;
+    } catch (Throwable e) {
       // Don't intercept unchecked exceptions.
       Throwables.throwIfUnchecked(e);
-      if (e instanceof EvalException) {
-        throw (EvalException) e;
-      } else if (e instanceof InterruptedException) {
-        throw (InterruptedException) e;
-      } else {
-        // All other checked exceptions (e.g. LabelSyntaxException) are reported to Starlark.
-        throw new EvalException(e);
-      }
+      // All other checked exceptions (e.g. LabelSyntaxException) are reported to Starlark.
+      throw new EvalException(e);
     }
+    return toStarlark(result, args, mu);
+  }
 
+  /**
+   * Converts the Java result of the method to a Starlark value.
+   *
+   * @param args the Java arguments of the call, for error messages, or null for a field
+   */
+  private Object toStarlark(Object result, @Nullable Object[] args, @Nullable Mutability mu) {
     // This switch is an optimization to reduce the overhead
     // of an unconditional null check and fromJava call.
     switch (howToHandleReturn) {
@@ -472,9 +468,185 @@ final class MethodDescriptor {
   }
 
   @CheckReturnValue // don't forget to throw it
-  private NullPointerException methodInvocationReturnedNull(Object[] args) {
+  private NullPointerException methodInvocationReturnedNull(@Nullable Object[] args) {
     return new NullPointerException(
-        "method invocation returned null: " + getName() + Tuple.of(args));
+        "method invocation returned null: " + getName() + (args != null ? Tuple.of(args) : ""));
+  }
+
+  /**
+   * Invokes the method through a {@link MethodHandle} adapted to take and return {@code Object}s.
+   * Unlike {@link Method#invoke}, this doesn't check the arguments and wrap the exceptions on every
+   * call. Methods with up to {@link #MAX_UNSPREAD_ARITY} parameters get the elements of {@code
+   * args} as separate arguments; the handle of larger ones spreads the array.
+   */
+  private Object invoke(Object obj, Object[] args) throws Throwable {
+    MethodHandle handle = getHandle();
+    if (args.length != method.getParameterCount()) {
+      // "Can't happen". Let reflection report the mismatch.
+      return invokeReflectively(obj, args);
+    }
+    try {
+      switch (args.length) {
+        case 0:
+          return (Object) handle.invokeExact(obj);
+        case 1:
+          return (Object) handle.invokeExact(obj, args[0]);
+        case 2:
+          return (Object) handle.invokeExact(obj, args[0], args[1]);
+        case 3:
+          return (Object) handle.invokeExact(obj, args[0], args[1], args[2]);
+        default:
+          return (Object) handle.invokeExact(obj, args);
+      }
+    } catch (ClassCastException | NullPointerException | WrongMethodTypeException ex) {
+      // The handle reports a type mismatch in obj/args like the method itself would report an
+      // error, so only treat it as one if the arguments are wrong.
+      if (!argumentsMatch(obj, args)) {
+        throw argumentMismatch(ex, obj, args);
+      }
+      throw ex;
+    }
+  }
+
+  /** Same as {@link #invoke(Object, Object[])} for a method with a single parameter. */
+  private Object invokeSingleArg(Object obj, Object arg) throws Throwable {
+    MethodHandle handle = getHandle();
+    if (method.getParameterCount() != 1) {
+      return invokeReflectively(obj, new Object[] {arg});
+    }
+    try {
+      return (Object) handle.invokeExact(obj, arg);
+    } catch (ClassCastException | NullPointerException | WrongMethodTypeException ex) {
+      Object[] args = {arg};
+      if (!argumentsMatch(obj, args)) {
+        throw argumentMismatch(ex, obj, args);
+      }
+      throw ex;
+    }
+  }
+
+  private MethodHandle getHandle() {
+    MethodHandle handle = this.handle;
+    if (handle == null) {
+      handle = createHandle(method);
+      this.handle = handle;
+    }
+    return handle;
+  }
+
+  private static final int MAX_UNSPREAD_ARITY = 3;
+
+  /**
+   * Returns a handle for {@code method} of type {@code (Object, Object...)Object} with one {@code
+   * Object} per parameter for up to {@link #MAX_UNSPREAD_ARITY} parameters, or {@code (Object,
+   * Object[])Object} for more.
+   */
+  private static MethodHandle createHandle(Method method) {
+    MethodHandle handle;
+    try {
+      // The method was made accessible in of(), so no access checks are done.
+      handle = MethodHandles.lookup().unreflect(method);
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    }
+    if (Modifier.isStatic(method.getModifiers())) {
+      handle = MethodHandles.dropArguments(handle, 0, Object.class);
+    }
+    int arity = method.getParameterCount();
+    // Boxes and unboxes primitives, casts the arguments and returns null for void methods.
+    handle = handle.asType(MethodType.genericMethodType(arity + 1));
+    if (arity > MAX_UNSPREAD_ARITY) {
+      handle = handle.asSpreader(Object[].class, arity);
+    }
+    return handle;
+  }
+
+  private Object invokeReflectively(Object obj, Object[] args) throws Throwable {
+    try {
+      return method.invoke(obj, args);
+    } catch (IllegalAccessException ex) {
+      // "Can't happen": the annotated processor ensures that annotated methods are accessible.
+      throw new IllegalStateException(ex);
+
+    } catch (IllegalArgumentException ex) {
+      // "Can't happen": unexpected type mismatch in obj/args.
+      throw argumentMismatch(ex, obj, args);
+
+    } catch (InvocationTargetException ex) {
+      Throwable e = ex.getCause();
+      if (e == null) {
+        throw new IllegalStateException(ex);
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Returns whether {@link Method#invoke} would accept {@code obj} and {@code args}: the receiver
+   * is an instance of the declaring class, reference arguments are null or instances of their
+   * parameter type, and primitive arguments are non-null wrappers that can be unboxed and widened
+   * to their parameter type.
+   */
+  private boolean argumentsMatch(Object obj, Object[] args) {
+    if (!Modifier.isStatic(method.getModifiers())
+        && !method.getDeclaringClass().isInstance(obj)) {
+      return false;
+    }
+    Class<?>[] types = method.getParameterTypes();
+    if (args.length != types.length) {
+      return false;
+    }
+    for (int i = 0; i < args.length; i++) {
+      Class<?> type = types[i];
+      Object arg = args[i];
+      if (!type.isPrimitive()) {
+        if (arg != null && !type.isInstance(arg)) {
+          return false;
+        }
+      } else if (arg == null || !widens(Primitives.unwrap(arg.getClass()), type)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static final ImmutableList<Class<?>> WIDENING_ORDER =
+      ImmutableList.of(byte.class, short.class, int.class, long.class, float.class, double.class);
+
+  /** Whether {@code from} is {@code to} or a widening primitive conversion (JLS 5.1.2) to it. */
+  private static boolean widens(Class<?> from, Class<?> to) {
+    if (from == to) {
+      return true;
+    }
+    // char widens like int, but nothing widens to char.
+    int fromIndex = WIDENING_ORDER.indexOf(from == char.class ? int.class : from);
+    int toIndex = WIDENING_ORDER.indexOf(to);
+    return fromIndex >= 0 && toIndex >= fromIndex;
+  }
+
+  /** Shows details of an unexpected type mismatch in obj/args to aid debugging. */
+  @CheckReturnValue // don't forget to throw it
+  private IllegalStateException argumentMismatch(Exception ex, Object obj, Object[] args) {
+    // See e.g. b/162444744.
+    StringBuilder buf = new StringBuilder();
+    buf.append(
+        String.format(
+            "%s (%s) in Starlark call of `%s`, obj=%s (%s), args=[",
+            ex.getClass().getSimpleName(),
+            ex.getMessage(),
+            method,
+            Starlark.repr(obj, StarlarkSemantics.DEFAULT),
+            Starlark.type(obj)));
+    String sep = "";
+    for (Object arg : args) {
+      buf.append(
+          String.format(
+              "%s%s (%s)",
+              sep, Starlark.repr(arg, StarlarkSemantics.DEFAULT), Starlark.type(arg)));
+      sep = ", ";
+    }
+    buf.append(']');
+    return new IllegalStateException(buf.toString(), ex);
   }
 
   /** @see StarlarkMethod#name() */